@@ -21,15 +21,22 @@ import java.util.Map;
 
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.EquivalenceClass;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.LogicalVariable;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.range.IRangeMap;
 
 public class OrderedPartitionedProperty implements IPartitioningProperty {
 
     private ArrayList<OrderColumn> orderColumns;
     private INodeDomain domain;
+    private IRangeMap rangeMap;
 
     public OrderedPartitionedProperty(ArrayList<OrderColumn> orderColumns, INodeDomain domain) {
+        this(orderColumns, domain, null);
+    }
+
+    public OrderedPartitionedProperty(ArrayList<OrderColumn> orderColumns, INodeDomain domain, IRangeMap rangeMap) {
         this.domain = domain;
         this.orderColumns = orderColumns;
+        this.rangeMap = rangeMap;
     }
 
     public ArrayList<OrderColumn> getOrderColumns() {
@@ -44,6 +51,13 @@ public class OrderedPartitionedProperty implements IPartitioningProperty {
         return cols;
     }
 
+    /**
+     * @return the split points of the ranges, or null if they are not known
+     */
+    public IRangeMap getRangeMap() {
+        return rangeMap;
+    }
+
     @Override
     public PartitioningType getPartitioningType() {
         return PartitioningType.ORDERED_PARTITIONED;
@@ -56,6 +70,11 @@ public class OrderedPartitionedProperty implements IPartitioningProperty {
 
     @Override
     public void normalize(Map<LogicalVariable, EquivalenceClass> equivalenceClasses, List<FunctionalDependency> fds) {
+        if (rangeMap != null) {
+            // The split points have a field for every order column, so the columns may be renamed but not dropped.
+            orderColumns = PropertiesUtil.renameOrderColumnsByEqClasses(orderColumns, equivalenceClasses);
+            return;
+        }
         orderColumns = PropertiesUtil.replaceOrderColumnsByEqClasses(orderColumns, equivalenceClasses);
         orderColumns = PropertiesUtil.applyFDsToOrderColumns(orderColumns, fds);
     }
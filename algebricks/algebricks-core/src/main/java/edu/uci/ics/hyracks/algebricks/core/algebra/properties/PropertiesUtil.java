@@ -137,6 +137,11 @@ public class PropertiesUtil {
                     case ORDERED_PARTITIONED: {
                         UnorderedPartitionedProperty ur = (UnorderedPartitionedProperty) reqd;
                         OrderedPartitionedProperty od = (OrderedPartitionedProperty) dlvd;
+                        if (od.getRangeMap() != null) {
+                            // The other inputs of the operator may be hash partitioned, or range partitioned with
+                            // other split points, so equal keys would not meet in the same partition.
+                            return false;
+                        }
                         if (mayExpandProperties) {
                             List<LogicalVariable> dlvdSortColumns = orderColumnsToVariables(od.getOrderColumns());
                             return isPrefixOf(dlvdSortColumns.iterator(), ur.getColumnSet().iterator());
@@ -155,6 +160,11 @@ public class PropertiesUtil {
                     case ORDERED_PARTITIONED: {
                         OrderedPartitionedProperty or = (OrderedPartitionedProperty) reqd;
                         OrderedPartitionedProperty od = (OrderedPartitionedProperty) dlvd;
+                        if (or.getRangeMap() != null) {
+                            // The split points apply to all of the order columns, so neither may be a prefix.
+                            return or.getRangeMap().equals(od.getRangeMap())
+                                    && od.getOrderColumns().equals(or.getOrderColumns());
+                        }
                         if (mayExpandProperties) {
                             return isPrefixOf(od.getOrderColumns().iterator(), or.getOrderColumns().iterator());
                         } else {
@@ -253,6 +263,27 @@ public class PropertiesUtil {
         return norm;
     }
 
+    /**
+     * Like {@link #replaceOrderColumnsByEqClasses(ArrayList, Map)}, but keeps the columns whose class has a constant
+     * representative, so that the columns stay in step with anything that is positional, such as a range map.
+     */
+    public static ArrayList<OrderColumn> renameOrderColumnsByEqClasses(ArrayList<OrderColumn> orderColumns,
+            Map<LogicalVariable, EquivalenceClass> equivalenceClasses) {
+        if (equivalenceClasses == null || equivalenceClasses.isEmpty()) {
+            return orderColumns;
+        }
+        ArrayList<OrderColumn> norm = new ArrayList<OrderColumn>(orderColumns.size());
+        for (OrderColumn oc : orderColumns) {
+            EquivalenceClass ec = equivalenceClasses.get(oc.getColumn());
+            if (ec == null || ec.representativeIsConst()) {
+                norm.add(oc);
+            } else {
+                norm.add(new OrderColumn(ec.getVariableRepresentative(), oc.getOrder()));
+            }
+        }
+        return norm;
+    }
+
     private static boolean impliedByPrefix(ArrayList<OrderColumn> vars, int i, FunctionalDependency fdep) {
         if (!fdep.getTail().contains(vars.get(i).getColumn())) {
             return false;
@@ -24,6 +24,8 @@ public class PhysicalOptimizationConfig {
     private static final String MAX_FRAMES_EXTERNAL_GROUP_BY = "MAX_FRAMES_EXTERNAL_GROUP_BY";
     private static final String MAX_FRAMES_LEFT_INPUT_HYBRID_HASH = "MAX_FRAMES_LEFT_INPUT_HYBRID_HASH";
     private static final String MAX_FRAMES_HYBRID_HASH = "MAX_FRAMES_HYBRID_HASH";
+    private static final String MAX_FRAMES_SORT_MERGE_JOIN = "MAX_FRAMES_SORT_MERGE_JOIN";
+    private static final String SORT_MERGE_JOIN = "SORT_MERGE_JOIN";
     private static final String FUDGE_FACTOR = "FUDGE_FACTOR";
     private static final String MAX_RECORDS_PER_FRAME = "MAX_RECORDS_PER_FRAME";
     
@@ -87,6 +89,27 @@ public class PhysicalOptimizationConfig {
         setInt(MAX_FRAMES_HYBRID_HASH, frameLimit);
     }
 
+    public int getMaxFramesSortMergeJoin() {
+        int frameSize = getFrameSize();
+        return getInt(MAX_FRAMES_SORT_MERGE_JOIN, (int) (((long) 32 * MB) / frameSize));
+    }
+
+    public void setMaxFramesSortMergeJoin(int frameLimit) {
+        setInt(MAX_FRAMES_SORT_MERGE_JOIN, frameLimit);
+    }
+
+    /**
+     * @return whether equi-joins are planned as sort-merge joins instead of
+     *         hash joins
+     */
+    public boolean isSortMergeJoin() {
+        return getBoolean(SORT_MERGE_JOIN, false);
+    }
+
+    public void setSortMergeJoin(boolean sortMergeJoin) {
+        setBoolean(SORT_MERGE_JOIN, sortMergeJoin);
+    }
+
     public int getMaxFramesExternalGroupBy() {
         int frameSize = getFrameSize();
         return getInt(MAX_FRAMES_EXTERNAL_GROUP_BY, (int) (((long) 256 * MB) / frameSize));
@@ -141,6 +164,18 @@ public class PhysicalOptimizationConfig {
             return Integer.parseInt(value);
     }
     
+    private void setBoolean(String property, boolean value) {
+        properties.setProperty(property, Boolean.toString(value));
+    }
+
+    private boolean getBoolean(String property, boolean defaultValue) {
+        String value = properties.getProperty(property);
+        if (value == null)
+            return defaultValue;
+        else
+            return Boolean.parseBoolean(value);
+    }
+
     private void setDouble(String property, double value) {
         properties.setProperty(property, Double.toString(value));
     }
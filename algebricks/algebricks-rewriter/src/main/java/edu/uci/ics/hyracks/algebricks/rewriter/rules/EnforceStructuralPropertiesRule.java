@@ -519,7 +519,8 @@ public class EnforceStructuralPropertiesRule implements IAlgebraicRewriteRule {
                     break;
                 }
                 case ORDERED_PARTITIONED: {
-                    pop = new RangePartitionPOperator(((OrderedPartitionedProperty) pp).getOrderColumns(), domain);
+                    OrderedPartitionedProperty opp = (OrderedPartitionedProperty) pp;
+                    pop = new RangePartitionPOperator(opp.getOrderColumns(), domain, opp.getRangeMap());
                     break;
                 }
                 case BROADCAST: {
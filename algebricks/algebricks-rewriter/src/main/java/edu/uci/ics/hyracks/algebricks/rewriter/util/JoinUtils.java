@@ -41,6 +41,7 @@ import edu.uci.ics.hyracks.algebricks.core.algebra.operators.physical.AbstractJo
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.physical.HybridHashJoinPOperator;
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.physical.InMemoryHashJoinPOperator;
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.physical.NLJoinPOperator;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.physical.SortMergeJoinPOperator;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.ILogicalPropertiesVector;
 import edu.uci.ics.hyracks.algebricks.core.config.AlgebricksConfig;
 
@@ -86,6 +87,12 @@ public class JoinUtils {
     private static void setHashJoinOp(AbstractBinaryJoinOperator op, JoinPartitioningType partitioningType,
             List<LogicalVariable> sideLeft, List<LogicalVariable> sideRight, IOptimizationContext context)
             throws AlgebricksException {
+        if (context.getPhysicalOptimizationConfig().isSortMergeJoin()) {
+            // the inputs get sorted on the join keys unless they already are
+            op.setPhysicalOperator(new SortMergeJoinPOperator(op.getJoinKind(), partitioningType, sideLeft, sideRight,
+                    context.getPhysicalOptimizationConfig().getMaxFramesSortMergeJoin()));
+            return;
+        }
         op.setPhysicalOperator(new HybridHashJoinPOperator(op.getJoinKind(), partitioningType, sideLeft, sideRight,
                 context.getPhysicalOptimizationConfig().getMaxFramesHybridHash(), context
                         .getPhysicalOptimizationConfig().getMaxFramesLeftInputHybridHash(), context
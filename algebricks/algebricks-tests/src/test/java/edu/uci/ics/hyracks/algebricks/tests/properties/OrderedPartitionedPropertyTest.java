@@ -0,0 +1,86 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.algebricks.tests.properties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.LogicalVariable;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.OrderOperator.IOrder.OrderKind;
+import edu.uci.ics.hyracks.algebricks.core.algebra.properties.FunctionalDependency;
+import edu.uci.ics.hyracks.algebricks.core.algebra.properties.OrderColumn;
+import edu.uci.ics.hyracks.algebricks.core.algebra.properties.OrderedPartitionedProperty;
+import edu.uci.ics.hyracks.algebricks.core.algebra.properties.PropertiesUtil;
+import edu.uci.ics.hyracks.algebricks.core.algebra.properties.UnorderedPartitionedProperty;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.range.RangeMap;
+
+public class OrderedPartitionedPropertyTest {
+    private final LogicalVariable a = new LogicalVariable(1);
+    private final LogicalVariable b = new LogicalVariable(2);
+
+    @Test
+    public void rangeMapMatchTest() {
+        OrderedPartitionedProperty reqd = rangePartitioned(createRangeMap(10, 20), a);
+        Assert.assertTrue(PropertiesUtil.matchPartitioningProps(reqd, rangePartitioned(createRangeMap(10, 20), a),
+                true));
+        // Other split points do not put the same keys together.
+        Assert.assertFalse(PropertiesUtil.matchPartitioningProps(reqd, rangePartitioned(createRangeMap(10, 30), a),
+                true));
+        Assert.assertFalse(PropertiesUtil.matchPartitioningProps(reqd,
+                new OrderedPartitionedProperty(orderColumns(a), null), true));
+
+        // A range partitioned input may meet a hash partitioned one.
+        UnorderedPartitionedProperty hashed = new UnorderedPartitionedProperty(new HashSet<LogicalVariable>(
+                Arrays.asList(a)), null);
+        Assert.assertFalse(PropertiesUtil.matchPartitioningProps(hashed, rangePartitioned(createRangeMap(10, 20), a),
+                true));
+    }
+
+    @Test
+    public void normalizeTest() {
+        // b is functionally determined by a, but the range map has split points for both columns.
+        OrderedPartitionedProperty p = rangePartitioned(new RangeMap(2, new byte[2], new int[] { 1, 2 }), a, b);
+        p.normalize(null, Collections.singletonList(new FunctionalDependency(Arrays.asList(a), Arrays.asList(b))));
+        Assert.assertEquals(orderColumns(a, b), p.getOrderColumns());
+    }
+
+    private OrderedPartitionedProperty rangePartitioned(RangeMap rangeMap, LogicalVariable... columns) {
+        return new OrderedPartitionedProperty(orderColumns(columns), null, rangeMap);
+    }
+
+    private static ArrayList<OrderColumn> orderColumns(LogicalVariable... columns) {
+        ArrayList<OrderColumn> orderColumns = new ArrayList<OrderColumn>();
+        for (LogicalVariable v : columns) {
+            orderColumns.add(new OrderColumn(v, OrderKind.ASC));
+        }
+        return orderColumns;
+    }
+
+    private static RangeMap createRangeMap(int... splitPoints) {
+        byte[] bytes = new byte[splitPoints.length];
+        int[] endOffsets = new int[splitPoints.length];
+        for (int i = 0; i < splitPoints.length; ++i) {
+            bytes[i] = (byte) splitPoints[i];
+            endOffsets[i] = i + 1;
+        }
+        return new RangeMap(1, bytes, endOffsets);
+    }
+}
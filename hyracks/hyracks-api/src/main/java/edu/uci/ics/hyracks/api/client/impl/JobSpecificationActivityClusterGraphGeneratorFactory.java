@@ -75,6 +75,8 @@ public class JobSpecificationActivityClusterGraphGeneratorFactory implements IAc
         acg.setConnectorPolicyAssignmentPolicy(spec.getConnectorPolicyAssignmentPolicy());
         acg.setUseConnectorPolicyForScheduling(spec.isUseConnectorPolicyForScheduling());
         acg.setReportTaskDetails(spec.isReportTaskDetails());
+        acg.setCompressedConnectors(spec.getCompressedConnectors());
+        acg.setRunFileCodecFactory(spec.getRunFileCodecFactory());
         final Set<Constraint> constraints = new HashSet<Constraint>();
         final IConstraintAcceptor acceptor = new IConstraintAcceptor() {
             @Override
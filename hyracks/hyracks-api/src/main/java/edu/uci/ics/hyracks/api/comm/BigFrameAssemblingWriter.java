@@ -0,0 +1,94 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.api.comm;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.context.IHyracksCommonContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Reassembles the big frames split up by a {@link BigFrameSplittingWriter}
+ * before passing them on, so that the writer gets to see every frame in one
+ * piece. The chunks of a big frame must arrive back to back.
+ */
+public class BigFrameAssemblingWriter implements IFrameWriter {
+    private final IHyracksCommonContext ctx;
+
+    private final IFrameWriter writer;
+
+    private ByteBuffer bigFrame;
+
+    private int nChunks;
+
+    private int chunkIndex;
+
+    private boolean failed;
+
+    public BigFrameAssemblingWriter(IHyracksCommonContext ctx, IFrameWriter writer) {
+        this.ctx = ctx;
+        this.writer = writer;
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        writer.open();
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        int frameSize = ctx.getFrameSize();
+        if (bigFrame != null) {
+            System.arraycopy(buffer.array(), 0, bigFrame.array(), chunkIndex * frameSize, frameSize);
+            if (++chunkIndex == nChunks) {
+                ByteBuffer frame = bigFrame;
+                bigFrame = null;
+                frame.clear();
+                writer.nextFrame(frame);
+                ctx.deallocateFrame(frame);
+            }
+            return;
+        }
+        int chunkCount = FrameHelper.getBigFrameChunkCount(buffer);
+        if (chunkCount > 0) {
+            bigFrame = ctx.allocateFrame(chunkCount * frameSize);
+            nChunks = chunkCount;
+            chunkIndex = 0;
+            return;
+        }
+        writer.nextFrame(buffer);
+    }
+
+    @Override
+    public void fail() throws HyracksDataException {
+        failed = true;
+        writer.fail();
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        try {
+            if (bigFrame != null) {
+                ctx.deallocateFrame(bigFrame);
+                bigFrame = null;
+                if (!failed) {
+                    throw new HyracksDataException("Stream ended in the middle of a big frame");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.api.comm;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Passes big frames to a writer that can only take frames of the job frame
+ * size, as a header frame followed by the chunks of the big frame (see
+ * {@link FrameHelper}). Frames of the job frame size are passed on as they are.
+ */
+public class BigFrameSplittingWriter implements IFrameWriter {
+    private final IFrameWriter writer;
+
+    private final int frameSize;
+
+    private ByteBuffer chunk;
+
+    public BigFrameSplittingWriter(IFrameWriter writer, int frameSize) {
+        this.writer = writer;
+        this.frameSize = frameSize;
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        writer.open();
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        if (buffer.capacity() <= frameSize) {
+            writer.nextFrame(buffer);
+            return;
+        }
+        if (chunk == null) {
+            chunk = ByteBuffer.allocate(frameSize);
+        }
+        int nChunks = buffer.capacity() / frameSize;
+        chunk.clear();
+        FrameHelper.putBigFrameHeader(chunk, nChunks);
+        writer.nextFrame(chunk);
+        for (int i = 0; i < nChunks; ++i) {
+            System.arraycopy(buffer.array(), i * frameSize, chunk.array(), 0, frameSize);
+            chunk.clear();
+            writer.nextFrame(chunk);
+        }
+    }
+
+    @Override
+    public void fail() throws HyracksDataException {
+        writer.fail();
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        writer.close();
+    }
+}
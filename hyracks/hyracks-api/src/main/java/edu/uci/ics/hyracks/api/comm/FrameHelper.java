@@ -14,8 +14,40 @@
  */
 package edu.uci.ics.hyracks.api.comm;
 
+import java.nio.ByteBuffer;
+
+/**
+ * A frame is normally as large as the frame size of the job. A tuple that
+ * does not fit into such a frame is carried by a big frame instead, whose size
+ * is a multiple of the job frame size and which has the same layout relative to
+ * its capacity. Channels, partitions and {@link IFrameReader}s only move frames
+ * of the job frame size, so a big frame travels as a header frame announcing
+ * the number of chunks, followed by the chunks themselves. The header is
+ * marked by a negative tuple count.
+ */
 public class FrameHelper {
     public static int getTupleCountOffset(int frameSize) {
         return frameSize - 4;
     }
+
+    /**
+     * @return the smallest multiple of the frame size that is at least the
+     *         given size
+     */
+    public static int getBigFrameSize(int frameSize, int minSize) {
+        return Math.max(1, (minSize + frameSize - 1) / frameSize) * frameSize;
+    }
+
+    public static void putBigFrameHeader(ByteBuffer header, int nChunks) {
+        header.putInt(getTupleCountOffset(header.capacity()), -nChunks);
+    }
+
+    /**
+     * @return the number of chunks that follow the frame if it is a big
+     *         frame header, 0 otherwise
+     */
+    public static int getBigFrameChunkCount(ByteBuffer frame) {
+        int tupleCount = frame.getInt(getTupleCountOffset(frame.capacity()));
+        return tupleCount < 0 ? -tupleCount : 0;
+    }
 }
\ No newline at end of file
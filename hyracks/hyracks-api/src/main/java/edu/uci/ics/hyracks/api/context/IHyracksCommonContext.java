@@ -25,6 +25,18 @@ public interface IHyracksCommonContext {
     public IIOManager getIOManager();
 
     public ByteBuffer allocateFrame() throws HyracksDataException;
-    
+
+    /**
+     * Allocates a big frame of the given size, which must be a multiple of the
+     * frame size (see {@link edu.uci.ics.hyracks.api.comm.FrameHelper}).
+     */
+    public ByteBuffer allocateFrame(int bytes) throws HyracksDataException;
+
+    /**
+     * Hands a frame obtained from {@link #allocateFrame()} back for reuse.
+     * The caller must not touch the frame afterwards.
+     */
+    public void deallocateFrame(ByteBuffer frame);
+
     public void deallocateFrames(int frameCount);
 }
@@ -15,6 +15,7 @@
 package edu.uci.ics.hyracks.api.context;
 
 import edu.uci.ics.hyracks.api.application.INCApplicationContext;
+import edu.uci.ics.hyracks.api.io.IFrameCodecFactory;
 import edu.uci.ics.hyracks.api.io.IWorkspaceFileFactory;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
@@ -32,4 +33,10 @@ public interface IHyracksJobletContext extends IWorkspaceFileFactory, IDeallocat
     public Class<?> loadClass(String className);
 
     public ClassLoader getClassLoader();
+
+    /**
+     * @return the factory of the codecs that compress the run files of the job, or null if
+     *         they are not compressed
+     */
+    public IFrameCodecFactory getRunFileCodecFactory();
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.api.dataflow.value;
+
+/**
+ * Computes a normalized key that captures the whole value of a field, so
+ * that comparing the keys word by word as unsigned longs orders the fields
+ * exactly like their comparator does.
+ */
+public interface IFullNormalizedKeyComputer {
+    /**
+     * @return the number of 64 bit words of every key
+     */
+    public int getKeyLength();
+
+    /**
+     * Writes the key of the field of the given length that starts at start in
+     * bytes into target, starting at targetOffset.
+     */
+    public void normalize(byte[] bytes, int start, int length, long[] target, int targetOffset);
+}
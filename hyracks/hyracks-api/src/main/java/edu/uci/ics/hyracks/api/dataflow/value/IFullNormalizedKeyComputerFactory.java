@@ -0,0 +1,24 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.api.dataflow.value;
+
+/**
+ * A normalized key computer factory for types whose values can be normalized
+ * without loss, such as fixed width numbers. Sorters can then order the
+ * tuples by their keys alone.
+ */
+public interface IFullNormalizedKeyComputerFactory extends INormalizedKeyComputerFactory {
+    public IFullNormalizedKeyComputer createFullNormalizedKeyComputer();
+}
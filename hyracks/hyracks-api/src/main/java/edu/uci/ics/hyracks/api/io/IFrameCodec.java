@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.api.io;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Compresses frames before they are written to disk and restores them when
+ * they are read back. Codec instances need not be thread-safe.
+ */
+public interface IFrameCodec {
+    /**
+     * @return the largest possible size of the compressed image of length
+     *         bytes
+     */
+    public int getMaxCompressedLength(int length);
+
+    /**
+     * Compresses length bytes of src starting at srcOffset into dst.
+     *
+     * @return the size of the compressed image
+     */
+    public int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) throws HyracksDataException;
+
+    /**
+     * Restores the image of compressedLength bytes starting at srcOffset in
+     * src into dst, which must have room for length bytes.
+     */
+    public void decompress(byte[] src, int srcOffset, int compressedLength, byte[] dst, int dstOffset, int length)
+            throws HyracksDataException;
+}
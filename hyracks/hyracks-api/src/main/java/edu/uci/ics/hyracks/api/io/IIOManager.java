@@ -39,8 +39,37 @@ public interface IIOManager {
 
     public int syncWrite(IFileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException;
 
+    /**
+     * Writes the given buffers back to back starting at the given offset
+     * with a single gathering write where possible.
+     */
+    public long syncWrite(IFileHandle fHandle, long offset, ByteBuffer[] dataArray) throws HyracksDataException;
+
     public int syncRead(IFileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException;
 
+    /**
+     * Reads consecutive bytes starting at the given offset into the given
+     * buffers with a single scattering read where possible.
+     * 
+     * @return the number of bytes read, which is less than requested at the
+     *         end of the file
+     */
+    public long syncRead(IFileHandle fHandle, long offset, ByteBuffer[] dataArray) throws HyracksDataException;
+
+    public long getSize(IFileHandle fHandle) throws HyracksDataException;
+
+    /**
+     * Maps the region [offset, offset + length) of the file read-only into
+     * memory. The mapping stays valid after the file handle is closed.
+     */
+    public ByteBuffer mapReadOnly(IFileHandle fHandle, long offset, int length) throws HyracksDataException;
+
+    /**
+     * Releases a mapping returned by {@link #mapReadOnly(IFileHandle, long, int)} right away. The buffer must not be
+     * used afterwards.
+     */
+    public void unmap(ByteBuffer mapping);
+
     public IIOFuture asyncWrite(IFileHandle fHandle, long offset, ByteBuffer data);
 
     public IIOFuture asyncRead(IFileHandle fHandle, long offset, ByteBuffer data);
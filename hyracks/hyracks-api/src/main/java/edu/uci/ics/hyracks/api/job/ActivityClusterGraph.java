@@ -17,8 +17,10 @@ package edu.uci.ics.hyracks.api.job;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -28,6 +30,7 @@ import edu.uci.ics.hyracks.api.dataflow.ActivityId;
 import edu.uci.ics.hyracks.api.dataflow.ConnectorDescriptorId;
 import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
 import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicyAssignmentPolicy;
+import edu.uci.ics.hyracks.api.io.IFrameCodecFactory;
 
 public class ActivityClusterGraph implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -54,6 +57,10 @@ public class ActivityClusterGraph implements Serializable {
 
     private boolean reportTaskDetails;
 
+    private final Set<ConnectorDescriptorId> compressedConnectors;
+
+    private IFrameCodecFactory runFileCodecFactory;
+
     public ActivityClusterGraph() {
         version = 0;
         activityClusterMap = new HashMap<ActivityClusterId, ActivityCluster>();
@@ -61,6 +68,7 @@ public class ActivityClusterGraph implements Serializable {
         connectorMap = new HashMap<ConnectorDescriptorId, ActivityCluster>();
         frameSize = 32768;
         reportTaskDetails = true;
+        compressedConnectors = new HashSet<ConnectorDescriptorId>();
     }
 
     public Map<ActivityId, ActivityCluster> getActivityMap() {
@@ -148,6 +156,23 @@ public class ActivityClusterGraph implements Serializable {
         this.reportTaskDetails = reportTaskDetails;
     }
 
+    public void setCompressedConnectors(Set<ConnectorDescriptorId> compressedConnectors) {
+        this.compressedConnectors.clear();
+        this.compressedConnectors.addAll(compressedConnectors);
+    }
+
+    public boolean isConnectorCompressed(ConnectorDescriptorId cdId) {
+        return compressedConnectors.contains(cdId);
+    }
+
+    public IFrameCodecFactory getRunFileCodecFactory() {
+        return runFileCodecFactory;
+    }
+
+    public void setRunFileCodecFactory(IFrameCodecFactory runFileCodecFactory) {
+        this.runFileCodecFactory = runFileCodecFactory;
+    }
+
     public List<IConnectorDescriptor> getActivityInputs(ActivityId activityId) {
         ActivityCluster ac = activityMap.get(activityId);
         return ac.getActivityInputMap().get(activityId);
@@ -39,6 +39,7 @@ import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
 import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicyAssignmentPolicy;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.dataset.ResultSetId;
+import edu.uci.ics.hyracks.api.io.IFrameCodecFactory;
 
 public class JobSpecification implements Serializable, IOperatorDescriptorRegistry, IConnectorDescriptorRegistry {
     private static final long serialVersionUID = 1L;
@@ -63,6 +64,8 @@ public class JobSpecification implements Serializable, IOperatorDescriptorRegist
 
     private final Set<Constraint> userConstraints;
 
+    private final Set<ConnectorDescriptorId> compressedConnectors;
+
     private IConnectorPolicyAssignmentPolicy connectorPolicyAssignmentPolicy;
 
     private int frameSize;
@@ -77,6 +80,8 @@ public class JobSpecification implements Serializable, IOperatorDescriptorRegist
 
     private boolean reportTaskDetails;
 
+    private IFrameCodecFactory runFileCodecFactory;
+
     private transient int operatorIdCounter;
 
     private transient int connectorIdCounter;
@@ -97,6 +102,7 @@ public class JobSpecification implements Serializable, IOperatorDescriptorRegist
         connectorOpMap = new HashMap<ConnectorDescriptorId, Pair<Pair<IOperatorDescriptor, Integer>, Pair<IOperatorDescriptor, Integer>>>();
         properties = new HashMap<String, Serializable>();
         userConstraints = new HashSet<Constraint>();
+        compressedConnectors = new HashSet<ConnectorDescriptorId>();
         operatorIdCounter = 0;
         connectorIdCounter = 0;
         maxReattempts = 2;
@@ -299,6 +305,39 @@ public class JobSpecification implements Serializable, IOperatorDescriptorRegist
         this.reportTaskDetails = reportTaskDetails;
     }
 
+    /**
+     * Enables or disables the compression of the frames that the given connector ships
+     * between nodes. Compression pays off for connectors that move a lot of data over a
+     * saturated network.
+     */
+    public void setConnectorCompressed(IConnectorDescriptor conn, boolean compressed) {
+        if (compressed) {
+            compressedConnectors.add(conn.getConnectorId());
+        } else {
+            compressedConnectors.remove(conn.getConnectorId());
+        }
+    }
+
+    public IFrameCodecFactory getRunFileCodecFactory() {
+        return runFileCodecFactory;
+    }
+
+    /**
+     * Sets the codec used to compress the run files that the operators of the job spill to
+     * disk. A null factory, the default, leaves the run files uncompressed.
+     */
+    public void setRunFileCodecFactory(IFrameCodecFactory runFileCodecFactory) {
+        this.runFileCodecFactory = runFileCodecFactory;
+    }
+
+    public boolean isConnectorCompressed(ConnectorDescriptorId cdId) {
+        return compressedConnectors.contains(cdId);
+    }
+
+    public Set<ConnectorDescriptorId> getCompressedConnectors() {
+        return compressedConnectors;
+    }
+
     private <K, V> void insertIntoIndexedMap(Map<K, List<V>> map, K key, int index, V value) {
         List<V> vList = map.get(key);
         if (vList == null) {
@@ -41,6 +41,15 @@ public class DatasetClientContext implements IHyracksCommonContext {
         return ByteBuffer.allocate(frameSize);
     }
 
+    @Override
+    public ByteBuffer allocateFrame(int bytes) {
+        return ByteBuffer.allocate(bytes);
+    }
+
+    @Override
+    public void deallocateFrame(ByteBuffer frame) {
+    }
+
     @Override
     public void deallocateFrames(int frameCount) {
         // TODO Auto-generated method stub
@@ -21,4 +21,11 @@ import edu.uci.ics.hyracks.net.protocols.muxdemux.ChannelControlBlock;
 
 public interface IChannelConnectionFactory {
     public ChannelControlBlock connect(SocketAddress remoteAddress) throws InterruptedException, NetException;
+
+    /**
+     * Opens a channel to the given address, asking the remote side to compress the buffers
+     * it sends if compressed is true.
+     */
+    public ChannelControlBlock connect(SocketAddress remoteAddress, boolean compressed) throws InterruptedException,
+            NetException;
 }
@@ -35,6 +35,12 @@ public class NetworkInputChannel implements IInputChannel {
 
     static final int INITIAL_MESSAGE_SIZE = 20;
 
+    /**
+     * The error code with which a consumer tells the sender that it needs no
+     * more data, as opposed to a failure.
+     */
+    public static final int CONSUMER_CLOSED_ECODE = 2;
+
     private final IChannelConnectionFactory netManager;
 
     private final SocketAddress remoteAddress;
@@ -45,19 +51,29 @@ public class NetworkInputChannel implements IInputChannel {
 
     private final int nBuffers;
 
+    private final boolean compressed;
+
     private ChannelControlBlock ccb;
 
     private IInputChannelMonitor monitor;
 
     private Object attachment;
 
+    private boolean closed;
+
     public NetworkInputChannel(IChannelConnectionFactory netManager, SocketAddress remoteAddress,
             PartitionId partitionId, int nBuffers) {
+        this(netManager, remoteAddress, partitionId, nBuffers, false);
+    }
+
+    public NetworkInputChannel(IChannelConnectionFactory netManager, SocketAddress remoteAddress,
+            PartitionId partitionId, int nBuffers, boolean compressed) {
         this.netManager = netManager;
         this.remoteAddress = remoteAddress;
         this.partitionId = partitionId;
         fullQueue = new ArrayDeque<ByteBuffer>(nBuffers);
         this.nBuffers = nBuffers;
+        this.compressed = compressed;
     }
 
     @Override
@@ -89,7 +105,7 @@ public class NetworkInputChannel implements IInputChannel {
     @Override
     public void open(IHyracksCommonContext ctx) throws HyracksDataException {
         try {
-            ccb = netManager.connect(remoteAddress);
+            ccb = netManager.connect(remoteAddress, compressed);
         } catch (Exception e) {
             throw new HyracksDataException(e);
         }
@@ -109,16 +125,41 @@ public class NetworkInputChannel implements IInputChannel {
         ccb.getWriteInterface().getFullBufferAcceptor().close();
     }
 
+    /**
+     * Tells the sender to stop sending, unless it is done already. The frames
+     * still on their way are dropped as they arrive, so that the sender can
+     * flush and close its end of the channel.
+     */
     @Override
     public void close() throws HyracksDataException {
-
+        synchronized (this) {
+            if (closed || ccb == null) {
+                return;
+            }
+            closed = true;
+        }
+        ByteBuffer buffer;
+        while ((buffer = getNextBuffer()) != null) {
+            recycleBuffer(buffer);
+        }
+        ccb.getWriteInterface().getFullBufferAcceptor().error(CONSUMER_CLOSED_ECODE);
     }
 
     private class ReadFullBufferAcceptor implements ICloseableBufferAcceptor {
         @Override
         public void accept(ByteBuffer buffer) {
-            fullQueue.add(buffer);
-            monitor.notifyDataAvailability(NetworkInputChannel.this, 1);
+            boolean drop;
+            synchronized (NetworkInputChannel.this) {
+                drop = closed;
+                if (!drop) {
+                    fullQueue.add(buffer);
+                }
+            }
+            if (drop) {
+                recycleBuffer(buffer);
+            } else {
+                monitor.notifyDataAvailability(NetworkInputChannel.this, 1);
+            }
         }
 
         @Override
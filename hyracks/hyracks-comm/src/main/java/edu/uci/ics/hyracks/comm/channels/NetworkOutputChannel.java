@@ -32,6 +32,8 @@ public class NetworkOutputChannel implements IFrameWriter {
 
     private boolean aborted;
 
+    private boolean consumerClosed;
+
     private int frameSize = 32768;
 
     private int allocateCounter = 0;
@@ -59,6 +61,9 @@ public class NetworkOutputChannel implements IFrameWriter {
                 if (aborted) {
                     throw new HyracksDataException("Connection has been aborted");
                 }
+                if (consumerClosed) {
+                    return;
+                }
                 destBuffer = emptyStack.poll();
                 if (destBuffer == null && allocateCounter < nBuffers) {
                     destBuffer = ByteBuffer.allocateDirect(frameSize);
@@ -100,6 +105,17 @@ public class NetworkOutputChannel implements IFrameWriter {
         }
     }
 
+    /**
+     * The consumer needs no more data: the frames written from now on are
+     * dropped instead of being sent.
+     */
+    public void consumerClosed() {
+        synchronized (NetworkOutputChannel.this) {
+            consumerClosed = true;
+            NetworkOutputChannel.this.notifyAll();
+        }
+    }
+
     private class WriteEmptyBufferAcceptor implements IBufferAcceptor {
         @Override
         public void accept(ByteBuffer buffer) {
@@ -91,6 +91,18 @@ public class NCConfig implements Serializable {
     @Option(name = "-result-manager-memory", usage = "Memory usable for result caching at this Node Controller in bytes (default: -1 auto)")
     public int resultManagerMemory = -1;
 
+    @Option(name = "-buffer-cache-type", usage = "Buffer cache implementation to be created by applications on this Node Controller: default or concurrent (default: default)", required = false)
+    public String bufferCacheType = "default";
+
+    @Option(name = "-buffer-cache-replacement-policy", usage = "Page replacement policy of the buffer cache created by applications on this Node Controller: clock or 2q (default: clock)", required = false)
+    public String bufferCacheReplacementPolicy = "clock";
+
+    @Option(name = "-buffer-cache-map-read-only-files", usage = "Serve pages of immutable LSM disk components from read-only memory mappings (default: false)", required = false)
+    public boolean bufferCacheMapReadOnlyFiles = false;
+
+    @Option(name = "-frame-pool-memory", usage = "Bytes of released job frames kept for reuse (default: -1, a sixteenth of the memory available to jobs; 0 disables pooling)", required = false)
+    public long framePoolMemory = -1;
+
     @Option(name = "-app-nc-main-class", usage = "Application NC Main Class")
     public String appNCMainClass;
 
@@ -143,6 +155,15 @@ public class NCConfig implements Serializable {
         cList.add(String.valueOf(resultSweepThreshold));
         cList.add("-result-manager-memory");
         cList.add(String.valueOf(resultManagerMemory));
+        cList.add("-buffer-cache-type");
+        cList.add(bufferCacheType);
+        cList.add("-buffer-cache-replacement-policy");
+        cList.add(bufferCacheReplacementPolicy);
+        if (bufferCacheMapReadOnlyFiles) {
+            cList.add("-buffer-cache-map-read-only-files");
+        }
+        cList.add("-frame-pool-memory");
+        cList.add(String.valueOf(framePoolMemory));
 
         if (appNCMainClass != null) {
             cList.add("-app-nc-main-class");
@@ -179,6 +200,10 @@ public class NCConfig implements Serializable {
         configuration.put("result-time-to-live", String.valueOf(resultTTL));
         configuration.put("result-sweep-threshold", String.valueOf(resultSweepThreshold));
         configuration.put("result-manager-memory", String.valueOf(resultManagerMemory));
+        configuration.put("buffer-cache-type", bufferCacheType);
+        configuration.put("buffer-cache-replacement-policy", bufferCacheReplacementPolicy);
+        configuration.put("buffer-cache-map-read-only-files", String.valueOf(bufferCacheMapReadOnlyFiles));
+        configuration.put("frame-pool-memory", String.valueOf(framePoolMemory));
 
         if (appNCMainClass != null) {
             configuration.put("app-nc-main-class", appNCMainClass);
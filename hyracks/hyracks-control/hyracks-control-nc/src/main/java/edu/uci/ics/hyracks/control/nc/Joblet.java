@@ -33,6 +33,7 @@ import edu.uci.ics.hyracks.api.deployment.DeploymentId;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.exceptions.HyracksException;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.io.IFrameCodecFactory;
 import edu.uci.ics.hyracks.api.io.IIOManager;
 import edu.uci.ics.hyracks.api.io.IWorkspaceFileFactory;
 import edu.uci.ics.hyracks.api.job.ActivityClusterGraph;
@@ -92,6 +93,10 @@ public class Joblet implements IHyracksJobletContext, ICounterContext {
 
     private final AtomicLong memoryAllocation;
 
+    private final Counter allocatedFrameCounter;
+
+    private final Counter releasedFrameCounter;
+
     private JobStatus cleanupStatus;
 
     private boolean cleanupPending;
@@ -110,6 +115,8 @@ public class Joblet implements IHyracksJobletContext, ICounterContext {
         stateObjectMap = new HashMap<Object, IStateObject>();
         taskMap = new HashMap<TaskAttemptId, Task>();
         counterMap = new HashMap<String, Counter>();
+        allocatedFrameCounter = (Counter) getCounter("frames.allocated", true);
+        releasedFrameCounter = (Counter) getCounter("frames.released", true);
         deallocatableRegistry = new DefaultDeallocatableRegistry();
         fileFactory = new WorkspaceFileFactory(this, (IOManager) appCtx.getRootContext().getIOManager());
         cleanupPending = false;
@@ -222,15 +229,36 @@ public class Joblet implements IHyracksJobletContext, ICounterContext {
     }
 
     ByteBuffer allocateFrame() throws HyracksDataException {
-        if (appCtx.getMemoryManager().allocate(frameSize)) {
-            memoryAllocation.addAndGet(frameSize);
-            return ByteBuffer.allocate(frameSize);
+        return allocateFrame(frameSize);
+    }
+
+    ByteBuffer allocateFrame(int bytes) throws HyracksDataException {
+        if (bytes <= 0 || bytes % frameSize != 0) {
+            throw new HyracksDataException("Frame size " + bytes + " is not a multiple of " + frameSize);
+        }
+        if (appCtx.getMemoryManager().allocate(bytes)) {
+            memoryAllocation.addAndGet(bytes);
+            allocatedFrameCounter.update(1);
+            // Big frames are rare and would sit in the frame pool outside of the memory budget, so only frames of
+            // the standard size are pooled.
+            return bytes == frameSize ? nodeController.getFramePool().allocate(bytes) : ByteBuffer.allocate(bytes);
         }
         throw new HyracksDataException("Unable to allocate frame: Not enough memory");
     }
 
+    void deallocateFrame(ByteBuffer frame) {
+        int bytes = frame.capacity();
+        memoryAllocation.addAndGet(-bytes);
+        releasedFrameCounter.update(1);
+        appCtx.getMemoryManager().deallocate(bytes);
+        if (bytes == frameSize) {
+            nodeController.getFramePool().release(frame);
+        }
+    }
+
     public void deallocateFrames(int nFrames) {
-        memoryAllocation.addAndGet(nFrames * frameSize);
+        memoryAllocation.addAndGet(-nFrames * frameSize);
+        releasedFrameCounter.update(nFrames);
         appCtx.getMemoryManager().deallocate(nFrames * frameSize);
     }
 
@@ -327,4 +355,9 @@ public class Joblet implements IHyracksJobletContext, ICounterContext {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public IFrameCodecFactory getRunFileCodecFactory() {
+        return acg.getRunFileCodecFactory();
+    }
 }
\ No newline at end of file
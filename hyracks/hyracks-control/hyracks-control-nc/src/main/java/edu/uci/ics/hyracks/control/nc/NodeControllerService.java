@@ -75,6 +75,7 @@ import edu.uci.ics.hyracks.control.nc.io.profiling.IOCounterFactory;
 import edu.uci.ics.hyracks.control.nc.net.DatasetNetworkManager;
 import edu.uci.ics.hyracks.control.nc.net.NetworkManager;
 import edu.uci.ics.hyracks.control.nc.partitions.PartitionManager;
+import edu.uci.ics.hyracks.control.nc.resources.memory.FramePool;
 import edu.uci.ics.hyracks.control.nc.resources.memory.MemoryManager;
 import edu.uci.ics.hyracks.control.nc.runtime.RootHyracksContext;
 import edu.uci.ics.hyracks.control.nc.work.AbortTasksWork;
@@ -98,6 +99,8 @@ public class NodeControllerService extends AbstractRemoteService {
 
     private static final double MEMORY_FUDGE_FACTOR = 0.8;
 
+    private static final int FRAME_POOL_MEMORY_DIVISOR = 16;
+
     private NCConfig ncConfig;
 
     private final String id;
@@ -154,6 +157,8 @@ public class NodeControllerService extends AbstractRemoteService {
 
     private final MemoryManager memoryManager;
 
+    private final FramePool framePool;
+
     private boolean shuttedDown = false;
 
     private IIOCounter ioCounter;
@@ -187,6 +192,8 @@ public class NodeControllerService extends AbstractRemoteService {
         registrationPending = true;
         getNodeControllerInfosAcceptor = new MutableObject<FutureValue<Map<String, NodeControllerInfo>>>();
         memoryManager = new MemoryManager((long) (memoryMXBean.getHeapMemoryUsage().getMax() * MEMORY_FUDGE_FACTOR));
+        framePool = new FramePool(memoryManager, ncConfig.framePoolMemory >= 0 ? ncConfig.framePoolMemory
+                : memoryManager.getMaximumMemory() / FRAME_POOL_MEMORY_DIVISOR);
         ioCounter = new IOCounterFactory().getIOCounter();
     }
 
@@ -378,6 +385,10 @@ public class NodeControllerService extends AbstractRemoteService {
         return executor;
     }
 
+    public FramePool getFramePool() {
+        return framePool;
+    }
+
     public NCConfig getConfiguration() {
         return ncConfig;
     }
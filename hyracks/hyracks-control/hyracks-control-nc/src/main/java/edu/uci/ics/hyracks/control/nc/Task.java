@@ -25,6 +25,7 @@ import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 
+import edu.uci.ics.hyracks.api.comm.BigFrameAssemblingWriter;
 import edu.uci.ics.hyracks.api.comm.IFrameReader;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.comm.IPartitionCollector;
@@ -119,6 +120,16 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
         return joblet.allocateFrame();
     }
 
+    @Override
+    public ByteBuffer allocateFrame(int bytes) throws HyracksDataException {
+        return joblet.allocateFrame(bytes);
+    }
+
+    @Override
+    public void deallocateFrame(ByteBuffer frame) {
+        joblet.deallocateFrame(frame);
+    }
+
     @Override
     public void deallocateFrames(int frameCount) {
         joblet.deallocateFrames(frameCount);
@@ -298,8 +309,8 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
         }
     }
 
-    private void pushFrames(IPartitionCollector collector, List<PartitionChannel> inputChannels, IFrameWriter writer)
-            throws HyracksDataException {
+    private void pushFrames(IPartitionCollector collector, List<PartitionChannel> inputChannels,
+            IFrameWriter operatorWriter) throws HyracksDataException {
         if (aborted) {
             return;
         }
@@ -313,24 +324,29 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
                     collector.addPartitions(inputChannels);
                 }
                 IFrameReader reader = collector.getReader();
+                IFrameWriter writer = new BigFrameAssemblingWriter(this, operatorWriter);
                 reader.open();
                 try {
-                    writer.open();
+                    ByteBuffer buffer = allocateFrame();
                     try {
-                        ByteBuffer buffer = allocateFrame();
-                        while (reader.nextFrame(buffer)) {
-                            if (aborted) {
-                                return;
+                        writer.open();
+                        try {
+                            while (reader.nextFrame(buffer)) {
+                                if (aborted) {
+                                    return;
+                                }
+                                buffer.flip();
+                                writer.nextFrame(buffer);
+                                buffer.compact();
                             }
-                            buffer.flip();
-                            writer.nextFrame(buffer);
-                            buffer.compact();
+                        } catch (Exception e) {
+                            writer.fail();
+                            throw e;
+                        } finally {
+                            writer.close();
                         }
-                    } catch (Exception e) {
-                        writer.fail();
-                        throw e;
                     } finally {
-                        writer.close();
+                        deallocateFrame(buffer);
                     }
                 } finally {
                     reader.close();
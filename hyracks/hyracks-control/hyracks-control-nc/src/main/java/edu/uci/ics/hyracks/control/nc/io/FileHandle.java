@@ -29,6 +29,8 @@ public class FileHandle implements IFileHandle {
 
     private FileChannel channel;
 
+    private IODeviceQueue deviceQueue;
+
     public FileHandle(FileReference fileRef) {
         this.fileRef = fileRef;
     }
@@ -84,6 +86,14 @@ public class FileHandle implements IFileHandle {
         return channel;
     }
 
+    public IODeviceQueue getDeviceQueue() {
+        return deviceQueue;
+    }
+
+    void setDeviceQueue(IODeviceQueue deviceQueue) {
+        this.deviceQueue = deviceQueue;
+    }
+
     public void sync(boolean metadata) throws IOException {
         channel.force(metadata);
     }
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.nc.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.IODeviceHandle;
+
+/**
+ * Schedules the asynchronous requests of one IO device and keeps its IO
+ * statistics. Pending requests are drained in batches by up to
+ * {@link #MAX_DRAINERS} threads. A batch holds the requests of a single file,
+ * and a file is served by one thread at a time, so that different files are
+ * read and written in parallel. The requests of a batch are sorted by offset,
+ * and runs of adjacent reads or writes are issued as a single scattering read
+ * or gathering write. A request that overlaps an earlier request of the batch,
+ * where one of the two is a write, is not moved before it. Synchronous IO is
+ * performed by the calling thread, but is accounted here as well.
+ */
+public class IODeviceQueue {
+    private static final int MAX_RUN_LENGTH = 64;
+
+    /**
+     * The number of threads that may perform the requests of a device at the
+     * same time.
+     */
+    public static final int MAX_DRAINERS = 4;
+
+    private static final Comparator<IORequest> OFFSET_ORDER = new Comparator<IORequest>() {
+        @Override
+        public int compare(IORequest r1, IORequest r2) {
+            return r1.offset < r2.offset ? -1 : (r1.offset == r2.offset ? 0 : 1);
+        }
+    };
+
+    private final IODeviceHandle device;
+    private final List<IORequest> pendingRequests;
+    // The files whose requests are being performed by a drainer, guarded by pendingRequests.
+    private final Set<FileHandle> busyFiles;
+    private final Runnable drainer;
+    private int activeDrainers;
+
+    private final AtomicInteger queueDepth;
+    private volatile int maxQueueDepth;
+    private final AtomicLong readCount;
+    private final AtomicLong readBytes;
+    private final AtomicLong readTime;
+    private final AtomicLong writeCount;
+    private final AtomicLong writeBytes;
+    private final AtomicLong writeTime;
+    private final AtomicLong coalescedCount;
+
+    IODeviceQueue(IODeviceHandle device) {
+        this.device = device;
+        pendingRequests = new ArrayList<IORequest>();
+        busyFiles = new HashSet<FileHandle>();
+        drainer = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+        activeDrainers = 0;
+        queueDepth = new AtomicInteger();
+        maxQueueDepth = 0;
+        readCount = new AtomicLong();
+        readBytes = new AtomicLong();
+        readTime = new AtomicLong();
+        writeCount = new AtomicLong();
+        writeBytes = new AtomicLong();
+        writeTime = new AtomicLong();
+        coalescedCount = new AtomicLong();
+    }
+
+    void submit(IORequest request, Executor executor) {
+        int depth = queueDepth.incrementAndGet();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+        boolean startDrainer;
+        synchronized (pendingRequests) {
+            pendingRequests.add(request);
+            startDrainer = activeDrainers < MAX_DRAINERS;
+            if (startDrainer) {
+                ++activeDrainers;
+            }
+        }
+        if (startDrainer) {
+            try {
+                executor.execute(drainer);
+            } catch (RuntimeException e) {
+                synchronized (pendingRequests) {
+                    --activeDrainers;
+                    // The running drainers perform the request, or it has been performed already.
+                    if (activeDrainers > 0 || !pendingRequests.remove(request)) {
+                        return;
+                    }
+                }
+                // The caller sees the failure, so the request must not be performed later. Requests that other
+                // submitters queued in the meantime are left for the next submitter.
+                queueDepth.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        List<IORequest> batch = new ArrayList<IORequest>();
+        FileHandle file = null;
+        while (true) {
+            synchronized (pendingRequests) {
+                if (file != null) {
+                    busyFiles.remove(file);
+                    file = null;
+                }
+                // Take the requests of the first file that no other drainer is serving. The requests of busy files
+                // are taken by their drainers once they are done with the current batch.
+                Iterator<IORequest> iter = pendingRequests.iterator();
+                while (iter.hasNext()) {
+                    IORequest request = iter.next();
+                    if (file == null && !busyFiles.contains(request.fHandle)) {
+                        file = request.fHandle;
+                    }
+                    if (request.fHandle == file) {
+                        batch.add(request);
+                        iter.remove();
+                    }
+                }
+                if (file == null) {
+                    --activeDrainers;
+                    return;
+                }
+                busyFiles.add(file);
+            }
+            performBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void performBatch(List<IORequest> batch) {
+        int epochStart = 0;
+        while (epochStart < batch.size()) {
+            // Only the requests of an epoch are reordered, and no request of an epoch conflicts with another one.
+            int epochEnd = findEpochEnd(batch, epochStart);
+            List<IORequest> epoch = batch.subList(epochStart, epochEnd);
+            Collections.sort(epoch, OFFSET_ORDER);
+            int runStart = 0;
+            while (runStart < epoch.size()) {
+                int runEnd = findRunEnd(epoch, runStart);
+                performRun(epoch.subList(runStart, runEnd));
+                runStart = runEnd;
+            }
+            epochStart = epochEnd;
+        }
+    }
+
+    /**
+     * @return the index of the first request that overlaps an earlier request
+     *         of the epoch, where one of the two is a write
+     */
+    private int findEpochEnd(List<IORequest> batch, int epochStart) {
+        // The spans of all requests and of the writes of the epoch, to skip the scan when nothing can overlap.
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        long writeStart = Long.MAX_VALUE;
+        long writeEnd = Long.MIN_VALUE;
+        int epochEnd = epochStart;
+        while (epochEnd < batch.size()) {
+            IORequest request = batch.get(epochEnd);
+            long requestEnd = request.offset + request.length;
+            boolean mayConflict = request.write ? request.offset < end && start < requestEnd
+                    : request.offset < writeEnd && writeStart < requestEnd;
+            if (mayConflict && conflicts(batch, epochStart, epochEnd)) {
+                break;
+            }
+            start = Math.min(start, request.offset);
+            end = Math.max(end, requestEnd);
+            if (request.write) {
+                writeStart = Math.min(writeStart, request.offset);
+                writeEnd = Math.max(writeEnd, requestEnd);
+            }
+            ++epochEnd;
+        }
+        return epochEnd;
+    }
+
+    private static boolean conflicts(List<IORequest> batch, int epochStart, int index) {
+        IORequest request = batch.get(index);
+        for (int i = epochStart; i < index; ++i) {
+            IORequest prev = batch.get(i);
+            if ((request.write || prev.write) && request.offset < prev.offset + prev.length
+                    && prev.offset < request.offset + request.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int findRunEnd(List<IORequest> batch, int runStart) {
+        IORequest prev = batch.get(runStart);
+        int runEnd = runStart + 1;
+        while (runEnd < batch.size() && runEnd - runStart < MAX_RUN_LENGTH) {
+            IORequest next = batch.get(runEnd);
+            if (next.write != prev.write || next.offset != prev.offset + prev.length) {
+                break;
+            }
+            prev = next;
+            ++runEnd;
+        }
+        return runEnd;
+    }
+
+    private void performRun(List<IORequest> run) {
+        IORequest first = run.get(0);
+        try {
+            if (run.size() == 1) {
+                int result = first.write ? IOManager.write(first.fHandle, first.offset, first.data) : IOManager.read(
+                        first.fHandle, first.offset, first.data);
+                complete(first, result, null);
+                return;
+            }
+            ByteBuffer[] dataArray = new ByteBuffer[run.size()];
+            for (int i = 0; i < dataArray.length; ++i) {
+                dataArray[i] = run.get(i).data;
+            }
+            if (first.write) {
+                IOManager.write(first.fHandle, first.offset, dataArray);
+            } else {
+                IOManager.read(first.fHandle, first.offset, dataArray);
+            }
+            coalescedCount.addAndGet(run.size() - 1);
+            for (IORequest request : run) {
+                // Mirror the single buffer calls: a short read means we hit the end of the file.
+                int result = request.write || !request.data.hasRemaining() ? request.length : -1;
+                complete(request, result, null);
+            }
+        } catch (HyracksDataException e) {
+            for (IORequest request : run) {
+                if (!request.isComplete()) {
+                    complete(request, -1, e);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (IORequest request : run) {
+                if (!request.isComplete()) {
+                    complete(request, -1, new HyracksDataException(e));
+                }
+            }
+        }
+    }
+
+    private void complete(IORequest request, int result, HyracksDataException exception) {
+        queueDepth.decrementAndGet();
+        long time = System.nanoTime() - request.submitTime;
+        if (request.write) {
+            recordWrite(exception == null ? request.length : 0, time);
+        } else {
+            recordRead(result > 0 ? result : 0, time);
+        }
+        request.complete(result, exception);
+    }
+
+    void recordRead(long bytes, long time) {
+        readCount.incrementAndGet();
+        readBytes.addAndGet(bytes);
+        readTime.addAndGet(time);
+    }
+
+    void recordWrite(long bytes, long time) {
+        writeCount.incrementAndGet();
+        writeBytes.addAndGet(bytes);
+        writeTime.addAndGet(time);
+    }
+
+    /**
+     * @return the device served by this queue, or null for the queue of the
+     *         files outside of the configured IO devices
+     */
+    public IODeviceHandle getDevice() {
+        return device;
+    }
+
+    /**
+     * @return the number of asynchronous requests that have been submitted
+     *         but not completed yet
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    public long getReadBytes() {
+        return readBytes.get();
+    }
+
+    /**
+     * @return the total time in nanoseconds spent by reads, including the
+     *         time asynchronous reads waited in the queue
+     */
+    public long getReadTime() {
+        return readTime.get();
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    public long getWriteBytes() {
+        return writeBytes.get();
+    }
+
+    /**
+     * @return the total time in nanoseconds spent by writes, including the
+     *         time asynchronous writes waited in the queue
+     */
+    public long getWriteTime() {
+        return writeTime.get();
+    }
+
+    /**
+     * @return the number of asynchronous requests that were merged into the
+     *         IO of a preceding adjacent request
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        long reads = getReadCount();
+        long writes = getWriteCount();
+        return "IODeviceQueue[" + (device == null ? "<other>" : device.getPath().getPath()) + "] queue depth: "
+                + getQueueDepth() + " (max " + getMaxQueueDepth() + "), reads: " + reads + " ("
+                + getReadBytes() + " bytes, avg " + (reads == 0 ? 0 : getReadTime() / reads) + " ns), writes: "
+                + writes + " (" + getWriteBytes() + " bytes, avg " + (writes == 0 ? 0 : getWriteTime() / writes)
+                + " ns), coalesced: " + getCoalescedCount();
+    }
+}
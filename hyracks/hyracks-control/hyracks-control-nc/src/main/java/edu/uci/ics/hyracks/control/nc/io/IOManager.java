@@ -16,11 +16,15 @@ package edu.uci.ics.hyracks.control.nc.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.exceptions.HyracksException;
@@ -31,6 +35,8 @@ import edu.uci.ics.hyracks.api.io.IIOManager;
 import edu.uci.ics.hyracks.api.io.IODeviceHandle;
 
 public class IOManager implements IIOManager {
+    private static final Logger LOGGER = Logger.getLogger(IOManager.class.getName());
+
     private final List<IODeviceHandle> ioDevices;
 
     private Executor executor;
@@ -39,6 +45,11 @@ public class IOManager implements IIOManager {
 
     private int workAreaDeviceIndex;
 
+    private final List<IODeviceQueue> deviceQueues;
+
+    // Serves the files that do not live on one of the IO devices.
+    private final IODeviceQueue defaultDeviceQueue;
+
     public IOManager(List<IODeviceHandle> devices, Executor executor) throws HyracksException {
         this(devices);
         this.executor = executor;
@@ -57,6 +68,12 @@ public class IOManager implements IIOManager {
             throw new HyracksException("No devices with work areas found");
         }
         workAreaDeviceIndex = 0;
+        List<IODeviceQueue> queues = new ArrayList<IODeviceQueue>();
+        for (IODeviceHandle d : ioDevices) {
+            queues.add(new IODeviceQueue(d));
+        }
+        deviceQueues = Collections.unmodifiableList(queues);
+        defaultDeviceQueue = new IODeviceQueue(null);
     }
 
     public void setExecutor(Executor executor) {
@@ -77,19 +94,76 @@ public class IOManager implements IIOManager {
         } catch (IOException e) {
             throw new HyracksDataException(e);
         }
+        fHandle.setDeviceQueue(getDeviceQueue(fileRef));
         return fHandle;
     }
 
+    /**
+     * @return the IO queues and statistics of the IO devices, followed by the
+     *         queue of the files outside of the IO devices
+     */
+    public List<IODeviceQueue> getDeviceQueues() {
+        List<IODeviceQueue> queues = new ArrayList<IODeviceQueue>(deviceQueues);
+        queues.add(defaultDeviceQueue);
+        return queues;
+    }
+
+    private IODeviceQueue getDeviceQueue(FileReference fileRef) {
+        // Device handles may have been deserialized, so match on the path rather than on the handle.
+        String path = fileRef.getFile().getAbsolutePath();
+        IODeviceQueue queue = defaultDeviceQueue;
+        int matchLength = 0;
+        for (IODeviceQueue q : deviceQueues) {
+            String devicePath = q.getDevice().getPath().getAbsolutePath();
+            if (devicePath.length() > matchLength && path.startsWith(devicePath)
+                    && (path.length() == devicePath.length() || path.charAt(devicePath.length()) == File.separatorChar)) {
+                queue = q;
+                matchLength = devicePath.length();
+            }
+        }
+        return queue;
+    }
+
     @Override
     public int syncWrite(IFileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException {
+        long startTime = System.nanoTime();
+        int n = write((FileHandle) fHandle, offset, data);
+        ((FileHandle) fHandle).getDeviceQueue().recordWrite(n, System.nanoTime() - startTime);
+        return n;
+    }
+
+    @Override
+    public long syncWrite(IFileHandle fHandle, long offset, ByteBuffer[] dataArray) throws HyracksDataException {
+        long startTime = System.nanoTime();
+        long n = write((FileHandle) fHandle, offset, dataArray);
+        ((FileHandle) fHandle).getDeviceQueue().recordWrite(n, System.nanoTime() - startTime);
+        return n;
+    }
+
+    @Override
+    public int syncRead(IFileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException {
+        long startTime = System.nanoTime();
+        int n = read((FileHandle) fHandle, offset, data);
+        ((FileHandle) fHandle).getDeviceQueue().recordRead(Math.max(n, 0), System.nanoTime() - startTime);
+        return n;
+    }
+
+    @Override
+    public long syncRead(IFileHandle fHandle, long offset, ByteBuffer[] dataArray) throws HyracksDataException {
+        long startTime = System.nanoTime();
+        long n = read((FileHandle) fHandle, offset, dataArray);
+        ((FileHandle) fHandle).getDeviceQueue().recordRead(n, System.nanoTime() - startTime);
+        return n;
+    }
+
+    static int write(FileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException {
         try {
             int n = 0;
             int remaining = data.remaining();
             while (remaining > 0) {
-                int len = ((FileHandle) fHandle).getFileChannel().write(data, offset);
+                int len = fHandle.getFileChannel().write(data, offset);
                 if (len < 0) {
-                    throw new HyracksDataException("Error writing to file: "
-                            + ((FileHandle) fHandle).getFileReference().toString());
+                    throw new HyracksDataException("Error writing to file: " + fHandle.getFileReference().toString());
                 }
                 remaining -= len;
                 offset += len;
@@ -103,13 +177,41 @@ public class IOManager implements IIOManager {
         }
     }
 
-    @Override
-    public int syncRead(IFileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException {
+    static long write(FileHandle fHandle, long offset, ByteBuffer[] dataArray) throws HyracksDataException {
+        FileChannel channel = fHandle.getFileChannel();
+        try {
+            long remaining = 0;
+            for (ByteBuffer data : dataArray) {
+                remaining += data.remaining();
+            }
+            long n = 0;
+            // Gathering writes go through the channel position, so they must not interleave.
+            synchronized (fHandle) {
+                channel.position(offset);
+                while (remaining > 0) {
+                    long len = channel.write(dataArray);
+                    if (len < 0) {
+                        throw new HyracksDataException("Error writing to file: "
+                                + fHandle.getFileReference().toString());
+                    }
+                    remaining -= len;
+                    n += len;
+                }
+            }
+            return n;
+        } catch (HyracksDataException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new HyracksDataException(e);
+        }
+    }
+
+    static int read(FileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException {
         try {
             int n = 0;
             int remaining = data.remaining();
             while (remaining > 0) {
-                int len = ((FileHandle) fHandle).getFileChannel().read(data, offset);
+                int len = fHandle.getFileChannel().read(data, offset);
                 if (len < 0) {
                     return -1;
                 }
@@ -118,24 +220,84 @@ public class IOManager implements IIOManager {
                 n += len;
             }
             return n;
-        } catch (HyracksDataException e) {
-            throw e;
         } catch (IOException e) {
             throw new HyracksDataException(e);
         }
     }
 
+    static long read(FileHandle fHandle, long offset, ByteBuffer[] dataArray) throws HyracksDataException {
+        FileChannel channel = fHandle.getFileChannel();
+        try {
+            long remaining = 0;
+            for (ByteBuffer data : dataArray) {
+                remaining += data.remaining();
+            }
+            long n = 0;
+            // Scattering reads go through the channel position, so they must not interleave.
+            synchronized (fHandle) {
+                channel.position(offset);
+                while (remaining > 0) {
+                    long len = channel.read(dataArray);
+                    if (len < 0) {
+                        break;
+                    }
+                    remaining -= len;
+                    n += len;
+                }
+            }
+            return n;
+        } catch (IOException e) {
+            throw new HyracksDataException(e);
+        }
+    }
+
+    @Override
+    public long getSize(IFileHandle fHandle) throws HyracksDataException {
+        try {
+            return ((FileHandle) fHandle).getFileChannel().size();
+        } catch (IOException e) {
+            throw new HyracksDataException(e);
+        }
+    }
+
+    @Override
+    public ByteBuffer mapReadOnly(IFileHandle fHandle, long offset, int length) throws HyracksDataException {
+        try {
+            return ((FileHandle) fHandle).getFileChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } catch (IOException e) {
+            throw new HyracksDataException(e);
+        }
+    }
+
+    @Override
+    public void unmap(ByteBuffer mapping) {
+        // There is no public API to release a mapping, so use the cleaner of the direct buffer where the JVM has one.
+        // Otherwise the mapping is released when the buffer is garbage collected.
+        try {
+            Method cleanerMethod = mapping.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(mapping);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Could not unmap buffer: " + e);
+            }
+        }
+    }
+
     @Override
     public IIOFuture asyncWrite(IFileHandle fHandle, long offset, ByteBuffer data) {
-        AsyncWriteRequest req = new AsyncWriteRequest((FileHandle) fHandle, offset, data);
-        executor.execute(req);
+        IORequest req = new IORequest((FileHandle) fHandle, offset, data, true);
+        ((FileHandle) fHandle).getDeviceQueue().submit(req, executor);
         return req;
     }
 
     @Override
     public IIOFuture asyncRead(IFileHandle fHandle, long offset, ByteBuffer data) {
-        AsyncReadRequest req = new AsyncReadRequest((FileHandle) fHandle, offset, data);
-        executor.execute(req);
+        IORequest req = new IORequest((FileHandle) fHandle, offset, data, false);
+        ((FileHandle) fHandle).getDeviceQueue().submit(req, executor);
         return req;
     }
 
@@ -161,80 +323,6 @@ public class IOManager implements IIOManager {
         return dev.createFileReference(waPath + File.separator + waf.getName());
     }
 
-    private abstract class AsyncRequest implements IIOFuture, Runnable {
-        protected final FileHandle fHandle;
-        protected final long offset;
-        protected final ByteBuffer data;
-        private boolean complete;
-        private HyracksDataException exception;
-        private int result;
-
-        private AsyncRequest(FileHandle fHandle, long offset, ByteBuffer data) {
-            this.fHandle = fHandle;
-            this.offset = offset;
-            this.data = data;
-            complete = false;
-            exception = null;
-        }
-
-        @Override
-        public void run() {
-            HyracksDataException hde = null;
-            int res = -1;
-            try {
-                res = performOperation();
-            } catch (HyracksDataException e) {
-                hde = e;
-            }
-            synchronized (this) {
-                exception = hde;
-                result = res;
-                complete = true;
-                notifyAll();
-            }
-        }
-
-        protected abstract int performOperation() throws HyracksDataException;
-
-        @Override
-        public synchronized int synchronize() throws HyracksDataException, InterruptedException {
-            while (!complete) {
-                wait();
-            }
-            if (exception != null) {
-                throw exception;
-            }
-            return result;
-        }
-
-        @Override
-        public synchronized boolean isComplete() {
-            return complete;
-        }
-    }
-
-    private class AsyncReadRequest extends AsyncRequest {
-        private AsyncReadRequest(FileHandle fHandle, long offset, ByteBuffer data) {
-            super(fHandle, offset, data);
-        }
-
-        @Override
-        protected int performOperation() throws HyracksDataException {
-            return syncRead(fHandle, offset, data);
-        }
-    }
-
-    private class AsyncWriteRequest extends AsyncRequest {
-        private AsyncWriteRequest(FileHandle fHandle, long offset, ByteBuffer data) {
-            super(fHandle, offset, data);
-        }
-
-        @Override
-        protected int performOperation() throws HyracksDataException {
-            return syncWrite(fHandle, offset, data);
-        }
-    }
-
     @Override
     public void sync(IFileHandle fileHandle, boolean metadata) throws HyracksDataException {
         try {
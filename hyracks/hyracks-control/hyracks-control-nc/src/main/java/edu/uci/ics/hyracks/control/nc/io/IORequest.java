@@ -0,0 +1,69 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.nc.io;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.IIOFuture;
+
+/**
+ * An asynchronous read or write waiting in an {@link IODeviceQueue}.
+ */
+class IORequest implements IIOFuture {
+    final FileHandle fHandle;
+    final long offset;
+    final ByteBuffer data;
+    final int length;
+    final boolean write;
+    final long submitTime;
+    private boolean complete;
+    private HyracksDataException exception;
+    private int result;
+
+    IORequest(FileHandle fHandle, long offset, ByteBuffer data, boolean write) {
+        this.fHandle = fHandle;
+        this.offset = offset;
+        this.data = data;
+        this.length = data.remaining();
+        this.write = write;
+        submitTime = System.nanoTime();
+        complete = false;
+        exception = null;
+    }
+
+    synchronized void complete(int result, HyracksDataException exception) {
+        this.result = result;
+        this.exception = exception;
+        complete = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized int synchronize() throws HyracksDataException, InterruptedException {
+        while (!complete) {
+            wait();
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+}
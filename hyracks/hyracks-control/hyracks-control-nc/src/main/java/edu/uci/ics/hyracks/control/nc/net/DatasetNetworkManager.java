@@ -103,8 +103,13 @@ public class DatasetNetworkManager implements IChannelConnectionFactory {
     }
 
     public ChannelControlBlock connect(SocketAddress remoteAddress) throws InterruptedException, NetException {
+        return connect(remoteAddress, false);
+    }
+
+    public ChannelControlBlock connect(SocketAddress remoteAddress, boolean compressed) throws InterruptedException,
+            NetException {
         MultiplexedConnection mConn = md.connect((InetSocketAddress) remoteAddress);
-        return mConn.openChannel();
+        return mConn.openChannel(compressed);
     }
 
     private class ChannelOpenListener implements IChannelOpenListener {
@@ -27,6 +27,7 @@ import edu.uci.ics.hyracks.api.exceptions.HyracksException;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.partitions.PartitionId;
 import edu.uci.ics.hyracks.comm.channels.IChannelConnectionFactory;
+import edu.uci.ics.hyracks.comm.channels.NetworkInputChannel;
 import edu.uci.ics.hyracks.comm.channels.NetworkOutputChannel;
 import edu.uci.ics.hyracks.control.nc.partitions.PartitionManager;
 import edu.uci.ics.hyracks.net.buffers.ICloseableBufferAcceptor;
@@ -97,8 +98,13 @@ public class NetworkManager implements IChannelConnectionFactory {
     }
 
     public ChannelControlBlock connect(SocketAddress remoteAddress) throws InterruptedException, NetException {
+        return connect(remoteAddress, false);
+    }
+
+    public ChannelControlBlock connect(SocketAddress remoteAddress, boolean compressed) throws InterruptedException,
+            NetException {
         MultiplexedConnection mConn = md.connect((InetSocketAddress) remoteAddress);
-        return mConn.openChannel();
+        return mConn.openChannel(compressed);
     }
 
     private class ChannelOpenListener implements IChannelOpenListener {
@@ -141,7 +147,11 @@ public class NetworkManager implements IChannelConnectionFactory {
         @Override
         public void error(int ecode) {
             if (noc != null) {
-                noc.abort();
+                if (ecode == NetworkInputChannel.CONSUMER_CLOSED_ECODE) {
+                    noc.consumerClosed();
+                } else {
+                    noc.abort();
+                }
             }
         }
     }
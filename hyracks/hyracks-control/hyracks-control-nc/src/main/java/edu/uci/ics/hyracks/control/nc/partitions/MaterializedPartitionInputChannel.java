@@ -43,6 +43,8 @@ public class MaterializedPartitionInputChannel implements IInputChannel {
 
     private Object attachment;
 
+    private boolean closed;
+
     public MaterializedPartitionInputChannel(int nBuffers, PartitionId pid, PartitionManager manager) {
         this.nBuffers = nBuffers;
         this.emptyQueue = new ArrayDeque<ByteBuffer>(nBuffers);
@@ -90,9 +92,14 @@ public class MaterializedPartitionInputChannel implements IInputChannel {
         partition.writeTo(writer);
     }
 
+    /**
+     * Makes the partition writer drop the rest of the partition, so that a
+     * consumer that stops early does not leave it waiting for buffers.
+     */
     @Override
-    public void close() throws HyracksDataException {
-
+    public synchronized void close() throws HyracksDataException {
+        closed = true;
+        notifyAll();
     }
 
     private class FrameWriter implements IFrameWriter {
@@ -104,13 +111,16 @@ public class MaterializedPartitionInputChannel implements IInputChannel {
         @Override
         public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
             synchronized (MaterializedPartitionInputChannel.this) {
-                while (emptyQueue.isEmpty()) {
+                while (emptyQueue.isEmpty() && !closed) {
                     try {
                         MaterializedPartitionInputChannel.this.wait();
                     } catch (InterruptedException e) {
                         throw new HyracksDataException(e);
                     }
                 }
+                if (closed) {
+                    return;
+                }
                 ByteBuffer destFrame = emptyQueue.poll();
                 buffer.position(0);
                 buffer.limit(buffer.capacity());
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.nc.resources.memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.uci.ics.hyracks.api.resources.memory.IMemoryManager;
+
+/**
+ * Recycles the frames released by the jobs of a node controller, so that
+ * frame-hungry operators do not have to go through the garbage collector for
+ * every frame they allocate. Each thread keeps up to THREAD_CACHE_BYTES of
+ * released frames for itself, the remaining ones go to a shared free list.
+ * The frames on the shared free list are charged to the memory manager and
+ * their total size is bounded by the retention budget; frames that do not fit
+ * are dropped. The thread caches are not charged, since the frames of a
+ * thread that dies are never taken back, so their size is what bounds the
+ * pooled memory outside of the budget.
+ * The frames are heap buffers since the dataflow code works on their backing
+ * arrays.
+ */
+public class FramePool {
+    public static final int THREAD_CACHE_BYTES = 256 * 1024;
+
+    /**
+     * The frames a thread keeps for itself, by size.
+     */
+    private static class ThreadCache {
+        private final Map<Integer, ArrayDeque<ByteBuffer>> frames = new HashMap<Integer, ArrayDeque<ByteBuffer>>();
+        private int bytes = 0;
+
+        ByteBuffer poll(int frameSize) {
+            ArrayDeque<ByteBuffer> sizeCache = frames.get(frameSize);
+            ByteBuffer frame = sizeCache == null ? null : sizeCache.poll();
+            if (frame != null) {
+                bytes -= frameSize;
+            }
+            return frame;
+        }
+
+        boolean offer(ByteBuffer frame) {
+            int frameSize = frame.capacity();
+            if (bytes + frameSize > THREAD_CACHE_BYTES) {
+                return false;
+            }
+            ArrayDeque<ByteBuffer> sizeCache = frames.get(frameSize);
+            if (sizeCache == null) {
+                sizeCache = new ArrayDeque<ByteBuffer>();
+                frames.put(frameSize, sizeCache);
+            }
+            sizeCache.offer(frame);
+            bytes += frameSize;
+            return true;
+        }
+    }
+
+    private final IMemoryManager memoryManager;
+    private final long maxRetainedBytes;
+    private final AtomicLong retainedBytes;
+    private final ConcurrentMap<Integer, Queue<ByteBuffer>> freeFrames;
+    private final ThreadLocal<ThreadCache> threadCaches;
+
+    private final AtomicLong allocatedCount;
+    private final AtomicLong recycledCount;
+    private final AtomicLong releasedCount;
+    private final AtomicLong droppedCount;
+
+    public FramePool(IMemoryManager memoryManager, long maxRetainedBytes) {
+        this.memoryManager = memoryManager;
+        this.maxRetainedBytes = maxRetainedBytes;
+        retainedBytes = new AtomicLong();
+        freeFrames = new ConcurrentHashMap<Integer, Queue<ByteBuffer>>();
+        threadCaches = new ThreadLocal<ThreadCache>() {
+            @Override
+            protected ThreadCache initialValue() {
+                return new ThreadCache();
+            }
+        };
+        allocatedCount = new AtomicLong();
+        recycledCount = new AtomicLong();
+        releasedCount = new AtomicLong();
+        droppedCount = new AtomicLong();
+    }
+
+    /**
+     * Returns a cleared frame of the given size, reusing a released one if
+     * possible. The caller is responsible for charging the frame to the memory
+     * manager.
+     */
+    public ByteBuffer allocate(int frameSize) {
+        ByteBuffer frame = null;
+        if (maxRetainedBytes > 0) {
+            frame = threadCaches.get().poll(frameSize);
+            if (frame == null) {
+                Queue<ByteBuffer> queue = freeFrames.get(frameSize);
+                if (queue != null) {
+                    frame = queue.poll();
+                    if (frame != null) {
+                        retainedBytes.addAndGet(-frameSize);
+                        memoryManager.deallocate(frameSize);
+                    }
+                }
+            }
+        }
+        if (frame == null) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocate(frameSize);
+        }
+        recycledCount.incrementAndGet();
+        Arrays.fill(frame.array(), frame.arrayOffset(), frame.arrayOffset() + frameSize, (byte) 0);
+        frame.clear();
+        return frame;
+    }
+
+    /**
+     * Takes back a frame that was obtained from {@link #allocate(int)}. The
+     * frame must not be used by the caller after this call.
+     */
+    public void release(ByteBuffer frame) {
+        int frameSize = frame.capacity();
+        if (maxRetainedBytes <= 0 || !frame.hasArray() || frame.isReadOnly()) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        releasedCount.incrementAndGet();
+        if (threadCaches.get().offer(frame)) {
+            return;
+        }
+        if (retainedBytes.addAndGet(frameSize) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-frameSize);
+            droppedCount.incrementAndGet();
+            return;
+        }
+        // Idle frames are only kept while the node is within its memory budget, which the memory manager itself
+        // does not enforce.
+        if (memoryManager.getAvailableMemory() < frameSize || !memoryManager.allocate(frameSize)) {
+            retainedBytes.addAndGet(-frameSize);
+            droppedCount.incrementAndGet();
+            return;
+        }
+        Queue<ByteBuffer> queue = freeFrames.get(frameSize);
+        if (queue == null) {
+            queue = new ConcurrentLinkedQueue<ByteBuffer>();
+            Queue<ByteBuffer> oldQueue = freeFrames.putIfAbsent(frameSize, queue);
+            if (oldQueue != null) {
+                queue = oldQueue;
+            }
+        }
+        queue.offer(frame);
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    /**
+     * @return the total size of the frames on the shared free list
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * @return the number of frames that had to be newly allocated
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+    /**
+     * @return the number of allocations served by a released frame
+     */
+    public long getRecycledCount() {
+        return recycledCount.get();
+    }
+
+    /**
+     * @return the number of frames taken back for reuse
+     */
+    public long getReleasedCount() {
+        return releasedCount.get();
+    }
+
+    /**
+     * @return the number of released frames left to the garbage collector
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FramePool allocated: " + getAllocatedCount() + ", recycled: " + getRecycledCount() + ", released: "
+                + getReleasedCount() + ", dropped: " + getDroppedCount() + ", retained bytes: " + getRetainedBytes()
+                + " (max " + getMaxRetainedBytes() + ")";
+    }
+}
@@ -26,11 +26,9 @@ public class MemoryManager implements IMemoryManager {
 
     @Override
     public boolean allocate(long memory) {
-        // commented as now the deallocation is not implemented yet.
-        //        if (this.memory.addAndGet(-memory) < 0) {
-        //            this.memory.addAndGet(memory);
-        //            return false;
-        //        }
+        // The budget is only tracked, not enforced: most operators never hand their frames back, so their charge is
+        // only released when their joblet closes. Refusing allocations would fail long and concurrent jobs.
+        this.memory.addAndGet(-memory);
         return true;
     }
 
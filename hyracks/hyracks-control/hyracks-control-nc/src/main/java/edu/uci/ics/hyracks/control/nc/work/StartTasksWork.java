@@ -25,6 +25,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import edu.uci.ics.hyracks.api.application.INCApplicationContext;
+import edu.uci.ics.hyracks.api.comm.BigFrameSplittingWriter;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.comm.IPartitionCollector;
 import edu.uci.ics.hyracks.api.comm.IPartitionWriterFactory;
@@ -126,7 +127,7 @@ public class StartTasksWork extends AbstractWork {
                 final int partition = tid.getPartition();
                 List<IConnectorDescriptor> inputs = ac.getActivityInputMap().get(aid);
                 Task task = new Task(joblet, taId, han.getClass().getName(), ncs.getExecutor(), ncs,
-                        createInputChannels(td, inputs));
+                        createInputChannels(td, inputs, acg));
                 IOperatorNodePushable operator = han.createPushRuntime(task, rdp, partition, td.getPartitionCount());
 
                 List<IPartitionCollector> collectors = new ArrayList<IPartitionCollector>();
@@ -234,6 +235,14 @@ public class StartTasksWork extends AbstractWork {
                 }
             };
         }
+        final IPartitionWriterFactory partitionWriterFactory = factory;
+        factory = new IPartitionWriterFactory() {
+            @Override
+            public IFrameWriter createFrameWriter(int receiverIndex) throws HyracksDataException {
+                return new BigFrameSplittingWriter(partitionWriterFactory.createFrameWriter(receiverIndex),
+                        ctx.getFrameSize());
+            }
+        };
         if (flags.contains(JobFlag.PROFILE_RUNTIME)) {
             factory = new ProfilingPartitionWriterFactory(ctx, conn, senderIndex, factory);
         }
@@ -247,24 +256,27 @@ public class StartTasksWork extends AbstractWork {
      *            the task attempt id
      * @param inputs
      *            the input connector descriptors
+     * @param acg
+     *            the activity cluster graph of the job
      * @return a list of known channels, one for each connector
      * @throws UnknownHostException
      */
-    private List<List<PartitionChannel>> createInputChannels(TaskAttemptDescriptor td, List<IConnectorDescriptor> inputs)
-            throws UnknownHostException {
+    private List<List<PartitionChannel>> createInputChannels(TaskAttemptDescriptor td,
+            List<IConnectorDescriptor> inputs, ActivityClusterGraph acg) throws UnknownHostException {
         NetworkAddress[][] inputAddresses = td.getInputPartitionLocations();
         List<List<PartitionChannel>> channelsForInputConnectors = new ArrayList<List<PartitionChannel>>();
         if (inputAddresses != null) {
             for (int i = 0; i < inputAddresses.length; i++) {
                 List<PartitionChannel> channels = new ArrayList<PartitionChannel>();
                 if (inputAddresses[i] != null) {
+                    boolean compressed = acg.isConnectorCompressed(inputs.get(i).getConnectorId());
                     for (int j = 0; j < inputAddresses[i].length; j++) {
                         NetworkAddress networkAddress = inputAddresses[i][j];
                         PartitionId pid = new PartitionId(jobId, inputs.get(i).getConnectorId(), j, td
                                 .getTaskAttemptId().getTaskId().getPartition());
                         PartitionChannel channel = new PartitionChannel(pid, new NetworkInputChannel(
                                 ncs.getNetworkManager(), new InetSocketAddress(InetAddress.getByAddress(networkAddress
-                                        .lookupIpAddress()), networkAddress.getPort()), pid, 5));
+                                        .lookupIpAddress()), networkAddress.getPort()), pid, 5, compressed));
                         channels.add(channel);
                     }
                 }
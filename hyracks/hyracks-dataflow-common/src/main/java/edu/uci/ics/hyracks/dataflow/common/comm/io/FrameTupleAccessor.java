@@ -31,18 +31,17 @@ import edu.uci.ics.hyracks.dataflow.common.util.IntSerDeUtils;
  * the frame. FS - ((i + 1) * 4) for i from 0 to N - 1 holds an int indicating
  * the offset of the (i + 1)^th tuple. Every tuple is organized as a sequence of
  * ints indicating the end of each field in the tuple relative to the end of the
- * field slots.
+ * field slots. FS is the capacity of the frame, which is the frame size of the
+ * job or, for a big frame, a multiple of it.
  *
  * @author vinayakb
  */
 public final class FrameTupleAccessor implements IFrameTupleAccessor {
-    private final int frameSize;
     private final RecordDescriptor recordDescriptor;
 
     private ByteBuffer buffer;
 
     public FrameTupleAccessor(int frameSize, RecordDescriptor recordDescriptor) {
-        this.frameSize = frameSize;
         this.recordDescriptor = recordDescriptor;
     }
 
@@ -58,18 +57,21 @@ public final class FrameTupleAccessor implements IFrameTupleAccessor {
 
     @Override
     public int getTupleCount() {
-        return IntSerDeUtils.getInt(buffer.array(), FrameHelper.getTupleCountOffset(frameSize));
+        return IntSerDeUtils.getInt(buffer.array(), getTupleCountOffset());
     }
 
     @Override
     public int getTupleStartOffset(int tupleIndex) {
-        return tupleIndex == 0 ? 0 : IntSerDeUtils.getInt(buffer.array(), FrameHelper.getTupleCountOffset(frameSize)
-                - 4 * tupleIndex);
+        return tupleIndex == 0 ? 0 : IntSerDeUtils.getInt(buffer.array(), getTupleCountOffset() - 4 * tupleIndex);
     }
 
     @Override
     public int getTupleEndOffset(int tupleIndex) {
-        return IntSerDeUtils.getInt(buffer.array(), FrameHelper.getTupleCountOffset(frameSize) - 4 * (tupleIndex + 1));
+        return IntSerDeUtils.getInt(buffer.array(), getTupleCountOffset() - 4 * (tupleIndex + 1));
+    }
+
+    private int getTupleCountOffset() {
+        return FrameHelper.getTupleCountOffset(buffer.capacity());
     }
 
     @Override
@@ -19,8 +19,12 @@ import java.nio.ByteBuffer;
 import edu.uci.ics.hyracks.api.comm.FrameHelper;
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 
+/**
+ * Appends tuples to a frame. The frame may be a big frame (see
+ * {@link FrameHelper}), in which case its capacity is used as the frame size.
+ */
 public class FrameTupleAppender {
-    private final int frameSize;
+    private int frameSize;
 
     private ByteBuffer buffer;
 
@@ -43,6 +47,7 @@ public class FrameTupleAppender {
 
     public void reset(ByteBuffer buffer, boolean clear) {
         this.buffer = buffer;
+        frameSize = buffer.capacity();
         if (clear) {
             buffer.putInt(FrameHelper.getTupleCountOffset(frameSize), 0);
             tupleCount = 0;
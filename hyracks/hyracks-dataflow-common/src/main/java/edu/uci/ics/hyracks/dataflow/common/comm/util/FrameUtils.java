@@ -16,9 +16,12 @@ package edu.uci.ics.hyracks.dataflow.common.comm.util;
 
 import java.nio.ByteBuffer;
 
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksCommonContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 
 public class FrameUtils {
     public static void copy(ByteBuffer srcFrame, ByteBuffer destFrame) {
@@ -40,6 +43,25 @@ public class FrameUtils {
         buffer.limit(buffer.capacity());
     }
 
+    /**
+     * Sends a tuple that does not fit into an empty frame on its own, in a big
+     * frame just large enough to hold it.
+     */
+    public static void flushBigTuple(IHyracksCommonContext ctx, IFrameTupleAccessor accessor, int tIndex,
+            IFrameWriter writer) throws HyracksDataException {
+        int length = accessor.getTupleEndOffset(tIndex) - accessor.getTupleStartOffset(tIndex);
+        // The tuple, its end offset and the tuple count.
+        ByteBuffer bigFrame = ctx.allocateFrame(FrameHelper.getBigFrameSize(ctx.getFrameSize(), length + 8));
+        try {
+            FrameTupleAppender appender = new FrameTupleAppender(bigFrame.capacity());
+            appender.reset(bigFrame, true);
+            appender.append(accessor, tIndex);
+            flushFrame(bigFrame, writer);
+        } finally {
+            ctx.deallocateFrame(bigFrame);
+        }
+    }
+
     public static int getAbsoluteFieldStartOffset(IFrameTupleAccessor accessor, int tuple, int field) {
         return accessor.getTupleStartOffset(tuple) + accessor.getFieldSlotsLength()
                 + accessor.getFieldStartOffset(tuple, field);
@@ -15,11 +15,13 @@
 package edu.uci.ics.hyracks.dataflow.common.data.normalizers;
 
 import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputer;
-import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.data.std.primitive.DoublePointable;
 import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
 
-public class DoubleNormalizedKeyComputerFactory implements INormalizedKeyComputerFactory {
+public class DoubleNormalizedKeyComputerFactory implements IFullNormalizedKeyComputerFactory {
 
     private static final long serialVersionUID = 1L;
 
@@ -40,4 +42,21 @@ public class DoubleNormalizedKeyComputerFactory implements INormalizedKeyCompute
         };
     }
 
+    @Override
+    public IFullNormalizedKeyComputer createFullNormalizedKeyComputer() {
+        return new IFullNormalizedKeyComputer() {
+            @Override
+            public int getKeyLength() {
+                return 1;
+            }
+
+            @Override
+            public void normalize(byte[] bytes, int start, int length, long[] target, int targetOffset) {
+                double value = DoublePointable.getDouble(bytes, start);
+                // The comparator finds -0.0 and 0.0 equal, so they get the same key.
+                long bits = value == 0.0 ? 0L : Double.doubleToLongBits(value);
+                target[targetOffset] = bits >= 0 ? bits ^ Long.MIN_VALUE : ~bits;
+            }
+        };
+    }
 }
@@ -15,11 +15,12 @@
 package edu.uci.ics.hyracks.dataflow.common.data.normalizers;
 
 import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputer;
-import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputerFactory;
 import edu.uci.ics.hyracks.data.std.primitive.LongPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.Integer64SerializerDeserializer;
 
-public class Integer64NormalizedKeyComputerFactory implements INormalizedKeyComputerFactory {
+public class Integer64NormalizedKeyComputerFactory implements IFullNormalizedKeyComputerFactory {
 
     private static final long serialVersionUID = 8735044913496854551L;
 
@@ -67,4 +68,19 @@ public class Integer64NormalizedKeyComputerFactory implements INormalizedKeyComp
 
         };
     }
+
+    @Override
+    public IFullNormalizedKeyComputer createFullNormalizedKeyComputer() {
+        return new IFullNormalizedKeyComputer() {
+            @Override
+            public int getKeyLength() {
+                return 1;
+            }
+
+            @Override
+            public void normalize(byte[] bytes, int start, int length, long[] target, int targetOffset) {
+                target[targetOffset] = LongPointable.getLong(bytes, start) ^ Long.MIN_VALUE;
+            }
+        };
+    }
 }
@@ -15,11 +15,12 @@
 package edu.uci.ics.hyracks.dataflow.common.data.normalizers;
 
 import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputer;
-import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputerFactory;
 import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
 
-public class IntegerNormalizedKeyComputerFactory implements INormalizedKeyComputerFactory {
+public class IntegerNormalizedKeyComputerFactory implements IFullNormalizedKeyComputerFactory {
     private static final long serialVersionUID = 1L;
 
     @Override
@@ -32,4 +33,19 @@ public class IntegerNormalizedKeyComputerFactory implements INormalizedKeyComput
             }
         };
     }
-}
\ No newline at end of file
+
+    @Override
+    public IFullNormalizedKeyComputer createFullNormalizedKeyComputer() {
+        return new IFullNormalizedKeyComputer() {
+            @Override
+            public int getKeyLength() {
+                return 1;
+            }
+
+            @Override
+            public void normalize(byte[] bytes, int start, int length, long[] target, int targetOffset) {
+                target[targetOffset] = IntegerPointable.getInteger(bytes, start) ^ Long.MIN_VALUE;
+            }
+        };
+    }
+}
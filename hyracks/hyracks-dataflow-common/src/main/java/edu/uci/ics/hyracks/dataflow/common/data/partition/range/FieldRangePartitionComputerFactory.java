@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition.range;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Sends every tuple to the partition of the range its key falls into. If
+ * there are more ranges than partitions, consecutive ranges share a
+ * partition, so that the partitions stay ordered by key.
+ */
+public class FieldRangePartitionComputerFactory implements ITuplePartitionComputerFactory {
+    private static final long serialVersionUID = 1L;
+    private final int[] rangeFields;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IRangeMap rangeMap;
+
+    public FieldRangePartitionComputerFactory(int[] rangeFields, IBinaryComparatorFactory[] comparatorFactories,
+            IRangeMap rangeMap) {
+        this.rangeFields = rangeFields;
+        this.comparatorFactories = comparatorFactories;
+        this.rangeMap = rangeMap;
+    }
+
+    @Override
+    public ITuplePartitionComputer createPartitioner() {
+        final IBinaryComparator[] comparators = new IBinaryComparator[comparatorFactories.length];
+        for (int i = 0; i < comparatorFactories.length; ++i) {
+            comparators[i] = comparatorFactories[i].createBinaryComparator();
+        }
+        return new ITuplePartitionComputer() {
+            @Override
+            public int partition(IFrameTupleAccessor accessor, int tIndex, int nParts) throws HyracksDataException {
+                if (nParts == 1) {
+                    return 0;
+                }
+                int nRanges = rangeMap.getSplitCount() + 1;
+                int range = findRange(accessor, tIndex);
+                return nRanges == nParts ? range : (int) ((long) range * nParts / nRanges);
+            }
+
+            /**
+             * Binary search for the number of split points that are not
+             * greater than the key of the tuple.
+             */
+            private int findRange(IFrameTupleAccessor accessor, int tIndex) throws HyracksDataException {
+                int low = 0;
+                int high = rangeMap.getSplitCount();
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (compareToSplit(accessor, tIndex, mid) < 0) {
+                        high = mid;
+                    } else {
+                        low = mid + 1;
+                    }
+                }
+                return low;
+            }
+
+            private int compareToSplit(IFrameTupleAccessor accessor, int tIndex, int splitIndex)
+                    throws HyracksDataException {
+                int startOffset = accessor.getTupleStartOffset(tIndex) + accessor.getFieldSlotsLength();
+                for (int j = 0; j < rangeFields.length; ++j) {
+                    int fIdx = rangeFields[j];
+                    int fStart = accessor.getFieldStartOffset(tIndex, fIdx);
+                    int fEnd = accessor.getFieldEndOffset(tIndex, fIdx);
+                    int c = comparators[j].compare(accessor.getBuffer().array(), startOffset + fStart, fEnd - fStart,
+                            rangeMap.getByteArray(j, splitIndex), rangeMap.getStartOffset(j, splitIndex),
+                            rangeMap.getLength(j, splitIndex));
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+}
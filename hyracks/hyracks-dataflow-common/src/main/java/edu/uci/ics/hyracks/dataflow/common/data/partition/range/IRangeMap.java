@@ -0,0 +1,32 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition.range;
+
+import java.io.Serializable;
+
+/**
+ * The split points of a range partitioning. Split point i is the smallest key
+ * of range i + 1, so n split points define n + 1 ranges. The fields of the
+ * split points are kept in their serialized form.
+ */
+public interface IRangeMap extends Serializable {
+    public int getSplitCount();
+
+    public byte[] getByteArray(int fieldIndex, int splitIndex);
+
+    public int getStartOffset(int fieldIndex, int splitIndex);
+
+    public int getLength(int fieldIndex, int splitIndex);
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition.range;
+
+import java.util.Arrays;
+
+/**
+ * A range map that keeps the serialized split points back to back in a
+ * single byte array. The end offsets are given split point by split point,
+ * field by field.
+ */
+public class RangeMap implements IRangeMap {
+    private static final long serialVersionUID = 1L;
+
+    private final int fields;
+    private final byte[] bytes;
+    private final int[] endOffsets;
+
+    public RangeMap(int fields, byte[] bytes, int[] endOffsets) {
+        if (fields <= 0 || endOffsets.length % fields != 0) {
+            throw new IllegalArgumentException("Expected " + fields + " field(s) per split point, got "
+                    + endOffsets.length + " field offsets");
+        }
+        this.fields = fields;
+        this.bytes = bytes;
+        this.endOffsets = endOffsets;
+    }
+
+    @Override
+    public int getSplitCount() {
+        return endOffsets.length / fields;
+    }
+
+    @Override
+    public byte[] getByteArray(int fieldIndex, int splitIndex) {
+        return bytes;
+    }
+
+    @Override
+    public int getStartOffset(int fieldIndex, int splitIndex) {
+        int i = splitIndex * fields + fieldIndex;
+        return i == 0 ? 0 : endOffsets[i - 1];
+    }
+
+    @Override
+    public int getLength(int fieldIndex, int splitIndex) {
+        return endOffsets[splitIndex * fields + fieldIndex] - getStartOffset(fieldIndex, splitIndex);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RangeMap)) {
+            return false;
+        }
+        RangeMap other = (RangeMap) obj;
+        if (fields != other.fields || !Arrays.equals(endOffsets, other.endOffsets)) {
+            return false;
+        }
+        // Only the bytes of the split points matter, the array may be longer.
+        int length = endOffsets.length == 0 ? 0 : endOffsets[endOffsets.length - 1];
+        for (int i = 0; i < length; ++i) {
+            if (bytes[i] != other.bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = fields * 31 + Arrays.hashCode(endOffsets);
+        int length = endOffsets.length == 0 ? 0 : endOffsets[endOffsets.length - 1];
+        for (int i = 0; i < length; ++i) {
+            h = h * 31 + bytes[i];
+        }
+        return h;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition.skew;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Finds the frequent key hashes of a stream with the Misra-Gries summary.
+ * With capacity k, every key hash that makes up more than 1/(k + 1) of the
+ * stream is kept, and the counts underestimate by at most n/(k + 1).
+ */
+public class HeavyHitterSampler {
+    private final int capacity;
+    private final Map<Integer, int[]> counts;
+    private long sampleCount;
+
+    public HeavyHitterSampler(int capacity) {
+        this.capacity = capacity;
+        counts = new HashMap<Integer, int[]>(capacity * 2);
+    }
+
+    public void add(int keyHash) {
+        ++sampleCount;
+        int[] count = counts.get(keyHash);
+        if (count != null) {
+            ++count[0];
+        } else if (counts.size() < capacity) {
+            counts.put(keyHash, new int[] { 1 });
+        } else {
+            Iterator<int[]> i = counts.values().iterator();
+            while (i.hasNext()) {
+                if (--i.next()[0] == 0) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return the key hashes that make up at least minShare of the samples,
+     *         up to the error of the summary
+     */
+    public HeavyHitterSet getHeavyHitters(double minShare) {
+        double minCount = minShare * sampleCount - (double) sampleCount / (capacity + 1);
+        int n = 0;
+        int[] keyHashes = new int[counts.size()];
+        for (Map.Entry<Integer, int[]> e : counts.entrySet()) {
+            if (e.getValue()[0] > 0 && e.getValue()[0] >= minCount) {
+                keyHashes[n++] = e.getKey();
+            }
+        }
+        int[] result = new int[n];
+        System.arraycopy(keyHashes, 0, result, 0, n);
+        return new HeavyHitterSet(result);
+    }
+}
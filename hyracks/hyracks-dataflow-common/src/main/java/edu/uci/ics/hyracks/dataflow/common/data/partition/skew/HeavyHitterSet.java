@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition.skew;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The hash values of the join keys that are frequent enough to skew a hash
+ * partitioning. Keys are identified by the hash the partitioners compute for
+ * them, so both inputs of a join agree on the set as long as they use the
+ * same hash functions; a rare key that shares the hash of a heavy hitter is
+ * simply treated as a heavy hitter on both sides.
+ */
+public class HeavyHitterSet implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] keyHashes;
+
+    public HeavyHitterSet(int[] keyHashes) {
+        this.keyHashes = Arrays.copyOf(keyHashes, keyHashes.length);
+        Arrays.sort(this.keyHashes);
+    }
+
+    public boolean contains(int keyHash) {
+        return keyHashes.length > 0 && Arrays.binarySearch(keyHashes, keyHash) >= 0;
+    }
+
+    public int size() {
+        return keyHashes.length;
+    }
+
+    public int[] getKeyHashes() {
+        return Arrays.copyOf(keyHashes, keyHashes.length);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(keyHashes);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.io;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.IFrameCodec;
+import edu.uci.ics.hyracks.api.io.IFrameCodecFactory;
+import edu.uci.ics.hyracks.net.exceptions.NetException;
+import edu.uci.ics.hyracks.net.protocols.muxdemux.FrameCompressor;
+
+/**
+ * Creates codecs based on the LZ compressor used for compressed network
+ * channels. It favors speed over compression ratio.
+ */
+public class LZFrameCodecFactory implements IFrameCodecFactory {
+    public static final IFrameCodecFactory INSTANCE = new LZFrameCodecFactory();
+
+    private static final long serialVersionUID = 1L;
+
+    private LZFrameCodecFactory() {
+    }
+
+    @Override
+    public IFrameCodec createCodec() {
+        return new IFrameCodec() {
+            private final FrameCompressor compressor = new FrameCompressor();
+
+            @Override
+            public int getMaxCompressedLength(int length) {
+                return FrameCompressor.getMaxCompressedLength(length);
+            }
+
+            @Override
+            public int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+                return compressor.compress(src, srcOffset, length, dst, dstOffset);
+            }
+
+            @Override
+            public void decompress(byte[] src, int srcOffset, int compressedLength, byte[] dst, int dstOffset,
+                    int length) throws HyracksDataException {
+                try {
+                    if (FrameCompressor.decompress(src, srcOffset, compressedLength, dst, dstOffset) != length) {
+                        throw new HyracksDataException("Unexpected length of decompressed frame");
+                    }
+                } catch (NetException e) {
+                    throw new HyracksDataException(e);
+                }
+            }
+        };
+    }
+}
@@ -20,38 +20,109 @@ import edu.uci.ics.hyracks.api.comm.IFrameReader;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
 import edu.uci.ics.hyracks.api.io.IFileHandle;
+import edu.uci.ics.hyracks.api.io.IFrameCodec;
 import edu.uci.ics.hyracks.api.io.IIOManager;
 
 public class RunFileReader implements IFrameReader {
     private final FileReference file;
     private final IIOManager ioManager;
     private final long size;
+    private final IFrameCodec codec;
+    private final long storedSize;
 
     private IFileHandle handle;
     private long readPtr;
+    private ByteBuffer blockBuffer;
 
     public RunFileReader(FileReference file, IIOManager ioManager, long size) {
+        this(file, ioManager, size, null, size);
+    }
+
+    /**
+     * Creates a reader for a run written with the given codec, see
+     * {@link RunFileWriter}.
+     */
+    public RunFileReader(FileReference file, IIOManager ioManager, long size, IFrameCodec codec, long storedSize) {
         this.file = file;
         this.ioManager = ioManager;
         this.size = size;
+        this.codec = codec;
+        this.storedSize = storedSize;
     }
 
     @Override
     public void open() throws HyracksDataException {
         handle = ioManager.open(file, IIOManager.FileReadWriteMode.READ_ONLY, null);
         readPtr = 0;
+        if (blockBuffer != null) {
+            blockBuffer.clear();
+            blockBuffer.limit(0);
+        }
     }
 
     @Override
     public boolean nextFrame(ByteBuffer buffer) throws HyracksDataException {
         buffer.clear();
-        if (readPtr >= size) {
+        if (codec == null) {
+            if (readPtr >= size) {
+                return false;
+            }
+            readPtr += ioManager.syncRead(handle, readPtr, buffer);
+            return true;
+        }
+        if (blockBuffer == null) {
+            // Read ahead a couple of blocks at a time, compressed blocks are much smaller than frames.
+            blockBuffer = ByteBuffer.allocate(2 * (RunFileWriter.BLOCK_HEADER_SIZE + buffer.capacity()));
+            blockBuffer.limit(0);
+        }
+        if (readPtr >= storedSize && !blockBuffer.hasRemaining()) {
             return false;
         }
-        readPtr += ioManager.syncRead(handle, readPtr, buffer);
+        fill(RunFileWriter.BLOCK_HEADER_SIZE);
+        int storedLength = blockBuffer.getInt();
+        int length = blockBuffer.getInt();
+        if (length > buffer.capacity()) {
+            throw new HyracksDataException("Frame of " + length + " bytes in run file " + file
+                    + " does not fit into a buffer of " + buffer.capacity() + " bytes");
+        }
+        fill(storedLength);
+        int blockOffset = blockBuffer.position();
+        if (storedLength == length) {
+            System.arraycopy(blockBuffer.array(), blockOffset, buffer.array(), buffer.arrayOffset(), length);
+        } else {
+            codec.decompress(blockBuffer.array(), blockOffset, storedLength, buffer.array(), buffer.arrayOffset(),
+                    length);
+        }
+        blockBuffer.position(blockOffset + storedLength);
+        buffer.position(length);
         return true;
     }
 
+    /**
+     * Makes sure that at least n bytes of the run are buffered.
+     */
+    private void fill(int n) throws HyracksDataException {
+        if (blockBuffer.remaining() >= n) {
+            return;
+        }
+        if (blockBuffer.capacity() < n) {
+            ByteBuffer newBuffer = ByteBuffer.allocate(n);
+            newBuffer.put(blockBuffer);
+            blockBuffer = newBuffer;
+        } else {
+            blockBuffer.compact();
+        }
+        while (blockBuffer.position() < n) {
+            blockBuffer.limit((int) Math.min(blockBuffer.capacity(), blockBuffer.position() + storedSize - readPtr));
+            int len = ioManager.syncRead(handle, readPtr, blockBuffer);
+            if (len <= 0) {
+                throw new HyracksDataException("Unexpected end of run file " + file);
+            }
+            readPtr += len;
+        }
+        blockBuffer.flip();
+    }
+
     @Override
     public void close() throws HyracksDataException {
         ioManager.close(handle);
@@ -60,4 +131,4 @@ public class RunFileReader implements IFrameReader {
     public long getFileSize() {
         return size;
     }
-}
\ No newline at end of file
+}
@@ -17,22 +17,63 @@ package edu.uci.ics.hyracks.dataflow.common.io;
 import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksJobletContext;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
 import edu.uci.ics.hyracks.api.io.IFileHandle;
+import edu.uci.ics.hyracks.api.io.IFrameCodec;
+import edu.uci.ics.hyracks.api.io.IFrameCodecFactory;
 import edu.uci.ics.hyracks.api.io.IIOManager;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounter;
 
+/**
+ * Writes a run of frames to a file. If the job has a run file codec, every
+ * frame is stored as a block made of its stored length, its frame length
+ * and its compressed image. Frames that do not shrink are stored as is, with
+ * equal stored and frame lengths.
+ */
 public class RunFileWriter implements IFrameWriter {
+    static final int BLOCK_HEADER_SIZE = 8;
+
     private final FileReference file;
     private final IIOManager ioManager;
+    private final IFrameCodec codec;
+    private final ICounter bytesWrittenCounter;
+    private final ICounter bytesSavedCounter;
     private boolean failed;
 
     private IFileHandle handle;
     private long size;
+    private long storedSize;
+    private ByteBuffer blockBuffer;
 
     public RunFileWriter(FileReference file, IIOManager ioManager) {
         this.file = file;
         this.ioManager = ioManager;
+        codec = null;
+        bytesWrittenCounter = null;
+        bytesSavedCounter = null;
+    }
+
+    /**
+     * Creates a writer that compresses the run with the run file codec of
+     * the job of the task, if there is one.
+     */
+    public RunFileWriter(FileReference file, IHyracksTaskContext ctx) {
+        this.file = file;
+        this.ioManager = ctx.getIOManager();
+        IHyracksJobletContext jobletCtx = ctx.getJobletContext();
+        IFrameCodecFactory codecFactory = jobletCtx.getRunFileCodecFactory();
+        if (codecFactory == null) {
+            codec = null;
+            bytesWrittenCounter = null;
+            bytesSavedCounter = null;
+        } else {
+            codec = codecFactory.createCodec();
+            bytesWrittenCounter = jobletCtx.getCounterContext().getCounter("runfiles.bytes.written", true);
+            bytesSavedCounter = jobletCtx.getCounterContext().getCounter("runfiles.bytes.saved", true);
+        }
     }
 
     @Override
@@ -40,6 +81,7 @@ public class RunFileWriter implements IFrameWriter {
         handle = ioManager.open(file, IIOManager.FileReadWriteMode.READ_WRITE,
                 IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
         size = 0;
+        storedSize = 0;
         failed = false;
     }
 
@@ -51,7 +93,32 @@ public class RunFileWriter implements IFrameWriter {
 
     @Override
     public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
-        size += ioManager.syncWrite(handle, size, buffer);
+        if (codec == null) {
+            size += ioManager.syncWrite(handle, size, buffer);
+            storedSize = size;
+            return;
+        }
+        int length = buffer.remaining();
+        int maxBlockSize = BLOCK_HEADER_SIZE + Math.max(length, codec.getMaxCompressedLength(length));
+        if (blockBuffer == null || blockBuffer.capacity() < maxBlockSize) {
+            blockBuffer = ByteBuffer.allocate(maxBlockSize);
+        }
+        byte[] src = buffer.array();
+        int srcOffset = buffer.arrayOffset() + buffer.position();
+        int storedLength = codec.compress(src, srcOffset, length, blockBuffer.array(), BLOCK_HEADER_SIZE);
+        if (storedLength >= length) {
+            System.arraycopy(src, srcOffset, blockBuffer.array(), BLOCK_HEADER_SIZE, length);
+            storedLength = length;
+        }
+        buffer.position(buffer.limit());
+        blockBuffer.clear();
+        blockBuffer.putInt(0, storedLength);
+        blockBuffer.putInt(4, length);
+        blockBuffer.limit(BLOCK_HEADER_SIZE + storedLength);
+        storedSize += ioManager.syncWrite(handle, storedSize, blockBuffer);
+        size += length;
+        bytesWrittenCounter.update(length);
+        bytesSavedCounter.update(length - storedLength - BLOCK_HEADER_SIZE);
     }
 
     @Override
@@ -59,20 +126,35 @@ public class RunFileWriter implements IFrameWriter {
         if (!failed) {
             ioManager.close(handle);
         }
+        blockBuffer = null;
     }
 
     public FileReference getFileReference() {
         return file;
     }
 
+    /**
+     * @return the total size of the frames written to the run, which is what
+     *         the run occupies once read back into memory
+     */
     public long getFileSize() {
         return size;
     }
 
+    /**
+     * @return the number of bytes the run occupies on disk
+     */
+    public long getStoredSize() {
+        return storedSize;
+    }
+
     public RunFileReader createReader() throws HyracksDataException {
         if (failed) {
             throw new HyracksDataException("createReader() called on a failed RunFileWriter");
         }
-        return new RunFileReader(file, ioManager, size);
+        if (codec == null) {
+            return new RunFileReader(file, ioManager, size);
+        }
+        return new RunFileReader(file, ioManager, size, codec, storedSize);
     }
-}
\ No newline at end of file
+}
@@ -68,7 +68,7 @@ public class InputChannelFrameReader implements IFrameReader, IInputChannelMonit
 
     @Override
     public void close() throws HyracksDataException {
-
+        channel.close();
     }
 
     @Override
@@ -109,6 +109,29 @@ public class NonDeterministicChannelReader implements IInputChannelMonitor, IPar
         }
     }
 
+    /**
+     * Waits for the next frame of the given sender, so that the chunks of a
+     * big frame can be read without frames of other senders in between.
+     */
+    public synchronized void findNextFrame(int senderIndex) throws HyracksDataException {
+        while (availableFrameCounts[senderIndex] <= 0) {
+            if (!failSenders.isEmpty()) {
+                throw new HyracksDataException("Failure occurred on input");
+            }
+            if (eosSenders.get(senderIndex) || closedSenders.get(senderIndex)) {
+                throw new HyracksDataException("Stream ended in the middle of a big frame");
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw new HyracksDataException(e);
+            }
+        }
+        if (--availableFrameCounts[senderIndex] == 0) {
+            frameAvailability.clear(senderIndex);
+        }
+    }
+
     public synchronized void close() throws HyracksDataException {
         for (int i = closedSenders.nextClearBit(0); i >= 0 && i < nSenderPartitions; i = closedSenders
                 .nextClearBit(i + 1)) {
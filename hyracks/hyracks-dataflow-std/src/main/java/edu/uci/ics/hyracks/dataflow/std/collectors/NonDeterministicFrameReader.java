@@ -17,6 +17,7 @@ package edu.uci.ics.hyracks.dataflow.std.collectors;
 import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.channels.IInputChannel;
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
 import edu.uci.ics.hyracks.api.comm.IFrameReader;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
@@ -24,6 +25,10 @@ import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 public class NonDeterministicFrameReader implements IFrameReader {
     private final NonDeterministicChannelReader channelReader;
 
+    private int bigFrameSender;
+
+    private int pendingChunks;
+
     public NonDeterministicFrameReader(NonDeterministicChannelReader channelReader) {
         this.channelReader = channelReader;
     }
@@ -31,16 +36,31 @@ public class NonDeterministicFrameReader implements IFrameReader {
     @Override
     public void open() throws HyracksDataException {
         channelReader.open();
+        bigFrameSender = -1;
+        pendingChunks = 0;
     }
 
     @Override
     public boolean nextFrame(ByteBuffer buffer) throws HyracksDataException {
-        int index = channelReader.findNextSender();
+        boolean chunk = pendingChunks > 0;
+        int index;
+        if (chunk) {
+            // The chunks of a big frame must not be interleaved with frames of other senders.
+            index = bigFrameSender;
+            channelReader.findNextFrame(index);
+            --pendingChunks;
+        } else {
+            index = channelReader.findNextSender();
+        }
         if (index >= 0) {
             IInputChannel[] channels = channelReader.getChannels();
             ByteBuffer srcFrame = channels[index].getNextBuffer();
             FrameUtils.copy(srcFrame, buffer);
             channels[index].recycleBuffer(srcFrame);
+            if (!chunk) {
+                pendingChunks = FrameHelper.getBigFrameChunkCount(buffer);
+                bigFrameSender = index;
+            }
             return true;
         }
         return false;
@@ -35,12 +35,24 @@ public class SortMergeFrameReader implements IFrameReader {
     private final INormalizedKeyComputer nmkComputer;
     private final RecordDescriptor recordDescriptor;
     private final IPartitionBatchManager pbm;
+    private final int outputLimit;
 
     private RunMergingFrameReader merger;
 
     public SortMergeFrameReader(IHyracksTaskContext ctx, int maxConcurrentMerges, int nSenders, int[] sortFields,
             IBinaryComparator[] comparators, INormalizedKeyComputer nmkComputer, RecordDescriptor recordDescriptor,
             IPartitionBatchManager pbm) {
+        this(ctx, maxConcurrentMerges, nSenders, sortFields, comparators, nmkComputer, recordDescriptor, pbm, -1);
+    }
+
+    /**
+     * @param outputLimit
+     *            the number of tuples after which the merge ends, or -1 to
+     *            merge all of the input
+     */
+    public SortMergeFrameReader(IHyracksTaskContext ctx, int maxConcurrentMerges, int nSenders, int[] sortFields,
+            IBinaryComparator[] comparators, INormalizedKeyComputer nmkComputer, RecordDescriptor recordDescriptor,
+            IPartitionBatchManager pbm, int outputLimit) {
         this.ctx = ctx;
         this.maxConcurrentMerges = maxConcurrentMerges;
         this.nSenders = nSenders;
@@ -49,6 +61,7 @@ public class SortMergeFrameReader implements IFrameReader {
         this.nmkComputer = nmkComputer;
         this.recordDescriptor = recordDescriptor;
         this.pbm = pbm;
+        this.outputLimit = outputLimit;
     }
 
     @Override
@@ -61,7 +74,7 @@ public class SortMergeFrameReader implements IFrameReader {
             List<IFrameReader> batch = new ArrayList<IFrameReader>();
             pbm.getNextBatch(batch, nSenders);
             merger = new RunMergingFrameReader(ctx, batch.toArray(new IFrameReader[nSenders]), inFrames, sortFields,
-                    comparators, nmkComputer, recordDescriptor);
+                    comparators, nmkComputer, recordDescriptor, outputLimit);
         } else {
             // multi level merge.
             throw new HyracksDataException("Not yet supported");
@@ -76,6 +89,11 @@ public class SortMergeFrameReader implements IFrameReader {
         return merger.nextFrame(buffer);
     }
 
+    /**
+     * Closing the merger closes the input channels. Once the output limit is
+     * reached, that tells the senders to drop the rest of their output
+     * instead of shipping it.
+     */
     @Override
     public void close() throws HyracksDataException {
         merger.close();
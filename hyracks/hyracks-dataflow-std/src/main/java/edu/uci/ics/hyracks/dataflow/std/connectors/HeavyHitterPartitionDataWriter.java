@@ -0,0 +1,207 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.connectors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.comm.IPartitionWriterFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounter;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.skew.HeavyHitterSampler;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.skew.HeavyHitterSet;
+
+/**
+ * Hash partitions tuples, except for the tuples whose key hash is in the
+ * heavy-hitter set: these are sent to all consumers when replicating, and to
+ * the consumers in turn otherwise.
+ * The writer also samples the key hashes it sees and logs the frequent keys
+ * that are missing from the heavy-hitter set, which helps to tune the set.
+ */
+public class HeavyHitterPartitionDataWriter implements IFrameWriter {
+    private static final Logger LOGGER = Logger.getLogger(HeavyHitterPartitionDataWriter.class.getName());
+
+    private static final int SAMPLE_INTERVAL = 16;
+    private static final int SAMPLER_CAPACITY = 32;
+    private static final double REPORTED_SHARE = 0.05;
+
+    private final int consumerPartitionCount;
+    private final IFrameWriter[] pWriters;
+    private final FrameTupleAppender[] appenders;
+    private final FrameTupleAccessor tupleAccessor;
+    private final ITuplePartitionComputer tpc;
+    private final IHyracksTaskContext ctx;
+    private final HeavyHitterSet heavyHitters;
+    private final boolean replicateHeavyHitters;
+    private final HeavyHitterSampler sampler;
+    private int nextScatterPartition;
+    private int tuplesToNextSample;
+    private ICounter heavyHitterCounter;
+    private boolean allocated = false;
+
+    public HeavyHitterPartitionDataWriter(IHyracksTaskContext ctx, int consumerPartitionCount,
+            IPartitionWriterFactory pwFactory, RecordDescriptor recordDescriptor, ITuplePartitionComputer tpc,
+            HeavyHitterSet heavyHitters, boolean replicateHeavyHitters, int senderIndex) throws HyracksDataException {
+        this.consumerPartitionCount = consumerPartitionCount;
+        pWriters = new IFrameWriter[consumerPartitionCount];
+        appenders = new FrameTupleAppender[consumerPartitionCount];
+        for (int i = 0; i < consumerPartitionCount; ++i) {
+            try {
+                pWriters[i] = pwFactory.createFrameWriter(i);
+                appenders[i] = new FrameTupleAppender(ctx.getFrameSize());
+            } catch (IOException e) {
+                throw new HyracksDataException(e);
+            }
+        }
+        tupleAccessor = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+        this.tpc = tpc;
+        this.ctx = ctx;
+        this.heavyHitters = heavyHitters;
+        this.replicateHeavyHitters = replicateHeavyHitters;
+        sampler = new HeavyHitterSampler(SAMPLER_CAPACITY);
+        // Senders start scattering at different consumers, so that small inputs spread as well.
+        nextScatterPartition = senderIndex % consumerPartitionCount;
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        for (int i = 0; i < pWriters.length; ++i) {
+            if (allocated) {
+                if (appenders[i].getTupleCount() > 0) {
+                    flushFrame(appenders[i].getBuffer(), pWriters[i]);
+                }
+            }
+            pWriters[i].close();
+        }
+        reportMissedHeavyHitters();
+    }
+
+    private void flushFrame(ByteBuffer buffer, IFrameWriter frameWriter) throws HyracksDataException {
+        buffer.position(0);
+        buffer.limit(buffer.capacity());
+        frameWriter.nextFrame(buffer);
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        for (int i = 0; i < pWriters.length; ++i) {
+            pWriters[i].open();
+        }
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        if (!allocated) {
+            allocateFrames();
+            allocated = true;
+        }
+        tupleAccessor.reset(buffer);
+        int tupleCount = tupleAccessor.getTupleCount();
+        int heavyHitterCount = 0;
+        for (int i = 0; i < tupleCount; ++i) {
+            int keyHash = tpc.partition(tupleAccessor, i, Integer.MAX_VALUE);
+            if (--tuplesToNextSample <= 0) {
+                sampler.add(keyHash);
+                tuplesToNextSample = SAMPLE_INTERVAL;
+            }
+            if (!heavyHitters.contains(keyHash)) {
+                appendTuple(i, keyHash % consumerPartitionCount);
+                continue;
+            }
+            ++heavyHitterCount;
+            if (replicateHeavyHitters) {
+                for (int h = 0; h < consumerPartitionCount; ++h) {
+                    appendTuple(i, h);
+                }
+            } else {
+                appendTuple(i, nextScatterPartition);
+                if (++nextScatterPartition == consumerPartitionCount) {
+                    nextScatterPartition = 0;
+                }
+            }
+        }
+        if (heavyHitterCount > 0) {
+            heavyHitterCounter.update(heavyHitterCount);
+        }
+    }
+
+    private void appendTuple(int tIndex, int h) throws HyracksDataException {
+        FrameTupleAppender appender = appenders[h];
+        if (!appender.append(tupleAccessor, tIndex)) {
+            ByteBuffer appenderBuffer = appender.getBuffer();
+            flushFrame(appenderBuffer, pWriters[h]);
+            appender.reset(appenderBuffer, true);
+            if (!appender.append(tupleAccessor, tIndex)) {
+                FrameUtils.flushBigTuple(ctx, tupleAccessor, tIndex, pWriters[h]);
+            }
+        }
+    }
+
+    /**
+     * @throws HyracksDataException
+     */
+    private void allocateFrames() throws HyracksDataException {
+        for (int i = 0; i < appenders.length; ++i) {
+            appenders[i].reset(ctx.allocateFrame(), true);
+        }
+        heavyHitterCounter = ctx
+                .getJobletContext()
+                .getCounterContext()
+                .getCounter(
+                        replicateHeavyHitters ? "partitioner.heavyhitters.replicated"
+                                : "partitioner.heavyhitters.scattered", true);
+    }
+
+    private void reportMissedHeavyHitters() {
+        if (!LOGGER.isLoggable(Level.INFO) || sampler.getSampleCount() == 0) {
+            return;
+        }
+        HeavyHitterSet sampled = getSampledHeavyHitters();
+        StringBuilder missed = new StringBuilder();
+        for (int keyHash : sampled.getKeyHashes()) {
+            if (!heavyHitters.contains(keyHash)) {
+                missed.append(' ').append(keyHash);
+            }
+        }
+        if (missed.length() > 0) {
+            LOGGER.info("Key hashes with more than " + REPORTED_SHARE + " of " + sampler.getSampleCount()
+                    + " sampled tuples are not declared as heavy hitters:" + missed);
+        }
+    }
+
+    /**
+     * @return the key hashes that make up a noticeable share of the tuples
+     *         sampled so far
+     */
+    public HeavyHitterSet getSampledHeavyHitters() {
+        return sampler.getHeavyHitters(REPORTED_SHARE);
+    }
+
+    @Override
+    public void fail() throws HyracksDataException {
+        for (int i = 0; i < appenders.length; ++i) {
+            pWriters[i].fail();
+        }
+    }
+}
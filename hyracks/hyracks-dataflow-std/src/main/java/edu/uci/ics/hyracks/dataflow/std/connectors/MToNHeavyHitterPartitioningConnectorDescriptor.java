@@ -0,0 +1,59 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.connectors;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.comm.IPartitionWriterFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IConnectorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.skew.HeavyHitterSet;
+
+/**
+ * A hash partitioning connector for the inputs of a skewed equi-join. Tuples
+ * whose key is a heavy hitter are either replicated to all consumers or
+ * scattered round-robin over them; all other tuples are hash partitioned.
+ * The skewed input of the join scatters its heavy hitters and the other input
+ * replicates them, so every heavy-hitter tuple of the skewed input still
+ * meets all of its join partners while no single consumer gets all of them.
+ * Both connectors must use the same hash functions and heavy-hitter set. The
+ * partitioner is asked for Integer.MAX_VALUE partitions to obtain the key
+ * hash, which is what {@link HeavyHitterSet} holds.
+ */
+public class MToNHeavyHitterPartitioningConnectorDescriptor extends MToNPartitioningConnectorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    private final ITuplePartitionComputerFactory tpcf;
+    private final HeavyHitterSet heavyHitters;
+    private final boolean replicateHeavyHitters;
+
+    public MToNHeavyHitterPartitioningConnectorDescriptor(IConnectorDescriptorRegistry spec,
+            ITuplePartitionComputerFactory tpcf, HeavyHitterSet heavyHitters, boolean replicateHeavyHitters) {
+        super(spec, tpcf);
+        this.tpcf = tpcf;
+        this.heavyHitters = heavyHitters;
+        this.replicateHeavyHitters = replicateHeavyHitters;
+    }
+
+    @Override
+    public IFrameWriter createPartitioner(IHyracksTaskContext ctx, RecordDescriptor recordDesc,
+            IPartitionWriterFactory edwFactory, int index, int nProducerPartitions, int nConsumerPartitions)
+            throws HyracksDataException {
+        return new HeavyHitterPartitionDataWriter(ctx, nConsumerPartitions, edwFactory, recordDesc,
+                tpcf.createPartitioner(), heavyHitters, replicateHeavyHitters, index);
+    }
+}
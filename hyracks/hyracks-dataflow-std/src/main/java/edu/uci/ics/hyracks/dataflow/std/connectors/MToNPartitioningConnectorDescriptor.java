@@ -32,10 +32,21 @@ import edu.uci.ics.hyracks.dataflow.std.collectors.PartitionCollector;
 public class MToNPartitioningConnectorDescriptor extends AbstractMToNConnectorDescriptor {
     private static final long serialVersionUID = 1L;
     private ITuplePartitionComputerFactory tpcf;
+    private IPartitionTupleFilterFactory tupleFilterFactory;
 
     public MToNPartitioningConnectorDescriptor(IConnectorDescriptorRegistry spec, ITuplePartitionComputerFactory tpcf) {
+        this(spec, tpcf, null);
+    }
+
+    /**
+     * Creates a connector that drops the tuples rejected by the filter of
+     * their consumer partition before sending them.
+     */
+    public MToNPartitioningConnectorDescriptor(IConnectorDescriptorRegistry spec,
+            ITuplePartitionComputerFactory tpcf, IPartitionTupleFilterFactory tupleFilterFactory) {
         super(spec);
         this.tpcf = tpcf;
+        this.tupleFilterFactory = tupleFilterFactory;
     }
 
     @Override
@@ -43,7 +54,7 @@ public class MToNPartitioningConnectorDescriptor extends AbstractMToNConnectorDe
             IPartitionWriterFactory edwFactory, int index, int nProducerPartitions, int nConsumerPartitions)
             throws HyracksDataException {
         final PartitionDataWriter hashWriter = new PartitionDataWriter(ctx, nConsumerPartitions, edwFactory,
-                recordDesc, tpcf.createPartitioner());
+                recordDesc, tpcf.createPartitioner(), tupleFilterFactory);
         return hashWriter;
     }
 
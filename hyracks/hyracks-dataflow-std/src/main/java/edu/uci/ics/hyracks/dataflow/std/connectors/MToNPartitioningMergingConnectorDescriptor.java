@@ -43,6 +43,7 @@ public class MToNPartitioningMergingConnectorDescriptor extends AbstractMToNConn
     private final IBinaryComparatorFactory[] comparatorFactories;
     private final INormalizedKeyComputerFactory nkcFactory;
     private final boolean stable;
+    private final int outputLimit;
 
     public MToNPartitioningMergingConnectorDescriptor(IConnectorDescriptorRegistry spec,
             ITuplePartitionComputerFactory tpcf, int[] sortFields, IBinaryComparatorFactory[] comparatorFactories,
@@ -53,12 +54,24 @@ public class MToNPartitioningMergingConnectorDescriptor extends AbstractMToNConn
     public MToNPartitioningMergingConnectorDescriptor(IConnectorDescriptorRegistry spec,
             ITuplePartitionComputerFactory tpcf, int[] sortFields, IBinaryComparatorFactory[] comparatorFactories,
             INormalizedKeyComputerFactory nkcFactory, boolean stable) {
+        this(spec, tpcf, sortFields, comparatorFactories, nkcFactory, stable, -1);
+    }
+
+    /**
+     * Creates a connector whose consumers stop merging after outputLimit
+     * tuples, e.g. below a LIMIT on top of sorted producers. The remaining
+     * input of the producers is still read, but discarded.
+     */
+    public MToNPartitioningMergingConnectorDescriptor(IConnectorDescriptorRegistry spec,
+            ITuplePartitionComputerFactory tpcf, int[] sortFields, IBinaryComparatorFactory[] comparatorFactories,
+            INormalizedKeyComputerFactory nkcFactory, boolean stable, int outputLimit) {
         super(spec);
         this.tpcf = tpcf;
         this.sortFields = sortFields;
         this.comparatorFactories = comparatorFactories;
         this.nkcFactory = nkcFactory;
         this.stable = stable;
+        this.outputLimit = outputLimit;
     }
 
     @Override
@@ -80,7 +93,7 @@ public class MToNPartitioningMergingConnectorDescriptor extends AbstractMToNConn
         INormalizedKeyComputer nmkComputer = nkcFactory == null ? null : nkcFactory.createNormalizedKeyComputer();
         IPartitionBatchManager pbm = new NonDeterministicPartitionBatchManager(nProducerPartitions);
         IFrameReader sortMergeFrameReader = new SortMergeFrameReader(ctx, nProducerPartitions, nProducerPartitions,
-                sortFields, comparators, nmkComputer, recordDesc, pbm);
+                sortFields, comparators, nmkComputer, recordDesc, pbm, outputLimit);
         BitSet expectedPartitions = new BitSet();
         expectedPartitions.set(0, nProducerPartitions);
         return new PartitionCollector(ctx, getConnectorId(), index, expectedPartitions, sortMergeFrameReader, pbm);
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.connectors;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.job.IConnectorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.range.FieldRangePartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.range.IRangeMap;
+
+/**
+ * Partitions the tuples by ranges of their key. Consumer partition i gets
+ * keys that are smaller than the keys of partition i + 1, so sorting every
+ * consumer partition yields a globally ordered result.
+ */
+public class MToNRangePartitioningConnectorDescriptor extends MToNPartitioningConnectorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    public MToNRangePartitioningConnectorDescriptor(IConnectorDescriptorRegistry spec, int[] partitioningFields,
+            IBinaryComparatorFactory[] comparatorFactories, IRangeMap rangeMap) {
+        super(spec, new FieldRangePartitionComputerFactory(partitioningFields, comparatorFactories, rangeMap));
+    }
+}
@@ -23,8 +23,10 @@ import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounter;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 
 public class PartitionDataWriter implements IFrameWriter {
     private final int consumerPartitionCount;
@@ -33,10 +35,19 @@ public class PartitionDataWriter implements IFrameWriter {
     private final FrameTupleAccessor tupleAccessor;
     private final ITuplePartitionComputer tpc;
     private final IHyracksTaskContext ctx;
+    private final IPartitionTupleFilterFactory tupleFilterFactory;
+    private IPartitionTupleFilter[] tupleFilters;
+    private ICounter filteredTupleCounter;
     private boolean allocated = false;
 
     public PartitionDataWriter(IHyracksTaskContext ctx, int consumerPartitionCount, IPartitionWriterFactory pwFactory,
             RecordDescriptor recordDescriptor, ITuplePartitionComputer tpc) throws HyracksDataException {
+        this(ctx, consumerPartitionCount, pwFactory, recordDescriptor, tpc, null);
+    }
+
+    public PartitionDataWriter(IHyracksTaskContext ctx, int consumerPartitionCount, IPartitionWriterFactory pwFactory,
+            RecordDescriptor recordDescriptor, ITuplePartitionComputer tpc,
+            IPartitionTupleFilterFactory tupleFilterFactory) throws HyracksDataException {
         this.consumerPartitionCount = consumerPartitionCount;
         pWriters = new IFrameWriter[consumerPartitionCount];
         appenders = new FrameTupleAppender[consumerPartitionCount];
@@ -51,6 +62,7 @@ public class PartitionDataWriter implements IFrameWriter {
         tupleAccessor = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
         this.tpc = tpc;
         this.ctx = ctx;
+        this.tupleFilterFactory = tupleFilterFactory;
     }
 
     @Override
@@ -86,20 +98,26 @@ public class PartitionDataWriter implements IFrameWriter {
         }
         tupleAccessor.reset(buffer);
         int tupleCount = tupleAccessor.getTupleCount();
+        int filteredTupleCount = 0;
         for (int i = 0; i < tupleCount; ++i) {
             int h = tpc.partition(tupleAccessor, i, consumerPartitionCount);
+            if (tupleFilters != null && tupleFilters[h] != null && !tupleFilters[h].accept(tupleAccessor, i)) {
+                ++filteredTupleCount;
+                continue;
+            }
             FrameTupleAppender appender = appenders[h];
             if (!appender.append(tupleAccessor, i)) {
                 ByteBuffer appenderBuffer = appender.getBuffer();
                 flushFrame(appenderBuffer, pWriters[h]);
                 appender.reset(appenderBuffer, true);
                 if (!appender.append(tupleAccessor, i)) {
-                    throw new HyracksDataException("Record size ("
-                            + (tupleAccessor.getTupleEndOffset(i) - tupleAccessor.getTupleStartOffset(i))
-                            + ") larger than frame size (" + appender.getBuffer().capacity() + ")");
+                    FrameUtils.flushBigTuple(ctx, tupleAccessor, i, pWriters[h]);
                 }
             }
         }
+        if (filteredTupleCount > 0) {
+            filteredTupleCounter.update(filteredTupleCount);
+        }
     }
 
     /**
@@ -109,6 +127,14 @@ public class PartitionDataWriter implements IFrameWriter {
         for (int i = 0; i < appenders.length; ++i) {
             appenders[i].reset(ctx.allocateFrame(), true);
         }
+        if (tupleFilterFactory != null) {
+            tupleFilters = new IPartitionTupleFilter[consumerPartitionCount];
+            for (int i = 0; i < consumerPartitionCount; ++i) {
+                tupleFilters[i] = tupleFilterFactory.createTupleFilter(ctx, i);
+            }
+            filteredTupleCounter = ctx.getJobletContext().getCounterContext()
+                    .getCounter("partitioner.tuples.filtered", true);
+        }
     }
 
     @Override
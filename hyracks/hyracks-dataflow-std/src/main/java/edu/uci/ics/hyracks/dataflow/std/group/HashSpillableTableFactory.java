@@ -104,6 +104,8 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
                 outRecordDescriptor, keyFields, keyFieldsInPartialResults, null);
 
         final AggregateState aggregateState = aggregator.createAggregateStates();
+        final IBatchAggregatorDescriptor batchAggregator = aggregator instanceof IBatchAggregatorDescriptor
+                ? (IBatchAggregatorDescriptor) aggregator : null;
 
         final ArrayTupleBuilder stateTupleBuilder;
         if (keyFields.length < outRecordDescriptor.getFields().length) {
@@ -134,6 +136,16 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
              */
             private int[] tPointers;
 
+            /**
+             * Per-batch columns: the hash table entry of each input tuple, and
+             * the input tuples that go to existing groups along with the
+             * positions of the states of those groups.
+             */
+            private int[] entries = new int[0];
+            private int[] aggTupleIndexes;
+            private int[] stateFrameIndexes;
+            private int[] stateTupleIndexes;
+
             @Override
             public void sortFrames() throws HyracksDataException {
                 int sfIdx = storedKeys[0];
@@ -185,49 +197,104 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
                 if (lastBufIndex < 0)
                     nextAvailableFrame();
                 int entry = tpc.partition(accessor, tIndex, tableSize);
-                boolean foundGroup = false;
+                if (findGroup(accessor, tIndex, entry)) {
+                    aggregator.aggregate(accessor, tIndex, storedKeysAccessor1, storedTuplePointer.tupleIndex,
+                            aggregateState);
+                    return true;
+                }
+                return initGroup(accessor, tIndex, entry);
+            }
+
+            @Override
+            public int insert(FrameTupleAccessor accessor, int tStart, int tEnd) throws HyracksDataException {
+                if (batchAggregator == null) {
+                    for (int tIndex = tStart; tIndex < tEnd; tIndex++) {
+                        if (!insert(accessor, tIndex)) {
+                            return tIndex;
+                        }
+                    }
+                    return tEnd;
+                }
+                if (lastBufIndex < 0)
+                    nextAvailableFrame();
+                int n = tEnd - tStart;
+                if (entries.length < n) {
+                    entries = new int[n];
+                    aggTupleIndexes = new int[n];
+                    stateFrameIndexes = new int[n];
+                    stateTupleIndexes = new int[n];
+                }
+                // Hash the keys of the whole batch before touching the table.
+                for (int i = 0; i < n; i++) {
+                    entries[i] = tpc.partition(accessor, tStart + i, tableSize);
+                }
+                // Resolve the groups; the tuples of existing groups are aggregated together below.
+                int nAgg = 0;
+                int tIndex = tStart;
+                for (; tIndex < tEnd; tIndex++) {
+                    int entry = entries[tIndex - tStart];
+                    if (findGroup(accessor, tIndex, entry)) {
+                        aggTupleIndexes[nAgg] = tIndex;
+                        stateFrameIndexes[nAgg] = storedTuplePointer.frameIndex;
+                        stateTupleIndexes[nAgg] = storedTuplePointer.tupleIndex;
+                        nAgg++;
+                    } else if (!initGroup(accessor, tIndex, entry)) {
+                        break;
+                    }
+                }
+                if (nAgg > 0) {
+                    batchAggregator.aggregate(accessor, aggTupleIndexes, storedKeysAccessor1, frames,
+                            stateFrameIndexes, stateTupleIndexes, nAgg, aggregateState);
+                }
+                return tIndex;
+            }
+
+            /**
+             * Look for the group of a tuple in the given hash table entry. If
+             * it is found, the stored tuple pointer points to its state.
+             */
+            private boolean findGroup(FrameTupleAccessor accessor, int tIndex, int entry)
+                    throws HyracksDataException {
                 int offset = 0;
                 do {
                     table.getTuplePointer(entry, offset++, storedTuplePointer);
                     if (storedTuplePointer.frameIndex < 0)
-                        break;
+                        return false;
                     storedKeysAccessor1.reset(frames.get(storedTuplePointer.frameIndex));
                     int c = ftpcPartial.compare(accessor, tIndex, storedKeysAccessor1, storedTuplePointer.tupleIndex);
                     if (c == 0) {
-                        foundGroup = true;
-                        break;
+                        return true;
                     }
                 } while (true);
+            }
 
-                if (!foundGroup) {
+            /**
+             * Start a new group with a tuple.
+             * 
+             * @return false if there is no frame left for the group state.
+             */
+            private boolean initGroup(FrameTupleAccessor accessor, int tIndex, int entry) throws HyracksDataException {
+                stateTupleBuilder.reset();
 
-                    stateTupleBuilder.reset();
+                for (int k = 0; k < keyFields.length; k++) {
+                    stateTupleBuilder.addField(accessor, tIndex, keyFields[k]);
+                }
 
-                    for (int k = 0; k < keyFields.length; k++) {
-                        stateTupleBuilder.addField(accessor, tIndex, keyFields[k]);
+                aggregator.init(stateTupleBuilder, accessor, tIndex, aggregateState);
+                if (!stateAppender.appendSkipEmptyField(stateTupleBuilder.getFieldEndOffsets(),
+                        stateTupleBuilder.getByteArray(), 0, stateTupleBuilder.getSize())) {
+                    if (!nextAvailableFrame()) {
+                        return false;
                     }
-
-                    aggregator.init(stateTupleBuilder, accessor, tIndex, aggregateState);
                     if (!stateAppender.appendSkipEmptyField(stateTupleBuilder.getFieldEndOffsets(),
                             stateTupleBuilder.getByteArray(), 0, stateTupleBuilder.getSize())) {
-                        if (!nextAvailableFrame()) {
-                            return false;
-                        }
-                        if (!stateAppender.appendSkipEmptyField(stateTupleBuilder.getFieldEndOffsets(),
-                                stateTupleBuilder.getByteArray(), 0, stateTupleBuilder.getSize())) {
-                            throw new HyracksDataException("Cannot init external aggregate state in a frame.");
-                        }
+                        throw new HyracksDataException("Cannot init external aggregate state in a frame.");
                     }
-
-                    storedTuplePointer.frameIndex = lastBufIndex;
-                    storedTuplePointer.tupleIndex = stateAppender.getTupleCount() - 1;
-                    table.insert(entry, storedTuplePointer);
-                } else {
-
-                    aggregator.aggregate(accessor, tIndex, storedKeysAccessor1, storedTuplePointer.tupleIndex,
-                            aggregateState);
-
                 }
+
+                storedTuplePointer.frameIndex = lastBufIndex;
+                storedTuplePointer.tupleIndex = stateAppender.getTupleCount() - 1;
+                table.insert(entry, storedTuplePointer);
                 return true;
             }
 
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.group;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * An aggregator that can aggregate a batch of tuples of one input frame into
+ * the states of their groups in one call.
+ */
+public interface IBatchAggregatorDescriptor extends IAggregatorDescriptor {
+
+    /**
+     * Aggregate the tuples tIndexes[0..count) of the accessor. The state of
+     * the k-th tuple is the tuple stateTupleIndexes[k] of the frame
+     * stateFrames.get(stateFrameIndexes[k]).
+     * 
+     * @param accessor
+     * @param tIndexes
+     * @param stateAccessor
+     *            An accessor for the state frames, which may be reset by the
+     *            aggregator.
+     * @param stateFrames
+     * @param stateFrameIndexes
+     * @param stateTupleIndexes
+     * @param count
+     * @param state
+     *            The aggregate state.
+     * @throws HyracksDataException
+     */
+    public void aggregate(IFrameTupleAccessor accessor, int[] tIndexes, IFrameTupleAccessor stateAccessor,
+            List<ByteBuffer> stateFrames, int[] stateFrameIndexes, int[] stateTupleIndexes, int count,
+            AggregateState state) throws HyracksDataException;
+}
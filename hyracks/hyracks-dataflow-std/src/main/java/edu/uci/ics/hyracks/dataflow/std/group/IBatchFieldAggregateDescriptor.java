@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.group;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * A field aggregator with binary state that can update the states of a batch
+ * of tuples in one call, so that the per-tuple work is a tight loop over
+ * primitive values instead of a virtual call per tuple.
+ */
+public interface IBatchFieldAggregateDescriptor extends IFieldAggregateDescriptor {
+
+    /**
+     * Aggregate the tuples tIndexes[0..count) of the accessor. The binary
+     * state of the k-th tuple starts at stateOffsets[k] in stateData[k].
+     * 
+     * @param accessor
+     * @param tIndexes
+     * @param stateData
+     * @param stateOffsets
+     * @param count
+     * @throws HyracksDataException
+     */
+    public void aggregate(IFrameTupleAccessor accessor, int[] tIndexes, byte[][] stateData, int[] stateOffsets,
+            int count) throws HyracksDataException;
+}
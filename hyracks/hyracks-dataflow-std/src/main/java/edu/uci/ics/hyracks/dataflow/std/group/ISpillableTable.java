@@ -35,5 +35,14 @@ public interface ISpillableTable {
 
     public boolean insert(FrameTupleAccessor accessor, int tIndex) throws HyracksDataException;
 
+    /**
+     * Insert the tuples [tStart, tEnd) of the accessor. Insertion stops at the
+     * first tuple that needs a new group when the table is full.
+     * 
+     * @return the index of the first tuple that was not inserted, or tEnd
+     * @throws HyracksDataException
+     */
+    public int insert(FrameTupleAccessor accessor, int tStart, int tEnd) throws HyracksDataException;
+
     public void flushFrames(IFrameWriter writer, boolean isPartial) throws HyracksDataException;
 }
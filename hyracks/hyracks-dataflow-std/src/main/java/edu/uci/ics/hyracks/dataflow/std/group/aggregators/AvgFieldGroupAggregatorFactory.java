@@ -16,7 +16,6 @@ package edu.uci.ics.hyracks.dataflow.std.group.aggregators;
 
 import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
@@ -25,6 +24,7 @@ import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
 import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
+import edu.uci.ics.hyracks.dataflow.std.group.IBatchFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptorFactory;
 
@@ -57,7 +57,7 @@ public class AvgFieldGroupAggregatorFactory implements IFieldAggregateDescriptor
     public IFieldAggregateDescriptor createAggregator(IHyracksTaskContext ctx, RecordDescriptor inRecordDescriptor,
             RecordDescriptor outRecordDescriptor) throws HyracksDataException {
 
-        return new IFieldAggregateDescriptor() {
+        return new IBatchFieldAggregateDescriptor() {
 
             @Override
             public void reset() {
@@ -138,11 +138,10 @@ public class AvgFieldGroupAggregatorFactory implements IFieldAggregateDescriptor
                 sum += IntegerPointable.getInteger(accessor.getBuffer().array(), tupleOffset + accessor.getFieldSlotsLength() + fieldStart);
                 count += 1;
                 if (!useObjectState) {
-                    ByteBuffer buf = ByteBuffer.wrap(data);
-                    sum += buf.getInt(offset);
-                    count += buf.getInt(offset + 4);
-                    buf.putInt(offset, sum);
-                    buf.putInt(offset + 4, count);
+                    sum += IntegerPointable.getInteger(data, offset);
+                    count += IntegerPointable.getInteger(data, offset + 4);
+                    IntegerPointable.setInteger(data, offset, sum);
+                    IntegerPointable.setInteger(data, offset + 4, count);
                 } else {
                     Integer[] fields = (Integer[]) state.state;
                     sum += fields[0];
@@ -166,6 +165,22 @@ public class AvgFieldGroupAggregatorFactory implements IFieldAggregateDescriptor
                 return new AggregateState(new Integer[] { 0, 0 });
             }
 
+
+            @Override
+            public void aggregate(IFrameTupleAccessor accessor, int[] tIndexes, byte[][] stateData,
+                    int[] stateOffsets, int count) throws HyracksDataException {
+                byte[] data = accessor.getBuffer().array();
+                int fieldSlotsLength = accessor.getFieldSlotsLength();
+                for (int k = 0; k < count; k++) {
+                    int tIndex = tIndexes[k];
+                    int sum = IntegerPointable.getInteger(data, accessor.getTupleStartOffset(tIndex) + fieldSlotsLength
+                            + accessor.getFieldStartOffset(tIndex, aggField));
+                    byte[] state = stateData[k];
+                    int offset = stateOffsets[k];
+                    IntegerPointable.setInteger(state, offset, IntegerPointable.getInteger(state, offset) + sum);
+                    IntegerPointable.setInteger(state, offset + 4, IntegerPointable.getInteger(state, offset + 4) + 1);
+                }
+            }
         };
     }
 
@@ -16,7 +16,6 @@ package edu.uci.ics.hyracks.dataflow.std.group.aggregators;
 
 import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
@@ -25,6 +24,7 @@ import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
 import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
+import edu.uci.ics.hyracks.dataflow.std.group.IBatchFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptorFactory;
 
@@ -53,7 +53,7 @@ public class CountFieldAggregatorFactory implements IFieldAggregateDescriptorFac
     @Override
     public IFieldAggregateDescriptor createAggregator(IHyracksTaskContext ctx, RecordDescriptor inRecordDescriptor,
             RecordDescriptor outRecordDescriptor) throws HyracksDataException {
-        return new IFieldAggregateDescriptor() {
+        return new IBatchFieldAggregateDescriptor() {
 
             @Override
             public void reset() {
@@ -128,14 +128,22 @@ public class CountFieldAggregatorFactory implements IFieldAggregateDescriptorFac
                     AggregateState state) throws HyracksDataException {
                 int count = 1;
                 if (!useObjectState) {
-                    ByteBuffer buf = ByteBuffer.wrap(data);
-                    count += buf.getInt(offset);
-                    buf.putInt(offset, count);
+                    count += IntegerPointable.getInteger(data, offset);
+                    IntegerPointable.setInteger(data, offset, count);
                 } else {
                     count += (Integer) state.state;
                     state.state = count;
                 }
             }
+
+            @Override
+            public void aggregate(IFrameTupleAccessor accessor, int[] tIndexes, byte[][] stateData,
+                    int[] stateOffsets, int count) throws HyracksDataException {
+                for (int k = 0; k < count; k++) {
+                    IntegerPointable.setInteger(stateData[k], stateOffsets[k],
+                            IntegerPointable.getInteger(stateData[k], stateOffsets[k]) + 1);
+                }
+            }
         };
     }
 
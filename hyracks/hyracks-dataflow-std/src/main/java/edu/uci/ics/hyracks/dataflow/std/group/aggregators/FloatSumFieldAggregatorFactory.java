@@ -16,7 +16,6 @@ package edu.uci.ics.hyracks.dataflow.std.group.aggregators;
 
 import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
@@ -25,6 +24,7 @@ import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.data.std.primitive.FloatPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.FloatSerializerDeserializer;
 import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
+import edu.uci.ics.hyracks.dataflow.std.group.IBatchFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptorFactory;
 
@@ -52,7 +52,7 @@ public class FloatSumFieldAggregatorFactory implements
     public IFieldAggregateDescriptor createAggregator(IHyracksTaskContext ctx,
             RecordDescriptor inRecordDescriptor,
             RecordDescriptor outRecordDescriptor) throws HyracksDataException {
-        return new IFieldAggregateDescriptor() {
+        return new IBatchFieldAggregateDescriptor() {
             
             @Override
             public void reset() {
@@ -143,14 +143,27 @@ public class FloatSumFieldAggregatorFactory implements
                 sum += FloatPointable.getFloat(accessor.getBuffer().array(), tupleOffset + accessor.getFieldSlotsLength() + fieldStart);
 
                 if (!useObjectState) {
-                    ByteBuffer buf = ByteBuffer.wrap(data);
-                    sum += buf.getFloat(offset);
-                    buf.putFloat(offset, sum);
+                    sum += FloatPointable.getFloat(data, offset);
+                    FloatPointable.setFloat(data, offset, sum);
                 } else {
                     sum += (Float) state.state;
                     state.state = sum;
                 }
             }
+
+            @Override
+            public void aggregate(IFrameTupleAccessor accessor, int[] tIndexes, byte[][] stateData,
+                    int[] stateOffsets, int count) throws HyracksDataException {
+                byte[] data = accessor.getBuffer().array();
+                int fieldSlotsLength = accessor.getFieldSlotsLength();
+                for (int k = 0; k < count; k++) {
+                    int tIndex = tIndexes[k];
+                    float sum = FloatPointable.getFloat(data, accessor.getTupleStartOffset(tIndex) + fieldSlotsLength
+                            + accessor.getFieldStartOffset(tIndex, aggField));
+                    sum += FloatPointable.getFloat(stateData[k], stateOffsets[k]);
+                    FloatPointable.setFloat(stateData[k], stateOffsets[k], sum);
+                }
+            }
         };
     }
 
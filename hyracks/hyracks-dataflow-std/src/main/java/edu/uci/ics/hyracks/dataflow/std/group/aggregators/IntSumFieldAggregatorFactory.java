@@ -16,7 +16,6 @@ package edu.uci.ics.hyracks.dataflow.std.group.aggregators;
 
 import java.io.DataOutput;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
@@ -25,6 +24,7 @@ import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
 import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
+import edu.uci.ics.hyracks.dataflow.std.group.IBatchFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptorFactory;
 
@@ -57,7 +57,7 @@ public class IntSumFieldAggregatorFactory implements IFieldAggregateDescriptorFa
     public IFieldAggregateDescriptor createAggregator(IHyracksTaskContext ctx, RecordDescriptor inRecordDescriptor,
             RecordDescriptor outRecordDescriptor) throws HyracksDataException {
 
-        return new IFieldAggregateDescriptor() {
+        return new IBatchFieldAggregateDescriptor() {
 
             @Override
             public void reset() {
@@ -142,14 +142,27 @@ public class IntSumFieldAggregatorFactory implements IFieldAggregateDescriptorFa
                 sum += IntegerPointable.getInteger(accessor.getBuffer().array(), tupleOffset + accessor.getFieldSlotsLength() + fieldStart);
 
                 if (!useObjectState) {
-                    ByteBuffer buf = ByteBuffer.wrap(data);
-                    sum += buf.getInt(offset);
-                    buf.putInt(offset, sum);
+                    sum += IntegerPointable.getInteger(data, offset);
+                    IntegerPointable.setInteger(data, offset, sum);
                 } else {
                     sum += (Integer) state.state;
                     state.state = sum;
                 }
             }
+
+            @Override
+            public void aggregate(IFrameTupleAccessor accessor, int[] tIndexes, byte[][] stateData,
+                    int[] stateOffsets, int count) throws HyracksDataException {
+                byte[] data = accessor.getBuffer().array();
+                int fieldSlotsLength = accessor.getFieldSlotsLength();
+                for (int k = 0; k < count; k++) {
+                    int tIndex = tIndexes[k];
+                    int sum = IntegerPointable.getInteger(data, accessor.getTupleStartOffset(tIndex) + fieldSlotsLength
+                            + accessor.getFieldStartOffset(tIndex, aggField));
+                    sum += IntegerPointable.getInteger(stateData[k], stateOffsets[k]);
+                    IntegerPointable.setInteger(stateData[k], stateOffsets[k], sum);
+                }
+            }
         };
     }
 
@@ -15,6 +15,8 @@
 package edu.uci.ics.hyracks.dataflow.std.group.aggregators;
 
 import java.io.DataOutput;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
@@ -25,6 +27,8 @@ import edu.uci.ics.hyracks.dataflow.std.group.AbstractAccumulatingAggregatorDesc
 import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
 import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptorFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.IBatchAggregatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.group.IBatchFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptorFactory;
 
@@ -66,7 +70,10 @@ public class MultiFieldsAggregatorFactory extends AbstractAccumulatingAggregator
             this.keys = keyFields;
         }
 
-        return new IAggregatorDescriptor() {
+        return new IBatchAggregatorDescriptor() {
+
+            private byte[][] stateData = new byte[0][];
+            private int[] stateOffsets = new int[0];
 
             @Override
             public void reset() {
@@ -164,6 +171,44 @@ public class MultiFieldsAggregatorFactory extends AbstractAccumulatingAggregator
                     }
                 }
             }
+
+            @Override
+            public void aggregate(IFrameTupleAccessor accessor, int[] tIndexes, IFrameTupleAccessor stateAccessor,
+                    List<ByteBuffer> stateFrames, int[] stateFrameIndexes, int[] stateTupleIndexes, int count,
+                    AggregateState state) throws HyracksDataException {
+                if (stateOffsets.length < count) {
+                    stateData = new byte[tIndexes.length][];
+                    stateOffsets = new int[tIndexes.length];
+                }
+                AggregateState[] states = (AggregateState[]) state.state;
+                int fieldIndex = 0;
+                // One aggregator at a time over the whole batch.
+                for (int i = 0; i < aggregators.length; i++) {
+                    if (!aggregators[i].needsBinaryState()) {
+                        for (int k = 0; k < count; k++) {
+                            aggregators[i].aggregate(accessor, tIndexes[k], null, 0, states[i]);
+                        }
+                        continue;
+                    }
+                    for (int k = 0; k < count; k++) {
+                        stateAccessor.reset(stateFrames.get(stateFrameIndexes[k]));
+                        int stateTupleIndex = stateTupleIndexes[k];
+                        stateData[k] = stateAccessor.getBuffer().array();
+                        stateOffsets[k] = stateAccessor.getTupleStartOffset(stateTupleIndex)
+                                + stateAccessor.getFieldSlotsLength()
+                                + stateAccessor.getFieldStartOffset(stateTupleIndex, keys.length + fieldIndex);
+                    }
+                    fieldIndex++;
+                    if (aggregators[i] instanceof IBatchFieldAggregateDescriptor) {
+                        ((IBatchFieldAggregateDescriptor) aggregators[i]).aggregate(accessor, tIndexes, stateData,
+                                stateOffsets, count);
+                    } else {
+                        for (int k = 0; k < count; k++) {
+                            aggregators[i].aggregate(accessor, tIndexes[k], stateData[k], stateOffsets[k], states[i]);
+                        }
+                    }
+                }
+            }
         };
     }
 }
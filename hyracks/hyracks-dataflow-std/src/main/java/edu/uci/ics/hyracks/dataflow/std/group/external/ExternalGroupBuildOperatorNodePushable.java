@@ -24,10 +24,16 @@ import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounter;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
 import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputSinkOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
+import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptorFactory;
 import edu.uci.ics.hyracks.dataflow.std.group.ISpillableTable;
 import edu.uci.ics.hyracks.dataflow.std.group.ISpillableTableFactory;
@@ -44,13 +50,38 @@ class ExternalGroupBuildOperatorNodePushable extends AbstractUnaryInputSinkOpera
     private final RecordDescriptor inRecordDescriptor;
     private final RecordDescriptor outRecordDescriptor;
     private final FrameTupleAccessor accessor;
+    private final double passThroughThreshold;
 
     private ExternalGroupState state;
 
+    /**
+     * The number of input tuples inserted into the table since it was last
+     * reset.
+     */
+    private long insertedTupleCount;
+
+    /**
+     * Set once grouping turned out not to reduce the input; the remaining
+     * tuples then go to the pass-through run as they are.
+     */
+    private boolean passThrough;
+    private RunFileWriter passThroughWriter;
+    private IAggregatorDescriptor passThroughAggregator;
+    private AggregateState passThroughState;
+    private ArrayTupleBuilder stateTupleBuilder;
+    private ArrayTupleBuilder outputTupleBuilder;
+    private ByteBuffer stateFrame;
+    private FrameTupleAppender stateAppender;
+    private FrameTupleAccessor stateAccessor;
+    private ByteBuffer outputFrame;
+    private FrameTupleAppender outputAppender;
+    private ICounter passThroughTupleCounter;
+
     ExternalGroupBuildOperatorNodePushable(IHyracksTaskContext ctx, Object stateId, int[] keyFields, int framesLimit,
             IBinaryComparatorFactory[] comparatorFactories, INormalizedKeyComputerFactory firstNormalizerFactory,
             IAggregatorDescriptorFactory aggregatorFactory, RecordDescriptor inRecordDescriptor,
-            RecordDescriptor outRecordDescriptor, ISpillableTableFactory spillableTableFactory) {
+            RecordDescriptor outRecordDescriptor, ISpillableTableFactory spillableTableFactory,
+            double passThroughThreshold) {
         this.ctx = ctx;
         this.stateId = stateId;
         this.framesLimit = framesLimit;
@@ -62,6 +93,7 @@ class ExternalGroupBuildOperatorNodePushable extends AbstractUnaryInputSinkOpera
         this.inRecordDescriptor = inRecordDescriptor;
         this.outRecordDescriptor = outRecordDescriptor;
         this.accessor = new FrameTupleAccessor(ctx.getFrameSize(), inRecordDescriptor);
+        this.passThroughThreshold = passThroughThreshold;
     }
 
     @Override
@@ -79,16 +111,29 @@ class ExternalGroupBuildOperatorNodePushable extends AbstractUnaryInputSinkOpera
         accessor.reset(buffer);
         int tupleCount = accessor.getTupleCount();
         ISpillableTable gTable = state.getSpillableTable();
-        for (int i = 0; i < tupleCount; i++) {
-            /**
-             * If the group table is too large, flush the table into
-             * a run file.
-             */
-            if (!gTable.insert(accessor, i)) {
+        int tIndex = 0;
+        while (tIndex < tupleCount && !passThrough) {
+            int next = gTable.insert(accessor, tIndex, tupleCount);
+            if (next == tIndex) {
+                /**
+                 * If the group table is too large, flush the table into
+                 * a run file.
+                 */
+                boolean ineffective = isAggregationIneffective();
                 flushFramesToRun();
-                if (!gTable.insert(accessor, i))
+                if (ineffective) {
+                    startPassThrough();
+                    break;
+                }
+                next = gTable.insert(accessor, tIndex, tupleCount);
+                if (next == tIndex)
                     throw new HyracksDataException("Failed to insert a new buffer into the aggregate operator!");
             }
+            insertedTupleCount += next - tIndex;
+            tIndex = next;
+        }
+        if (passThrough) {
+            passThrough(tIndex, tupleCount);
         }
     }
 
@@ -100,7 +145,17 @@ class ExternalGroupBuildOperatorNodePushable extends AbstractUnaryInputSinkOpera
     @Override
     public void close() throws HyracksDataException {
         ISpillableTable gTable = state.getSpillableTable();
-        if (gTable.getFrameCount() >= 0) {
+        if (passThrough) {
+            /**
+             * The table was flushed and closed when the pass-through started.
+             */
+            if (outputAppender.getTupleCount() > 0) {
+                FrameUtils.flushFrame(outputFrame, passThroughWriter);
+            }
+            passThroughWriter.close();
+            passThroughAggregator.close();
+            state.setPassThroughRun(passThroughWriter.createReader());
+        } else if (gTable.getFrameCount() >= 0) {
             if (state.getRuns().size() > 0) {
                 /**
                  * flush the memory into the run file.
@@ -121,7 +176,7 @@ class ExternalGroupBuildOperatorNodePushable extends AbstractUnaryInputSinkOpera
         } catch (IOException e) {
             throw new HyracksDataException(e);
         }
-        RunFileWriter writer = new RunFileWriter(runFile, ctx.getIOManager());
+        RunFileWriter writer = new RunFileWriter(runFile, ctx);
         writer.open();
         ISpillableTable gTable = state.getSpillableTable();
         try {
@@ -133,6 +188,98 @@ class ExternalGroupBuildOperatorNodePushable extends AbstractUnaryInputSinkOpera
             writer.close();
         }
         gTable.reset();
+        insertedTupleCount = 0;
         state.getRuns().add(((RunFileWriter) writer).createReader());
     }
+
+    /**
+     * @return whether the full table holds so many groups for the tuples
+     *         inserted into it that grouping does not pay off.
+     */
+    private boolean isAggregationIneffective() {
+        if (passThroughThreshold <= 0 || insertedTupleCount <= 0) {
+            return false;
+        }
+        ISpillableTable gTable = state.getSpillableTable();
+        FrameTupleAccessor groupAccessor = new FrameTupleAccessor(ctx.getFrameSize(), outRecordDescriptor);
+        long groupCount = 0;
+        for (int i = 0; i <= gTable.getFrameCount(); i++) {
+            groupAccessor.reset(gTable.getFrames().get(i));
+            groupCount += groupAccessor.getTupleCount();
+        }
+        return groupCount >= passThroughThreshold * insertedTupleCount;
+    }
+
+    private void startPassThrough() throws HyracksDataException {
+        // The table has just been flushed; give its frames back before taking the ones for the pass-through.
+        state.getSpillableTable().close();
+
+        FileReference runFile;
+        try {
+            runFile = ctx.getJobletContext().createManagedWorkspaceFile(
+                    ExternalGroupOperatorDescriptor.class.getSimpleName());
+        } catch (IOException e) {
+            throw new HyracksDataException(e);
+        }
+        passThroughWriter = new RunFileWriter(runFile, ctx);
+        passThroughWriter.open();
+
+        int[] keyFieldsInPartialResults = new int[keyFields.length];
+        for (int i = 0; i < keyFieldsInPartialResults.length; i++) {
+            keyFieldsInPartialResults[i] = i;
+        }
+        passThroughAggregator = aggregatorFactory.createAggregator(ctx, inRecordDescriptor, outRecordDescriptor,
+                keyFields, keyFieldsInPartialResults, null);
+        passThroughState = passThroughAggregator.createAggregateStates();
+        int nFields = outRecordDescriptor.getFields().length;
+        stateTupleBuilder = new ArrayTupleBuilder(keyFields.length < nFields ? nFields : nFields + 1);
+        outputTupleBuilder = new ArrayTupleBuilder(nFields);
+        stateFrame = ctx.allocateFrame();
+        stateAppender = new FrameTupleAppender(ctx.getFrameSize());
+        stateAccessor = new FrameTupleAccessor(ctx.getFrameSize(), outRecordDescriptor);
+        stateAccessor.reset(stateFrame);
+        outputFrame = ctx.allocateFrame();
+        outputAppender = new FrameTupleAppender(ctx.getFrameSize());
+        outputAppender.reset(outputFrame, true);
+
+        ctx.getJobletContext().getCounterContext().getCounter("aggregation.passthrough", true).update(1);
+        passThroughTupleCounter = ctx.getJobletContext().getCounterContext()
+                .getCounter("aggregation.passthrough.tuples", true);
+        passThrough = true;
+    }
+
+    /**
+     * Write the tuples [tStart, tEnd) of the input frame to the pass-through
+     * run, each as the partial result of a group of its own.
+     */
+    private void passThrough(int tStart, int tEnd) throws HyracksDataException {
+        for (int tIndex = tStart; tIndex < tEnd; tIndex++) {
+            stateTupleBuilder.reset();
+            for (int k = 0; k < keyFields.length; k++) {
+                stateTupleBuilder.addField(accessor, tIndex, keyFields[k]);
+            }
+            passThroughAggregator.init(stateTupleBuilder, accessor, tIndex, passThroughState);
+            stateAppender.reset(stateFrame, true);
+            if (!stateAppender.appendSkipEmptyField(stateTupleBuilder.getFieldEndOffsets(),
+                    stateTupleBuilder.getByteArray(), 0, stateTupleBuilder.getSize())) {
+                throw new HyracksDataException("Cannot init external aggregate state in a frame.");
+            }
+
+            outputTupleBuilder.reset();
+            for (int k = 0; k < keyFields.length; k++) {
+                outputTupleBuilder.addField(stateAccessor, 0, k);
+            }
+            passThroughAggregator.outputPartialResult(outputTupleBuilder, stateAccessor, 0, passThroughState);
+            if (!outputAppender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
+                    outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
+                FrameUtils.flushFrame(outputFrame, passThroughWriter);
+                outputAppender.reset(outputFrame, true);
+                if (!outputAppender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
+                        outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
+                    throw new HyracksDataException("The output item is too large to be fit into a frame.");
+                }
+            }
+        }
+        passThroughTupleCounter.update(tEnd - tStart);
+    }
 }
\ No newline at end of file
@@ -118,6 +118,7 @@ class ExternalGroupMergeOperatorNodePushable extends AbstractUnaryOutputSourceOp
     public void initialize() throws HyracksDataException {
         aggState = (ExternalGroupState) ctx.getStateObject(stateId);
         runs = aggState.getRuns();
+        RunFileReader passThroughRun = aggState.getPassThroughRun();
         writer.open();
         try {
             if (runs.size() <= 0) {
@@ -145,6 +146,9 @@ class ExternalGroupMergeOperatorNodePushable extends AbstractUnaryOutputSourceOp
                 }
                 inFrames.clear();
             }
+            if (passThroughRun != null) {
+                passThrough(passThroughRun);
+            }
         } catch (Exception e) {
             writer.fail();
             throw new HyracksDataException(e);
@@ -171,7 +175,7 @@ class ExternalGroupMergeOperatorNodePushable extends AbstractUnaryOutputSourceOp
             runNumber = framesLimit - 2;
             newRun = ctx.getJobletContext().createManagedWorkspaceFile(
                     ExternalGroupOperatorDescriptor.class.getSimpleName());
-            writer = new RunFileWriter(newRun, ctx.getIOManager());
+            writer = new RunFileWriter(newRun, ctx);
             writer.open();
         }
         try {
@@ -288,6 +292,47 @@ class ExternalGroupMergeOperatorNodePushable extends AbstractUnaryOutputSourceOp
         }
     }
 
+    /**
+     * Output the partial results that the build phase passed through without
+     * grouping them, each as a group of its own.
+     */
+    private void passThrough(RunFileReader passThroughRun) throws HyracksDataException {
+        if (outFrame == null) {
+            outFrame = ctx.allocateFrame();
+        }
+        outAppender.reset(outFrame, true);
+        ByteBuffer inFrame = ctx.allocateFrame();
+        FrameTupleAccessor inAccessor = new FrameTupleAccessor(ctx.getFrameSize(), outRecordDescriptor);
+        passThroughRun.open();
+        try {
+            while (passThroughRun.nextFrame(inFrame)) {
+                inAccessor.reset(inFrame);
+                for (int i = 0; i < inAccessor.getTupleCount(); i++) {
+                    tupleBuilder.reset();
+                    for (int k = 0; k < storedKeys.length; k++) {
+                        tupleBuilder.addField(inAccessor, i, storedKeys[k]);
+                    }
+                    aggregator.init(tupleBuilder, inAccessor, i, aggregateState);
+                    if (!outAppender.appendSkipEmptyField(tupleBuilder.getFieldEndOffsets(),
+                            tupleBuilder.getByteArray(), 0, tupleBuilder.getSize())) {
+                        flushOutFrame(writer, true);
+                        if (!outAppender.appendSkipEmptyField(tupleBuilder.getFieldEndOffsets(),
+                                tupleBuilder.getByteArray(), 0, tupleBuilder.getSize())) {
+                            throw new HyracksDataException(
+                                    "The partial result is too large to be initialized in a frame.");
+                        }
+                    }
+                }
+            }
+            if (outAppender.getTupleCount() > 0) {
+                flushOutFrame(writer, true);
+            }
+        } finally {
+            passThroughRun.close();
+        }
+        aggregator.close();
+    }
+
     private void flushOutFrame(IFrameWriter writer, boolean isFinal) throws HyracksDataException {
 
         if (finalTupleBuilder == null) {
@@ -50,11 +50,33 @@ public class ExternalGroupOperatorDescriptor extends AbstractOperatorDescriptor
     private final int framesLimit;
     private final ISpillableTableFactory spillableTableFactory;
     private final boolean isOutputSorted;
+    private final double passThroughThreshold;
 
     public ExternalGroupOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] keyFields, int framesLimit,
             IBinaryComparatorFactory[] comparatorFactories, INormalizedKeyComputerFactory firstNormalizerFactory,
             IAggregatorDescriptorFactory aggregatorFactory, IAggregatorDescriptorFactory mergerFactory,
             RecordDescriptor recordDescriptor, ISpillableTableFactory spillableTableFactory, boolean isOutputSorted) {
+        this(spec, keyFields, framesLimit, comparatorFactories, firstNormalizerFactory, aggregatorFactory,
+                mergerFactory, recordDescriptor, spillableTableFactory, isOutputSorted, 0);
+    }
+
+    /**
+     * @param passThroughThreshold
+     *            If positive, the ratio of groups to input tuples at which
+     *            the aggregation gives up: when the hash table fills up with
+     *            at least that many groups per input tuple, the remaining
+     *            input is turned into one partial result per tuple and passed
+     *            on without hashing. The output may then hold several results
+     *            for the same group, so this is only meant for a local
+     *            pre-aggregation whose output is aggregated again downstream.
+     *            The passed-through tuples are not sorted, so it cannot be
+     *            combined with a sorted output.
+     */
+    public ExternalGroupOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] keyFields, int framesLimit,
+            IBinaryComparatorFactory[] comparatorFactories, INormalizedKeyComputerFactory firstNormalizerFactory,
+            IAggregatorDescriptorFactory aggregatorFactory, IAggregatorDescriptorFactory mergerFactory,
+            RecordDescriptor recordDescriptor, ISpillableTableFactory spillableTableFactory, boolean isOutputSorted,
+            double passThroughThreshold) {
         super(spec, 1, 1);
         this.framesLimit = framesLimit;
         if (framesLimit <= 1) {
@@ -64,6 +86,9 @@ public class ExternalGroupOperatorDescriptor extends AbstractOperatorDescriptor
              */
             throw new IllegalStateException("frame limit should at least be 2, but it is " + framesLimit + "!");
         }
+        if (isOutputSorted && passThroughThreshold > 0) {
+            throw new IllegalArgumentException("pass-through aggregation cannot produce a sorted output");
+        }
         this.aggregatorFactory = aggregatorFactory;
         this.mergerFactory = mergerFactory;
         this.keyFields = keyFields;
@@ -71,6 +96,7 @@ public class ExternalGroupOperatorDescriptor extends AbstractOperatorDescriptor
         this.firstNormalizerFactory = firstNormalizerFactory;
         this.spillableTableFactory = spillableTableFactory;
         this.isOutputSorted = isOutputSorted;
+        this.passThroughThreshold = passThroughThreshold;
 
         /**
          * Set the record descriptor. Note that since this operator is a unary
@@ -114,7 +140,7 @@ public class ExternalGroupOperatorDescriptor extends AbstractOperatorDescriptor
             return new ExternalGroupBuildOperatorNodePushable(ctx, new TaskId(getActivityId(), partition), keyFields,
                     framesLimit, comparatorFactories, firstNormalizerFactory, aggregatorFactory,
                     recordDescProvider.getInputRecordDescriptor(getActivityId(), 0), recordDescriptors[0],
-                    spillableTableFactory);
+                    spillableTableFactory, passThroughThreshold);
         }
     }
 
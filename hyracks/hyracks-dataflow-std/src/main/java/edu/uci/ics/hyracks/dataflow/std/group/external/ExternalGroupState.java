@@ -29,6 +29,8 @@ public class ExternalGroupState extends AbstractStateObject {
 
     private ISpillableTable gTable;
 
+    private RunFileReader passThroughRun;
+
     public ExternalGroupState() {
     }
 
@@ -52,6 +54,14 @@ public class ExternalGroupState extends AbstractStateObject {
         this.gTable = gTable;
     }
 
+    public RunFileReader getPassThroughRun() {
+        return passThroughRun;
+    }
+
+    public void setPassThroughRun(RunFileReader passThroughRun) {
+        this.passThroughRun = passThroughRun;
+    }
+
     @Override
     public void toBytes(DataOutput out) throws IOException {
         throw new UnsupportedOperationException();
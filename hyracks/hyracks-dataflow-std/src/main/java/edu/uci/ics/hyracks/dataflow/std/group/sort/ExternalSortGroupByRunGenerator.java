@@ -33,6 +33,7 @@ import edu.uci.ics.hyracks.dataflow.std.group.preclustered.PreclusteredGroupWrit
 import edu.uci.ics.hyracks.dataflow.std.sort.Algorithm;
 import edu.uci.ics.hyracks.dataflow.std.sort.FrameSorterMergeSort;
 import edu.uci.ics.hyracks.dataflow.std.sort.FrameSorterQuickSort;
+import edu.uci.ics.hyracks.dataflow.std.sort.FrameSorterRadixSort;
 import edu.uci.ics.hyracks.dataflow.std.sort.IFrameSorter;
 
 /**
@@ -57,9 +58,14 @@ public class ExternalSortGroupByRunGenerator implements IFrameWriter {
             IBinaryComparatorFactory[] comparatorFactories, IAggregatorDescriptorFactory aggregatorFactory,
             RecordDescriptor outRecordDesc, Algorithm alg) throws HyracksDataException {
         this.ctx = ctx;
-        if (alg == Algorithm.MERGE_SORT) {
+        if (alg == Algorithm.RADIX_SORT && FrameSorterRadixSort.canSort(sortFields, firstKeyNormalizerFactory)) {
+            frameSorter = new FrameSorterRadixSort(ctx, sortFields, firstKeyNormalizerFactory, recordDesc);
+        } else if (alg == Algorithm.MERGE_SORT || alg == Algorithm.RADIX_SORT) {
             frameSorter = new FrameSorterMergeSort(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories,
                     recordDesc);
+        } else if (alg == Algorithm.PARALLEL_MERGE_SORT) {
+            frameSorter = new FrameSorterMergeSort(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories,
+                    recordDesc, 0);
         } else {
             frameSorter = new FrameSorterQuickSort(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories,
                     recordDesc);
@@ -102,7 +108,7 @@ public class ExternalSortGroupByRunGenerator implements IFrameWriter {
         frameSorter.sortFrames();
         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                 ExternalSortGroupByRunGenerator.class.getSimpleName());
-        RunFileWriter writer = new RunFileWriter(file, ctx.getIOManager());
+        RunFileWriter writer = new RunFileWriter(file, ctx);
 
         //create group-by comparators
         IBinaryComparator[] comparators = new IBinaryComparator[Math
@@ -143,7 +143,7 @@ public class ExternalSortGroupByRunMerger {
                                 runs.size() - maxMergeWidth + 1);
                         FileReference newRun = ctx.createManagedWorkspaceFile(ExternalSortGroupByRunMerger.class
                                 .getSimpleName());
-                        IFrameWriter mergeResultWriter = new RunFileWriter(newRun, ctx.getIOManager());
+                        IFrameWriter mergeResultWriter = new RunFileWriter(newRun, ctx);
 
                         aggregatorFactory = localSide ? mergeAggregatorFactory : partialAggregatorFactory;
                         pgw = new PreclusteredGroupWriter(ctx, mergeGroupFields, groupByComparators, aggregatorFactory,
@@ -349,7 +349,7 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
                     if (writer == null) {
                         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                                 BuildAndPartitionActivityNode.class.getSimpleName());
-                        writer = new RunFileWriter(file, ctx.getIOManager());
+                        writer = new RunFileWriter(file, ctx);
                         writer.open();
                         state.fWriters[i] = writer;
                     }
@@ -552,7 +552,7 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
                     if (writer == null) {
                         FileReference file = ctx.createManagedWorkspaceFile(PartitionAndJoinActivityNode.class
                                 .getSimpleName());
-                        writer = new RunFileWriter(file, ctx.getIOManager());
+                        writer = new RunFileWriter(file, ctx);
                         writer.open();
                         probeWriters[i] = writer;
                     }
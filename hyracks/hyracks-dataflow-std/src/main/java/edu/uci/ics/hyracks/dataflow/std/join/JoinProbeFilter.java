@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.std.structures.TupleHashBloomFilter;
+
+/**
+ * A compact summary of the join keys of a build partition: the smallest and
+ * the largest key and a Bloom filter over the key hashes. Probe tuples that
+ * fail it cannot have a match in the partition. The filter is filled by a
+ * single build task; once closed, it is only read and can be shared by the
+ * tasks that probe it, each using its own comparators and hash functions.
+ */
+public class JoinProbeFilter {
+    private static final int NUM_HASHES = 3;
+    private static final double MAX_FALSE_POSITIVE = 0.5;
+
+    private final int[] buildKeys;
+    private final IBinaryComparator[] comparators;
+    private final ITuplePartitionComputer buildHc;
+    private final ArrayTupleBuilder minKey;
+    private final ArrayTupleBuilder maxKey;
+    private TupleHashBloomFilter bloomFilter;
+    private boolean empty;
+
+    /**
+     * @param buildHc
+     *            hashes the build keys into the Bloom filter, with a hash
+     *            family of the join so that keys that compare equal hash alike
+     */
+    public JoinProbeFilter(int[] buildKeys, IBinaryComparator[] comparators, ITuplePartitionComputer buildHc,
+            int numBits) {
+        this.buildKeys = buildKeys;
+        this.comparators = comparators;
+        this.buildHc = buildHc;
+        minKey = new ArrayTupleBuilder(buildKeys.length);
+        maxKey = new ArrayTupleBuilder(buildKeys.length);
+        bloomFilter = new TupleHashBloomFilter(numBits, NUM_HASHES);
+        empty = true;
+    }
+
+    public void insert(IFrameTupleAccessor accessor, int tIndex) throws HyracksDataException {
+        if (empty) {
+            copyKey(accessor, tIndex, minKey);
+            copyKey(accessor, tIndex, maxKey);
+            empty = false;
+        } else if (compareKey(accessor, tIndex, buildKeys, comparators, minKey) < 0) {
+            copyKey(accessor, tIndex, minKey);
+        } else if (compareKey(accessor, tIndex, buildKeys, comparators, maxKey) > 0) {
+            copyKey(accessor, tIndex, maxKey);
+        }
+        bloomFilter.add(buildHc.partition(accessor, tIndex, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Ends the build. A Bloom filter that is too saturated to reject a fair
+     * share of the probe tuples is dropped, only the key range is kept.
+     */
+    public void close() {
+        if (bloomFilter.getFalsePositiveProbability() > MAX_FALSE_POSITIVE) {
+            bloomFilter = null;
+        }
+    }
+
+    /**
+     * @param probeHc
+     *            must hash the probe keys like the build hash function hashes
+     *            the build keys
+     * @return false if no build tuple can join with the probe tuple
+     */
+    public boolean mightMatch(IFrameTupleAccessor accessor, int tIndex, int[] probeKeys,
+            IBinaryComparator[] probeComparators, ITuplePartitionComputer probeHc) throws HyracksDataException {
+        if (empty) {
+            return false;
+        }
+        if (compareKey(accessor, tIndex, probeKeys, probeComparators, minKey) < 0
+                || compareKey(accessor, tIndex, probeKeys, probeComparators, maxKey) > 0) {
+            return false;
+        }
+        return bloomFilter == null || bloomFilter.mightContain(probeHc.partition(accessor, tIndex, Integer.MAX_VALUE));
+    }
+
+    public boolean hasBloomFilter() {
+        return bloomFilter != null;
+    }
+
+    private void copyKey(IFrameTupleAccessor accessor, int tIndex, ArrayTupleBuilder key) throws HyracksDataException {
+        key.reset();
+        for (int i = 0; i < buildKeys.length; ++i) {
+            key.addField(accessor, tIndex, buildKeys[i]);
+        }
+    }
+
+    private static int compareKey(IFrameTupleAccessor accessor, int tIndex, int[] keys,
+            IBinaryComparator[] comparators, ArrayTupleBuilder key) throws HyracksDataException {
+        byte[] bytes = accessor.getBuffer().array();
+        int tStart = accessor.getTupleStartOffset(tIndex) + accessor.getFieldSlotsLength();
+        byte[] keyBytes = key.getByteArray();
+        int[] keyEnds = key.getFieldEndOffsets();
+        for (int i = 0; i < keys.length; ++i) {
+            int fStart = accessor.getFieldStartOffset(tIndex, keys[i]);
+            int fLength = accessor.getFieldLength(tIndex, keys[i]);
+            int kStart = i == 0 ? 0 : keyEnds[i - 1];
+            int c = comparators[i].compare(bytes, tStart + fStart, fLength, keyBytes, kStart, keyEnds[i] - kStart);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
@@ -17,6 +17,7 @@ package edu.uci.ics.hyracks.dataflow.std.join;
 import java.io.DataOutput;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
@@ -33,6 +34,11 @@ import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
 import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
 
+/**
+ * Block nested loop join: the inner input is cached in a run file, and the
+ * outer input is consumed in blocks of up to memSize - 3 frames, each of which
+ * is joined with the whole inner input in a single pass over the run file.
+ */
 public class NestedLoopJoin {
     private final FrameTupleAccessor accessorInner;
     private final FrameTupleAccessor accessorOuter;
@@ -41,6 +47,7 @@ public class NestedLoopJoin {
     private final ByteBuffer outBuffer;
     private final ByteBuffer innerBuffer;
     private final List<ByteBuffer> outBuffers;
+    private final List<BitSet> outerMatches;
     private final int memSize;
     private final IHyracksTaskContext ctx;
     private RunFileReader runFileReader;
@@ -63,6 +70,7 @@ public class NestedLoopJoin {
         this.innerBuffer = ctx.allocateFrame();
         this.appender.reset(outBuffer, true);
         this.outBuffers = new ArrayList<ByteBuffer>();
+        this.outerMatches = new ArrayList<BitSet>();
         this.memSize = memSize;
         if (memSize < 3) {
             throw new HyracksDataException("Not enough memory is available for Nested Loop Join");
@@ -86,7 +94,7 @@ public class NestedLoopJoin {
 
         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                 this.getClass().getSimpleName() + this.toString());
-        runFileWriter = new RunFileWriter(file, ctx.getIOManager());
+        runFileWriter = new RunFileWriter(file, ctx);
         runFileWriter.open();
     }
 
@@ -103,16 +111,38 @@ public class NestedLoopJoin {
             reloadFrame(outerBuffer);
             return;
         }
+        joinBlock(writer);
+        currentMemSize = 0;
+        reloadFrame(outerBuffer);
+    }
+
+    /**
+     * Joins the first currentMemSize outer frames with the inner input in one
+     * pass over the run file. Outer tuples that did not match any inner tuple
+     * are padded with nulls for left outer joins once the pass is over.
+     */
+    private void joinBlock(IFrameWriter writer) throws HyracksDataException {
+        if (isLeftOuter) {
+            while (outerMatches.size() < currentMemSize) {
+                outerMatches.add(new BitSet());
+            }
+            for (int i = 0; i < currentMemSize; i++) {
+                outerMatches.get(i).clear();
+            }
+        }
         runFileReader = runFileWriter.createReader();
         runFileReader.open();
         while (runFileReader.nextFrame(innerBuffer)) {
-            for (ByteBuffer outBuffer : outBuffers) {
-                blockJoin(outBuffer, innerBuffer, writer);
+            for (int i = 0; i < currentMemSize; i++) {
+                blockJoin(outBuffers.get(i), innerBuffer, isLeftOuter ? outerMatches.get(i) : null, writer);
             }
         }
         runFileReader.close();
-        currentMemSize = 0;
-        reloadFrame(outerBuffer);
+        if (isLeftOuter) {
+            for (int i = 0; i < currentMemSize; i++) {
+                appendUnmatched(outBuffers.get(i), outerMatches.get(i), writer);
+            }
+        }
     }
 
     private void createAndCopyFrame(ByteBuffer outerBuffer) throws HyracksDataException {
@@ -128,7 +158,7 @@ public class NestedLoopJoin {
         currentMemSize++;
     }
 
-    private void blockJoin(ByteBuffer outerBuffer, ByteBuffer innerBuffer, IFrameWriter writer)
+    private void blockJoin(ByteBuffer outerBuffer, ByteBuffer innerBuffer, BitSet matches, IFrameWriter writer)
             throws HyracksDataException {
         accessorOuter.reset(outerBuffer);
         accessorInner.reset(innerBuffer);
@@ -136,28 +166,33 @@ public class NestedLoopJoin {
         int tupleCount1 = accessorInner.getTupleCount();
 
         for (int i = 0; i < tupleCount0; ++i) {
-            boolean matchFound = false;
             for (int j = 0; j < tupleCount1; ++j) {
                 int c = compare(accessorOuter, i, accessorInner, j);
-                boolean prdEval = evaluatePredicate(i, j);
-                if (c == 0 && prdEval) {
-                	matchFound = true;
-                	appendToResults(i, j, writer);
+                if (c == 0 && evaluatePredicate(i, j)) {
+                    if (matches != null) {
+                        matches.set(i);
+                    }
+                    appendToResults(i, j, writer);
                 }
             }
+        }
+    }
 
-            if (!matchFound && isLeftOuter) {
-                final int[] ntFieldEndOffsets = nullTupleBuilder.getFieldEndOffsets();
-                final byte[] ntByteArray = nullTupleBuilder.getByteArray();
-                final int ntSize = nullTupleBuilder.getSize();
+    private void appendUnmatched(ByteBuffer outerBuffer, BitSet matches, IFrameWriter writer)
+            throws HyracksDataException {
+        accessorOuter.reset(outerBuffer);
+        int tupleCount0 = accessorOuter.getTupleCount();
+        for (int i = matches.nextClearBit(0); i < tupleCount0; i = matches.nextClearBit(i + 1)) {
+            final int[] ntFieldEndOffsets = nullTupleBuilder.getFieldEndOffsets();
+            final byte[] ntByteArray = nullTupleBuilder.getByteArray();
+            final int ntSize = nullTupleBuilder.getSize();
+            if (!appender.appendConcat(accessorOuter, i, ntFieldEndOffsets, ntByteArray, 0, ntSize)) {
+                flushFrame(outBuffer, writer);
+                appender.reset(outBuffer, true);
                 if (!appender.appendConcat(accessorOuter, i, ntFieldEndOffsets, ntByteArray, 0, ntSize)) {
-                    flushFrame(outBuffer, writer);
-                    appender.reset(outBuffer, true);
-                    if (!appender.appendConcat(accessorOuter, i, ntFieldEndOffsets, ntByteArray, 0, ntSize)) {
-                        int tSize = accessorOuter.getTupleEndOffset(i) - accessorOuter.getTupleStartOffset(i) + ntSize;
-                        throw new HyracksDataException("Record size (" + tSize + ") larger than frame size ("
-                                + appender.getBuffer().capacity() + ")");
-                    }
+                    int tSize = accessorOuter.getTupleEndOffset(i) - accessorOuter.getTupleStartOffset(i) + ntSize;
+                    throw new HyracksDataException("Record size (" + tSize + ") larger than frame size ("
+                            + appender.getBuffer().capacity() + ")");
                 }
             }
         }
@@ -202,14 +237,9 @@ public class NestedLoopJoin {
     }
 
     public void closeJoin(IFrameWriter writer) throws HyracksDataException {
-        runFileReader = runFileWriter.createReader();
-        runFileReader.open();
-        while (runFileReader.nextFrame(innerBuffer)) {
-            for (int i = 0; i < currentMemSize; i++) {
-                blockJoin(outBuffers.get(i), innerBuffer, writer);
-            }
+        if (currentMemSize > 0) {
+            joinBlock(writer);
         }
-        runFileReader.close();
         outBuffers.clear();
         currentMemSize = 0;
 
@@ -152,10 +152,9 @@ public class NestedLoopJoinOperatorDescriptor extends AbstractOperatorDescriptor
 
                 @Override
                 public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
-                    ByteBuffer copyBuffer = ctx.allocateFrame();
-                    FrameUtils.copy(buffer, copyBuffer);
-                    FrameUtils.makeReadable(copyBuffer);
-                    state.joiner.cache(copyBuffer);
+                    // The frame goes to the run file right away, so it does not need to be copied.
+                    FrameUtils.makeReadable(buffer);
+                    state.joiner.cache(buffer);
                 }
 
                 @Override
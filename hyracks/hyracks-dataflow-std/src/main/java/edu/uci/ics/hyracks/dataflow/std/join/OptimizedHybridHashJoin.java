@@ -29,6 +29,7 @@ import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounter;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTuplePairComparator;
@@ -37,6 +38,7 @@ import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
 import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
 import edu.uci.ics.hyracks.dataflow.std.structures.ISerializableTable;
 import edu.uci.ics.hyracks.dataflow.std.structures.SerializableHashTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.ScalableTupleHashBloomFilter;
 
 /**
  * @author pouria
@@ -51,6 +53,10 @@ public class OptimizedHybridHashJoin {
     private final int UNALLOCATED_FRAME = -3;
     private final int BUFFER_FOR_RESIDENT_PARTS = -1;
 
+    private static final int PROBE_FILTER_HASHES = 3;
+    private static final int PROBE_FILTER_BITS_PER_KEY = 10;
+    private static final double MAX_PROBE_FILTER_FALSE_POSITIVE = 0.5;
+
     private IHyracksTaskContext ctx;
 
     private final String rel0Name;
@@ -102,6 +108,13 @@ public class OptimizedHybridHashJoin {
     private boolean isTableEmpty; //Added for handling the case, where build side is empty (tableSize is 0)
     private boolean isReversed; //Added for handling correct calling for predicate-evaluator upon recursive calls that cause role-reversal
 
+    private ITuplePartitionComputer buildFilterHc; //Hashes build tuples into the probe filters (null if filtering is disabled)
+    private ITuplePartitionComputer probeFilterHc; //Hashes probe tuples to check them against the probe filters
+    private ScalableTupleHashBloomFilter[] probeFilters; //Bloom filters over the keys of the spilled build partitions
+    private FrameTupleAccessor filterAccessor; //Used for adding the tuples of spilled frames to the probe filters
+    private long filteredProbeTupCount; //Probe tuples dropped by the probe filters
+    private ICounter filteredProbeTupCounter;
+
     private static final Logger LOGGER = Logger.getLogger(OptimizedHybridHashJoin.class.getName());
 
     public OptimizedHybridHashJoin(IHyracksTaskContext ctx, int memForJoin, int numOfPartitions, String rel0Name,
@@ -169,6 +182,21 @@ public class OptimizedHybridHashJoin {
         }
     }
 
+    /**
+     * Makes the join keep a Bloom filter over the keys of every spilled build
+     * partition, so that probe tuples that cannot have a match are dropped
+     * instead of being written to the probe run files. The hash functions must
+     * come from the hash family of the join, so that keys that compare equal
+     * hash alike, and should use a seed other than the partitioning ones. Left
+     * outer joins need every probe tuple and are not filtered.
+     */
+    public void enableProbeFilter(ITuplePartitionComputer buildFilterHc, ITuplePartitionComputer probeFilterHc) {
+        if (!isLeftOuter) {
+            this.buildFilterHc = buildFilterHc;
+            this.probeFilterHc = probeFilterHc;
+        }
+    }
+
     public void initBuild() throws HyracksDataException {
         memBuffs = new ByteBuffer[memForJoin];
         curPBuff = new int[numOfPartitions];
@@ -193,6 +221,10 @@ public class OptimizedHybridHashJoin {
 
         buildTupAppender = new FrameTupleAppender(ctx.getFrameSize());
 
+        if (buildFilterHc != null) {
+            probeFilters = new ScalableTupleHashBloomFilter[numOfPartitions];
+            filterAccessor = new FrameTupleAccessor(ctx.getFrameSize(), buildRd);
+        }
     }
 
     public void build(ByteBuffer buffer) throws HyracksDataException {
@@ -242,6 +274,9 @@ public class OptimizedHybridHashJoin {
                 break;
             }
         } else { //spilled partition
+            if (probeFilters != null) {
+                probeFilters[pid].add(buildFilterHc.partition(accessorBuild, tid, Integer.MAX_VALUE));
+            }
             boolean needClear = false;
             while (true) {
                 buildTupAppender.reset(partition, needClear);
@@ -299,10 +334,19 @@ public class OptimizedHybridHashJoin {
         LOGGER.fine("OptimizedHybridHashJoin is spilling partition:" + pid + " with " + buildPSizeInFrames[pid]
                 + " frames for Thread ID " + Thread.currentThread().getId() + " (free frames: " + freeFramesCounter
                 + ").");
+        if (probeFilters != null) {
+            //Sized for the tuples of the partition so far, the filter grows as more of them arrive. The filters of
+            //all partitions together take at most a quarter of the join memory.
+            long maxBits = Math.max((long) ctx.getFrameSize() * 8, (long) memForJoin * ctx.getFrameSize() * 2
+                    / numOfPartitions);
+            probeFilters[pid] = new ScalableTupleHashBloomFilter(buildPSizeInTups[pid], PROBE_FILTER_BITS_PER_KEY,
+                    PROBE_FILTER_HASHES, Math.min(maxBits, Integer.MAX_VALUE));
+        }
         int curBuffIx = curPBuff[pid];
         ByteBuffer buff = null;
         while (curBuffIx != END_OF_PARTITION) {
             buff = memBuffs[curBuffIx];
+            addToProbeFilter(pid, buff);
             buildWrite(pid, buff);
             buff.clear();
 
@@ -321,13 +365,25 @@ public class OptimizedHybridHashJoin {
                 + " for Thread ID " + Thread.currentThread().getId() + ".");
     }
 
+    private void addToProbeFilter(int pid, ByteBuffer buff) throws HyracksDataException {
+        if (probeFilters == null) {
+            return;
+        }
+        ScalableTupleHashBloomFilter filter = probeFilters[pid];
+        filterAccessor.reset(buff);
+        int tupleCount = filterAccessor.getTupleCount();
+        for (int i = 0; i < tupleCount; ++i) {
+            filter.add(buildFilterHc.partition(filterAccessor, i, Integer.MAX_VALUE));
+        }
+    }
+
     private void buildWrite(int pid, ByteBuffer buff) throws HyracksDataException {
         RunFileWriter writer = buildRFWriters[pid];
         if (writer == null) {
             FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(rel0Name);
             LOGGER.fine("OptimizedHybridHashJoin is creating a run file (" + file.getFile().getAbsolutePath()
                     + ") for partition:" + pid + " for Thread ID " + Thread.currentThread().getId() + ".");
-            writer = new RunFileWriter(file, ctx.getIOManager());
+            writer = new RunFileWriter(file, ctx);
             writer.open();
             buildRFWriters[pid] = writer;
         }
@@ -365,6 +421,16 @@ public class OptimizedHybridHashJoin {
 
         partitionTune(); //Trying to bring back as many spilled partitions as possible, making them resident
 
+        if (probeFilters != null) {
+            for (int i = pStatus.nextSetBit(0); i >= 0; i = pStatus.nextSetBit(i + 1)) { //Dropping the filters that would let most probe tuples pass anyway
+                if (probeFilters[i].getFalsePositiveProbability() > MAX_PROBE_FILTER_FALSE_POSITIVE) {
+                    LOGGER.fine("OptimizedHybridHashJoin is not filtering the probe tuples of partition:" + i
+                            + " (false positive probability: " + probeFilters[i].getFalsePositiveProbability() + ")");
+                    probeFilters[i] = null;
+                }
+            }
+        }
+
         int inMemTupCount = 0;
         int inMemFrameCount = 0;
         int spilledFrameCount = 0;
@@ -441,6 +507,9 @@ public class OptimizedHybridHashJoin {
         r.close();
         pStatus.set(pid, false);
         buildRFWriters[pid] = null;
+        if (probeFilters != null) {
+            probeFilters[pid] = null;
+        }
     }
 
     private ArrayList<Integer> selectPartitionsToReload() {
@@ -502,6 +571,11 @@ public class OptimizedHybridHashJoin {
 
         probeTupAppenderToSpilled = new FrameTupleAppender(ctx.getFrameSize());
 
+        filteredProbeTupCount = 0;
+        if (probeFilters != null) {
+            filteredProbeTupCounter = ctx.getJobletContext().getCounterContext()
+                    .getCounter("join.probe.tuples.filtered", true);
+        }
     }
 
     public void probe(ByteBuffer buffer, IFrameWriter writer) throws HyracksDataException {
@@ -518,11 +592,18 @@ public class OptimizedHybridHashJoin {
             return;
         }
         ByteBuffer buff = null;
+        int filteredTupCount = 0;
         for (int i = 0; i < tupleCount; ++i) {
             int pid = probeHpc.partition(accessorProbe, i, numOfPartitions);
 
             if (buildPSizeInTups[pid] > 0) { //Tuple has potential match from previous phase
                 if (pStatus.get(pid)) { //pid is Spilled
+                    if (probeFilters != null && probeFilters[pid] != null
+                            && !probeFilters[pid].mightContain(probeFilterHc.partition(accessorProbe, i,
+                                    Integer.MAX_VALUE))) { //No build tuple of the partition has the key
+                        filteredTupCount++;
+                        continue;
+                    }
                     boolean needToClear = false;
                     buff = sPartBuffs[curPBuff[pid]];
                     while (true) {
@@ -548,7 +629,10 @@ public class OptimizedHybridHashJoin {
             }
 
         }
-
+        if (filteredTupCount > 0) {
+            filteredProbeTupCount += filteredTupCount;
+            filteredProbeTupCounter.update(filteredTupCount);
+        }
     }
 
     public void closeProbe(IFrameWriter writer) throws HyracksDataException { //We do NOT join the spilled partitions here, that decision is made at the descriptor level (which join technique to use)
@@ -570,7 +654,7 @@ public class OptimizedHybridHashJoin {
         RunFileWriter pWriter = probeRFWriters[pid];
         if (pWriter == null) {
             FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(rel1Name);
-            pWriter = new RunFileWriter(file, ctx.getIOManager());
+            pWriter = new RunFileWriter(file, ctx);
             pWriter.open();
             probeRFWriters[pid] = pWriter;
         }
@@ -628,6 +712,10 @@ public class OptimizedHybridHashJoin {
         return max;
     }
 
+    public long getFilteredProbeTupleCount() {
+        return filteredProbeTupCount;
+    }
+
     public BitSet getPartitionStatus() {
         return pStatus;
     }
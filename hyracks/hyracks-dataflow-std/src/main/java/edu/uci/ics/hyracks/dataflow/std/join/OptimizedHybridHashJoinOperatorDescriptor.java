@@ -26,7 +26,9 @@ import edu.uci.ics.hyracks.api.dataflow.ActivityId;
 import edu.uci.ics.hyracks.api.dataflow.IActivityGraphBuilder;
 import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
 import edu.uci.ics.hyracks.api.dataflow.TaskId;
+import edu.uci.ics.hyracks.api.dataflow.state.IStateObject;
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFamily;
 import edu.uci.ics.hyracks.api.dataflow.value.INullWriter;
@@ -53,6 +55,8 @@ import edu.uci.ics.hyracks.dataflow.std.base.AbstractOperatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractStateObject;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputSinkOperatorNodePushable;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.connectors.IPartitionTupleFilter;
+import edu.uci.ics.hyracks.dataflow.std.connectors.IPartitionTupleFilterFactory;
 import edu.uci.ics.hyracks.dataflow.std.structures.ISerializableTable;
 import edu.uci.ics.hyracks.dataflow.std.structures.SerializableHashTable;
 
@@ -101,6 +105,10 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
 
     private static final long serialVersionUID = 1L;
     private static final double NLJ_SWITCH_THRESHOLD = 0.8;
+    //The probe filters hash with the hash family of the join, so that keys that compare equal hash alike. This seed
+    //lies above the seeds of the partitioning levels, and for UTF8StringBinaryHashFunctionFamily, which derives its
+    //constants from the seed, it picks the widest modulus
+    private static final int PROBE_FILTER_SEED = Integer.MAX_VALUE - 1;
 
     private static final String PROBE_REL = "RelR";
     private static final String BUILD_REL = "RelS";
@@ -119,6 +127,8 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
     private final boolean isLeftOuter;
     private final INullWriterFactory[] nullWriterFactories1;
 
+    private boolean publishProbeFilter;
+
     //Flags added for test purpose
     private static boolean skipInMemoryHJ = false;
     private static boolean forceNLJ = false;
@@ -172,6 +182,22 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
         this.nullWriterFactories1 = null;
     }
 
+    /**
+     * Makes every build task publish a {@link JoinProbeFilter} over its join
+     * keys as task state, and returns a filter factory for the probe side
+     * {@link edu.uci.ics.hyracks.dataflow.std.connectors.MToNPartitioningConnectorDescriptor}.
+     * The probe side only starts once the build is done, so its senders drop
+     * the tuples that cannot join before they are shipped. The state is local
+     * to a node: tuples sent to a join partition whose build task ran on a
+     * different node are not filtered. Left outer joins need all probe
+     * tuples and never publish a filter.
+     */
+    public IPartitionTupleFilterFactory publishProbeFilter() {
+        publishProbeFilter = true;
+        return new ProbeFilterFactory(new ActivityId(odId, BUILD_AND_PARTITION_ACTIVITY_ID), probeKeys,
+                comparatorFactories, hashFunctionGeneratorFactories);
+    }
+
     @Override
     public void contributeActivities(IActivityGraphBuilder builder) {
         ActivityId buildAid = new ActivityId(odId, BUILD_AND_PARTITION_ACTIVITY_ID);
@@ -191,6 +217,12 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
 
     }
 
+    //The Bloom filter gets one bit per byte of the estimated build partition, but at most a quarter of the join memory
+    private int getProbeFilterSize(int frameSize, int nPartitions) {
+        long bits = Math.max((long) frameSize * 8, (long) inputsize0 * frameSize / nPartitions);
+        return (int) Math.min(bits, (long) memsize * frameSize * 2);
+    }
+
     //memorySize is the memory for join (we have already excluded the 2 buffers for in/out)
     private int getNumberOfPartitions(int memorySize, int buildSize, double factor, int nPartitions)
             throws HyracksDataException {
@@ -218,6 +250,7 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
         private int memForJoin;
         private int numOfPartitions;
         private OptimizedHybridHashJoin hybridHJ;
+        private JoinProbeFilter probeFilter;
 
         public BuildAndPartitionTaskState() {
         }
@@ -236,6 +269,51 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
 
         }
 
+        public JoinProbeFilter getProbeFilter() {
+            return probeFilter;
+        }
+    }
+
+    private static class ProbeFilterFactory implements IPartitionTupleFilterFactory {
+        private static final long serialVersionUID = 1L;
+
+        private final ActivityId buildAid;
+        private final int[] probeKeys;
+        private final IBinaryComparatorFactory[] comparatorFactories;
+        private final IBinaryHashFunctionFamily[] hashFunctionGeneratorFactories;
+
+        public ProbeFilterFactory(ActivityId buildAid, int[] probeKeys, IBinaryComparatorFactory[] comparatorFactories,
+                IBinaryHashFunctionFamily[] hashFunctionGeneratorFactories) {
+            this.buildAid = buildAid;
+            this.probeKeys = probeKeys;
+            this.comparatorFactories = comparatorFactories;
+            this.hashFunctionGeneratorFactories = hashFunctionGeneratorFactories;
+        }
+
+        @Override
+        public IPartitionTupleFilter createTupleFilter(IHyracksTaskContext ctx, int consumerPartition)
+                throws HyracksDataException {
+            IStateObject state = ctx.getStateObject(new TaskId(buildAid, consumerPartition));
+            if (!(state instanceof BuildAndPartitionTaskState)) { //The build task ran on another node
+                return null;
+            }
+            final JoinProbeFilter filter = ((BuildAndPartitionTaskState) state).getProbeFilter();
+            if (filter == null) {
+                return null;
+            }
+            final IBinaryComparator[] comparators = new IBinaryComparator[comparatorFactories.length];
+            for (int i = 0; i < comparatorFactories.length; i++) {
+                comparators[i] = comparatorFactories[i].createBinaryComparator();
+            }
+            final ITuplePartitionComputer probeHc = new FieldHashPartitionComputerFamily(probeKeys,
+                    hashFunctionGeneratorFactories).createPartitioner(PROBE_FILTER_SEED);
+            return new IPartitionTupleFilter() {
+                @Override
+                public boolean accept(IFrameTupleAccessor accessor, int tIndex) throws HyracksDataException {
+                    return filter.mightMatch(accessor, tIndex, probeKeys, comparators, probeHc);
+                }
+            };
+        }
     }
 
     /*
@@ -279,6 +357,8 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
                 ITuplePartitionComputer buildHpc = new FieldHashPartitionComputerFamily(buildKeys,
                         hashFunctionGeneratorFactories).createPartitioner(0);
 
+                private FrameTupleAccessor probeFilterAccessor;
+
                 @Override
                 public void open() throws HyracksDataException {
                     if (memsize <= 2) { //Dedicated buffers: One buffer to read and one buffer for output
@@ -296,6 +376,16 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
                                 PROBE_REL, BUILD_REL, probeKeys, buildKeys, comparators, probeRd, buildRd, probeHpc,
                                 buildHpc, predEvaluator, isLeftOuter, nullWriterFactories1);
                     }
+                    ITuplePartitionComputer buildFilterHc = new FieldHashPartitionComputerFamily(buildKeys,
+                            hashFunctionGeneratorFactories).createPartitioner(PROBE_FILTER_SEED);
+                    state.hybridHJ.enableProbeFilter(buildFilterHc, new FieldHashPartitionComputerFamily(probeKeys,
+                            hashFunctionGeneratorFactories).createPartitioner(PROBE_FILTER_SEED));
+
+                    if (publishProbeFilter && !isLeftOuter) {
+                        state.probeFilter = new JoinProbeFilter(buildKeys, comparators, buildFilterHc,
+                                getProbeFilterSize(ctx.getFrameSize(), nPartitions));
+                        probeFilterAccessor = new FrameTupleAccessor(ctx.getFrameSize(), probeRd); //probeRd describes the input of this activity
+                    }
 
                     state.hybridHJ.initBuild();
                     LOGGER.fine("OptimizedHybridHashJoin is starting the build phase with " + state.numOfPartitions
@@ -304,11 +394,21 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
 
                 @Override
                 public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    if (state.probeFilter != null) {
+                        probeFilterAccessor.reset(buffer);
+                        int tupleCount = probeFilterAccessor.getTupleCount();
+                        for (int i = 0; i < tupleCount; ++i) {
+                            state.probeFilter.insert(probeFilterAccessor, i);
+                        }
+                    }
                     state.hybridHJ.build(buffer);
                 }
 
                 @Override
                 public void close() throws HyracksDataException {
+                    if (state.probeFilter != null) {
+                        state.probeFilter.close();
+                    }
                     state.hybridHJ.closeBuild();
                     ctx.setStateObject(state);
                     LOGGER.fine("OptimizedHybridHashJoin closed its build phase");
@@ -378,6 +478,9 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
                 private ITuplePartitionComputer hpcRep0;
                 private ITuplePartitionComputer hpcRep1;
 
+                private ITuplePartitionComputer probeFilterHc = hpcf0.createPartitioner(PROBE_FILTER_SEED);
+                private ITuplePartitionComputer buildFilterHc = hpcf1.createPartitioner(PROBE_FILTER_SEED);
+
                 @Override
                 public void open() throws HyracksDataException {
                     state = (BuildAndPartitionTaskState) ctx.getStateObject(new TaskId(new ActivityId(getOperatorId(),
@@ -487,6 +590,9 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
                             rHHj = new OptimizedHybridHashJoin(ctx, state.memForJoin, n, PROBE_REL, BUILD_REL,
                                     probeKeys, buildKeys, comparators, probeRd, buildRd, probeHpc, buildHpc,
                                     predEvaluator); //checked-confirmed
+                            if (!isLeftOuter) {
+                                rHHj.enableProbeFilter(buildFilterHc, probeFilterHc);
+                            }
 
                             buildSideReader.open();
                             rHHj.initBuild();
@@ -556,6 +662,7 @@ public class OptimizedHybridHashJoinOperatorDescriptor extends AbstractOperatorD
                                     buildKeys, probeKeys, comparators, buildRd, probeRd, buildHpc, probeHpc,
                                     predEvaluator); //checked-confirmed
                             rHHj.setIsReversed(true); //Added to use predicateEvaluator (for inMemoryHashJoin) correctly
+                            rHHj.enableProbeFilter(probeFilterHc, buildFilterHc);
 
                             probeSideReader.open();
                             rHHj.initBuild();
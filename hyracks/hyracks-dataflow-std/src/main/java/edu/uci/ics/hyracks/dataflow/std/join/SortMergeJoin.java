@@ -0,0 +1,349 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import java.io.DataOutput;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.INullWriter;
+import edu.uci.ics.hyracks.api.dataflow.value.IPredicateEvaluator;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTuplePairComparator;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
+
+/**
+ * Merge join of two inputs that are sorted on their join keys.
+ * The right (inner) input is cached in a run file and read sequentially while
+ * the left (outer) input streams by. The right tuples that share the key of
+ * the current left tuple form a group, which is kept in memory and spilled to
+ * its own run file if it does not fit into the memory budget. Results are
+ * produced in the order of the left input.
+ */
+public class SortMergeJoin {
+    private final IHyracksTaskContext ctx;
+    private final FrameTupleAccessor accessorLeft;
+    private final FrameTupleAccessor accessorRight;
+    private final FrameTupleAccessor accessorGroup;
+    private final FrameTuplePairComparator leftRightComparator;
+    private final FrameTuplePairComparator rightGroupComparator;
+    private final IPredicateEvaluator predEvaluator;
+    private final boolean isLeftOuter;
+    private final ArrayTupleBuilder nullTupleBuilder;
+    private final int maxGroupFrames;
+
+    private final FrameTupleAppender appender;
+    private final ByteBuffer outBuffer;
+    private final ByteBuffer rightBuffer;
+    private final List<ByteBuffer> groupBuffers;
+    private final FrameTupleAppender groupAppender;
+
+    private final RunFileWriter runFileWriter;
+    private RunFileReader runFileReader;
+    private int rightTupleIndex;
+    private boolean rightExhausted;
+
+    private int groupFrameCount;
+    private RunFileWriter groupRunFileWriter;
+    private boolean groupSpilled;
+    private boolean hasGroup;
+
+    public SortMergeJoin(IHyracksTaskContext ctx, RecordDescriptor leftRd, RecordDescriptor rightRd, int[] leftKeys,
+            int[] rightKeys, IBinaryComparator[] comparators, int memSize, IPredicateEvaluator predEval,
+            boolean isLeftOuter, INullWriter[] nullWriters1) throws HyracksDataException {
+        if (memSize < 4) {
+            throw new HyracksDataException("Not enough memory is available for Sort Merge Join");
+        }
+        this.ctx = ctx;
+        accessorLeft = new FrameTupleAccessor(ctx.getFrameSize(), leftRd);
+        accessorRight = new FrameTupleAccessor(ctx.getFrameSize(), rightRd);
+        accessorGroup = new FrameTupleAccessor(ctx.getFrameSize(), rightRd);
+        leftRightComparator = new FrameTuplePairComparator(leftKeys, rightKeys, comparators);
+        rightGroupComparator = new FrameTuplePairComparator(rightKeys, rightKeys, comparators);
+        this.predEvaluator = predEval;
+        this.isLeftOuter = isLeftOuter;
+        // One frame for the output and one for reading the right input, at least two for the group.
+        maxGroupFrames = memSize - 2;
+
+        if (isLeftOuter) {
+            int rightFieldCount = rightRd.getFieldCount();
+            nullTupleBuilder = new ArrayTupleBuilder(rightFieldCount);
+            DataOutput out = nullTupleBuilder.getDataOutput();
+            for (int i = 0; i < rightFieldCount; i++) {
+                nullWriters1[i].writeNull(out);
+                nullTupleBuilder.addFieldEndOffset();
+            }
+        } else {
+            nullTupleBuilder = null;
+        }
+
+        appender = new FrameTupleAppender(ctx.getFrameSize());
+        outBuffer = ctx.allocateFrame();
+        appender.reset(outBuffer, true);
+        rightBuffer = ctx.allocateFrame();
+        groupBuffers = new ArrayList<ByteBuffer>();
+        groupAppender = new FrameTupleAppender(ctx.getFrameSize());
+
+        FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
+                this.getClass().getSimpleName() + this.toString());
+        runFileWriter = new RunFileWriter(file, ctx);
+        runFileWriter.open();
+    }
+
+    public void cache(ByteBuffer buffer) throws HyracksDataException {
+        FrameUtils.makeReadable(buffer);
+        runFileWriter.nextFrame(buffer);
+    }
+
+    public void closeCache() throws HyracksDataException {
+        runFileWriter.close();
+    }
+
+    public void join(ByteBuffer leftBuffer, IFrameWriter writer) throws HyracksDataException {
+        if (runFileReader == null) {
+            runFileReader = runFileWriter.createReader();
+            runFileReader.open();
+            rightExhausted = !runFileReader.nextFrame(rightBuffer);
+            accessorRight.reset(rightBuffer);
+            rightTupleIndex = 0;
+            skipEmptyRightFrames();
+        }
+        accessorLeft.reset(leftBuffer);
+        int tupleCount = accessorLeft.getTupleCount();
+        int i = 0;
+        while (i < tupleCount) {
+            if (!hasGroup || leftRightComparator.compare(accessorLeft, i, accessorGroup, 0) != 0) {
+                loadGroup(i);
+            }
+            if (!hasGroup) {
+                if (isLeftOuter) {
+                    appendNullPadded(i, writer);
+                }
+                ++i;
+                continue;
+            }
+            // Join all consecutive left tuples of the group key with one pass over the group.
+            int end = i + 1;
+            while (end < tupleCount && leftRightComparator.compare(accessorLeft, end, accessorGroup, 0) == 0) {
+                ++end;
+            }
+            joinGroup(i, end, writer);
+            i = end;
+        }
+    }
+
+    public void closeJoin(IFrameWriter writer) throws HyracksDataException {
+        if (appender.getTupleCount() > 0) {
+            flushFrame(outBuffer, writer);
+            appender.reset(outBuffer, true);
+        }
+        if (runFileReader != null) {
+            runFileReader.close();
+            runFileReader = null;
+        }
+        clearGroup();
+    }
+
+    /**
+     * Advances the right input to the key of the given left tuple and loads
+     * the right tuples with that key as the current group.
+     */
+    private void loadGroup(int leftTupleIndex) throws HyracksDataException {
+        clearGroup();
+        while (!rightExhausted) {
+            int c = leftRightComparator.compare(accessorLeft, leftTupleIndex, accessorRight, rightTupleIndex);
+            if (c < 0) {
+                return;
+            }
+            if (c == 0) {
+                break;
+            }
+            advanceRight();
+        }
+        if (rightExhausted) {
+            return;
+        }
+        hasGroup = true;
+        groupAppender.reset(nextGroupBuffer(), true);
+        groupAppender.append(accessorRight, rightTupleIndex);
+        accessorGroup.reset(groupBuffers.get(0));
+        advanceRight();
+        while (!rightExhausted
+                && rightGroupComparator.compare(accessorRight, rightTupleIndex, accessorGroup, 0) == 0) {
+            if (!groupAppender.append(accessorRight, rightTupleIndex)) {
+                groupAppender.reset(nextGroupBuffer(), true);
+                if (!groupAppender.append(accessorRight, rightTupleIndex)) {
+                    throw new HyracksDataException("Record size larger than frame size ("
+                            + groupAppender.getBuffer().capacity() + ")");
+                }
+            }
+            advanceRight();
+        }
+        if (groupSpilled) {
+            flushFrame(groupAppender.getBuffer(), groupRunFileWriter);
+            groupRunFileWriter.close();
+        }
+    }
+
+    /**
+     * @return an empty frame for the group, spilling the group to a run file
+     *         once it has used up its memory
+     */
+    private ByteBuffer nextGroupBuffer() throws HyracksDataException {
+        if (groupSpilled) {
+            flushFrame(groupAppender.getBuffer(), groupRunFileWriter);
+            return groupAppender.getBuffer();
+        }
+        if (groupFrameCount < maxGroupFrames) {
+            if (groupFrameCount == groupBuffers.size()) {
+                groupBuffers.add(ctx.allocateFrame());
+            }
+            return groupBuffers.get(groupFrameCount++);
+        }
+        // The first frame keeps the group key, so it goes to the run file last.
+        FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
+                this.getClass().getSimpleName() + "Group");
+        groupRunFileWriter = new RunFileWriter(file, ctx);
+        groupRunFileWriter.open();
+        for (int i = 1; i < groupFrameCount; ++i) {
+            flushFrame(groupBuffers.get(i), groupRunFileWriter);
+        }
+        groupSpilled = true;
+        groupFrameCount = 1;
+        return groupBuffers.get(1);
+    }
+
+    private void joinGroup(int leftStart, int leftEnd, IFrameWriter writer) throws HyracksDataException {
+        boolean[] matched = null;
+        if (isLeftOuter) {
+            matched = new boolean[leftEnd - leftStart];
+        }
+        if (!groupSpilled) {
+            for (int f = 0; f < groupFrameCount; ++f) {
+                joinGroupFrame(groupBuffers.get(f), leftStart, leftEnd, matched, writer);
+            }
+        } else {
+            joinGroupFrame(groupBuffers.get(0), leftStart, leftEnd, matched, writer);
+            ByteBuffer buffer = groupBuffers.get(1);
+            RunFileReader groupReader = groupRunFileWriter.createReader();
+            groupReader.open();
+            while (groupReader.nextFrame(buffer)) {
+                joinGroupFrame(buffer, leftStart, leftEnd, matched, writer);
+            }
+            groupReader.close();
+        }
+        if (isLeftOuter) {
+            for (int i = leftStart; i < leftEnd; ++i) {
+                if (!matched[i - leftStart]) {
+                    appendNullPadded(i, writer);
+                }
+            }
+        }
+    }
+
+    private void joinGroupFrame(ByteBuffer groupBuffer, int leftStart, int leftEnd, boolean[] matched,
+            IFrameWriter writer) throws HyracksDataException {
+        accessorGroup.reset(groupBuffer);
+        int groupTupleCount = accessorGroup.getTupleCount();
+        for (int i = leftStart; i < leftEnd; ++i) {
+            for (int j = 0; j < groupTupleCount; ++j) {
+                if (predEvaluator == null || predEvaluator.evaluate(accessorLeft, i, accessorGroup, j)) {
+                    appendResult(i, j, writer);
+                    if (matched != null) {
+                        matched[i - leftStart] = true;
+                    }
+                }
+            }
+        }
+        accessorGroup.reset(groupBuffers.get(0));
+    }
+
+    private void clearGroup() throws HyracksDataException {
+        hasGroup = false;
+        groupFrameCount = 0;
+        if (groupSpilled) {
+            groupRunFileWriter.getFileReference().delete();
+            groupRunFileWriter = null;
+            groupSpilled = false;
+        }
+    }
+
+    private void advanceRight() throws HyracksDataException {
+        ++rightTupleIndex;
+        skipEmptyRightFrames();
+    }
+
+    private void skipEmptyRightFrames() throws HyracksDataException {
+        while (!rightExhausted && rightTupleIndex >= accessorRight.getTupleCount()) {
+            if (runFileReader.nextFrame(rightBuffer)) {
+                accessorRight.reset(rightBuffer);
+                rightTupleIndex = 0;
+            } else {
+                rightExhausted = true;
+            }
+        }
+    }
+
+    private void appendResult(int leftTupleIndex, int groupTupleIndex, IFrameWriter writer)
+            throws HyracksDataException {
+        if (!appender.appendConcat(accessorLeft, leftTupleIndex, accessorGroup, groupTupleIndex)) {
+            flushFrame(outBuffer, writer);
+            appender.reset(outBuffer, true);
+            if (!appender.appendConcat(accessorLeft, leftTupleIndex, accessorGroup, groupTupleIndex)) {
+                int tSize = accessorLeft.getTupleEndOffset(leftTupleIndex)
+                        - accessorLeft.getTupleStartOffset(leftTupleIndex)
+                        + accessorGroup.getTupleEndOffset(groupTupleIndex)
+                        - accessorGroup.getTupleStartOffset(groupTupleIndex);
+                throw new HyracksDataException("Record size (" + tSize + ") larger than frame size ("
+                        + appender.getBuffer().capacity() + ")");
+            }
+        }
+    }
+
+    private void appendNullPadded(int leftTupleIndex, IFrameWriter writer) throws HyracksDataException {
+        final int[] ntFieldEndOffsets = nullTupleBuilder.getFieldEndOffsets();
+        final byte[] ntByteArray = nullTupleBuilder.getByteArray();
+        final int ntSize = nullTupleBuilder.getSize();
+        if (!appender.appendConcat(accessorLeft, leftTupleIndex, ntFieldEndOffsets, ntByteArray, 0, ntSize)) {
+            flushFrame(outBuffer, writer);
+            appender.reset(outBuffer, true);
+            if (!appender.appendConcat(accessorLeft, leftTupleIndex, ntFieldEndOffsets, ntByteArray, 0, ntSize)) {
+                int tSize = accessorLeft.getTupleEndOffset(leftTupleIndex)
+                        - accessorLeft.getTupleStartOffset(leftTupleIndex) + ntSize;
+                throw new HyracksDataException("Record size (" + tSize + ") larger than frame size ("
+                        + appender.getBuffer().capacity() + ")");
+            }
+        }
+    }
+
+    private void flushFrame(ByteBuffer buffer, IFrameWriter writer) throws HyracksDataException {
+        buffer.position(0);
+        buffer.limit(buffer.capacity());
+        writer.nextFrame(buffer);
+        buffer.position(0);
+        buffer.limit(buffer.capacity());
+    }
+}
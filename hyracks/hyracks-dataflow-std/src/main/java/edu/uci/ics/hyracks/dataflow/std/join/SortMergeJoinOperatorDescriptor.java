@@ -0,0 +1,221 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
+import edu.uci.ics.hyracks.api.dataflow.IActivityGraphBuilder;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.TaskId;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.INullWriter;
+import edu.uci.ics.hyracks.api.dataflow.value.INullWriterFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IPredicateEvaluator;
+import edu.uci.ics.hyracks.api.dataflow.value.IPredicateEvaluatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractActivityNode;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractStateObject;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputSinkOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+
+/**
+ * Equi-join of two inputs that are sorted on their join keys in the order of
+ * the given comparators, e.g. by a B-tree scan or a merging connector.
+ * The right input (input 1) is cached in a run file before the left input
+ * (input 0) is merged with it, so the join runs in memSize frames no matter
+ * how large the inputs are. The output is sorted like the left input.
+ */
+public class SortMergeJoinOperatorDescriptor extends AbstractOperatorDescriptor {
+    private static final int CACHE_ACTIVITY_ID = 0;
+    private static final int MERGE_JOIN_ACTIVITY_ID = 1;
+
+    private static final long serialVersionUID = 1L;
+    private final int[] keys0;
+    private final int[] keys1;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final int memSize;
+    private final IPredicateEvaluatorFactory predEvaluatorFactory;
+    private final boolean isLeftOuter;
+    private final INullWriterFactory[] nullWriterFactories1;
+
+    public SortMergeJoinOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] keys0, int[] keys1,
+            IBinaryComparatorFactory[] comparatorFactories, RecordDescriptor recordDescriptor, int memSize,
+            IPredicateEvaluatorFactory predEvalFactory) {
+        this(spec, keys0, keys1, comparatorFactories, recordDescriptor, memSize, predEvalFactory, false, null);
+    }
+
+    public SortMergeJoinOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] keys0, int[] keys1,
+            IBinaryComparatorFactory[] comparatorFactories, RecordDescriptor recordDescriptor, int memSize,
+            IPredicateEvaluatorFactory predEvalFactory, boolean isLeftOuter, INullWriterFactory[] nullWriterFactories1) {
+        super(spec, 2, 1);
+        this.keys0 = keys0;
+        this.keys1 = keys1;
+        this.comparatorFactories = comparatorFactories;
+        this.recordDescriptors[0] = recordDescriptor;
+        this.memSize = memSize;
+        this.predEvaluatorFactory = predEvalFactory;
+        this.isLeftOuter = isLeftOuter;
+        this.nullWriterFactories1 = nullWriterFactories1;
+    }
+
+    @Override
+    public void contributeActivities(IActivityGraphBuilder builder) {
+        ActivityId cacheAid = new ActivityId(getOperatorId(), CACHE_ACTIVITY_ID);
+        ActivityId mergeJoinAid = new ActivityId(getOperatorId(), MERGE_JOIN_ACTIVITY_ID);
+        CacheActivityNode cache = new CacheActivityNode(cacheAid, mergeJoinAid);
+        MergeJoinActivityNode mergeJoin = new MergeJoinActivityNode(mergeJoinAid);
+
+        builder.addActivity(this, cache);
+        builder.addSourceEdge(1, cache, 0);
+
+        builder.addActivity(this, mergeJoin);
+        builder.addSourceEdge(0, mergeJoin, 0);
+
+        builder.addTargetEdge(0, mergeJoin, 0);
+        builder.addBlockingEdge(cache, mergeJoin);
+    }
+
+    public static class CacheTaskState extends AbstractStateObject {
+        private SortMergeJoin joiner;
+
+        public CacheTaskState() {
+        }
+
+        private CacheTaskState(JobId jobId, TaskId taskId) {
+            super(jobId, taskId);
+        }
+
+        @Override
+        public void toBytes(DataOutput out) throws IOException {
+
+        }
+
+        @Override
+        public void fromBytes(DataInput in) throws IOException {
+
+        }
+    }
+
+    private class CacheActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        private final ActivityId mergeJoinAid;
+
+        public CacheActivityNode(ActivityId id, ActivityId mergeJoinAid) {
+            super(id);
+            this.mergeJoinAid = mergeJoinAid;
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, final int partition, int nPartitions) {
+            final RecordDescriptor rd0 = recordDescProvider.getInputRecordDescriptor(mergeJoinAid, 0);
+            final RecordDescriptor rd1 = recordDescProvider.getInputRecordDescriptor(getActivityId(), 0);
+            final IBinaryComparator[] comparators = new IBinaryComparator[comparatorFactories.length];
+            for (int i = 0; i < comparatorFactories.length; ++i) {
+                comparators[i] = comparatorFactories[i].createBinaryComparator();
+            }
+            final IPredicateEvaluator predEvaluator = (predEvaluatorFactory != null) ? predEvaluatorFactory
+                    .createPredicateEvaluator() : null;
+
+            final INullWriter[] nullWriters1 = isLeftOuter ? new INullWriter[nullWriterFactories1.length] : null;
+            if (isLeftOuter) {
+                for (int i = 0; i < nullWriterFactories1.length; i++) {
+                    nullWriters1[i] = nullWriterFactories1[i].createNullWriter();
+                }
+            }
+
+            IOperatorNodePushable op = new AbstractUnaryInputSinkOperatorNodePushable() {
+                private CacheTaskState state;
+
+                @Override
+                public void open() throws HyracksDataException {
+                    state = new CacheTaskState(ctx.getJobletContext().getJobId(), new TaskId(getActivityId(),
+                            partition));
+                    state.joiner = new SortMergeJoin(ctx, rd0, rd1, keys0, keys1, comparators, memSize,
+                            predEvaluator, isLeftOuter, nullWriters1);
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    state.joiner.cache(buffer);
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    state.joiner.closeCache();
+                    ctx.setStateObject(state);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                }
+            };
+            return op;
+        }
+    }
+
+    private class MergeJoinActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        public MergeJoinActivityNode(ActivityId id) {
+            super(id);
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, final int partition, int nPartitions) {
+
+            IOperatorNodePushable op = new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+                private CacheTaskState state;
+
+                @Override
+                public void open() throws HyracksDataException {
+                    state = (CacheTaskState) ctx.getStateObject(new TaskId(new ActivityId(getOperatorId(),
+                            CACHE_ACTIVITY_ID), partition));
+                    writer.open();
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    state.joiner.join(buffer, writer);
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    state.joiner.closeJoin(writer);
+                    writer.close();
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                    writer.fail();
+                }
+            };
+            return op;
+        }
+    }
+}
@@ -17,5 +17,15 @@ package edu.uci.ics.hyracks.dataflow.std.sort;
 
 public enum Algorithm {
     QUICK_SORT,
-    MERGE_SORT
+    MERGE_SORT,
+    /**
+     * A merge sort that sorts segments of every batch of frames in parallel
+     * and merges them.
+     */
+    PARALLEL_MERGE_SORT,
+    /**
+     * A radix sort on the full normalized key of the sort field, which falls
+     * back to the merge sort when the key cannot be fully normalized.
+     */
+    RADIX_SORT
 }
@@ -53,6 +53,7 @@ public class ExternalSortOperatorDescriptor extends AbstractOperatorDescriptor {
     private final int framesLimit;
 
     private Algorithm alg = Algorithm.MERGE_SORT;
+    private int sortThreads = 0;
 
     public ExternalSortOperatorDescriptor(IOperatorDescriptorRegistry spec, int framesLimit, int[] sortFields,
             INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
@@ -61,6 +62,19 @@ public class ExternalSortOperatorDescriptor extends AbstractOperatorDescriptor {
         this.alg = alg;
     }
 
+    /**
+     * @param sortThreads
+     *            the number of threads every task may use to sort its
+     *            frames with {@link Algorithm#PARALLEL_MERGE_SORT}, or 0 to
+     *            use one thread per available processor
+     */
+    public ExternalSortOperatorDescriptor(IOperatorDescriptorRegistry spec, int framesLimit, int[] sortFields,
+            INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
+            RecordDescriptor recordDescriptor, Algorithm alg, int sortThreads) {
+        this(spec, framesLimit, sortFields, firstKeyNormalizerFactory, comparatorFactories, recordDescriptor, alg);
+        this.sortThreads = sortThreads;
+    }
+
     public ExternalSortOperatorDescriptor(IOperatorDescriptorRegistry spec, int framesLimit, int[] sortFields,
             IBinaryComparatorFactory[] comparatorFactories, RecordDescriptor recordDescriptor) {
         this(spec, framesLimit, sortFields, null, comparatorFactories, recordDescriptor);
@@ -132,7 +146,7 @@ public class ExternalSortOperatorDescriptor extends AbstractOperatorDescriptor {
                 @Override
                 public void open() throws HyracksDataException {
                     runGen = new ExternalSortRunGenerator(ctx, sortFields, firstKeyNormalizerFactory,
-                            comparatorFactories, recordDescriptors[0], alg, framesLimit);
+                            comparatorFactories, recordDescriptors[0], alg, framesLimit, sortThreads);
                     runGen.open();
                 }
 
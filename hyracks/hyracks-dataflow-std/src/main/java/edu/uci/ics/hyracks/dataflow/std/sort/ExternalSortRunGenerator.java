@@ -37,10 +37,26 @@ public class ExternalSortRunGenerator implements IFrameWriter {
     public ExternalSortRunGenerator(IHyracksTaskContext ctx, int[] sortFields,
             INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
             RecordDescriptor recordDesc, Algorithm alg, int framesLimit) throws HyracksDataException {
+        this(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories, recordDesc, alg, framesLimit, 0);
+    }
+
+    /**
+     * @param sortThreads
+     *            the number of threads of the parallel merge sort, or 0 to
+     *            use one thread per available processor
+     */
+    public ExternalSortRunGenerator(IHyracksTaskContext ctx, int[] sortFields,
+            INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
+            RecordDescriptor recordDesc, Algorithm alg, int framesLimit, int sortThreads) throws HyracksDataException {
         this.ctx = ctx;
-        if (alg == Algorithm.MERGE_SORT) {
+        if (alg == Algorithm.RADIX_SORT && FrameSorterRadixSort.canSort(sortFields, firstKeyNormalizerFactory)) {
+            frameSorter = new FrameSorterRadixSort(ctx, sortFields, firstKeyNormalizerFactory, recordDesc);
+        } else if (alg == Algorithm.MERGE_SORT || alg == Algorithm.RADIX_SORT) {
             frameSorter = new FrameSorterMergeSort(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories,
                     recordDesc);
+        } else if (alg == Algorithm.PARALLEL_MERGE_SORT) {
+            frameSorter = new FrameSorterMergeSort(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories,
+                    recordDesc, sortThreads);
         } else {
             frameSorter = new FrameSorterQuickSort(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories,
                     recordDesc);
@@ -78,7 +94,7 @@ public class ExternalSortRunGenerator implements IFrameWriter {
         frameSorter.sortFrames();
         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                 ExternalSortRunGenerator.class.getSimpleName());
-        RunFileWriter writer = new RunFileWriter(file, ctx.getIOManager());
+        RunFileWriter writer = new RunFileWriter(file, ctx);
         writer.open();
         try {
             frameSorter.flushFrames(writer);
@@ -138,7 +138,7 @@ public class ExternalSortRunMerger {
                                 runs.size() - maxMergeWidth + 1);
                         FileReference newRun = ctx.createManagedWorkspaceFile(ExternalSortRunMerger.class
                                 .getSimpleName());
-                        IFrameWriter mergeResultWriter = new RunFileWriter(newRun, ctx.getIOManager());
+                        IFrameWriter mergeResultWriter = new RunFileWriter(newRun, ctx);
                         mergeResultWriter.open();
                         IFrameReader[] runCursors = new RunFileReader[mergeWidth];
                         for (int i = 0; i < mergeWidth; i++) {
@@ -260,7 +260,7 @@ public class ExternalSortRunMerger {
             }
         } else {
             newRun = ctx.createManagedWorkspaceFile(ExternalSortRunMerger.class.getSimpleName());
-            writer = new RunFileWriter(newRun, ctx.getIOManager());
+            writer = new RunFileWriter(newRun, ctx);
             writer.open();
         }
         try {
@@ -17,6 +17,9 @@ package edu.uci.ics.hyracks.dataflow.std.sort;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
@@ -31,15 +34,32 @@ import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 import edu.uci.ics.hyracks.dataflow.common.util.IntSerDeUtils;
 
+/**
+ * Sorts the tuple pointers of the inserted frames with a bottom-up merge sort.
+ * With more than one sort thread, the pointers are split into segments that
+ * are sorted in parallel and then merged pairwise in parallel rounds. The work
+ * runs in a fork-join pool shared by all the sorters of the node.
+ */
 public class FrameSorterMergeSort implements IFrameSorter {
+    /**
+     * Segments smaller than this are not worth handing to another thread.
+     */
+    private static final int MIN_SEGMENT_TUPLES = 4096;
+
+    private static class SortPoolHolder {
+        private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
     private final IHyracksTaskContext ctx;
     private final int[] sortFields;
     private final INormalizedKeyComputer nkc;
-    private final IBinaryComparator[] comparators;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final RecordDescriptor recordDescriptor;
     private final List<ByteBuffer> buffers;
+    private final int sortThreads;
+    private final SegmentSorter[] segmentSorters;
 
     private final FrameTupleAccessor fta1;
-    private final FrameTupleAccessor fta2;
 
     private final FrameTupleAppender appender;
 
@@ -53,16 +73,27 @@ public class FrameSorterMergeSort implements IFrameSorter {
     public FrameSorterMergeSort(IHyracksTaskContext ctx, int[] sortFields,
             INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
             RecordDescriptor recordDescriptor) throws HyracksDataException {
+        this(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories, recordDescriptor, 1);
+    }
+
+    /**
+     * @param sortThreads
+     *            the number of threads that may sort a batch of frames, or 0
+     *            to use one thread per available processor
+     */
+    public FrameSorterMergeSort(IHyracksTaskContext ctx, int[] sortFields,
+            INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
+            RecordDescriptor recordDescriptor, int sortThreads) throws HyracksDataException {
         this.ctx = ctx;
         this.sortFields = sortFields;
         nkc = firstKeyNormalizerFactory == null ? null : firstKeyNormalizerFactory.createNormalizedKeyComputer();
-        comparators = new IBinaryComparator[comparatorFactories.length];
-        for (int i = 0; i < comparatorFactories.length; ++i) {
-            comparators[i] = comparatorFactories[i].createBinaryComparator();
-        }
+        this.comparatorFactories = comparatorFactories;
+        this.recordDescriptor = recordDescriptor;
+        this.sortThreads = sortThreads > 0 ? sortThreads : Runtime.getRuntime().availableProcessors();
+        segmentSorters = new SegmentSorter[this.sortThreads];
+        segmentSorters[0] = new SegmentSorter();
         buffers = new ArrayList<ByteBuffer>();
         fta1 = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
-        fta2 = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
         appender = new FrameTupleAppender(ctx.getFrameSize());
         outFrame = ctx.allocateFrame();
 
@@ -123,7 +154,131 @@ public class FrameSorterMergeSort implements IFrameSorter {
         }
         if (tupleCount > 0) {
             tPointersTemp = new int[tPointers.length];
-            sort(0, tupleCount);
+            int nSegments = Math.max(1, Math.min(sortThreads, tupleCount / MIN_SEGMENT_TUPLES));
+            if (nSegments == 1) {
+                if (segmentSorters[0].sort(tPointers, tPointersTemp, 0, tupleCount) != tPointers) {
+                    swapPointers();
+                }
+            } else {
+                parallelSort(nSegments);
+            }
+        }
+    }
+
+    private void swapPointers() {
+        int[] tmp = tPointersTemp;
+        tPointersTemp = tPointers;
+        tPointers = tmp;
+    }
+
+    private void parallelSort(int nSegments) throws HyracksDataException {
+        final int[] offsets = new int[nSegments + 1];
+        for (int i = 0; i <= nSegments; ++i) {
+            offsets[i] = (int) ((long) tupleCount * i / nSegments);
+        }
+        runInParallel(nSegments, new ISegmentTask() {
+            @Override
+            public void run(SegmentSorter sorter, int segment) throws HyracksDataException {
+                sortSegment(sorter, offsets[segment], offsets[segment + 1]);
+            }
+        });
+        mergeSegments(offsets);
+    }
+
+    /**
+     * A piece of work on the tuple pointers that can run in any thread.
+     */
+    private interface ISegmentTask {
+        public void run(SegmentSorter sorter, int index) throws HyracksDataException;
+    }
+
+    /**
+     * Runs the tasks 0 to nTasks - 1, each with a sorter of its own. The first
+     * one runs in the calling thread, the others in the shared pool.
+     */
+    private void runInParallel(int nTasks, final ISegmentTask task) throws HyracksDataException {
+        List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+        for (int i = 1; i < nTasks; ++i) {
+            if (segmentSorters[i] == null) {
+                segmentSorters[i] = new SegmentSorter();
+            }
+            final SegmentSorter sorter = segmentSorters[i];
+            final int index = i;
+            tasks.add(SortPoolHolder.POOL.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    task.run(sorter, index);
+                    return null;
+                }
+            }));
+        }
+        HyracksDataException failure = null;
+        try {
+            task.run(segmentSorters[0], 0);
+        } catch (HyracksDataException e) {
+            failure = e;
+        }
+        for (ForkJoinTask<Void> t : tasks) {
+            try {
+                t.get();
+            } catch (Exception e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    failure = cause instanceof HyracksDataException ? (HyracksDataException) cause
+                            : new HyracksDataException(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Sorts the pointers in [start, end) and leaves them in tPointers.
+     */
+    private void sortSegment(SegmentSorter sorter, int start, int end) throws HyracksDataException {
+        if (sorter.sort(tPointers, tPointersTemp, start, end - start) != tPointers) {
+            System.arraycopy(tPointersTemp, start * 4, tPointers, start * 4, (end - start) * 4);
+        }
+    }
+
+    /**
+     * Merges the sorted segments of tPointers in rounds, each of which merges
+     * neighbouring pairs of segments in parallel and halves their number. This
+     * takes O(n log k) comparisons for k segments. Ties go to the earlier
+     * segment, which keeps the sort stable.
+     */
+    private void mergeSegments(int[] offsets) throws HyracksDataException {
+        int[] runOffsets = offsets;
+        int[] src = tPointers;
+        int[] dst = tPointersTemp;
+        while (runOffsets.length > 2) {
+            final int nRuns = runOffsets.length - 1;
+            final int[] o = runOffsets;
+            final int[] from = src;
+            final int[] to = dst;
+            runInParallel(nRuns / 2, new ISegmentTask() {
+                @Override
+                public void run(SegmentSorter sorter, int pair) throws HyracksDataException {
+                    sorter.merge(from, to, o[2 * pair], o[2 * pair + 1], o[2 * pair + 2]);
+                }
+            });
+            if (nRuns % 2 == 1) {
+                System.arraycopy(src, o[nRuns - 1] * 4, dst, o[nRuns - 1] * 4, (o[nRuns] - o[nRuns - 1]) * 4);
+            }
+            int[] merged = new int[(nRuns + 1) / 2 + 1];
+            for (int i = 0; i < merged.length - 1; ++i) {
+                merged[i] = o[2 * i];
+            }
+            merged[merged.length - 1] = o[nRuns];
+            runOffsets = merged;
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != tPointers) {
+            swapPointers();
         }
     }
 
@@ -150,104 +305,150 @@ public class FrameSorterMergeSort implements IFrameSorter {
         }
     }
 
-    private void sort(int offset, int length) throws HyracksDataException {
-        int step = 1;
-        int len = length;
-        int end = offset + len;
-        /** bottom-up merge */
-        while (step < len) {
-            /** merge */
-            for (int i = offset; i < end; i += 2 * step) {
-                int next = i + step;
-                if (next < end) {
-                    merge(i, next, step, Math.min(step, end - next));
-                } else {
-                    System.arraycopy(tPointers, i * 4, tPointersTemp, i * 4, (end - i) * 4);
-                }
+    /**
+     * Sorts a range of tuple pointers. Every thread gets its own sorter, as
+     * comparators and accessors keep state.
+     */
+    private class SegmentSorter {
+        private final IBinaryComparator[] comparators;
+        private final FrameTupleAccessor fta1;
+        private final FrameTupleAccessor fta2;
+
+        private int[] src;
+        private int[] dst;
+
+        SegmentSorter() {
+            comparators = new IBinaryComparator[comparatorFactories.length];
+            for (int i = 0; i < comparatorFactories.length; ++i) {
+                comparators[i] = comparatorFactories[i].createBinaryComparator();
             }
-            /** prepare next phase merge */
-            step *= 2;
-            int[] tmp = tPointersTemp;
-            tPointersTemp = tPointers;
-            tPointers = tmp;
+            fta1 = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+            fta2 = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
         }
-    }
 
-    /**
-     * Merge two subarrays into one
-     *
-     * @throws HyracksDataException
-     */
-    private void merge(int start1, int start2, int len1, int len2) throws HyracksDataException {
-        int targetPos = start1;
-        int pos1 = start1;
-        int pos2 = start2;
-        int end1 = start1 + len1 - 1;
-        int end2 = start2 + len2 - 1;
-        while (pos1 <= end1 && pos2 <= end2) {
-            int cmp = compare(pos1, pos2);
-            if (cmp <= 0) {
-                copy(pos1, targetPos);
-                pos1++;
-            } else {
-                copy(pos2, targetPos);
-                pos2++;
+        /**
+         * @return the array among pointers and temp that holds the sorted range
+         */
+        int[] sort(int[] pointers, int[] temp, int offset, int length) throws HyracksDataException {
+            src = pointers;
+            dst = temp;
+            int step = 1;
+            int len = length;
+            int end = offset + len;
+            /** bottom-up merge */
+            while (step < len) {
+                /** merge */
+                for (int i = offset; i < end; i += 2 * step) {
+                    int next = i + step;
+                    if (next < end) {
+                        merge(i, next, step, Math.min(step, end - next));
+                    } else {
+                        System.arraycopy(src, i * 4, dst, i * 4, (end - i) * 4);
+                    }
+                }
+                /** prepare next phase merge */
+                step *= 2;
+                int[] tmp = dst;
+                dst = src;
+                src = tmp;
             }
-            targetPos++;
+            int[] result = src;
+            src = null;
+            dst = null;
+            return result;
         }
-        if (pos1 <= end1) {
-            int rest = end1 - pos1 + 1;
-            System.arraycopy(tPointers, pos1 * 4, tPointersTemp, targetPos * 4, rest * 4);
+
+        /**
+         * Merges the sorted ranges [start1, start2) and [start2, end) of
+         * pointers into the same positions of temp.
+         */
+        void merge(int[] pointers, int[] temp, int start1, int start2, int end) throws HyracksDataException {
+            src = pointers;
+            dst = temp;
+            try {
+                merge(start1, start2, start2 - start1, end - start2);
+            } finally {
+                src = null;
+                dst = null;
+            }
         }
-        if (pos2 <= end2) {
-            int rest = end2 - pos2 + 1;
-            System.arraycopy(tPointers, pos2 * 4, tPointersTemp, targetPos * 4, rest * 4);
+
+        /**
+         * Merge two subarrays into one
+         *
+         * @throws HyracksDataException
+         */
+        private void merge(int start1, int start2, int len1, int len2) throws HyracksDataException {
+            int targetPos = start1;
+            int pos1 = start1;
+            int pos2 = start2;
+            int end1 = start1 + len1 - 1;
+            int end2 = start2 + len2 - 1;
+            while (pos1 <= end1 && pos2 <= end2) {
+                int cmp = compare(src, pos1, pos2);
+                if (cmp <= 0) {
+                    copy(pos1, targetPos);
+                    pos1++;
+                } else {
+                    copy(pos2, targetPos);
+                    pos2++;
+                }
+                targetPos++;
+            }
+            if (pos1 <= end1) {
+                int rest = end1 - pos1 + 1;
+                System.arraycopy(src, pos1 * 4, dst, targetPos * 4, rest * 4);
+            }
+            if (pos2 <= end2) {
+                int rest = end2 - pos2 + 1;
+                System.arraycopy(src, pos2 * 4, dst, targetPos * 4, rest * 4);
+            }
         }
-    }
 
-    private void copy(int src, int dest) {
-        tPointersTemp[dest * 4] = tPointers[src * 4];
-        tPointersTemp[dest * 4 + 1] = tPointers[src * 4 + 1];
-        tPointersTemp[dest * 4 + 2] = tPointers[src * 4 + 2];
-        tPointersTemp[dest * 4 + 3] = tPointers[src * 4 + 3];
-    }
+        private void copy(int from, int to) {
+            dst[to * 4] = src[from * 4];
+            dst[to * 4 + 1] = src[from * 4 + 1];
+            dst[to * 4 + 2] = src[from * 4 + 2];
+            dst[to * 4 + 3] = src[from * 4 + 3];
+        }
 
-    private int compare(int tp1, int tp2) throws HyracksDataException {
-        int i1 = tPointers[tp1 * 4];
-        int j1 = tPointers[tp1 * 4 + 1];
-        int v1 = tPointers[tp1 * 4 + 3];
+        int compare(int[] pointers, int tp1, int tp2) throws HyracksDataException {
+            int i1 = pointers[tp1 * 4];
+            int j1 = pointers[tp1 * 4 + 1];
+            int v1 = pointers[tp1 * 4 + 3];
 
-        int tp2i = tPointers[tp2 * 4];
-        int tp2j = tPointers[tp2 * 4 + 1];
-        int tp2v = tPointers[tp2 * 4 + 3];
+            int tp2i = pointers[tp2 * 4];
+            int tp2j = pointers[tp2 * 4 + 1];
+            int tp2v = pointers[tp2 * 4 + 3];
 
-        if (v1 != tp2v) {
-            return ((((long) v1) & 0xffffffffL) < (((long) tp2v) & 0xffffffffL)) ? -1 : 1;
-        }
-        int i2 = tp2i;
-        int j2 = tp2j;
-        ByteBuffer buf1 = buffers.get(i1);
-        ByteBuffer buf2 = buffers.get(i2);
-        byte[] b1 = buf1.array();
-        byte[] b2 = buf2.array();
-        fta1.reset(buf1);
-        fta2.reset(buf2);
-        for (int f = 0; f < comparators.length; ++f) {
-            int fIdx = sortFields[f];
-            int f1Start = fIdx == 0 ? 0 : IntSerDeUtils.getInt(buf1.array(), j1 + (fIdx - 1) * 4);
-            int f1End = IntSerDeUtils.getInt(buf1.array(), j1 + fIdx * 4);
-            int s1 = j1 + fta1.getFieldSlotsLength() + f1Start;
-            int l1 = f1End - f1Start;
-            int f2Start = fIdx == 0 ? 0 : IntSerDeUtils.getInt(buf2.array(), j2 + (fIdx - 1) * 4);
-            int f2End = IntSerDeUtils.getInt(buf2.array(), j2 + fIdx * 4);
-            int s2 = j2 + fta2.getFieldSlotsLength() + f2Start;
-            int l2 = f2End - f2Start;
-            int c = comparators[f].compare(b1, s1, l1, b2, s2, l2);
-            if (c != 0) {
-                return c;
+            if (v1 != tp2v) {
+                return ((((long) v1) & 0xffffffffL) < (((long) tp2v) & 0xffffffffL)) ? -1 : 1;
+            }
+            int i2 = tp2i;
+            int j2 = tp2j;
+            ByteBuffer buf1 = buffers.get(i1);
+            ByteBuffer buf2 = buffers.get(i2);
+            byte[] b1 = buf1.array();
+            byte[] b2 = buf2.array();
+            fta1.reset(buf1);
+            fta2.reset(buf2);
+            for (int f = 0; f < comparators.length; ++f) {
+                int fIdx = sortFields[f];
+                int f1Start = fIdx == 0 ? 0 : IntSerDeUtils.getInt(buf1.array(), j1 + (fIdx - 1) * 4);
+                int f1End = IntSerDeUtils.getInt(buf1.array(), j1 + fIdx * 4);
+                int s1 = j1 + fta1.getFieldSlotsLength() + f1Start;
+                int l1 = f1End - f1Start;
+                int f2Start = fIdx == 0 ? 0 : IntSerDeUtils.getInt(buf2.array(), j2 + (fIdx - 1) * 4);
+                int f2End = IntSerDeUtils.getInt(buf2.array(), j2 + fIdx * 4);
+                int s2 = j2 + fta2.getFieldSlotsLength() + f2Start;
+                int l2 = f2End - f2Start;
+                int c = comparators[f].compare(b1, s1, l1, b2, s2, l2);
+                if (c != 0) {
+                    return c;
+                }
             }
+            return 0;
         }
-        return 0;
     }
 
     @Override
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.IFullNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+
+/**
+ * Sorts the tuples by the full normalized key of their single sort field with
+ * a least significant digit radix sort, without any comparator calls. The sort
+ * is stable. Byte positions in which all the keys agree are skipped, so small
+ * integer keys only take a couple of passes.
+ * Use {@link #canSort(int[], INormalizedKeyComputerFactory)} to find out
+ * whether a sort can be done this way.
+ */
+public class FrameSorterRadixSort implements IFrameSorter {
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final IHyracksTaskContext ctx;
+    private final int sortField;
+    private final IFullNormalizedKeyComputer nkc;
+    private final int keyLength;
+    private final List<ByteBuffer> buffers;
+
+    private final FrameTupleAccessor fta;
+
+    private final FrameTupleAppender appender;
+
+    private final ByteBuffer outFrame;
+
+    private int dataFrameCount;
+    private int tupleCount;
+    private long[] keys;
+    private long[] keysTemp;
+    private int[] tPointers;
+    private int[] tPointersTemp;
+
+    public FrameSorterRadixSort(IHyracksTaskContext ctx, int[] sortFields,
+            INormalizedKeyComputerFactory firstKeyNormalizerFactory, RecordDescriptor recordDescriptor)
+            throws HyracksDataException {
+        if (!canSort(sortFields, firstKeyNormalizerFactory)) {
+            throw new IllegalArgumentException("Sort key cannot be fully normalized");
+        }
+        this.ctx = ctx;
+        sortField = sortFields[0];
+        nkc = ((IFullNormalizedKeyComputerFactory) firstKeyNormalizerFactory).createFullNormalizedKeyComputer();
+        keyLength = nkc.getKeyLength();
+        buffers = new ArrayList<ByteBuffer>();
+        fta = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+        appender = new FrameTupleAppender(ctx.getFrameSize());
+        outFrame = ctx.allocateFrame();
+
+        dataFrameCount = 0;
+    }
+
+    /**
+     * @return true if the order of the sort fields is fully determined by
+     *         the normalized key of the first field
+     */
+    public static boolean canSort(int[] sortFields, INormalizedKeyComputerFactory firstKeyNormalizerFactory) {
+        return sortFields.length == 1 && firstKeyNormalizerFactory instanceof IFullNormalizedKeyComputerFactory;
+    }
+
+    @Override
+    public void reset() {
+        dataFrameCount = 0;
+        tupleCount = 0;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return dataFrameCount;
+    }
+
+    @Override
+    public void insertFrame(ByteBuffer buffer) throws HyracksDataException {
+        ByteBuffer copyFrame;
+        if (dataFrameCount == buffers.size()) {
+            copyFrame = ctx.allocateFrame();
+            buffers.add(copyFrame);
+        } else {
+            copyFrame = buffers.get(dataFrameCount);
+        }
+        FrameUtils.copy(buffer, copyFrame);
+        ++dataFrameCount;
+    }
+
+    @Override
+    public void sortFrames() throws HyracksDataException {
+        int nBuffers = dataFrameCount;
+        tupleCount = 0;
+        for (int i = 0; i < nBuffers; ++i) {
+            fta.reset(buffers.get(i));
+            tupleCount += fta.getTupleCount();
+        }
+        if (tPointers == null || tPointers.length < tupleCount * 3) {
+            tPointers = new int[tupleCount * 3];
+            tPointersTemp = new int[tupleCount * 3];
+            keys = new long[tupleCount * keyLength];
+            keysTemp = new long[tupleCount * keyLength];
+        }
+        int ptr = 0;
+        for (int i = 0; i < nBuffers; ++i) {
+            fta.reset(buffers.get(i));
+            int tCount = fta.getTupleCount();
+            byte[] array = fta.getBuffer().array();
+            for (int j = 0; j < tCount; ++j) {
+                int tStart = fta.getTupleStartOffset(j);
+                tPointers[ptr * 3] = i;
+                tPointers[ptr * 3 + 1] = tStart;
+                tPointers[ptr * 3 + 2] = fta.getTupleEndOffset(j);
+                int fStartRel = fta.getFieldStartOffset(j, sortField);
+                int fEndRel = fta.getFieldEndOffset(j, sortField);
+                int fStart = fStartRel + tStart + fta.getFieldSlotsLength();
+                nkc.normalize(array, fStart, fEndRel - fStartRel, keys, ptr * keyLength);
+                ++ptr;
+            }
+        }
+        if (tupleCount > 1) {
+            radixSort();
+        }
+    }
+
+    private void radixSort() {
+        int digitsPerWord = Long.SIZE / RADIX_BITS;
+        int nDigits = keyLength * digitsPerWord;
+        int[][] counts = new int[nDigits][RADIX];
+        for (int t = 0; t < tupleCount; ++t) {
+            for (int w = 0; w < keyLength; ++w) {
+                long word = keys[t * keyLength + w];
+                for (int d = 0; d < digitsPerWord; ++d) {
+                    ++counts[w * digitsPerWord + d][(int) (word >>> (d * RADIX_BITS)) & (RADIX - 1)];
+                }
+            }
+        }
+        // Least significant digit first: the last word's lowest byte up to the first word's highest byte.
+        for (int w = keyLength - 1; w >= 0; --w) {
+            for (int d = 0; d < digitsPerWord; ++d) {
+                int[] count = counts[w * digitsPerWord + d];
+                if (isTrivial(count)) {
+                    continue;
+                }
+                int shift = d * RADIX_BITS;
+                int sum = 0;
+                for (int b = 0; b < RADIX; ++b) {
+                    int c = count[b];
+                    count[b] = sum;
+                    sum += c;
+                }
+                for (int t = 0; t < tupleCount; ++t) {
+                    int b = (int) (keys[t * keyLength + w] >>> shift) & (RADIX - 1);
+                    int target = count[b]++;
+                    System.arraycopy(keys, t * keyLength, keysTemp, target * keyLength, keyLength);
+                    tPointersTemp[target * 3] = tPointers[t * 3];
+                    tPointersTemp[target * 3 + 1] = tPointers[t * 3 + 1];
+                    tPointersTemp[target * 3 + 2] = tPointers[t * 3 + 2];
+                }
+                long[] tmpKeys = keys;
+                keys = keysTemp;
+                keysTemp = tmpKeys;
+                int[] tmpPointers = tPointers;
+                tPointers = tPointersTemp;
+                tPointersTemp = tmpPointers;
+            }
+        }
+    }
+
+    /**
+     * @return true if all the keys have the same digit
+     */
+    private boolean isTrivial(int[] count) {
+        for (int b = 0; b < RADIX; ++b) {
+            if (count[b] != 0) {
+                return count[b] == tupleCount;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void flushFrames(IFrameWriter writer) throws HyracksDataException {
+        appender.reset(outFrame, true);
+        for (int ptr = 0; ptr < tupleCount; ++ptr) {
+            int i = tPointers[ptr * 3];
+            int tStart = tPointers[ptr * 3 + 1];
+            int tEnd = tPointers[ptr * 3 + 2];
+            ByteBuffer buffer = buffers.get(i);
+            fta.reset(buffer);
+            if (!appender.append(fta, tStart, tEnd)) {
+                FrameUtils.flushFrame(outFrame, writer);
+                appender.reset(outFrame, true);
+                if (!appender.append(fta, tStart, tEnd)) {
+                    throw new HyracksDataException("Record size (" + (tEnd - tStart) + ") larger than frame size ("
+                            + appender.getBuffer().capacity() + ")");
+                }
+            }
+        }
+        if (appender.getTupleCount() > 0) {
+            FrameUtils.flushFrame(outFrame, writer);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.buffers.clear();
+    }
+}
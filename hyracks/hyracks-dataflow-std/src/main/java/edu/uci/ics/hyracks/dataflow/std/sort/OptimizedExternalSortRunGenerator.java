@@ -270,7 +270,7 @@ public class OptimizedExternalSortRunGenerator implements IRunGenerator {
 
         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                 ExternalSortRunGenerator.class.getSimpleName());
-        writer = new RunFileWriter(file, ctx.getIOManager());
+        writer = new RunFileWriter(file, ctx);
         writer.open();
         curRunId++;
         newRun = true;
@@ -421,7 +421,7 @@ public class OptimizedExternalSortRunGeneratorWithLimit implements IRunGenerator
 
         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                 ExternalSortRunGenerator.class.getSimpleName());
-        writer = new RunFileWriter(file, ctx.getIOManager());
+        writer = new RunFileWriter(file, ctx);
         writer.open();
         curRunId++;
         newRun = true;
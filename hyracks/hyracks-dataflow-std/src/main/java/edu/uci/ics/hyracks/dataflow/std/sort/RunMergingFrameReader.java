@@ -18,6 +18,7 @@ import java.nio.ByteBuffer;
 import java.util.Comparator;
 import java.util.List;
 
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
 import edu.uci.ics.hyracks.api.comm.IFrameReader;
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
@@ -30,6 +31,12 @@ import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.std.util.ReferenceEntry;
 import edu.uci.ics.hyracks.dataflow.std.util.ReferencedPriorityQueue;
 
+/**
+ * Merges sorted runs. Big frames in the runs are read in one piece, and a
+ * tuple that does not fit into an output frame is passed on as a big frame
+ * (see {@link FrameHelper}). If an output limit is given, the merge stops
+ * after that many tuples and the rest of the runs is left unread.
+ */
 public class RunMergingFrameReader implements IFrameReader {
     private final IHyracksTaskContext ctx;
     private final IFrameReader[] runCursors;
@@ -39,13 +46,24 @@ public class RunMergingFrameReader implements IFrameReader {
     private final INormalizedKeyComputer nmkComputer;
     private final RecordDescriptor recordDesc;
     private final FrameTupleAppender outFrameAppender;
+    private final int outputLimit;
+    private int outputCount;
     private ReferencedPriorityQueue topTuples;
     private int[] tupleIndexes;
     private FrameTupleAccessor[] tupleAccessors;
+    private ByteBuffer[] bigInFrames;
+    private ByteBuffer bigOutFrame;
+    private int bigOutChunkIndex;
 
     public RunMergingFrameReader(IHyracksTaskContext ctx, IFrameReader[] runCursors, List<ByteBuffer> inFrames,
             int[] sortFields, IBinaryComparator[] comparators, INormalizedKeyComputer nmkComputer,
             RecordDescriptor recordDesc) {
+        this(ctx, runCursors, inFrames, sortFields, comparators, nmkComputer, recordDesc, -1);
+    }
+
+    public RunMergingFrameReader(IHyracksTaskContext ctx, IFrameReader[] runCursors, List<ByteBuffer> inFrames,
+            int[] sortFields, IBinaryComparator[] comparators, INormalizedKeyComputer nmkComputer,
+            RecordDescriptor recordDesc, int outputLimit) {
         this.ctx = ctx;
         this.runCursors = runCursors;
         this.inFrames = inFrames;
@@ -53,23 +71,25 @@ public class RunMergingFrameReader implements IFrameReader {
         this.comparators = comparators;
         this.nmkComputer = nmkComputer;
         this.recordDesc = recordDesc;
+        this.outputLimit = outputLimit;
         outFrameAppender = new FrameTupleAppender(ctx.getFrameSize());
     }
 
     @Override
     public void open() throws HyracksDataException {
         tupleAccessors = new FrameTupleAccessor[runCursors.length];
+        bigInFrames = new ByteBuffer[runCursors.length];
         Comparator<ReferenceEntry> comparator = createEntryComparator(comparators);
         topTuples = new ReferencedPriorityQueue(ctx.getFrameSize(), recordDesc, runCursors.length, comparator,
                 sortFields, nmkComputer);
         tupleIndexes = new int[runCursors.length];
+        outputCount = 0;
         for (int i = 0; i < runCursors.length; i++) {
             tupleIndexes[i] = 0;
             int runIndex = topTuples.peek().getRunid();
             runCursors[runIndex].open();
-            if (runCursors[runIndex].nextFrame(inFrames.get(runIndex))) {
-                tupleAccessors[runIndex] = new FrameTupleAccessor(ctx.getFrameSize(), recordDesc);
-                tupleAccessors[runIndex].reset(inFrames.get(runIndex));
+            tupleAccessors[runIndex] = new FrameTupleAccessor(ctx.getFrameSize(), recordDesc);
+            if (readNextFrame(runIndex)) {
                 setNextTopTuple(runIndex, tupleIndexes, runCursors, tupleAccessors, topTuples);
             } else {
                 closeRun(runIndex, runCursors, tupleAccessors);
@@ -80,17 +100,41 @@ public class RunMergingFrameReader implements IFrameReader {
 
     @Override
     public boolean nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        if (bigOutFrame != null) {
+            int frameSize = buffer.capacity();
+            System.arraycopy(bigOutFrame.array(), bigOutChunkIndex * frameSize, buffer.array(), 0, frameSize);
+            if (++bigOutChunkIndex * frameSize == bigOutFrame.capacity()) {
+                ctx.deallocateFrame(bigOutFrame);
+                bigOutFrame = null;
+            }
+            return true;
+        }
         outFrameAppender.reset(buffer, true);
-        while (!topTuples.areRunsExhausted()) {
+        while (!topTuples.areRunsExhausted() && !isOutputLimitReached()) {
             ReferenceEntry top = topTuples.peek();
             int runIndex = top.getRunid();
             FrameTupleAccessor fta = top.getAccessor();
             int tupleIndex = top.getTupleIndex();
 
             if (!outFrameAppender.append(fta, tupleIndex)) {
+                if (outFrameAppender.getTupleCount() > 0) {
+                    return true;
+                }
+                // Send the header now and the chunks of the big frame in the following calls.
+                int length = fta.getTupleEndOffset(tupleIndex) - fta.getTupleStartOffset(tupleIndex);
+                bigOutFrame = ctx.allocateFrame(FrameHelper.getBigFrameSize(buffer.capacity(), length + 8));
+                bigOutChunkIndex = 0;
+                FrameTupleAppender bigFrameAppender = new FrameTupleAppender(bigOutFrame.capacity());
+                bigFrameAppender.reset(bigOutFrame, true);
+                bigFrameAppender.append(fta, tupleIndex);
+                FrameHelper.putBigFrameHeader(buffer, bigOutFrame.capacity() / buffer.capacity());
+                ++outputCount;
+                ++tupleIndexes[runIndex];
+                setNextTopTuple(runIndex, tupleIndexes, runCursors, tupleAccessors, topTuples);
                 return true;
             }
 
+            ++outputCount;
             ++tupleIndexes[runIndex];
             setNextTopTuple(runIndex, tupleIndexes, runCursors, tupleAccessors, topTuples);
         }
@@ -101,11 +145,23 @@ public class RunMergingFrameReader implements IFrameReader {
         return false;
     }
 
+    /**
+     * @return true if the output limit is set and the merge has produced that
+     *         many tuples
+     */
+    public boolean isOutputLimitReached() {
+        return outputLimit >= 0 && outputCount >= outputLimit;
+    }
+
     @Override
     public void close() throws HyracksDataException {
         for (int i = 0; i < runCursors.length; ++i) {
             closeRun(i, runCursors, tupleAccessors);
         }
+        if (bigOutFrame != null) {
+            ctx.deallocateFrame(bigOutFrame);
+            bigOutFrame = null;
+        }
     }
 
     private void setNextTopTuple(int runIndex, int[] tupleIndexes, IFrameReader[] runCursors,
@@ -124,8 +180,7 @@ public class RunMergingFrameReader implements IFrameReader {
         if (tupleAccessors[runIndex] == null || runCursors[runIndex] == null) {
             return false;
         } else if (tupleIndexes[runIndex] >= tupleAccessors[runIndex].getTupleCount()) {
-            ByteBuffer buf = tupleAccessors[runIndex].getBuffer(); // same-as-inFrames.get(runIndex)
-            if (runCursors[runIndex].nextFrame(buf)) {
+            if (readNextFrame(runIndex)) {
                 tupleIndexes[runIndex] = 0;
                 return hasNextTuple(runIndex, tupleIndexes, runCursors, tupleAccessors);
             } else {
@@ -136,6 +191,35 @@ public class RunMergingFrameReader implements IFrameReader {
         }
     }
 
+    private boolean readNextFrame(int runIndex) throws HyracksDataException {
+        ByteBuffer frame = inFrames.get(runIndex);
+        if (!runCursors[runIndex].nextFrame(frame)) {
+            return false;
+        }
+        int nChunks = FrameHelper.getBigFrameChunkCount(frame);
+        if (nChunks == 0) {
+            tupleAccessors[runIndex].reset(frame);
+            return true;
+        }
+        int frameSize = frame.capacity();
+        ByteBuffer bigFrame = bigInFrames[runIndex];
+        if (bigFrame == null || bigFrame.capacity() != nChunks * frameSize) {
+            if (bigFrame != null) {
+                ctx.deallocateFrame(bigFrame);
+            }
+            bigFrame = ctx.allocateFrame(nChunks * frameSize);
+            bigInFrames[runIndex] = bigFrame;
+        }
+        for (int i = 0; i < nChunks; ++i) {
+            if (!runCursors[runIndex].nextFrame(frame)) {
+                throw new HyracksDataException("Run ended in the middle of a big frame");
+            }
+            System.arraycopy(frame.array(), 0, bigFrame.array(), i * frameSize, frameSize);
+        }
+        tupleAccessors[runIndex].reset(bigFrame);
+        return true;
+    }
+
     private void closeRun(int index, IFrameReader[] runCursors, IFrameTupleAccessor[] tupleAccessors)
             throws HyracksDataException {
         if (runCursors[index] != null) {
@@ -143,6 +227,10 @@ public class RunMergingFrameReader implements IFrameReader {
             runCursors[index] = null;
             tupleAccessors[index] = null;
         }
+        if (bigInFrames[index] != null) {
+            ctx.deallocateFrame(bigInFrames[index]);
+            bigInFrames[index] = null;
+        }
     }
 
     private Comparator<ReferenceEntry> createEntryComparator(final IBinaryComparator[] comparators) {
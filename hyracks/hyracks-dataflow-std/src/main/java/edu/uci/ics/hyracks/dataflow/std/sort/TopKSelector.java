@@ -0,0 +1,197 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.sort;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+
+/**
+ * Keeps the K smallest tuples (w.r.t. the sort keys) of its input in memory.
+ * The tuples are held by a BSTMemMgr and ordered by a SortMinMaxHeap: once K
+ * tuples are resident, an incoming tuple that is not smaller than the current
+ * maximum is dropped right away, otherwise it replaces the maximum. Nothing is
+ * ever spilled, so the memory budget has to be large enough for K tuples; if
+ * it is not, insert() fails instead of falling back to external sorting (use
+ * OptimizedExternalSortOperatorDescriptor with a limit for that case).
+ */
+public class TopKSelector {
+    private static final int RUN_ID = 0;
+
+    private final IHyracksTaskContext ctx;
+    private final int[] sortFields;
+    private final INormalizedKeyComputer nkc;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IBinaryComparator[] comparators;
+    private final RecordDescriptor recordDescriptor;
+    private final int memSize;
+    private final int k;
+
+    private IMemoryManager memMgr;
+    private ISelectionTree sTree;
+    private FrameTupleAccessor inputAccessor;
+    private FrameTupleAccessor memAccessor;
+    private Slot allocationPtr;
+    private Slot discard;
+    private int[] peek;
+    private int size;
+
+    public TopKSelector(IHyracksTaskContext ctx, int[] sortFields,
+            INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
+            RecordDescriptor recordDesc, int memSize, int k) {
+        this.ctx = ctx;
+        this.sortFields = sortFields;
+        nkc = firstKeyNormalizerFactory == null ? null : firstKeyNormalizerFactory.createNormalizedKeyComputer();
+        this.comparatorFactories = comparatorFactories;
+        comparators = new IBinaryComparator[comparatorFactories.length];
+        for (int i = 0; i < comparatorFactories.length; ++i) {
+            comparators[i] = comparatorFactories[i].createBinaryComparator();
+        }
+        this.recordDescriptor = recordDesc;
+        this.memSize = memSize;
+        this.k = k;
+    }
+
+    public void open() {
+        inputAccessor = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+        memAccessor = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+        memMgr = new BSTMemMgr(ctx, memSize);
+        sTree = new SortMinMaxHeap(ctx, sortFields, comparatorFactories, recordDescriptor, memMgr);
+        allocationPtr = new Slot();
+        discard = new Slot();
+        peek = new int[] { -1, -1, -1, -1 };
+        size = 0;
+    }
+
+    public void insert(ByteBuffer buffer) throws HyracksDataException {
+        if (k <= 0) {
+            return;
+        }
+        inputAccessor.reset(buffer);
+        byte[] bufferArray = buffer.array();
+        int tupleCount = inputAccessor.getTupleCount();
+        for (int i = 0; i < tupleCount; i++) {
+            if (size >= k) {
+                sTree.peekMax(peek);
+                if (compareRecords(inputAccessor, i, peek[SortMinMaxHeap.FRAME_IX], peek[SortMinMaxHeap.OFFSET_IX]) >= 0) {
+                    continue;
+                }
+                // replacing the max, its slot is released first so that the new tuple can reuse it
+                sTree.getMax(peek);
+                discard.set(peek[SortMinMaxHeap.FRAME_IX], peek[SortMinMaxHeap.OFFSET_IX]);
+                memMgr.unallocate(discard);
+                size--;
+            }
+
+            allocationPtr.clear();
+            int tLength = inputAccessor.getTupleEndOffset(i) - inputAccessor.getTupleStartOffset(i);
+            memMgr.allocate(tLength, allocationPtr);
+            if (allocationPtr.isNull()) {
+                throw new HyracksDataException("Insufficient memory to keep the top " + k + " tuples (" + memSize
+                        + " frames)");
+            }
+            memMgr.writeTuple(allocationPtr.getFrameIx(), allocationPtr.getOffset(), inputAccessor, i);
+            int[] entry = new int[] { RUN_ID, allocationPtr.getFrameIx(), allocationPtr.getOffset(),
+                    getPNK(inputAccessor, i, bufferArray) };
+            sTree.insert(entry);
+            size++;
+        }
+    }
+
+    public int getTupleCount() {
+        return size;
+    }
+
+    /**
+     * Writes the resident tuples to the writer in sort order and empties the
+     * selector.
+     */
+    public void flush(IFrameWriter writer) throws HyracksDataException {
+        ByteBuffer outFrame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(ctx.getFrameSize());
+        appender.reset(outFrame, true);
+        while (!sTree.isEmpty()) {
+            sTree.getMin(peek);
+            int tFrameIx = peek[SortMinMaxHeap.FRAME_IX];
+            int tOffset = peek[SortMinMaxHeap.OFFSET_IX];
+            if (!memMgr.readTuple(tFrameIx, tOffset, appender)) {
+                FrameUtils.flushFrame(outFrame, writer);
+                appender.reset(outFrame, true);
+                if (!memMgr.readTuple(tFrameIx, tOffset, appender)) {
+                    throw new HyracksDataException("Can not append to the ouput buffer in top-k");
+                }
+            }
+            discard.set(tFrameIx, tOffset);
+            memMgr.unallocate(discard);
+        }
+        if (appender.getTupleCount() > 0) {
+            FrameUtils.flushFrame(outFrame, writer);
+        }
+        size = 0;
+    }
+
+    public void close() {
+        sTree.reset();
+        memMgr.close();
+    }
+
+    private int getPNK(FrameTupleAccessor fta, int tIx, byte[] buffInArray) {
+        int sfIdx = sortFields[0];
+        int tStart = fta.getTupleStartOffset(tIx);
+        int f0StartRel = fta.getFieldStartOffset(tIx, sfIdx);
+        int f0EndRel = fta.getFieldEndOffset(tIx, sfIdx);
+        int f0Start = f0StartRel + tStart + fta.getFieldSlotsLength();
+        return (nkc == null ? 0 : nkc.normalize(buffInArray, f0Start, f0EndRel - f0StartRel));
+    }
+
+    // first<sec : -1
+    private int compareRecords(FrameTupleAccessor fta1, int ix1, int fix2, int offset2) throws HyracksDataException {
+        ByteBuffer buff1 = fta1.getBuffer();
+        byte[] recBuff1 = buff1.array();
+        int offset1 = fta1.getTupleStartOffset(ix1);
+
+        offset2 += BSTNodeUtil.HEADER_SIZE;
+        ByteBuffer buff2 = memMgr.getFrame(fix2);
+        memAccessor.reset(buff2);
+        byte[] recBuff2 = buff2.array();
+
+        for (int f = 0; f < comparators.length; ++f) {
+            int fIdx = sortFields[f];
+            int f1Start = fIdx == 0 ? 0 : buff1.getInt(offset1 + (fIdx - 1) * 4);
+            int f1End = buff1.getInt(offset1 + fIdx * 4);
+            int s1 = offset1 + fta1.getFieldSlotsLength() + f1Start;
+            int l1 = f1End - f1Start;
+            int f2Start = fIdx == 0 ? 0 : buff2.getInt(offset2 + (fIdx - 1) * 4);
+            int f2End = buff2.getInt(offset2 + fIdx * 4);
+            int s2 = offset2 + memAccessor.getFieldSlotsLength() + f2Start;
+            int l2 = f2End - f2Start;
+            int c = comparators[f].compare(recBuff1, s1, l1, recBuff2, s2, l2);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.structures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Bloom filter over 32-bit tuple hash values for a key set whose size is not
+ * known up front. It starts with room for the expected number of keys and,
+ * whenever the current filter holds as many keys as it was sized for, adds a
+ * filter twice as large. A value passes if any of the filters contains it.
+ * Once the next filter would exceed the size limit, the keys go into the last
+ * filter, whose false positive probability then grows.
+ */
+public class ScalableTupleHashBloomFilter {
+    private final int bitsPerKey;
+    private final int numHashes;
+    private final long maxBits;
+    private final List<TupleHashBloomFilter> filters;
+    private TupleHashBloomFilter current;
+    private long totalBits;
+    private int currentCapacity;
+    private int currentKeys;
+
+    /**
+     * @param expectedKeys
+     *            the number of keys the first filter is sized for
+     * @param bitsPerKey
+     *            the number of bits per key of each filter
+     * @param maxBits
+     *            the limit on the total size of the filters, in bits
+     */
+    public ScalableTupleHashBloomFilter(int expectedKeys, int bitsPerKey, int numHashes, long maxBits) {
+        this.bitsPerKey = bitsPerKey;
+        this.numHashes = numHashes;
+        this.maxBits = maxBits;
+        filters = new ArrayList<TupleHashBloomFilter>();
+        addFilter((int) Math.min((long) Math.max(expectedKeys, 1) * bitsPerKey, maxBits));
+    }
+
+    public void add(int hash) {
+        if (currentKeys >= currentCapacity && totalBits + 2L * current.getNumBits() <= maxBits) {
+            addFilter(2 * current.getNumBits());
+        }
+        current.add(hash);
+        ++currentKeys;
+    }
+
+    public boolean mightContain(int hash) {
+        for (int i = 0; i < filters.size(); ++i) {
+            if (filters.get(i).mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the probability that a value that was not added passes any of
+     *         the filters
+     */
+    public double getFalsePositiveProbability() {
+        double pass = 1;
+        for (int i = 0; i < filters.size(); ++i) {
+            pass *= 1 - filters.get(i).getFalsePositiveProbability();
+        }
+        return 1 - pass;
+    }
+
+    public long getNumBits() {
+        return totalBits;
+    }
+
+    private void addFilter(int numBits) {
+        current = new TupleHashBloomFilter(numBits, numHashes);
+        filters.add(current);
+        totalBits += current.getNumBits();
+        currentCapacity = current.getNumBits() / bitsPerKey;
+        currentKeys = 0;
+    }
+}
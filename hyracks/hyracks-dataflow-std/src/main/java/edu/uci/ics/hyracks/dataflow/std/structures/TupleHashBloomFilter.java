@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.structures;
+
+/**
+ * An in-memory Bloom filter over 32-bit tuple hash values. The probe positions
+ * are derived from a single hash value by mixing it into two 32-bit halves and
+ * applying double hashing, so hash values with few distinct low bits still
+ * spread over the whole filter.
+ */
+public class TupleHashBloomFilter {
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+    private int numSetBits;
+
+    public TupleHashBloomFilter(int numBits, int numHashes) {
+        this.bits = new long[(numBits + 63) >>> 6];
+        this.numBits = bits.length << 6;
+        this.numHashes = numHashes;
+    }
+
+    public void add(int hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < numHashes; ++i) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+            long mask = 1L << bit;
+            long word = bits[bit >>> 6];
+            if ((word & mask) == 0) {
+                bits[bit >>> 6] = word | mask;
+                ++numSetBits;
+            }
+        }
+    }
+
+    public boolean mightContain(int hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < numHashes; ++i) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the probability that a value that was not added passes the
+     *         filter, estimated from the fraction of bits set
+     */
+    public double getFalsePositiveProbability() {
+        return Math.pow((double) numSetBits / numBits, numHashes);
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    private static long mix(int hash) {
+        long k = hash;
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.comm;
+
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.BigFrameAssemblingWriter;
+import edu.uci.ics.hyracks.api.comm.BigFrameSplittingWriter;
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.comm.IPartitionWriterFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.ByteBufferInputStream;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.std.connectors.PartitionDataWriter;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class BigFrameTest {
+    private static final int FRAME_SIZE = 256;
+    private static final int NUM_TUPLES = 40;
+    private static final int NUM_PARTITIONS = 2;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE });
+
+    /**
+     * Keeps a copy of every frame it gets.
+     */
+    private static class CollectingWriter implements IFrameWriter {
+        private final List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            ByteBuffer copy = ByteBuffer.allocate(buffer.capacity());
+            System.arraycopy(buffer.array(), 0, copy.array(), 0, buffer.capacity());
+            frames.add(copy);
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    private static String makeString(int i) {
+        // Every fifth tuple is several frames long.
+        int length = i % 5 == 0 ? 3 * FRAME_SIZE + i : 10;
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < length; ++j) {
+            sb.append((char) ('a' + (i + j) % 26));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void bigTupleTransportTest() throws Exception {
+        final CollectingWriter[] transported = new CollectingWriter[NUM_PARTITIONS];
+        IPartitionWriterFactory pwFactory = new IPartitionWriterFactory() {
+            @Override
+            public IFrameWriter createFrameWriter(int receiverIndex) throws HyracksDataException {
+                transported[receiverIndex] = new CollectingWriter();
+                return new BigFrameSplittingWriter(transported[receiverIndex], FRAME_SIZE);
+            }
+        };
+        ITuplePartitionComputer tpc = new ITuplePartitionComputer() {
+            @Override
+            public int partition(IFrameTupleAccessor accessor, int tIndex, int nParts) throws HyracksDataException {
+                int tStart = accessor.getTupleStartOffset(tIndex) + accessor.getFieldSlotsLength();
+                return accessor.getBuffer().getInt(tStart) % nParts;
+            }
+        };
+        PartitionDataWriter pWriter = new PartitionDataWriter(ctx, NUM_PARTITIONS, pwFactory, recordDesc, tpc);
+
+        pWriter.open();
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(recordDesc.getFieldCount());
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        ByteBuffer frame = ctx.allocateFrame();
+        appender.reset(frame, true);
+        for (int i = 0; i < NUM_TUPLES; ++i) {
+            tb.reset();
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+            tb.addField(UTF8StringSerializerDeserializer.INSTANCE, makeString(i));
+            if (appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                continue;
+            }
+            if (appender.getTupleCount() > 0) {
+                pWriter.nextFrame(frame);
+                appender.reset(frame, true);
+                if (appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                    continue;
+                }
+            }
+            int tupleLength = tb.getSize() + 4 * recordDesc.getFieldCount() + 8;
+            ByteBuffer bigFrame = ctx.allocateFrame(FrameHelper.getBigFrameSize(FRAME_SIZE, tupleLength));
+            FrameTupleAppender bigAppender = new FrameTupleAppender(FRAME_SIZE);
+            bigAppender.reset(bigFrame, true);
+            Assert.assertTrue(bigAppender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            pWriter.nextFrame(bigFrame);
+            ctx.deallocateFrame(bigFrame);
+        }
+        if (appender.getTupleCount() > 0) {
+            pWriter.nextFrame(frame);
+        }
+        pWriter.close();
+
+        int nTuples = 0;
+        for (int p = 0; p < NUM_PARTITIONS; ++p) {
+            for (ByteBuffer chunk : transported[p].frames) {
+                Assert.assertEquals(FRAME_SIZE, chunk.capacity());
+            }
+
+            CollectingWriter assembled = new CollectingWriter();
+            IFrameWriter receiver = new BigFrameAssemblingWriter(ctx, assembled);
+            receiver.open();
+            for (ByteBuffer chunk : transported[p].frames) {
+                receiver.nextFrame(chunk);
+            }
+            receiver.close();
+
+            FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+            ByteBufferInputStream bbis = new ByteBufferInputStream();
+            DataInputStream di = new DataInputStream(bbis);
+            for (ByteBuffer buffer : assembled.frames) {
+                accessor.reset(buffer);
+                for (int t = 0; t < accessor.getTupleCount(); ++t) {
+                    bbis.setByteBuffer(buffer, accessor.getTupleStartOffset(t) + accessor.getFieldSlotsLength());
+                    int i = IntegerSerializerDeserializer.INSTANCE.deserialize(di);
+                    Assert.assertEquals(p, i % NUM_PARTITIONS);
+                    Assert.assertEquals(makeString(i), UTF8StringSerializerDeserializer.INSTANCE.deserialize(di));
+                    ++nTuples;
+                }
+            }
+        }
+        Assert.assertEquals(NUM_TUPLES, nTuples);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.comm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.comm.IPartitionWriterFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.skew.HeavyHitterSet;
+import edu.uci.ics.hyracks.dataflow.std.connectors.HeavyHitterPartitionDataWriter;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class HeavyHitterPartitionDataWriterTest {
+    private static final int FRAME_SIZE = 4096;
+    private static final int NUM_PARTITIONS = 4;
+    private static final int NUM_KEYS = 1000;
+    private static final int HOT_KEY = 7;
+    private static final int NUM_HOT_DUPLICATES = 4000;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final RecordDescriptor recordDesc = new RecordDescriptor(
+            new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+    private final ITuplePartitionComputerFactory tpcf = new FieldHashPartitionComputerFactory(new int[] { 0 },
+            new IBinaryHashFunctionFactory[] { PointableBinaryHashFunctionFactory.of(IntegerPointable.FACTORY) });
+
+    /**
+     * Collects the keys sent to each partition.
+     */
+    private class CollectingWriterFactory implements IPartitionWriterFactory {
+        private final List<List<Integer>> keys = new ArrayList<List<Integer>>();
+
+        @Override
+        public IFrameWriter createFrameWriter(int receiverIndex) throws HyracksDataException {
+            final List<Integer> partitionKeys = new ArrayList<Integer>();
+            keys.add(partitionKeys);
+            final FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+            return new IFrameWriter() {
+                @Override
+                public void open() throws HyracksDataException {
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    accessor.reset(buffer);
+                    for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                        partitionKeys.add(buffer.getInt(accessor.getTupleStartOffset(i)
+                                + accessor.getFieldSlotsLength()));
+                    }
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                }
+            };
+        }
+
+        private int count(int partition, int key) {
+            int count = 0;
+            for (int k : keys.get(partition)) {
+                if (k == key) {
+                    ++count;
+                }
+            }
+            return count;
+        }
+    }
+
+    private HeavyHitterPartitionDataWriter partition(CollectingWriterFactory pwFactory, HeavyHitterSet heavyHitters,
+            boolean replicate) throws HyracksDataException {
+        HeavyHitterPartitionDataWriter writer = new HeavyHitterPartitionDataWriter(ctx, NUM_PARTITIONS, pwFactory,
+                recordDesc, tpcf.createPartitioner(), heavyHitters, replicate, 0);
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(1);
+        writer.open();
+        for (int i = 0; i < NUM_KEYS + NUM_HOT_DUPLICATES; ++i) {
+            tb.reset();
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i < NUM_KEYS ? i : HOT_KEY);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                writer.nextFrame(frame);
+                appender.reset(frame, true);
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        writer.nextFrame(frame);
+        writer.close();
+        return writer;
+    }
+
+    @Test
+    public void heavyHitterRoutingTest() throws Exception {
+        // Without heavy hitters, the hot key skews a single partition and is reported by the sampler.
+        CollectingWriterFactory plain = new CollectingWriterFactory();
+        HeavyHitterSet sampled = partition(plain, new HeavyHitterSet(new int[0]), false).getSampledHeavyHitters();
+        Assert.assertEquals(1, sampled.size());
+        int hotPartition = -1;
+        for (int p = 0; p < NUM_PARTITIONS; ++p) {
+            if (plain.count(p, HOT_KEY) > 0) {
+                Assert.assertEquals(-1, hotPartition);
+                hotPartition = p;
+            }
+        }
+        Assert.assertEquals(NUM_HOT_DUPLICATES + 1, plain.count(hotPartition, HOT_KEY));
+
+        CollectingWriterFactory scattered = new CollectingWriterFactory();
+        partition(scattered, sampled, false);
+        CollectingWriterFactory replicated = new CollectingWriterFactory();
+        partition(replicated, sampled, true);
+        for (int p = 0; p < NUM_PARTITIONS; ++p) {
+            int scatteredCount = scattered.count(p, HOT_KEY);
+            Assert.assertTrue(Math.abs(scatteredCount - (NUM_HOT_DUPLICATES + 1) / NUM_PARTITIONS) <= 1);
+            Assert.assertEquals(NUM_HOT_DUPLICATES + 1, replicated.count(p, HOT_KEY));
+            // All other keys stay in their hash partition.
+            for (int k : plain.keys.get(p)) {
+                if (k != HOT_KEY) {
+                    Assert.assertEquals(1, scattered.count(p, k));
+                    Assert.assertEquals(1, replicated.count(p, k));
+                }
+            }
+            Assert.assertEquals(plain.keys.get(p).size() - plain.count(p, HOT_KEY), scattered.keys.get(p).size()
+                    - scatteredCount);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.comm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.common.io.LZFrameCodecFactory;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
+import edu.uci.ics.hyracks.test.support.TestJobletContext;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class RunFileCompressionTest {
+    private static final int FRAME_SIZE = 4096;
+    private static final int NUM_FRAMES = 50;
+
+    private List<ByteBuffer> createFrames() {
+        Random rnd = new Random(9);
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < NUM_FRAMES; ++i) {
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+            if (i % 7 == 3) {
+                // Incompressible frames are stored as is.
+                rnd.nextBytes(frame.array());
+            } else {
+                while (frame.remaining() >= 4) {
+                    frame.putInt(rnd.nextInt(4));
+                }
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private long writeAndReadRun(IHyracksTaskContext ctx, List<ByteBuffer> frames) throws Exception {
+        FileReference file = ctx.getJobletContext().createManagedWorkspaceFile("RunFileCompressionTest");
+        RunFileWriter writer = new RunFileWriter(file, ctx);
+        writer.open();
+        for (ByteBuffer frame : frames) {
+            frame.clear();
+            writer.nextFrame(frame);
+        }
+        writer.close();
+        Assert.assertEquals((long) NUM_FRAMES * FRAME_SIZE, writer.getFileSize());
+
+        RunFileReader reader = writer.createReader();
+        Assert.assertEquals(writer.getFileSize(), reader.getFileSize());
+        ByteBuffer buffer = ctx.allocateFrame();
+        // Read the run twice to check that the reader can be reopened.
+        for (int k = 0; k < 2; ++k) {
+            reader.open();
+            for (ByteBuffer frame : frames) {
+                Assert.assertTrue(reader.nextFrame(buffer));
+                Assert.assertEquals(FRAME_SIZE, buffer.position());
+                Assert.assertArrayEquals(frame.array(), buffer.array());
+            }
+            Assert.assertFalse(reader.nextFrame(buffer));
+            reader.close();
+        }
+        return writer.getStoredSize();
+    }
+
+    @Test
+    public void uncompressedRunTest() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        long storedSize = writeAndReadRun(ctx, createFrames());
+        Assert.assertEquals((long) NUM_FRAMES * FRAME_SIZE, storedSize);
+    }
+
+    @Test
+    public void compressedRunTest() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        ((TestJobletContext) ctx.getJobletContext()).setRunFileCodecFactory(LZFrameCodecFactory.INSTANCE);
+        long storedSize = writeAndReadRun(ctx, createFrames());
+        Assert.assertTrue("Run did not shrink: " + storedSize, storedSize < (long) NUM_FRAMES * FRAME_SIZE * 3 / 4);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.group;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.data.std.primitive.FloatPointable;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.FloatSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.HashSpillableTableFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.IFieldAggregateDescriptorFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.ISpillableTable;
+import edu.uci.ics.hyracks.dataflow.std.group.aggregators.AvgFieldGroupAggregatorFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.aggregators.CountFieldAggregatorFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.aggregators.IntSumFieldAggregatorFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.aggregators.MultiFieldsAggregatorFactory;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class HashSpillableTableTest {
+    private static final int FRAME_SIZE = 4096;
+    private static final int TABLE_SIZE = 1024;
+    private static final int NUM_KEYS = 3000;
+    private static final int NUM_TUPLES = 30000;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final int[] keyFields = new int[] { 0 };
+
+    private final RecordDescriptor inRecordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    private final RecordDescriptor outRecordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+            IntegerSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE });
+
+    /**
+     * Adds up the sums and counts of the groups it gets, and checks the
+     * averages of final results.
+     */
+    private class GroupCollector implements IFrameWriter {
+        private final FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, outRecordDesc);
+        private final long[] sums = new long[NUM_KEYS];
+        private final int[] counts = new int[NUM_KEYS];
+        private final boolean isPartial;
+        private int groupCount;
+
+        public GroupCollector(boolean isPartial) {
+            this.isPartial = isPartial;
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            byte[] data = buffer.array();
+            for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                int start = accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength();
+                int key = IntegerPointable.getInteger(data, start + accessor.getFieldStartOffset(i, 0));
+                int sum = IntegerPointable.getInteger(data, start + accessor.getFieldStartOffset(i, 1));
+                int count = IntegerPointable.getInteger(data, start + accessor.getFieldStartOffset(i, 2));
+                int avgStart = start + accessor.getFieldStartOffset(i, 3);
+                if (isPartial) {
+                    Assert.assertEquals(sum, IntegerPointable.getInteger(data, avgStart));
+                    Assert.assertEquals(count, IntegerPointable.getInteger(data, avgStart + 4));
+                } else {
+                    Assert.assertEquals((float) sum / count, FloatPointable.getFloat(data, avgStart), 0.0f);
+                }
+                sums[key] += sum;
+                counts[key] += count;
+                ++groupCount;
+            }
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    private ISpillableTable createTable(int framesLimit) throws HyracksDataException {
+        HashSpillableTableFactory factory = new HashSpillableTableFactory(new FieldHashPartitionComputerFactory(
+                keyFields, new IBinaryHashFunctionFactory[] { PointableBinaryHashFunctionFactory
+                        .of(IntegerPointable.FACTORY) }), TABLE_SIZE);
+        ISpillableTable table = factory.buildSpillableTable(ctx, keyFields,
+                new IBinaryComparatorFactory[] { PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY) },
+                null, new MultiFieldsAggregatorFactory(new IFieldAggregateDescriptorFactory[] {
+                        new IntSumFieldAggregatorFactory(1, false), new CountFieldAggregatorFactory(false),
+                        new AvgFieldGroupAggregatorFactory(1, false) }), inRecordDesc, outRecordDesc, framesLimit);
+        table.reset();
+        return table;
+    }
+
+    /**
+     * Feeds the input frame by frame to the table the way the external group
+     * operator does, spilling partial results to the collector whenever the
+     * table is full.
+     */
+    private int aggregate(ISpillableTable table, GroupCollector spills) throws HyracksDataException {
+        int nSpills = 0;
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, inRecordDesc);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int i = 0; i <= NUM_TUPLES; ++i) {
+            if (i < NUM_TUPLES) {
+                tb.reset();
+                tb.addField(IntegerSerializerDeserializer.INSTANCE, i % NUM_KEYS);
+                tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+                if (appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                    continue;
+                }
+            }
+            accessor.reset(frame);
+            int tupleCount = accessor.getTupleCount();
+            int tIndex = 0;
+            while (tIndex < tupleCount) {
+                int next = table.insert(accessor, tIndex, tupleCount);
+                if (next == tIndex) {
+                    table.sortFrames();
+                    table.flushFrames(spills, true);
+                    table.reset();
+                    ++nSpills;
+                    next = table.insert(accessor, tIndex, tupleCount);
+                    Assert.assertTrue(next > tIndex);
+                }
+                tIndex = next;
+            }
+            appender.reset(frame, true);
+            if (i < NUM_TUPLES) {
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        return nSpills;
+    }
+
+    private void checkGroups(GroupCollector collector) {
+        for (int key = 0; key < NUM_KEYS; ++key) {
+            long expectedSum = 0;
+            int expectedCount = 0;
+            for (int i = key; i < NUM_TUPLES; i += NUM_KEYS) {
+                expectedSum += i;
+                ++expectedCount;
+            }
+            Assert.assertEquals(expectedCount, collector.counts[key]);
+            Assert.assertEquals(expectedSum, collector.sums[key]);
+        }
+    }
+
+    @Test
+    public void inMemoryBatchTest() throws Exception {
+        ISpillableTable table = createTable(64);
+        GroupCollector spills = new GroupCollector(true);
+        Assert.assertEquals(0, aggregate(table, spills));
+        GroupCollector result = new GroupCollector(false);
+        table.flushFrames(result, false);
+        table.close();
+        Assert.assertEquals(NUM_KEYS, result.groupCount);
+        checkGroups(result);
+    }
+
+    @Test
+    public void spillingBatchTest() throws Exception {
+        ISpillableTable table = createTable(4);
+        GroupCollector spills = new GroupCollector(true);
+        Assert.assertTrue(aggregate(table, spills) > 0);
+        table.sortFrames();
+        table.flushFrames(spills, true);
+        table.close();
+        checkGroups(spills);
+    }
+}
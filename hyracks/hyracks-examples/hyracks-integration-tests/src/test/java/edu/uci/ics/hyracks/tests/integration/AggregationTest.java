@@ -14,9 +14,15 @@
  */
 package edu.uci.ics.hyracks.tests.integration;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
@@ -27,9 +33,11 @@ import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.dataset.ResultSetId;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.job.JobSpecification;
 import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
 import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
 import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.FloatSerializerDeserializer;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
@@ -910,4 +918,120 @@ public class AggregationTest extends AbstractIntegrationTest {
         runTest(spec);
     }
 
+    @Test
+    public void multiKeySumExtGroupPassThroughTest() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        FileScanOperatorDescriptor csvScanner = new FileScanOperatorDescriptor(spec, splitProvider, tupleParserFactory,
+                desc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, csvScanner, NC2_ID);
+
+        RecordDescriptor outputRec = new RecordDescriptor(new ISerializerDeserializer[] {
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE });
+
+        // The order key and the line number identify a line item, so the local grouping cannot reduce the input.
+        int[] keyFields = new int[] { 0, 3 };
+        int[] keyFieldsInPartialResults = new int[] { 0, 1 };
+        int frameLimits = 4;
+        int tableSize = 8;
+
+        ExternalGroupOperatorDescriptor localGrouper = new ExternalGroupOperatorDescriptor(spec, keyFields,
+                frameLimits, new IBinaryComparatorFactory[] {
+                        PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY),
+                        PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY) },
+                new UTF8StringNormalizedKeyComputerFactory(), new MultiFieldsAggregatorFactory(
+                        new IFieldAggregateDescriptorFactory[] { new IntSumFieldAggregatorFactory(1, false),
+                                new IntSumFieldAggregatorFactory(4, false), new CountFieldAggregatorFactory(false) }),
+                new MultiFieldsAggregatorFactory(new IFieldAggregateDescriptorFactory[] {
+                        new IntSumFieldAggregatorFactory(2, false), new IntSumFieldAggregatorFactory(3, false),
+                        new IntSumFieldAggregatorFactory(4, false) }), outputRec, new HashSpillableTableFactory(
+                        new FieldHashPartitionComputerFactory(keyFields, new IBinaryHashFunctionFactory[] {
+                                PointableBinaryHashFunctionFactory.of(UTF8StringPointable.FACTORY),
+                                PointableBinaryHashFunctionFactory.of(IntegerPointable.FACTORY) }), tableSize), false,
+                0.5);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, localGrouper, NC2_ID);
+
+        IConnectorDescriptor conn1 = new OneToOneConnectorDescriptor(spec);
+        spec.connect(conn1, csvScanner, 0, localGrouper, 0);
+
+        ExternalGroupOperatorDescriptor grouper = new ExternalGroupOperatorDescriptor(spec,
+                keyFieldsInPartialResults, 4, new IBinaryComparatorFactory[] {
+                        PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY),
+                        PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY) },
+                new UTF8StringNormalizedKeyComputerFactory(), new MultiFieldsAggregatorFactory(
+                        new IFieldAggregateDescriptorFactory[] { new IntSumFieldAggregatorFactory(2, false),
+                                new IntSumFieldAggregatorFactory(3, false), new IntSumFieldAggregatorFactory(4, false) }),
+                new MultiFieldsAggregatorFactory(new IFieldAggregateDescriptorFactory[] {
+                        new IntSumFieldAggregatorFactory(2, false), new IntSumFieldAggregatorFactory(3, false),
+                        new IntSumFieldAggregatorFactory(4, false) }), outputRec, new HashSpillableTableFactory(
+                        new FieldHashPartitionComputerFactory(keyFieldsInPartialResults,
+                                new IBinaryHashFunctionFactory[] {
+                                        PointableBinaryHashFunctionFactory.of(UTF8StringPointable.FACTORY),
+                                        PointableBinaryHashFunctionFactory.of(IntegerPointable.FACTORY) }), tableSize),
+                true);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, grouper, NC2_ID, NC1_ID);
+
+        IConnectorDescriptor conn2 = new MToNPartitioningConnectorDescriptor(spec,
+                new FieldHashPartitionComputerFactory(keyFieldsInPartialResults, new IBinaryHashFunctionFactory[] {
+                        PointableBinaryHashFunctionFactory.of(UTF8StringPointable.FACTORY),
+                        PointableBinaryHashFunctionFactory.of(IntegerPointable.FACTORY) }));
+        spec.connect(conn2, localGrouper, 0, grouper, 0);
+
+        ResultSetId rsId = new ResultSetId(1);
+        AbstractSingleActivityOperatorDescriptor printer = new ResultWriterOperatorDescriptor(spec, rsId, false,
+                false, ResultSerializerFactoryProvider.INSTANCE.getResultSerializerFactoryProvider());
+        spec.addResultSetId(rsId);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, NC2_ID);
+
+        IConnectorDescriptor conn3 = new MToNPartitioningConnectorDescriptor(spec,
+                new FieldHashPartitionComputerFactory(keyFieldsInPartialResults, new IBinaryHashFunctionFactory[] {
+                        PointableBinaryHashFunctionFactory.of(UTF8StringPointable.FACTORY),
+                        PointableBinaryHashFunctionFactory.of(IntegerPointable.FACTORY) }));
+        spec.connect(conn3, grouper, 0, printer, 0);
+
+        spec.addRoot(printer);
+        JobId jobId = executeTest(spec);
+        List<String> results = readResults(spec, jobId, rsId);
+        hcc.waitForCompletion(jobId);
+
+        // Every line item is a group of its own, whether or not the local grouping passed it through.
+        Map<String, String> expected = new HashMap<String, String>();
+        BufferedReader reader = new BufferedReader(new FileReader("data/tpch0.001/lineitem.tbl"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split("\\|");
+            expected.put(fields[0] + ", " + fields[3], fields[1] + ", " + fields[4] + ", 1");
+        }
+        reader.close();
+        Assert.assertEquals(expected.size(), results.size());
+        for (String result : results) {
+            String[] fields = result.trim().split(", ", 3);
+            Assert.assertEquals(expected.get(fields[0] + ", " + fields[1]), fields[2]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sortedExtGroupPassThroughTest() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        int[] keyFields = new int[] { 0 };
+        new ExternalGroupOperatorDescriptor(spec, keyFields, 4,
+                new IBinaryComparatorFactory[] { PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY) },
+                new UTF8StringNormalizedKeyComputerFactory(), new MultiFieldsAggregatorFactory(
+                        new IFieldAggregateDescriptorFactory[] { new CountFieldAggregatorFactory(false) }),
+                new MultiFieldsAggregatorFactory(
+                        new IFieldAggregateDescriptorFactory[] { new IntSumFieldAggregatorFactory(1, false) }),
+                new RecordDescriptor(new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE,
+                        IntegerSerializerDeserializer.INSTANCE }), new HashSpillableTableFactory(
+                        new FieldHashPartitionComputerFactory(keyFields,
+                                new IBinaryHashFunctionFactory[] { PointableBinaryHashFunctionFactory
+                                        .of(UTF8StringPointable.FACTORY) }), 8), true, 0.5);
+    }
+
 }
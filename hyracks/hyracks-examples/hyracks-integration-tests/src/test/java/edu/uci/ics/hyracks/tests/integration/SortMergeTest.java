@@ -14,7 +14,15 @@
  */
 package edu.uci.ics.hyracks.tests.integration;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -30,12 +38,17 @@ import edu.uci.ics.hyracks.api.job.JobSpecification;
 import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
 import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryHashFunctionFactory;
 import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
 import edu.uci.ics.hyracks.dataflow.common.data.normalizers.UTF8StringNormalizedKeyComputerFactory;
 import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
 import edu.uci.ics.hyracks.dataflow.common.data.parsers.UTF8StringParserFactory;
 import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.range.IRangeMap;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.range.RangeMap;
+import edu.uci.ics.hyracks.dataflow.common.io.LZFrameCodecFactory;
 import edu.uci.ics.hyracks.dataflow.std.connectors.MToNPartitioningMergingConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNRangePartitioningConnectorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
 import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
@@ -98,6 +111,101 @@ public class SortMergeTest extends AbstractIntegrationTest {
 
     @Test
     public void sortMergeTest02() throws Exception {
+        runTest(createExternalSortJob());
+    }
+
+    @Test
+    public void sortMergeCompressedRunsTest() throws Exception {
+        JobSpecification spec = createExternalSortJob();
+        spec.setRunFileCodecFactory(LZFrameCodecFactory.INSTANCE);
+        runTest(spec);
+    }
+
+    @Test
+    public void sortRangePartitionedTest() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        File[] ordersFiles = new File[] { new File("data/tpch0.001/orders-part1.tbl"),
+                new File("data/tpch0.001/orders-part2.tbl") };
+        FileSplit[] ordersSplits = new FileSplit[] { new FileSplit(NC1_ID, new FileReference(ordersFiles[0])),
+                new FileSplit(NC2_ID, new FileReference(ordersFiles[1])) };
+        IFileSplitProvider ordersSplitProvider = new ConstantFileSplitProvider(ordersSplits);
+        RecordDescriptor ordersDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE });
+
+        FileScanOperatorDescriptor ordScanner = new FileScanOperatorDescriptor(spec, ordersSplitProvider,
+                new DelimitedDataTupleParserFactory(new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE }, '|'), ordersDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, ordScanner, NC1_ID, NC2_ID);
+
+        IBinaryComparatorFactory[] comparatorFactories = new IBinaryComparatorFactory[] {
+                PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY),
+                PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY) };
+        ExternalSortOperatorDescriptor sorter = new ExternalSortOperatorDescriptor(spec, 4, new int[] { 1, 0 },
+                comparatorFactories, ordersDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, sorter, NC1_ID, NC2_ID);
+
+        ResultSetId rsId = new ResultSetId(1);
+        spec.addResultSetId(rsId);
+
+        IOperatorDescriptor printer = new ResultWriterOperatorDescriptor(spec, rsId, true, false,
+                ResultSerializerFactoryProvider.INSTANCE.getResultSerializerFactoryProvider());
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, NC1_ID, NC2_ID);
+
+        // Customer keys below "5" go to the first partition, the others to the second one.
+        ArrayTupleBuilder splitBuilder = new ArrayTupleBuilder(1);
+        splitBuilder.addField(UTF8StringSerializerDeserializer.INSTANCE, "5");
+        IRangeMap rangeMap = new RangeMap(1, Arrays.copyOf(splitBuilder.getByteArray(), splitBuilder.getSize()),
+                splitBuilder.getFieldEndOffsets());
+
+        spec.connect(new MToNRangePartitioningConnectorDescriptor(spec, new int[] { 1 },
+                new IBinaryComparatorFactory[] { comparatorFactories[0] }, rangeMap), ordScanner, 0, sorter, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), sorter, 0, printer, 0);
+
+        // The partitions are read in order, so the result is sorted as a whole.
+        List<String[]> orders = new ArrayList<String[]>();
+        for (File ordersFile : ordersFiles) {
+            BufferedReader reader = new BufferedReader(new FileReader(ordersFile));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    orders.add(line.substring(0, line.length() - 1).split("\\|", -1));
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        Collections.sort(orders, new Comparator<String[]>() {
+            @Override
+            public int compare(String[] o1, String[] o2) {
+                int c = o1[1].compareTo(o2[1]);
+                return c != 0 ? c : o1[0].compareTo(o2[0]);
+            }
+        });
+        File expectedFile = createTempFile();
+        PrintWriter writer = new PrintWriter(expectedFile);
+        try {
+            for (String[] order : orders) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < order.length; ++i) {
+                    sb.append(i == 0 ? "" : ", ").append(order[i]);
+                }
+                writer.println(sb.toString().trim());
+            }
+        } finally {
+            writer.close();
+        }
+        runTestAndCompareResults(spec, new String[] { expectedFile.getAbsolutePath() });
+    }
+
+    private JobSpecification createExternalSortJob() throws Exception {
         JobSpecification spec = new JobSpecification();
 
         FileSplit[] ordersSplits = new FileSplit[] {
@@ -143,6 +251,6 @@ public class SortMergeTest extends AbstractIntegrationTest {
                                 PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY) },
                         new UTF8StringNormalizedKeyComputerFactory()), sorter, 0, printer, 0);
 
-        runTest(spec);
+        return spec;
     }
 }
\ No newline at end of file
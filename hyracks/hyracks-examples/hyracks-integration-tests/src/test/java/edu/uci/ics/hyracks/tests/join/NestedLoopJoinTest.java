@@ -0,0 +1,150 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.join;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.INullWriter;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.std.join.JoinComparatorFactory;
+import edu.uci.ics.hyracks.dataflow.std.join.NestedLoopJoin;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+import edu.uci.ics.hyracks.tests.util.NoopNullWriterFactory;
+
+public class NestedLoopJoinTest {
+    private static final int FRAME_SIZE = 4096;
+    private static final int MEM_FOR_JOIN = 5;
+    private static final int NUM_OUTER_TUPLES = 3000;
+    private static final int INNER_KEY_STRIDE = 2;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    private final RecordDescriptor outputDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    /**
+     * Counts the matches and the null-padded outer tuples.
+     */
+    private class CountingWriter implements IFrameWriter {
+        private final FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, outputDesc);
+        private int matchCount;
+        private int nullCount;
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                if (accessor.getFieldLength(i, 2) != 4) {
+                    ++nullCount;
+                } else {
+                    ++matchCount;
+                }
+            }
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    private interface ITupleSink {
+        public void frame(ByteBuffer frame) throws HyracksDataException;
+    }
+
+    private void generate(int numTuples, int stride, ITupleSink sink) throws HyracksDataException {
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int i = 0; i < numTuples; ++i) {
+            tb.reset();
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i * stride);
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                sink.frame(frame);
+                appender.reset(frame, true);
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        if (appender.getTupleCount() > 0) {
+            sink.frame(frame);
+        }
+    }
+
+    private CountingWriter leftOuterJoin(int numInnerTuples) throws HyracksDataException {
+        INullWriter[] nullWriters = new INullWriter[] { NoopNullWriterFactory.INSTANCE.createNullWriter(),
+                NoopNullWriterFactory.INSTANCE.createNullWriter() };
+        final NestedLoopJoin join = new NestedLoopJoin(ctx, new FrameTupleAccessor(FRAME_SIZE, recordDesc),
+                new FrameTupleAccessor(FRAME_SIZE, recordDesc), new JoinComparatorFactory(
+                        PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY), 0, 0)
+                        .createTuplePairComparator(ctx), MEM_FOR_JOIN, null, true, nullWriters);
+        generate(numInnerTuples, INNER_KEY_STRIDE, new ITupleSink() {
+            @Override
+            public void frame(ByteBuffer frame) throws HyracksDataException {
+                frame.clear();
+                join.cache(frame);
+            }
+        });
+        join.closeCache();
+        final CountingWriter writer = new CountingWriter();
+        generate(NUM_OUTER_TUPLES, 1, new ITupleSink() {
+            @Override
+            public void frame(ByteBuffer frame) throws HyracksDataException {
+                join.join(frame, writer);
+            }
+        });
+        join.closeJoin(writer);
+        return writer;
+    }
+
+    @Test
+    public void leftOuterJoinTest() throws Exception {
+        // The inner input spans several frames and the outer input several blocks.
+        int numInnerTuples = NUM_OUTER_TUPLES / INNER_KEY_STRIDE;
+        CountingWriter writer = leftOuterJoin(numInnerTuples);
+        Assert.assertEquals(numInnerTuples, writer.matchCount);
+        Assert.assertEquals(NUM_OUTER_TUPLES - numInnerTuples, writer.nullCount);
+
+        // Without inner tuples, every outer tuple is padded with nulls.
+        writer = leftOuterJoin(0);
+        Assert.assertEquals(0, writer.matchCount);
+        Assert.assertEquals(NUM_OUTER_TUPLES, writer.nullCount);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.join;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunction;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFamily;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFamily;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.MurmurHash3BinaryHashFunctionFamily;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFamily;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
+import edu.uci.ics.hyracks.dataflow.std.join.OptimizedHybridHashJoin;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class OptimizedHybridHashJoinTest {
+    private static final int FRAME_SIZE = 4096;
+    private static final int MEM_FOR_JOIN = 8;
+    private static final int NUM_PARTITIONS = 4;
+    private static final int NUM_BUILD_TUPLES = 5000;
+    private static final int KEY_STRIDE = 8;
+    private static final int FILTER_SEED = 1;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final int[] keys = new int[] { 0 };
+
+    /**
+     * Compares UTF8 strings ignoring the case of their characters.
+     */
+    private static class CaseInsensitiveComparator implements IBinaryComparator {
+        @Override
+        public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            int len1 = UTF8StringPointable.getUTFLength(b1, s1);
+            int len2 = UTF8StringPointable.getUTFLength(b2, s2);
+            int c1 = 0;
+            int c2 = 0;
+            while (c1 < len1 && c2 < len2) {
+                char ch1 = Character.toLowerCase(UTF8StringPointable.charAt(b1, s1 + 2 + c1));
+                char ch2 = Character.toLowerCase(UTF8StringPointable.charAt(b2, s2 + 2 + c2));
+                if (ch1 != ch2) {
+                    return ch1 - ch2;
+                }
+                c1 += UTF8StringPointable.charSize(b1, s1 + 2 + c1);
+                c2 += UTF8StringPointable.charSize(b2, s2 + 2 + c2);
+            }
+            return (len1 - c1) - (len2 - c2);
+        }
+    }
+
+    /**
+     * Hashes UTF8 strings consistently with {@link CaseInsensitiveComparator}.
+     */
+    private static class CaseInsensitiveHashFunctionFamily implements IBinaryHashFunctionFamily {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public IBinaryHashFunction createBinaryHashFunction(final int seed) {
+            return new IBinaryHashFunction() {
+                @Override
+                public int hash(byte[] bytes, int offset, int length) {
+                    int h = seed;
+                    int utflen = UTF8StringPointable.getUTFLength(bytes, offset);
+                    int c = 0;
+                    while (c < utflen) {
+                        h = 31 * h + Character.toLowerCase(UTF8StringPointable.charAt(bytes, offset + 2 + c));
+                        c += UTF8StringPointable.charSize(bytes, offset + 2 + c);
+                    }
+                    return h;
+                }
+            };
+        }
+    }
+
+    /**
+     * Counts the tuples of the frames it gets.
+     */
+    private class CountingWriter implements IFrameWriter {
+        private final FrameTupleAccessor accessor;
+        private int tupleCount;
+
+        public CountingWriter(RecordDescriptor recordDesc) {
+            accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            tupleCount += accessor.getTupleCount();
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    private interface ITupleSink {
+        public void frame(ByteBuffer frame) throws HyracksDataException;
+    }
+
+    /**
+     * Generates the tuples (key(i * stride), i) for i in [0, numTuples). The
+     * keys are integers, or strings with the given prefix if it is not null.
+     */
+    private void generate(int numTuples, int stride, String keyPrefix, ITupleSink sink) throws HyracksDataException {
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int i = 0; i < numTuples; ++i) {
+            tb.reset();
+            if (keyPrefix != null) {
+                tb.addField(UTF8StringSerializerDeserializer.INSTANCE, keyPrefix + i * stride);
+            } else {
+                tb.addField(IntegerSerializerDeserializer.INSTANCE, i * stride);
+            }
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                sink.frame(frame);
+                appender.reset(frame, true);
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        sink.frame(frame);
+    }
+
+    private int countMatchingTuples(RunFileReader reader, RecordDescriptor recordDesc) throws HyracksDataException {
+        int count = 0;
+        if (reader == null) {
+            return count;
+        }
+        FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+        ByteBuffer buffer = ctx.allocateFrame();
+        reader.open();
+        while (reader.nextFrame(buffer)) {
+            accessor.reset(buffer);
+            for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                int index = buffer.getInt(accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength()
+                        + accessor.getFieldStartOffset(i, 1));
+                if (index % KEY_STRIDE == 0) {
+                    ++count;
+                }
+            }
+            buffer.clear();
+        }
+        reader.close();
+        return count;
+    }
+
+    @Test
+    public void probeFilterTest() throws Exception {
+        runProbeFilterTest(null, null, PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY)
+                .createBinaryComparator(), MurmurHash3BinaryHashFunctionFamily.INSTANCE);
+    }
+
+    @Test
+    public void stringKeyProbeFilterTest() throws Exception {
+        runProbeFilterTest("key-", "key-", PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY)
+                .createBinaryComparator(), MurmurHash3BinaryHashFunctionFamily.INSTANCE);
+    }
+
+    /**
+     * The build and probe keys compare equal, but their bytes differ.
+     */
+    @Test
+    public void caseInsensitiveKeyProbeFilterTest() throws Exception {
+        runProbeFilterTest("key-", "KEY-", new CaseInsensitiveComparator(), new CaseInsensitiveHashFunctionFamily());
+    }
+
+    private void runProbeFilterTest(String buildKeyPrefix, String probeKeyPrefix, IBinaryComparator comparator,
+            IBinaryHashFunctionFamily hashFamily) throws Exception {
+        RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                buildKeyPrefix != null ? UTF8StringSerializerDeserializer.INSTANCE
+                        : IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+        IBinaryComparator[] comparators = new IBinaryComparator[] { comparator };
+        ITuplePartitionComputerFamily hpcf = new FieldHashPartitionComputerFamily(keys,
+                new IBinaryHashFunctionFamily[] { hashFamily });
+        final OptimizedHybridHashJoin join = new OptimizedHybridHashJoin(ctx, MEM_FOR_JOIN, NUM_PARTITIONS, "RelR",
+                "RelS", keys, keys, comparators, recordDesc, recordDesc, hpcf.createPartitioner(0),
+                hpcf.createPartitioner(0), null);
+        join.enableProbeFilter(hpcf.createPartitioner(FILTER_SEED), hpcf.createPartitioner(FILTER_SEED));
+
+        join.initBuild();
+        generate(NUM_BUILD_TUPLES, KEY_STRIDE, buildKeyPrefix, new ITupleSink() {
+            @Override
+            public void frame(ByteBuffer frame) throws HyracksDataException {
+                join.build(frame);
+            }
+        });
+        join.closeBuild();
+        BitSet spilled = join.getPartitionStatus();
+        Assert.assertTrue(spilled.cardinality() > 0);
+
+        // Only every KEY_STRIDE-th probe tuple has a match.
+        final CountingWriter writer = new CountingWriter(recordDesc);
+        join.initProbe();
+        generate(NUM_BUILD_TUPLES * KEY_STRIDE, 1, probeKeyPrefix, new ITupleSink() {
+            @Override
+            public void frame(ByteBuffer frame) throws HyracksDataException {
+                join.probe(frame, writer);
+            }
+        });
+        join.closeProbe(writer);
+
+        int spilledProbeTuples = 0;
+        int spilledMatches = 0;
+        for (int pid = spilled.nextSetBit(0); pid >= 0; pid = spilled.nextSetBit(pid + 1)) {
+            spilledProbeTuples += join.getProbePartitionSizeInTup(pid);
+            spilledMatches += countMatchingTuples(join.getProbeRFReader(pid), recordDesc);
+        }
+        // No probe tuple with a match may have been dropped.
+        Assert.assertEquals(NUM_BUILD_TUPLES, writer.tupleCount + spilledMatches);
+        // Most of the probe tuples without a match did not reach the run files.
+        int spilledNonMatches = spilledProbeTuples - spilledMatches;
+        Assert.assertTrue(join.getFilteredProbeTupleCount() > 4 * spilledNonMatches);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.join;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.INullWriter;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.std.join.SortMergeJoin;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+import edu.uci.ics.hyracks.tests.util.NoopNullWriterFactory;
+
+public class SortMergeJoinTest {
+    private static final int FRAME_SIZE = 4096;
+    private static final int MEM_FOR_JOIN = 5;
+    private static final int NUM_LEFT_KEYS = 2000;
+    private static final int HOT_KEY = 999;
+    private static final int NUM_HOT_DUPLICATES = 3000;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    private final RecordDescriptor outputDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    private final int[] keys = new int[] { 0 };
+
+    /**
+     * Checks the join results and counts the matches and the null-padded
+     * left tuples.
+     */
+    private class ResultCheckingWriter implements IFrameWriter {
+        private final FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, outputDesc);
+        private int lastLeftKey = Integer.MIN_VALUE;
+        private int matchCount;
+        private int nullCount;
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                int fieldStart = accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength();
+                int leftKey = buffer.getInt(fieldStart + accessor.getFieldStartOffset(i, 0));
+                // The output keeps the order of the left input.
+                Assert.assertTrue(leftKey >= lastLeftKey);
+                lastLeftKey = leftKey;
+                if (accessor.getFieldLength(i, 2) != 4) {
+                    ++nullCount;
+                } else {
+                    Assert.assertEquals(leftKey, buffer.getInt(fieldStart + accessor.getFieldStartOffset(i, 2)));
+                    ++matchCount;
+                }
+            }
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    private interface ITupleSink {
+        public void frame(ByteBuffer frame) throws HyracksDataException;
+    }
+
+    private void generate(List<Integer> sortedKeys, ITupleSink sink) throws HyracksDataException {
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int i = 0; i < sortedKeys.size(); ++i) {
+            tb.reset();
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, sortedKeys.get(i));
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                sink.frame(frame);
+                appender.reset(frame, true);
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        sink.frame(frame);
+    }
+
+    private ResultCheckingWriter join(List<Integer> leftKeys, List<Integer> rightKeys, boolean isLeftOuter)
+            throws HyracksDataException {
+        IBinaryComparator[] comparators = new IBinaryComparator[] { PointableBinaryComparatorFactory.of(
+                IntegerPointable.FACTORY).createBinaryComparator() };
+        INullWriter[] nullWriters = null;
+        if (isLeftOuter) {
+            nullWriters = new INullWriter[] { NoopNullWriterFactory.INSTANCE.createNullWriter(),
+                    NoopNullWriterFactory.INSTANCE.createNullWriter() };
+        }
+        final SortMergeJoin join = new SortMergeJoin(ctx, recordDesc, recordDesc, keys, keys, comparators,
+                MEM_FOR_JOIN, null, isLeftOuter, nullWriters);
+        generate(rightKeys, new ITupleSink() {
+            @Override
+            public void frame(ByteBuffer frame) throws HyracksDataException {
+                join.cache(frame);
+            }
+        });
+        join.closeCache();
+        final ResultCheckingWriter writer = new ResultCheckingWriter();
+        generate(leftKeys, new ITupleSink() {
+            @Override
+            public void frame(ByteBuffer frame) throws HyracksDataException {
+                join.join(frame, writer);
+            }
+        });
+        join.closeJoin(writer);
+        return writer;
+    }
+
+    private static int count(List<Integer> list, int key) {
+        return Collections.frequency(list, key);
+    }
+
+    @Test
+    public void mergeJoinTest() throws Exception {
+        // Every left key appears twice, the right side has every third key and a group that does not fit in memory.
+        List<Integer> leftKeys = new ArrayList<Integer>();
+        for (int i = 0; i < 2 * NUM_LEFT_KEYS; ++i) {
+            leftKeys.add(i / 2);
+        }
+        List<Integer> rightKeys = new ArrayList<Integer>();
+        for (int i = 0; i < NUM_LEFT_KEYS + 500; i += 3) {
+            rightKeys.add(i);
+        }
+        for (int i = 0; i < NUM_HOT_DUPLICATES; ++i) {
+            rightKeys.add(HOT_KEY);
+        }
+        Collections.sort(rightKeys);
+
+        int expectedMatches = 0;
+        int expectedNulls = 0;
+        for (int key = 0; key < NUM_LEFT_KEYS; ++key) {
+            int rightCount = count(rightKeys, key);
+            expectedMatches += 2 * rightCount;
+            if (rightCount == 0) {
+                expectedNulls += 2;
+            }
+        }
+
+        ResultCheckingWriter inner = join(leftKeys, rightKeys, false);
+        Assert.assertEquals(expectedMatches, inner.matchCount);
+        Assert.assertEquals(0, inner.nullCount);
+
+        ResultCheckingWriter leftOuter = join(leftKeys, rightKeys, true);
+        Assert.assertEquals(expectedMatches, leftOuter.matchCount);
+        Assert.assertEquals(expectedNulls, leftOuter.nullCount);
+    }
+}
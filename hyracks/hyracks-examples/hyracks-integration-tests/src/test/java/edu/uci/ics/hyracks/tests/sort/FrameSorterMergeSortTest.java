@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.normalizers.IntegerNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.sort.FrameSorterMergeSort;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class FrameSorterMergeSortTest {
+    private static final int FRAME_SIZE = 32768;
+    private static final int NUM_TUPLES = 50000;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    /**
+     * Collects the (key, sequence number) pairs of the sorted tuples.
+     */
+    private class CollectingWriter implements IFrameWriter {
+        private final FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+        private final List<int[]> tuples = new ArrayList<int[]>();
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                int fieldStart = accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength();
+                tuples.add(new int[] { buffer.getInt(fieldStart + accessor.getFieldStartOffset(i, 0)),
+                        buffer.getInt(fieldStart + accessor.getFieldStartOffset(i, 1)) });
+            }
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    private List<int[]> sort(int sortThreads, boolean normalize) throws HyracksDataException {
+        FrameSorterMergeSort sorter = new FrameSorterMergeSort(ctx, new int[] { 0 },
+                normalize ? new IntegerNormalizedKeyComputerFactory() : null,
+                new IBinaryComparatorFactory[] { PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY) },
+                recordDesc, sortThreads);
+        Random rnd = new Random(17);
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int i = 0; i < NUM_TUPLES; ++i) {
+            tb.reset();
+            // Few distinct keys, so that stability matters.
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, rnd.nextInt(1000) - 500);
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                sorter.insertFrame(frame);
+                appender.reset(frame, true);
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        sorter.insertFrame(frame);
+        sorter.sortFrames();
+        CollectingWriter writer = new CollectingWriter();
+        sorter.flushFrames(writer);
+        sorter.close();
+        return writer.tuples;
+    }
+
+    @Test
+    public void parallelSortTest() throws Exception {
+        List<int[]> expected = sort(1, true);
+        Assert.assertEquals(NUM_TUPLES, expected.size());
+        for (int i = 1; i < expected.size(); ++i) {
+            int[] prev = expected.get(i - 1);
+            int[] cur = expected.get(i);
+            Assert.assertTrue(prev[0] < cur[0] || (prev[0] == cur[0] && prev[1] < cur[1]));
+        }
+        for (int sortThreads : new int[] { 2, 3, 8 }) {
+            for (boolean normalize : new boolean[] { true, false }) {
+                List<int[]> actual = sort(sortThreads, normalize);
+                Assert.assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); ++i) {
+                    Assert.assertArrayEquals(expected.get(i), actual.get(i));
+                }
+            }
+        }
+    }
+}
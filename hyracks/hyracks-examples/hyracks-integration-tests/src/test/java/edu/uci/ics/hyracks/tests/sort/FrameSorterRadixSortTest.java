@@ -0,0 +1,182 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.DoublePointable;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.data.std.primitive.LongPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.DoubleSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.Integer64SerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.normalizers.DoubleNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.normalizers.Integer64NormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.normalizers.IntegerNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.normalizers.UTF8StringNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.sort.FrameSorterMergeSort;
+import edu.uci.ics.hyracks.dataflow.std.sort.FrameSorterRadixSort;
+import edu.uci.ics.hyracks.dataflow.std.sort.IFrameSorter;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class FrameSorterRadixSortTest {
+    private static final int FRAME_SIZE = 32768;
+    private static final int NUM_TUPLES = 20000;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    /**
+     * Collects the sequence numbers of the sorted tuples, which are kept in
+     * their second field.
+     */
+    private static class CollectingWriter implements IFrameWriter {
+        private final FrameTupleAccessor accessor;
+        private final List<Integer> sequence = new ArrayList<Integer>();
+
+        CollectingWriter(RecordDescriptor recordDesc) {
+            accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                int fieldStart = accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength();
+                sequence.add(buffer.getInt(fieldStart + accessor.getFieldStartOffset(i, 1)));
+            }
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<Integer> sort(IFrameSorter sorter, RecordDescriptor recordDesc, List<?> values)
+            throws HyracksDataException {
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int i = 0; i < values.size(); ++i) {
+            tb.reset();
+            tb.addField((ISerializerDeserializer) recordDesc.getFields()[0], values.get(i));
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                sorter.insertFrame(frame);
+                appender.reset(frame, true);
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        sorter.insertFrame(frame);
+        sorter.sortFrames();
+        CollectingWriter writer = new CollectingWriter(recordDesc);
+        sorter.flushFrames(writer);
+        sorter.close();
+        return writer.sequence;
+    }
+
+    /**
+     * Checks that the radix sort orders the values exactly like the stable
+     * merge sort with the comparator does.
+     */
+    private void checkSort(ISerializerDeserializer<?> serde, IBinaryComparatorFactory comparatorFactory,
+            INormalizedKeyComputerFactory nkcf, List<?> values) throws HyracksDataException {
+        RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] { serde,
+                IntegerSerializerDeserializer.INSTANCE });
+        int[] sortFields = new int[] { 0 };
+        Assert.assertTrue(FrameSorterRadixSort.canSort(sortFields, nkcf));
+        List<Integer> expected = sort(new FrameSorterMergeSort(ctx, sortFields, null,
+                new IBinaryComparatorFactory[] { comparatorFactory }, recordDesc), recordDesc, values);
+        List<Integer> actual = sort(new FrameSorterRadixSort(ctx, sortFields, nkcf, recordDesc), recordDesc, values);
+        Assert.assertEquals(values.size(), actual.size());
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void integerTest() throws Exception {
+        Random rnd = new Random(3);
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < NUM_TUPLES; ++i) {
+            values.add(i % 3 == 0 ? rnd.nextInt(100) - 50 : rnd.nextInt());
+        }
+        values.add(Integer.MIN_VALUE);
+        values.add(Integer.MAX_VALUE);
+        checkSort(IntegerSerializerDeserializer.INSTANCE, PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY),
+                new IntegerNormalizedKeyComputerFactory(), values);
+    }
+
+    @Test
+    public void longTest() throws Exception {
+        Random rnd = new Random(4);
+        List<Long> values = new ArrayList<Long>();
+        for (int i = 0; i < NUM_TUPLES; ++i) {
+            values.add(i % 3 == 0 ? rnd.nextInt(100) - 50 : rnd.nextLong());
+        }
+        values.add(Long.MIN_VALUE);
+        values.add(Long.MAX_VALUE);
+        checkSort(Integer64SerializerDeserializer.INSTANCE, PointableBinaryComparatorFactory.of(LongPointable.FACTORY),
+                new Integer64NormalizedKeyComputerFactory(), values);
+    }
+
+    @Test
+    public void doubleTest() throws Exception {
+        Random rnd = new Random(5);
+        List<Double> values = new ArrayList<Double>();
+        for (int i = 0; i < NUM_TUPLES; ++i) {
+            values.add(i % 3 == 0 ? (double) (rnd.nextInt(100) - 50) : rnd.nextGaussian() * 1e6);
+        }
+        values.add(0.0);
+        values.add(-0.0);
+        values.add(Double.NEGATIVE_INFINITY);
+        values.add(Double.POSITIVE_INFINITY);
+        values.add(-Double.MIN_VALUE);
+        values.add(Double.MIN_VALUE);
+        checkSort(DoubleSerializerDeserializer.INSTANCE, PointableBinaryComparatorFactory.of(DoublePointable.FACTORY),
+                new DoubleNormalizedKeyComputerFactory(), values);
+    }
+
+    @Test
+    public void notNormalizableTest() throws Exception {
+        Assert.assertFalse(FrameSorterRadixSort.canSort(new int[] { 0 }, new UTF8StringNormalizedKeyComputerFactory()));
+        Assert.assertFalse(FrameSorterRadixSort.canSort(new int[] { 0, 1 }, new IntegerNormalizedKeyComputerFactory()));
+        Assert.assertFalse(FrameSorterRadixSort.canSort(new int[] { 0 }, null));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameReader;
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.normalizers.IntegerNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.sort.RunMergingFrameReader;
+import edu.uci.ics.hyracks.dataflow.std.sort.TopKSelector;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class TopKTest {
+    private static final int FRAME_SIZE = 32768;
+    private static final int NUM_TUPLES = 50000;
+    private static final int K = 1000;
+
+    private final IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+
+    private final RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    private final IBinaryComparatorFactory[] comparatorFactories = new IBinaryComparatorFactory[] { PointableBinaryComparatorFactory
+            .of(IntegerPointable.FACTORY) };
+
+    /**
+     * Collects the keys of the tuples it gets.
+     */
+    private class CollectingWriter implements IFrameWriter {
+        private final FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+        private final List<Integer> keys = new ArrayList<Integer>();
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                keys.add(buffer.getInt(accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength()
+                        + accessor.getFieldStartOffset(i, 0)));
+            }
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    /**
+     * Hands out a list of frames, like a run would.
+     */
+    private class FrameListReader implements IFrameReader {
+        private final List<ByteBuffer> frames;
+        private int next;
+
+        FrameListReader(List<ByteBuffer> frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+            next = 0;
+        }
+
+        @Override
+        public boolean nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            if (next >= frames.size()) {
+                return false;
+            }
+            ByteBuffer frame = frames.get(next++);
+            System.arraycopy(frame.array(), 0, buffer.array(), 0, FRAME_SIZE);
+            return true;
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+
+    private List<ByteBuffer> toFrames(int[] keys) throws HyracksDataException {
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int i = 0; i < keys.length; ++i) {
+            tb.reset();
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, keys[i]);
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, i);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                frames.add(frame);
+                frame = ctx.allocateFrame();
+                appender.reset(frame, true);
+                Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+            }
+        }
+        frames.add(frame);
+        return frames;
+    }
+
+    private int[] randomKeys(Random rnd, int n) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; ++i) {
+            keys[i] = rnd.nextInt(NUM_TUPLES) - NUM_TUPLES / 2;
+        }
+        return keys;
+    }
+
+    @Test
+    public void topKSelectorTest() throws Exception {
+        int[] keys = randomKeys(new Random(17), NUM_TUPLES);
+        TopKSelector selector = new TopKSelector(ctx, new int[] { 0 }, new IntegerNormalizedKeyComputerFactory(),
+                comparatorFactories, recordDesc, 4, K);
+        selector.open();
+        for (ByteBuffer frame : toFrames(keys)) {
+            selector.insert(frame);
+        }
+        Assert.assertEquals(K, selector.getTupleCount());
+        CollectingWriter writer = new CollectingWriter();
+        selector.flush(writer);
+        selector.close();
+
+        Arrays.sort(keys);
+        Assert.assertEquals(K, writer.keys.size());
+        for (int i = 0; i < K; ++i) {
+            Assert.assertEquals(keys[i], writer.keys.get(i).intValue());
+        }
+    }
+
+    @Test(expected = HyracksDataException.class)
+    public void topKSelectorOutOfMemoryTest() throws Exception {
+        TopKSelector selector = new TopKSelector(ctx, new int[] { 0 }, null, comparatorFactories, recordDesc, 1,
+                NUM_TUPLES);
+        selector.open();
+        for (ByteBuffer frame : toFrames(randomKeys(new Random(17), NUM_TUPLES))) {
+            selector.insert(frame);
+        }
+    }
+
+    @Test
+    public void limitedMergeTest() throws Exception {
+        Random rnd = new Random(17);
+        int nRuns = 3;
+        IFrameReader[] runs = new IFrameReader[nRuns];
+        List<ByteBuffer> inFrames = new ArrayList<ByteBuffer>();
+        int[] allKeys = new int[0];
+        for (int r = 0; r < nRuns; ++r) {
+            int[] keys = randomKeys(rnd, NUM_TUPLES / nRuns);
+            Arrays.sort(keys);
+            runs[r] = new FrameListReader(toFrames(keys));
+            inFrames.add(ctx.allocateFrame());
+            int[] merged = Arrays.copyOf(allKeys, allKeys.length + keys.length);
+            System.arraycopy(keys, 0, merged, allKeys.length, keys.length);
+            allKeys = merged;
+        }
+        Arrays.sort(allKeys);
+
+        RunMergingFrameReader merger = new RunMergingFrameReader(ctx, runs, inFrames, new int[] { 0 },
+                new IBinaryComparator[] { comparatorFactories[0].createBinaryComparator() }, null, recordDesc, K);
+        CollectingWriter writer = new CollectingWriter();
+        ByteBuffer outFrame = ctx.allocateFrame();
+        merger.open();
+        while (merger.nextFrame(outFrame)) {
+            writer.nextFrame(outFrame);
+        }
+        Assert.assertTrue(merger.isOutputLimitReached());
+        merger.close();
+
+        Assert.assertEquals(K, writer.keys.size());
+        for (int i = 0; i < K; ++i) {
+            Assert.assertEquals(allKeys[i], writer.keys.get(i).intValue());
+        }
+    }
+}
@@ -19,6 +19,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -30,12 +32,19 @@ import edu.uci.ics.hyracks.net.exceptions.NetException;
 
 /**
  * Handle to a channel that represents a logical full-duplex communication end-point.
+ * On a compressed channel, every buffer of at least {@link #MIN_COMPRESSION_SIZE} bytes is
+ * compressed by the thread that hands it to the write interface, and goes out in a single
+ * COMPRESSED_DATA command once the remote side has granted credits for its uncompressed size.
+ * The remote side decompresses it into its read buffers, so the readers see the same byte
+ * stream as on an uncompressed channel.
  * 
  * @author vinayakb
  */
 public class ChannelControlBlock {
     private static final Logger LOGGER = Logger.getLogger(ChannelControlBlock.class.getName());
 
+    static final int MIN_COMPRESSION_SIZE = 512;
+
     private final ChannelSet cSet;
 
     private final int channelId;
@@ -52,9 +61,14 @@ public class ChannelControlBlock {
 
     private final AtomicBoolean remoteCloseAck;
 
-    ChannelControlBlock(ChannelSet cSet, int channelId) {
+    private final MuxDemuxPerformanceCounters perfCounters;
+
+    private volatile boolean compressed;
+
+    ChannelControlBlock(ChannelSet cSet, int channelId, MuxDemuxPerformanceCounters perfCounters) {
         this.cSet = cSet;
         this.channelId = channelId;
+        this.perfCounters = perfCounters;
         this.ri = new ReadInterface();
         this.wi = new WriteInterface();
         localClose = new AtomicBoolean();
@@ -67,6 +81,17 @@ public class ChannelControlBlock {
         return channelId;
     }
 
+    void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * @return true if the buffers written to this channel are compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
     /**
      * Get the read inderface of this channel.
      * 
@@ -110,6 +135,14 @@ public class ChannelControlBlock {
 
         private IBufferFactory bufferFactory;
 
+        private byte[] compressedData;
+
+        private int compressedLength;
+
+        private int compressedReadSize;
+
+        private byte[] uncompressedData;
+
         ReadInterface() {
             riEmptyStack = new ArrayDeque<ByteBuffer>();
             credits = 0;
@@ -170,6 +203,52 @@ public class ChannelControlBlock {
             }
         }
 
+        void startCompressedRead(int size) {
+            if (compressedData == null || compressedData.length < size) {
+                compressedData = new byte[size];
+            }
+            compressedLength = size;
+            compressedReadSize = 0;
+        }
+
+        int readCompressed(SocketChannel sc, int size) throws IOException, NetException {
+            if (size > 0) {
+                ByteBuffer bb = ByteBuffer.wrap(compressedData, compressedReadSize, size);
+                int len = sc.read(bb);
+                if (len < 0) {
+                    throw new NetException("Socket Closed");
+                }
+                compressedReadSize += len;
+                size -= len;
+            }
+            if (size <= 0) {
+                long startTime = System.nanoTime();
+                int length = FrameCompressor.getUncompressedLength(compressedData, 0);
+                if (uncompressedData == null || uncompressedData.length < length) {
+                    uncompressedData = new byte[length];
+                }
+                FrameCompressor.decompress(compressedData, 0, compressedLength, uncompressedData, 0);
+                perfCounters.addDecompression(System.nanoTime() - startTime);
+                int pos = 0;
+                while (pos < length) {
+                    if (currentReadBuffer == null) {
+                        currentReadBuffer = riEmptyStack.poll();
+                        if (currentReadBuffer == null) {
+                            currentReadBuffer = bufferFactory.createBuffer();
+                        }
+                        assert currentReadBuffer != null;
+                    }
+                    int n = Math.min(length - pos, currentReadBuffer.remaining());
+                    currentReadBuffer.put(uncompressedData, pos, n);
+                    pos += n;
+                    if (currentReadBuffer.remaining() <= 0) {
+                        flush();
+                    }
+                }
+            }
+            return size;
+        }
+
         void flush() {
             if (currentReadBuffer != null) {
                 currentReadBuffer.flip();
@@ -182,6 +261,12 @@ public class ChannelControlBlock {
     private final class WriteInterface implements IChannelWriteInterface {
         private final Queue<ByteBuffer> wiFullQueue;
 
+        private final Map<ByteBuffer, ByteBuffer> compressedImages;
+
+        private final Deque<ByteBuffer> compressedBufferStack;
+
+        private final FrameCompressor compressor;
+
         private boolean channelWritabilityState;
 
         private IBufferFactory bufferFactory;
@@ -189,8 +274,15 @@ public class ChannelControlBlock {
         private final ICloseableBufferAcceptor fba = new ICloseableBufferAcceptor() {
             @Override
             public void accept(ByteBuffer buffer) {
+                ByteBuffer compressedImage = null;
+                if (compressed && buffer.remaining() >= MIN_COMPRESSION_SIZE) {
+                    compressedImage = compress(buffer);
+                }
                 synchronized (ChannelControlBlock.this) {
                     wiFullQueue.add(buffer);
+                    if (compressedImage != null) {
+                        compressedImages.put(buffer, compressedImage);
+                    }
                     adjustChannelWritability();
                 }
             }
@@ -232,8 +324,13 @@ public class ChannelControlBlock {
 
         private ByteBuffer currentWriteBuffer;
 
+        private ByteBuffer currentCompressedBuffer;
+
         WriteInterface() {
             wiFullQueue = new ArrayDeque<ByteBuffer>();
+            compressedImages = new IdentityHashMap<ByteBuffer, ByteBuffer>();
+            compressedBufferStack = new ArrayDeque<ByteBuffer>();
+            compressor = new FrameCompressor();
             credits = 0;
             eos = false;
             eosSent = false;
@@ -267,11 +364,71 @@ public class ChannelControlBlock {
             return fba;
         }
 
+        /**
+         * Compresses the remaining bytes of the buffer without changing its position.
+         * 
+         * @return the compressed image of the buffer, or null if it did not shrink
+         */
+        private ByteBuffer compress(ByteBuffer buffer) {
+            long startTime = System.nanoTime();
+            int length = buffer.remaining();
+            ByteBuffer image;
+            synchronized (ChannelControlBlock.this) {
+                image = compressedBufferStack.poll();
+            }
+            int maxLength = FrameCompressor.getMaxCompressedLength(length);
+            if (image == null || image.capacity() < maxLength + length) {
+                // The tail of the image doubles as the staging area for direct buffers.
+                image = ByteBuffer.allocate(maxLength + length);
+            }
+            byte[] src;
+            int srcOffset;
+            if (buffer.hasArray()) {
+                src = buffer.array();
+                srcOffset = buffer.arrayOffset() + buffer.position();
+            } else {
+                src = image.array();
+                srcOffset = maxLength;
+                buffer.duplicate().get(src, srcOffset, length);
+            }
+            int compressedLength;
+            synchronized (compressor) {
+                compressedLength = compressor.compress(src, srcOffset, length, image.array(), 0);
+            }
+            if (compressedLength >= length) {
+                perfCounters.addCompression(length, length, System.nanoTime() - startTime);
+                synchronized (ChannelControlBlock.this) {
+                    compressedBufferStack.push(image);
+                }
+                return null;
+            }
+            image.clear();
+            image.limit(compressedLength);
+            perfCounters.addCompression(length, compressedLength, System.nanoTime() - startTime);
+            return image;
+        }
+
         void write(MultiplexedConnection.WriterState writerState) throws NetException {
             if (currentWriteBuffer == null) {
                 currentWriteBuffer = wiFullQueue.poll();
+                if (currentWriteBuffer != null) {
+                    currentCompressedBuffer = compressedImages.remove(currentWriteBuffer);
+                }
             }
-            if (currentWriteBuffer != null) {
+            if (currentCompressedBuffer != null) {
+                // A compressed buffer can only be sent once there is room for all of it on the other side.
+                int size = currentWriteBuffer.remaining();
+                if (credits >= size) {
+                    credits -= size;
+                    writerState.command.setChannelId(channelId);
+                    writerState.command.setCommandType(MuxDemuxCommand.CommandType.COMPRESSED_DATA);
+                    writerState.command.setData(currentCompressedBuffer.remaining());
+                    writerState.reset(currentCompressedBuffer, currentCompressedBuffer.remaining(),
+                            ChannelControlBlock.this);
+                } else {
+                    adjustChannelWritability();
+                }
+            } else if (currentWriteBuffer != null) {
                 int size = Math.min(currentWriteBuffer.remaining(), credits);
                 if (size > 0) {
                     credits -= size;
@@ -283,12 +440,15 @@ public class ChannelControlBlock {
                     adjustChannelWritability();
                 }
             } else if (ecode >= 0 && !ecodeSent) {
-                writerState.command.setChannelId(channelId);
-                writerState.command.setCommandType(MuxDemuxCommand.CommandType.ERROR);
-                writerState.command.setData(ecode);
-                writerState.reset(null, 0, null);
                 ecodeSent = true;
-                localClose.set(true);
+                //Once both ends have closed, the other end may have freed the channel, so the error is not sent
+                if (!localClose.get() || !remoteClose.get()) {
+                    writerState.command.setChannelId(channelId);
+                    writerState.command.setCommandType(MuxDemuxCommand.CommandType.ERROR);
+                    writerState.command.setData(ecode);
+                    writerState.reset(null, 0, null);
+                    localClose.set(true);
+                }
                 adjustChannelWritability();
             } else if (eos && !eosSent) {
                 writerState.command.setChannelId(channelId);
@@ -302,6 +462,12 @@ public class ChannelControlBlock {
         }
 
         void writeComplete() {
+            if (currentCompressedBuffer != null) {
+                currentCompressedBuffer.clear();
+                compressedBufferStack.push(currentCompressedBuffer);
+                currentCompressedBuffer = null;
+                currentWriteBuffer.position(currentWriteBuffer.limit());
+            }
             if (currentWriteBuffer.remaining() <= 0) {
                 currentWriteBuffer.clear();
                 eba.accept(currentWriteBuffer);
@@ -311,10 +477,16 @@ public class ChannelControlBlock {
         }
 
         private boolean computeWritability() {
-            boolean writableDataPresent = currentWriteBuffer != null || !wiFullQueue.isEmpty();
-            if (writableDataPresent) {
+            if (currentCompressedBuffer != null) {
+                return credits >= currentWriteBuffer.remaining();
+            }
+            if (currentWriteBuffer != null) {
                 return credits > 0;
             }
+            ByteBuffer nextBuffer = wiFullQueue.peek();
+            if (nextBuffer != null) {
+                return compressedImages.containsKey(nextBuffer) ? credits >= nextBuffer.remaining() : credits > 0;
+            }
             if (eos && !eosSent) {
                 return true;
             }
@@ -351,6 +523,14 @@ public class ChannelControlBlock {
         return ri.read(sc, size);
     }
 
+    synchronized void startCompressedRead(int size) {
+        ri.startCompressedRead(size);
+    }
+
+    synchronized int readCompressed(SocketChannel sc, int size) throws IOException, NetException {
+        return ri.readCompressed(sc, size);
+    }
+
     int getReadCredits() {
         return ri.credits;
     }
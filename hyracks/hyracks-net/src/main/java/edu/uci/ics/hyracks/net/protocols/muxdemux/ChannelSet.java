@@ -220,7 +220,7 @@ public class ChannelSet {
         }
         assert idx < ccbArray.length;
         assert !allocationBitmap.get(idx);
-        ChannelControlBlock channel = new ChannelControlBlock(this, idx);
+        ChannelControlBlock channel = new ChannelControlBlock(this, idx, mConn.getPerformanceCounters());
         ccbArray[idx] = channel;
         allocationBitmap.set(idx);
         ++openChannelCount;
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.net.protocols.muxdemux;
+
+import java.util.Arrays;
+
+import edu.uci.ics.hyracks.net.exceptions.NetException;
+
+/**
+ * A fast LZ77 block compressor in the spirit of LZ4, used to compress the
+ * buffers sent over compressed channels.
+ * A compressed block starts with the uncompressed length as a 4 byte integer,
+ * followed by sequences of a token byte (literal count in the high nibble,
+ * match length - 4 in the low nibble), the extra literal count bytes, the
+ * literals, a 2 byte little endian match offset and the extra match length
+ * bytes. The last sequence has literals only.
+ * Instances keep a hash table between calls and are not thread-safe.
+ */
+public class FrameCompressor {
+    private static final int HEADER_SIZE = 4;
+
+    private static final int MIN_MATCH = 4;
+
+    private static final int LAST_LITERALS = 5;
+
+    private static final int MATCH_FIND_LIMIT = 12;
+
+    private static final int MAX_OFFSET = 0xffff;
+
+    private static final int HASH_LOG = 12;
+
+    private static final int SKIP_TRIGGER = 6;
+
+    private final int[] hashTable;
+
+    public FrameCompressor() {
+        hashTable = new int[1 << HASH_LOG];
+    }
+
+    /**
+     * @return the largest possible size of the compressed image of length bytes
+     */
+    public static int getMaxCompressedLength(int length) {
+        return HEADER_SIZE + length + length / 255 + 16;
+    }
+
+    /**
+     * Reads the uncompressed length out of a compressed block.
+     */
+    public static int getUncompressedLength(byte[] src, int srcOffset) {
+        return readInt(src, srcOffset);
+    }
+
+    /**
+     * Compresses length bytes of src starting at srcOffset into dst.
+     *
+     * @return the size of the compressed block
+     */
+    public int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        int dp = dstOffset;
+        writeInt(dst, dp, length);
+        dp += HEADER_SIZE;
+        int srcEnd = srcOffset + length;
+        int anchor = srcOffset;
+        if (length >= MATCH_FIND_LIMIT + 1) {
+            Arrays.fill(hashTable, -1);
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int findLimit = srcEnd - MATCH_FIND_LIMIT;
+            int sp = srcOffset;
+            int misses = 0;
+            while (sp < findLimit) {
+                int seq = readInt(src, sp);
+                int h = hash(seq);
+                int ref = hashTable[h];
+                hashTable[h] = sp;
+                if (ref < 0 || sp - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+                    // Speed through incompressible data.
+                    sp += 1 + (misses++ >>> SKIP_TRIGGER);
+                    continue;
+                }
+                misses = 0;
+                int matchLength = MIN_MATCH;
+                while (sp + matchLength < matchLimit && src[ref + matchLength] == src[sp + matchLength]) {
+                    ++matchLength;
+                }
+                while (sp > anchor && ref > srcOffset && src[sp - 1] == src[ref - 1]) {
+                    --sp;
+                    --ref;
+                    ++matchLength;
+                }
+                dp = writeSequence(src, anchor, sp - anchor, sp - ref, matchLength, dst, dp);
+                sp += matchLength;
+                anchor = sp;
+            }
+        }
+        dp = writeLiterals(src, anchor, srcEnd - anchor, dst, dp, 0);
+        return dp - dstOffset;
+    }
+
+    /**
+     * Decompresses the block of compressedLength bytes in src starting at
+     * srcOffset into dst.
+     *
+     * @return the uncompressed length
+     * @throws NetException
+     *             if the block is corrupt or does not fit into dst
+     */
+    public static int decompress(byte[] src, int srcOffset, int compressedLength, byte[] dst, int dstOffset)
+            throws NetException {
+        if (compressedLength < HEADER_SIZE + 1) {
+            throw new NetException("Compressed block too short: " + compressedLength);
+        }
+        int length = readInt(src, srcOffset);
+        int srcEnd = srcOffset + compressedLength;
+        int dstEnd = dstOffset + length;
+        if (length < 0 || dstEnd > dst.length) {
+            throw new NetException("Uncompressed length " + length + " does not fit the destination buffer");
+        }
+        int sp = srcOffset + HEADER_SIZE;
+        int dp = dstOffset;
+        try {
+            while (true) {
+                int token = src[sp++] & 0xff;
+                int literals = token >>> 4;
+                if (literals == 0xf) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xff;
+                        literals += b;
+                    } while (b == 0xff);
+                }
+                if (sp + literals > srcEnd || dp + literals > dstEnd) {
+                    throw new NetException("Corrupt compressed block");
+                }
+                System.arraycopy(src, sp, dst, dp, literals);
+                sp += literals;
+                dp += literals;
+                if (sp == srcEnd) {
+                    break;
+                }
+                int offset = (src[sp] & 0xff) | ((src[sp + 1] & 0xff) << 8);
+                sp += 2;
+                int matchLength = token & 0xf;
+                if (matchLength == 0xf) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xff;
+                        matchLength += b;
+                    } while (b == 0xff);
+                }
+                matchLength += MIN_MATCH;
+                int ref = dp - offset;
+                if (offset == 0 || ref < dstOffset || dp + matchLength > dstEnd) {
+                    throw new NetException("Corrupt compressed block");
+                }
+                // The match may overlap the bytes it produces, so copy byte by byte.
+                for (int i = 0; i < matchLength; ++i) {
+                    dst[dp + i] = dst[ref + i];
+                }
+                dp += matchLength;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new NetException("Corrupt compressed block");
+        }
+        if (dp != dstEnd) {
+            throw new NetException("Compressed block decoded to " + (dp - dstOffset) + " bytes instead of " + length);
+        }
+        return length;
+    }
+
+    private static int writeSequence(byte[] src, int literalOffset, int literals, int offset, int matchLength,
+            byte[] dst, int dp) {
+        int matchCode = matchLength - MIN_MATCH;
+        dp = writeLiterals(src, literalOffset, literals, dst, dp, Math.min(matchCode, 0xf));
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+        if (matchCode >= 0xf) {
+            dp = writeLength(matchCode - 0xf, dst, dp);
+        }
+        return dp;
+    }
+
+    private static int writeLiterals(byte[] src, int literalOffset, int literals, byte[] dst, int dp, int matchNibble) {
+        dst[dp++] = (byte) ((Math.min(literals, 0xf) << 4) | matchNibble);
+        if (literals >= 0xf) {
+            dp = writeLength(literals - 0xf, dst, dp);
+        }
+        System.arraycopy(src, literalOffset, dst, dp, literals);
+        return dp + literals;
+    }
+
+    private static int writeLength(int length, byte[] dst, int dp) {
+        while (length >= 0xff) {
+            dst[dp++] = (byte) 0xff;
+            length -= 0xff;
+        }
+        dst[dp++] = (byte) length;
+        return dp;
+    }
+
+    private static int hash(int seq) {
+        return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 24) | ((b[offset + 1] & 0xff) << 16) | ((b[offset + 2] & 0xff) << 8)
+                | (b[offset + 3] & 0xff);
+    }
+
+    private static void writeInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+}
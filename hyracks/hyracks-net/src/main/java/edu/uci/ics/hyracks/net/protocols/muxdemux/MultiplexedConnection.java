@@ -142,17 +142,35 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
      *             - A network failure occurred.
      */
     public ChannelControlBlock openChannel() throws NetException {
+        return openChannel(false);
+    }
+
+    /**
+     * Open a channel to the other side.
+     * 
+     * @param compressed
+     *            - true if the buffers sent in both directions on the channel should be compressed.
+     * @return
+     * @throws NetException
+     *             - A network failure occurred.
+     */
+    public ChannelControlBlock openChannel(boolean compressed) throws NetException {
         synchronized (this) {
             if (connectionFailure) {
                 throw new NetException(error);
             }
         }
         ChannelControlBlock channel = cSet.allocateChannel();
+        channel.setCompressed(compressed);
         int channelId = channel.getChannelId();
         cSet.initiateChannelSyn(channelId);
         return channel;
     }
 
+    MuxDemuxPerformanceCounters getPerformanceCounters() {
+        return muxDemux.getPerformanceCounters();
+    }
+
     class WriterState {
         private final ByteBuffer cmdWriteBuffer;
 
@@ -242,7 +260,8 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
                     pendingChannelSynBitmap.clear(j);
                     writerState.command.setChannelId(j);
                     writerState.command.setCommandType(MuxDemuxCommand.CommandType.OPEN_CHANNEL);
-                    writerState.command.setData(0);
+                    writerState.command.setData(cSet.getCCB(j).isCompressed() ? MuxDemuxCommand.OPEN_CHANNEL_COMPRESSED
+                            : 0);
                     writerState.reset(null, 0, null);
                     if (!writerState.performPendingWrite(sc)) {
                         return;
@@ -316,6 +335,8 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
 
         private int pendingReadSize;
 
+        private boolean compressedRead;
+
         private ChannelControlBlock ccb;
 
         ReaderState() {
@@ -326,6 +347,7 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
         void reset() {
             readBuffer.clear();
             pendingReadSize = 0;
+            compressedRead = false;
             ccb = null;
         }
 
@@ -380,17 +402,30 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
                         readerState.ccb = ccb;
                         break;
                     }
+                    case COMPRESSED_DATA: {
+                        ccb = readerState.getCCBInCommand();
+                        readerState.pendingReadSize = readerState.command.getData();
+                        readerState.compressedRead = true;
+                        readerState.ccb = ccb;
+                        ccb.startCompressedRead(readerState.pendingReadSize);
+                        break;
+                    }
                     case ERROR: {
                         ccb = readerState.getCCBInCommand();
+                        boolean remoteEOS = ccb.getRemoteEOS();
                         ccb.reportRemoteError(readerState.command.getData());
-                        int channelId = ccb.getChannelId();
-                        cSet.markEOSAck(channelId);
-                        cSet.unmarkPendingCredits(channelId);
+                        if (!remoteEOS) { //An earlier close of the other end has been acknowledged already
+                            int channelId = ccb.getChannelId();
+                            cSet.markEOSAck(channelId);
+                            cSet.unmarkPendingCredits(channelId);
+                        }
                         break;
                     }
                     case OPEN_CHANNEL: {
                         int channelId = readerState.command.getChannelId();
                         ccb = cSet.registerChannel(channelId);
+                        int flags = readerState.command.getData();
+                        ccb.setCompressed((flags & MuxDemuxCommand.OPEN_CHANNEL_COMPRESSED) != 0);
                         muxDemux.getChannelOpenListener().channelOpened(ccb);
                     }
                 }
@@ -400,7 +435,8 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
             }
             if (readerState.pendingReadSize > 0) {
                 ++chunksRead;
-                int newPendingReadSize = readerState.ccb.read(sc, readerState.pendingReadSize);
+                int newPendingReadSize = readerState.compressedRead ? readerState.ccb.readCompressed(sc,
+                        readerState.pendingReadSize) : readerState.ccb.read(sc, readerState.pendingReadSize);
                 muxDemux.getPerformanceCounters().addPayloadBytesRead(readerState.pendingReadSize - newPendingReadSize);
                 readerState.pendingReadSize = newPendingReadSize;
                 if (readerState.pendingReadSize > 0) {
@@ -25,6 +25,12 @@ class MuxDemuxCommand {
 
     static final int MAX_DATA_VALUE = 0x1fffffff;
 
+    /**
+     * Flag in the data of an OPEN_CHANNEL command asking for the buffers on
+     * the channel to be compressed.
+     */
+    static final int OPEN_CHANNEL_COMPRESSED = 0x1;
+
     enum CommandType {
         OPEN_CHANNEL,
         CLOSE_CHANNEL,
@@ -32,6 +38,7 @@ class MuxDemuxCommand {
         ERROR,
         ADD_CREDITS,
         DATA,
+        COMPRESSED_DATA,
     }
 
     private int channelId;
@@ -25,11 +25,29 @@ public class MuxDemuxPerformanceCounters {
 
     private final AtomicLong signalingBytesWritten;
 
+    private final AtomicLong compressedBuffers;
+
+    private final AtomicLong compressionInputBytes;
+
+    private final AtomicLong compressionOutputBytes;
+
+    private final AtomicLong compressionTime;
+
+    private final AtomicLong decompressedBuffers;
+
+    private final AtomicLong decompressionTime;
+
     public MuxDemuxPerformanceCounters() {
         payloadBytesRead = new AtomicLong();
         payloadBytesWritten = new AtomicLong();
         signalingBytesRead = new AtomicLong();
         signalingBytesWritten = new AtomicLong();
+        compressedBuffers = new AtomicLong();
+        compressionInputBytes = new AtomicLong();
+        compressionOutputBytes = new AtomicLong();
+        compressionTime = new AtomicLong();
+        decompressedBuffers = new AtomicLong();
+        decompressionTime = new AtomicLong();
     }
 
     public void addPayloadBytesRead(long delta) {
@@ -63,4 +81,60 @@ public class MuxDemuxPerformanceCounters {
     public long getSignalingBytesWritten() {
         return signalingBytesWritten.get();
     }
-}
\ No newline at end of file
+
+    /**
+     * Records the compression of a buffer on a compressed channel. Buffers
+     * that did not shrink are sent as they are, but are accounted here with
+     * an output size equal to their input size.
+     */
+    public void addCompression(long inputBytes, long outputBytes, long time) {
+        compressedBuffers.incrementAndGet();
+        compressionInputBytes.addAndGet(inputBytes);
+        compressionOutputBytes.addAndGet(outputBytes);
+        compressionTime.addAndGet(time);
+    }
+
+    public long getCompressedBuffers() {
+        return compressedBuffers.get();
+    }
+
+    public long getCompressionInputBytes() {
+        return compressionInputBytes.get();
+    }
+
+    public long getCompressionOutputBytes() {
+        return compressionOutputBytes.get();
+    }
+
+    /**
+     * @return the time in nanoseconds spent compressing buffers
+     */
+    public long getCompressionTime() {
+        return compressionTime.get();
+    }
+
+    /**
+     * @return the ratio of the bytes handed to the compressor to the bytes
+     *         actually sent for them, 1 if nothing was compressed
+     */
+    public double getCompressionRatio() {
+        long output = compressionOutputBytes.get();
+        return output == 0 ? 1.0 : (double) compressionInputBytes.get() / output;
+    }
+
+    public void addDecompression(long time) {
+        decompressedBuffers.incrementAndGet();
+        decompressionTime.addAndGet(time);
+    }
+
+    public long getDecompressedBuffers() {
+        return decompressedBuffers.get();
+    }
+
+    /**
+     * @return the time in nanoseconds spent decompressing buffers
+     */
+    public long getDecompressionTime() {
+        return decompressionTime.get();
+    }
+}
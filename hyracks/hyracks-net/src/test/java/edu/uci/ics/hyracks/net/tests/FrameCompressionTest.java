@@ -0,0 +1,182 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.net.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.net.buffers.IBufferAcceptor;
+import edu.uci.ics.hyracks.net.buffers.ICloseableBufferAcceptor;
+import edu.uci.ics.hyracks.net.protocols.muxdemux.ChannelControlBlock;
+import edu.uci.ics.hyracks.net.protocols.muxdemux.FrameCompressor;
+import edu.uci.ics.hyracks.net.protocols.muxdemux.IChannelOpenListener;
+import edu.uci.ics.hyracks.net.protocols.muxdemux.MuxDemux;
+
+public class FrameCompressionTest {
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    private static final int N_READ_BUFFERS = 8;
+
+    private static final int N_BUFFERS = 200;
+
+    private static byte[] createData(Random rnd, int length, boolean compressible) {
+        byte[] data = new byte[length];
+        if (compressible) {
+            String[] words = { "hyracks", "frame", "tuple", "partition", "connector", "0", "1", "|" };
+            int i = 0;
+            while (i < length) {
+                byte[] word = words[rnd.nextInt(words.length)].getBytes();
+                int n = Math.min(word.length, length - i);
+                System.arraycopy(word, 0, data, i, n);
+                i += n;
+            }
+        } else {
+            rnd.nextBytes(data);
+        }
+        return data;
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        Random rnd = new Random(50);
+        FrameCompressor compressor = new FrameCompressor();
+        int[] lengths = { 0, 1, 5, 12, 13, 64, 1000, 32768, 100000 };
+        for (int length : lengths) {
+            for (int k = 0; k < 3; ++k) {
+                byte[] data;
+                if (k == 2) {
+                    data = new byte[length];
+                } else {
+                    data = createData(rnd, length, k == 0);
+                }
+                byte[] compressed = new byte[FrameCompressor.getMaxCompressedLength(length) + 7];
+                int cLength = compressor.compress(data, 0, length, compressed, 7);
+                Assert.assertTrue(cLength <= FrameCompressor.getMaxCompressedLength(length));
+                Assert.assertEquals(length, FrameCompressor.getUncompressedLength(compressed, 7));
+                byte[] uncompressed = new byte[length + 3];
+                Assert.assertEquals(length, FrameCompressor.decompress(compressed, 7, cLength, uncompressed, 3));
+                Assert.assertTrue(Arrays.equals(data, Arrays.copyOfRange(uncompressed, 3, length + 3)));
+                if (k != 1 && length >= 1000) {
+                    Assert.assertTrue("Data did not compress: " + cLength + " >= " + length, cLength < length / 2);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compressedChannelTest() throws Exception {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final CountDownLatch eos = new CountDownLatch(1);
+        IChannelOpenListener listener = new IChannelOpenListener() {
+            @Override
+            public void channelOpened(ChannelControlBlock channel) {
+                final IBufferAcceptor rieba = channel.getReadInterface().getEmptyBufferAcceptor();
+                channel.getReadInterface().setFullBufferAcceptor(new ICloseableBufferAcceptor() {
+                    @Override
+                    public void accept(ByteBuffer buffer) {
+                        synchronized (received) {
+                            received.write(buffer.array(), buffer.position(), buffer.remaining());
+                        }
+                        buffer.clear();
+                        rieba.accept(buffer);
+                    }
+
+                    @Override
+                    public void error(int ecode) {
+                        eos.countDown();
+                    }
+
+                    @Override
+                    public void close() {
+                        eos.countDown();
+                    }
+                });
+                for (int i = 0; i < N_READ_BUFFERS; ++i) {
+                    rieba.accept(ByteBuffer.allocate(READ_BUFFER_SIZE));
+                }
+            }
+        };
+        MuxDemux receiver = new MuxDemux(new InetSocketAddress("127.0.0.1", 0), listener, 1, 5);
+        receiver.start();
+        MuxDemux sender = new MuxDemux(new InetSocketAddress("127.0.0.1", 0), new IChannelOpenListener() {
+            @Override
+            public void channelOpened(ChannelControlBlock channel) {
+            }
+        }, 1, 5);
+        sender.start();
+
+        ChannelControlBlock ccb = sender.connect(receiver.getLocalAddress()).openChannel(true);
+        Assert.assertTrue(ccb.isCompressed());
+        ccb.getWriteInterface().setEmptyBufferAcceptor(new IBufferAcceptor() {
+            @Override
+            public void accept(ByteBuffer buffer) {
+            }
+        });
+        ccb.getReadInterface().setFullBufferAcceptor(new ICloseableBufferAcceptor() {
+            @Override
+            public void accept(ByteBuffer buffer) {
+            }
+
+            @Override
+            public void error(int ecode) {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        Random rnd = new Random(51);
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        ICloseableBufferAcceptor fba = ccb.getWriteInterface().getFullBufferAcceptor();
+        for (int i = 0; i < N_BUFFERS; ++i) {
+            // Mix in incompressible and small buffers, which go out uncompressed.
+            int length = i % 10 == 9 ? 100 : BUFFER_SIZE;
+            byte[] data = createData(rnd, length, i % 10 != 5);
+            sent.write(data);
+            ByteBuffer buffer;
+            if (i % 2 == 0) {
+                buffer = ByteBuffer.wrap(data);
+            } else {
+                buffer = ByteBuffer.allocateDirect(length);
+                buffer.put(data);
+                buffer.flip();
+            }
+            fba.accept(buffer);
+        }
+        fba.close();
+
+        Assert.assertTrue("Timed out waiting for the end of the stream", eos.await(60, TimeUnit.SECONDS));
+        synchronized (received) {
+            Assert.assertTrue(Arrays.equals(sent.toByteArray(), received.toByteArray()));
+        }
+        Assert.assertEquals(N_BUFFERS - N_BUFFERS / 10, sender.getPerformanceCounters().getCompressedBuffers());
+        Assert.assertTrue(sender.getPerformanceCounters().getCompressionRatio() > 2);
+        Assert.assertTrue(sender.getPerformanceCounters().getPayloadBytesWritten() < sent.size() / 2);
+        Assert.assertEquals(N_BUFFERS - 2 * N_BUFFERS / 10, receiver.getPerformanceCounters()
+                .getDecompressedBuffers());
+    }
+}
@@ -36,10 +36,14 @@ import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
 import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
 
 public class BTreeRangeSearchCursor implements ITreeIndexCursor {
+    // Number of leaves to read ahead once the leaves are found to be laid out sequentially.
+    private static final int READ_AHEAD_PAGES = 8;
 
     private final IBTreeLeafFrame frame;
     private final ITreeIndexTupleReference frameTuple;
     private final boolean exclusiveLatchNodes;
+    // Leaves are visited once, e.g. by a merge, and should not displace hot pages.
+    private final boolean oneShotLeafPins;
     private boolean isPageDirty;
 
     private IBufferCache bufferCache = null;
@@ -47,6 +51,7 @@ public class BTreeRangeSearchCursor implements ITreeIndexCursor {
 
     private ICachedPage page = null;
     private int pageId = -1; // This is used by the LSMRTree flush operation
+    private int readAheadPageId = -1;
 
     private int tupleIndex = 0;
     private int stopTupleIndex;
@@ -70,9 +75,14 @@ public class BTreeRangeSearchCursor implements ITreeIndexCursor {
     private ITupleReference highKey;
 
     public BTreeRangeSearchCursor(IBTreeLeafFrame frame, boolean exclusiveLatchNodes) {
+        this(frame, exclusiveLatchNodes, false);
+    }
+
+    public BTreeRangeSearchCursor(IBTreeLeafFrame frame, boolean exclusiveLatchNodes, boolean oneShotLeafPins) {
         this.frame = frame;
         this.frameTuple = frame.createTupleReference();
         this.exclusiveLatchNodes = exclusiveLatchNodes;
+        this.oneShotLeafPins = oneShotLeafPins;
         this.reusablePredicate = new RangePredicate();
         this.reconciliationTuple = new ArrayTupleReference();
     }
@@ -92,6 +102,7 @@ public class BTreeRangeSearchCursor implements ITreeIndexCursor {
         page = null;
         isPageDirty = false;
         pred = null;
+        readAheadPageId = -1;
     }
 
     public ITupleReference getTuple() {
@@ -113,7 +124,12 @@ public class BTreeRangeSearchCursor implements ITreeIndexCursor {
 
     private void fetchNextLeafPage(int nextLeafPage) throws HyracksDataException {
         do {
-            ICachedPage nextLeaf = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, nextLeafPage), false);
+            if (!exclusiveLatchNodes && nextLeafPage == pageId + 1) {
+                readAhead(nextLeafPage);
+            }
+            long nextLeafDpid = BufferedFileHandle.getDiskPageId(fileId, nextLeafPage);
+            ICachedPage nextLeaf = oneShotLeafPins ? bufferCache.pinOneShot(nextLeafDpid) : bufferCache.pin(
+                    nextLeafDpid, false);
             if (exclusiveLatchNodes) {
                 nextLeaf.acquireWriteLatch();
                 page.releaseWriteLatch(isPageDirty);
@@ -131,6 +147,22 @@ public class BTreeRangeSearchCursor implements ITreeIndexCursor {
         } while (frame.getTupleCount() == 0 && nextLeafPage > 0);
     }
 
+    /**
+     * Bulk-loaded trees, e.g. LSM disk components, store their leaves in key
+     * order, so once we see consecutive leaf ids we start reading ahead.
+     */
+    private void readAhead(int nextLeafPage) throws HyracksDataException {
+        if (nextLeafPage + READ_AHEAD_PAGES / 2 < readAheadPageId) {
+            return;
+        }
+        int startPageId = Math.max(readAheadPageId, nextLeafPage) + 1;
+        int numPages = nextLeafPage + READ_AHEAD_PAGES - startPageId + 1;
+        if (numPages > 0) {
+            bufferCache.prefetch(BufferedFileHandle.getDiskPageId(fileId, startPageId), numPages);
+            readAheadPageId = startPageId + numPages - 1;
+        }
+    }
+
     @Override
     public boolean hasNext() throws HyracksDataException {
         int nextLeafPage;
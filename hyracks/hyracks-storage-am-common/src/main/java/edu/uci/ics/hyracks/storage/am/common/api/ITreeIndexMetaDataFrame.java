@@ -54,6 +54,12 @@ public interface ITreeIndexMetaDataFrame {
     // Set the lsm component filter page id.
     public void setLSMComponentFilterPageId(int filterPage);
 
+    // Return the id of the page that holds the minimum and maximum keys of an lsm component.
+    public int getLSMComponentKeyRangePageId();
+
+    // Set the id of the page that holds the minimum and maximum keys of an lsm component.
+    public void setLSMComponentKeyRangePageId(int keyRangePage);
+
     // Special placeholder for LSN information. Used for transactional LSM indexes.
     public long getLSN();
 
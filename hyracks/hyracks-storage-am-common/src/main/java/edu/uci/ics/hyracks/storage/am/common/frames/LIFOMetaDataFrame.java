@@ -43,6 +43,14 @@ public class LIFOMetaDataFrame implements ITreeIndexMetaDataFrame {
     private static final int additionalFilteringPageOff = validOff + 4; // 29
     protected static final int lsnOff = additionalFilteringPageOff + 4; // 33
 
+    // The page id that stores the minimum and maximum keys of an LSM disk component. Like the filter page id, it is
+    // only set in the first meta page. It uses the unused bytes after the max page, so that the free page list keeps
+    // its offset. Pages written before the key range was added have junk there, so the page id is only trusted when it
+    // is followed by the key range magic integer.
+    private static final int keyRangePageOff = maxPageOff + 4; // 12
+    private static final int keyRangeMagicOff = keyRangePageOff + 4; // 16
+    private static final int MAGIC_KEY_RANGE_INT = 0x2f8b4c61;
+
     protected ICachedPage page = null;
     protected ByteBuffer buf = null;
 
@@ -112,6 +120,7 @@ public class LIFOMetaDataFrame implements ITreeIndexMetaDataFrame {
         buf.put(levelOff, level);
         buf.putInt(nextPageOff, -1);
         buf.putInt(additionalFilteringPageOff, -1);
+        setLSMComponentKeyRangePageId(-1);
         setValid(false);
     }
 
@@ -158,4 +167,18 @@ public class LIFOMetaDataFrame implements ITreeIndexMetaDataFrame {
     public void setLSMComponentFilterPageId(int filterPage) {
         buf.putInt(additionalFilteringPageOff, filterPage);
     }
+
+    @Override
+    public int getLSMComponentKeyRangePageId() {
+        if (buf.getInt(keyRangeMagicOff) != MAGIC_KEY_RANGE_INT) {
+            return -1;
+        }
+        return buf.getInt(keyRangePageOff);
+    }
+
+    @Override
+    public void setLSMComponentKeyRangePageId(int keyRangePage) {
+        buf.putInt(keyRangePageOff, keyRangePage);
+        buf.putInt(keyRangeMagicOff, MAGIC_KEY_RANGE_INT);
+    }
 }
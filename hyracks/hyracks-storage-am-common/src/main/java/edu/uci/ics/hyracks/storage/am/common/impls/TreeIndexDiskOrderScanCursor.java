@@ -26,11 +26,14 @@ import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
 import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
 
 public class TreeIndexDiskOrderScanCursor implements ITreeIndexCursor {
+    // Number of pages to read ahead of the scan.
+    private static final int READ_AHEAD_PAGES = 32;
 
     private int tupleIndex = 0;
     private int fileId = -1;
     private int currentPageId = -1;
     private int maxPageId = -1;
+    private int readAheadPageId = -1;
     private ICachedPage page = null;
     private IBufferCache bufferCache = null;
 
@@ -62,11 +65,13 @@ public class TreeIndexDiskOrderScanCursor implements ITreeIndexCursor {
     private boolean positionToNextLeaf(boolean skipCurrent) throws HyracksDataException {
         while ((frame.getLevel() != 0 || skipCurrent || frame.getTupleCount() == 0) && (currentPageId <= maxPageId)) {
             currentPageId++;
+            readAhead();
 
             page.releaseReadLatch();
             bufferCache.unpin(page);
 
-            ICachedPage nextPage = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, currentPageId), false);
+            // Every page is visited exactly once, so keep the scan from flushing out hot pages.
+            ICachedPage nextPage = bufferCache.pinOneShot(BufferedFileHandle.getDiskPageId(fileId, currentPageId));
             nextPage.acquireReadLatch();
 
             page = nextPage;
@@ -81,6 +86,19 @@ public class TreeIndexDiskOrderScanCursor implements ITreeIndexCursor {
         }
     }
 
+    private void readAhead() throws HyracksDataException {
+        // Keep at least half of the read-ahead window in flight.
+        if (currentPageId + READ_AHEAD_PAGES / 2 < readAheadPageId) {
+            return;
+        }
+        int startPageId = Math.max(readAheadPageId + 1, currentPageId + 1);
+        int numPages = Math.min(currentPageId + READ_AHEAD_PAGES, maxPageId) - startPageId + 1;
+        if (numPages > 0) {
+            bufferCache.prefetch(BufferedFileHandle.getDiskPageId(fileId, startPageId), numPages);
+            readAheadPageId = startPageId + numPages - 1;
+        }
+    }
+
     @Override
     public boolean hasNext() throws HyracksDataException {
         if (currentPageId > maxPageId) {
@@ -122,6 +140,7 @@ public class TreeIndexDiskOrderScanCursor implements ITreeIndexCursor {
         tupleIndex = 0;
         currentPageId = -1;
         maxPageId = -1;
+        readAheadPageId = -1;
         page = null;
     }
 
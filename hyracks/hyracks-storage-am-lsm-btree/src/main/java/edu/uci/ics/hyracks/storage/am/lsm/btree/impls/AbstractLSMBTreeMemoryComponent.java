@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.btree.impls;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndex;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFilter;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.AbstractMemoryLSMComponent;
+
+/**
+ * An in-memory component of an LSMBTree. The LSMBTree only talks to its memory components through this class, so
+ * the structure holding the in-memory tuples can be swapped as long as its search cursors hand out
+ * LSMBTreeTupleReferences in key order.
+ */
+public abstract class AbstractLSMBTreeMemoryComponent extends AbstractMemoryLSMComponent {
+
+    public AbstractLSMBTreeMemoryComponent(IVirtualBufferCache vbc, boolean isActive, ILSMComponentFilter filter) {
+        super(vbc, isActive, filter);
+    }
+
+    public abstract IIndex getIndex();
+
+    public abstract IBinaryComparatorFactory[] getComparatorFactories();
+
+    /**
+     * @return the number of tuples, matter and antimatter, currently held by the component.
+     */
+    public abstract long getNumElements() throws HyracksDataException, IndexException;
+
+    public abstract void activate() throws HyracksDataException;
+
+    public abstract void deactivate() throws HyracksDataException;
+
+    public abstract void destroy() throws HyracksDataException;
+
+    public abstract void clear() throws HyracksDataException;
+}
@@ -15,6 +15,7 @@
 package edu.uci.ics.hyracks.storage.am.lsm.btree.impls;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -171,7 +172,7 @@ public class ExternalBTree extends LSMBTree implements ITwoPCIndex {
             throws HyracksDataException, IndexException {
         ExternalBTreeOpContext opCtx = createOpContext(NoOpOperationCallback.INSTANCE, -1);
         opCtx.setOperation(IndexOperation.MERGE);
-        List<ILSMComponent> mergingComponents = ctx.getComponentHolder();
+        List<ILSMComponent> mergingComponents = new ArrayList<ILSMComponent>(ctx.getComponentHolder());
         boolean returnDeletedTuples = false;
         if (version == 0) {
             if (ctx.getComponentHolder().get(ctx.getComponentHolder().size() - 1) != diskComponents.get(diskComponents
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.btree.impls;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.storage.am.btree.api.ITupleAcceptor;
+import edu.uci.ics.hyracks.storage.am.btree.impls.RangePredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndex;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexAccessor;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexBulkLoader;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexCursor;
+import edu.uci.ics.hyracks.storage.am.common.api.IModificationOperationCallback;
+import edu.uci.ics.hyracks.storage.am.common.api.ISearchOperationCallback;
+import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.common.exceptions.TreeIndexDuplicateKeyException;
+import edu.uci.ics.hyracks.storage.am.common.exceptions.TreeIndexNonExistentKeyException;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.tuples.LSMBTreeTupleReference;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.tuples.LSMBTreeTupleWriter;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+
+/**
+ * An in-memory index over LSMBTree tuples backed by a {@link ConcurrentSkipListMap}. Unlike a BTree over a virtual
+ * buffer cache it takes no page latches, so concurrent writers to the same memory component never block each other
+ * or the readers. Every tuple is written once, in the LSMBTree tuple format, into its own byte array; the tuples
+ * handed out by the search cursors can therefore be copied byte for byte into a disk component during a flush.
+ * The index does not allocate pages from its buffer cache, it only tracks the number of bytes written so that the
+ * owning memory component can tell when the buffer cache budget is used up.
+ */
+public class InMemorySkipListIndex implements IIndex {
+    // Rough per-entry cost of the skiplist node, the tuple reference and the byte array headers.
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private final IBufferCache virtualBufferCache;
+    private final ITypeTraits[] typeTraits;
+    private final IBinaryComparatorFactory[] cmpFactories;
+    private final ThreadLocal<MultiComparator> cmp;
+    private final ConcurrentSkipListMap<ITupleReference, LSMBTreeTupleReference> tuples;
+    private final AtomicLong allocatedBytes;
+
+    public InMemorySkipListIndex(IBufferCache virtualBufferCache, ITypeTraits[] typeTraits,
+            final IBinaryComparatorFactory[] cmpFactories) {
+        this.virtualBufferCache = virtualBufferCache;
+        this.typeTraits = typeTraits;
+        this.cmpFactories = cmpFactories;
+        this.cmp = new ThreadLocal<MultiComparator>() {
+            @Override
+            protected MultiComparator initialValue() {
+                return MultiComparator.create(cmpFactories);
+            }
+        };
+        this.tuples = new ConcurrentSkipListMap<ITupleReference, LSMBTreeTupleReference>(new TupleComparator());
+        this.allocatedBytes = new AtomicLong();
+    }
+
+    @Override
+    public void create() throws HyracksDataException {
+        clear();
+    }
+
+    @Override
+    public void activate() throws HyracksDataException {
+    }
+
+    @Override
+    public void clear() throws HyracksDataException {
+        tuples.clear();
+        allocatedBytes.set(0L);
+    }
+
+    @Override
+    public void deactivate() throws HyracksDataException {
+    }
+
+    @Override
+    public void destroy() throws HyracksDataException {
+        clear();
+    }
+
+    @Override
+    public SkipListAccessor createAccessor(IModificationOperationCallback modificationCallback,
+            ISearchOperationCallback searchCallback) {
+        return new SkipListAccessor(modificationCallback);
+    }
+
+    @Override
+    public void validate() throws HyracksDataException {
+        MultiComparator multiCmp = cmp.get();
+        ITupleReference prev = null;
+        for (LSMBTreeTupleReference tuple : tuples.values()) {
+            if (prev != null && multiCmp.compare(prev, tuple) >= 0) {
+                throw new HyracksDataException("Skiplist tuples are out of order.");
+            }
+            prev = tuple;
+        }
+    }
+
+    @Override
+    public IBufferCache getBufferCache() {
+        return virtualBufferCache;
+    }
+
+    @Override
+    public long getMemoryAllocationSize() {
+        return virtualBufferCache.getNumPages() * virtualBufferCache.getPageSize();
+    }
+
+    @Override
+    public IIndexBulkLoader createBulkLoader(float fillFactor, boolean verifyInput, long numElementsHint,
+            boolean checkIfEmptyIndex) throws IndexException {
+        throw new UnsupportedOperationException("Bulk load is not supported by an in-memory skiplist.");
+    }
+
+    @Override
+    public boolean hasMemoryComponents() {
+        return true;
+    }
+
+    public IBinaryComparatorFactory[] getComparatorFactories() {
+        return cmpFactories;
+    }
+
+    public long getNumElements() {
+        return tuples.size();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    Iterator<LSMBTreeTupleReference> iterator(RangePredicate pred) throws HyracksDataException {
+        if (pred.getLowKey() == null) {
+            return tuples.values().iterator();
+        }
+        MultiComparator lowKeyCmp = pred.getLowKeyComparator() != null ? pred.getLowKeyComparator() : cmp.get();
+        try {
+            ConcurrentNavigableMap<ITupleReference, LSMBTreeTupleReference> tail = tuples.tailMap(new SearchKey(
+                    pred.getLowKey(), lowKeyCmp), pred.isLowKeyInclusive());
+            return tail.values().iterator();
+        } catch (ComparisonFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    MultiComparator getMultiComparator() {
+        return cmp.get();
+    }
+
+    private LSMBTreeTupleReference get(ITupleReference key) throws HyracksDataException {
+        try {
+            return tuples.get(key);
+        } catch (ComparisonFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    public class SkipListAccessor implements IIndexAccessor {
+        private final IModificationOperationCallback modificationCallback;
+        private final LSMBTreeTupleWriter tupleWriter;
+
+        public SkipListAccessor(IModificationOperationCallback modificationCallback) {
+            this.modificationCallback = modificationCallback;
+            this.tupleWriter = new LSMBTreeTupleWriter(typeTraits, cmpFactories.length, false);
+        }
+
+        /**
+         * Switches between writing matter tuples and key-only antimatter tuples, the same way the LSMBTree swaps
+         * the leaf frames of its in-memory BTrees.
+         */
+        public void setAntimatter(boolean isAntimatter) {
+            tupleWriter.setAntimatter(isAntimatter);
+        }
+
+        @Override
+        public void insert(ITupleReference tuple) throws HyracksDataException, IndexException {
+            modificationCallback.before(tuple);
+            if (get(tuple) != null) {
+                throw new TreeIndexDuplicateKeyException("Failed to insert key since key already exists.");
+            }
+            LSMBTreeTupleReference newTuple = copy(tuple);
+            modificationCallback.found(null, tuple);
+            if (putIfAbsent(newTuple) != null) {
+                throw new TreeIndexDuplicateKeyException("Failed to insert key since key already exists.");
+            }
+        }
+
+        @Override
+        public void update(ITupleReference tuple) throws HyracksDataException, IndexException {
+            modificationCallback.before(tuple);
+            LSMBTreeTupleReference newTuple = copy(tuple);
+            while (true) {
+                LSMBTreeTupleReference oldTuple = get(tuple);
+                if (oldTuple == null) {
+                    throw new TreeIndexNonExistentKeyException("Trying to update a tuple with a nonexistent key.");
+                }
+                modificationCallback.found(oldTuple, tuple);
+                if (replace(oldTuple, newTuple)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void delete(ITupleReference tuple) throws HyracksDataException, IndexException {
+            modificationCallback.before(tuple);
+            while (true) {
+                LSMBTreeTupleReference oldTuple = get(tuple);
+                if (oldTuple == null) {
+                    throw new TreeIndexNonExistentKeyException("Trying to delete a tuple with a nonexistent key.");
+                }
+                modificationCallback.found(oldTuple, tuple);
+                try {
+                    if (tuples.remove(oldTuple, oldTuple)) {
+                        return;
+                    }
+                } catch (ComparisonFailure e) {
+                    throw e.getCause();
+                }
+            }
+        }
+
+        @Override
+        public void upsert(ITupleReference tuple) throws HyracksDataException, IndexException {
+            upsertIfConditionElseInsert(tuple, null);
+        }
+
+        /**
+         * Replaces the tuple with the same key if the acceptor accepts it, inserts the tuple if there is none, and
+         * fails with a duplicate key otherwise. A null acceptor accepts every tuple.
+         */
+        public void upsertIfConditionElseInsert(ITupleReference tuple, ITupleAcceptor acceptor)
+                throws HyracksDataException, IndexException {
+            modificationCallback.before(tuple);
+            LSMBTreeTupleReference newTuple = copy(tuple);
+            while (true) {
+                LSMBTreeTupleReference oldTuple = get(tuple);
+                if (oldTuple != null && acceptor != null && !acceptor.accept(oldTuple)) {
+                    throw new TreeIndexDuplicateKeyException("Failed to insert key since key already exists.");
+                }
+                modificationCallback.found(oldTuple, tuple);
+                if (oldTuple == null) {
+                    if (putIfAbsent(newTuple) == null) {
+                        return;
+                    }
+                } else if (replace(oldTuple, newTuple)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public IIndexCursor createSearchCursor(boolean exclusive) {
+            return new SkipListRangeSearchCursor(InMemorySkipListIndex.this);
+        }
+
+        @Override
+        public void search(IIndexCursor cursor, ISearchPredicate searchPred) throws HyracksDataException,
+                IndexException {
+            cursor.open(null, searchPred);
+        }
+
+        private LSMBTreeTupleReference copy(ITupleReference tuple) {
+            byte[] bytes = new byte[tupleWriter.bytesRequired(tuple)];
+            tupleWriter.writeTuple(tuple, bytes, 0);
+            LSMBTreeTupleReference newTuple = (LSMBTreeTupleReference) tupleWriter.createTupleReference();
+            newTuple.resetByTupleOffset(ByteBuffer.wrap(bytes), 0);
+            allocatedBytes.addAndGet(bytes.length + ENTRY_OVERHEAD);
+            return newTuple;
+        }
+
+        private LSMBTreeTupleReference putIfAbsent(LSMBTreeTupleReference newTuple) throws HyracksDataException {
+            try {
+                return tuples.putIfAbsent(newTuple, newTuple);
+            } catch (ComparisonFailure e) {
+                throw e.getCause();
+            }
+        }
+
+        private boolean replace(LSMBTreeTupleReference oldTuple, LSMBTreeTupleReference newTuple)
+                throws HyracksDataException {
+            try {
+                return tuples.replace(oldTuple, oldTuple, newTuple);
+            } catch (ComparisonFailure e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * A probe for range searches that compares with the predicate's comparator, which may cover a key prefix only.
+     */
+    private static class SearchKey implements ITupleReference {
+        private final ITupleReference key;
+        private final MultiComparator keyCmp;
+
+        public SearchKey(ITupleReference key, MultiComparator keyCmp) {
+            this.key = key;
+            this.keyCmp = keyCmp;
+        }
+
+        public int compareTo(ITupleReference tuple) throws HyracksDataException {
+            return keyCmp.compare(key, tuple);
+        }
+
+        @Override
+        public int getFieldCount() {
+            return key.getFieldCount();
+        }
+
+        @Override
+        public byte[] getFieldData(int fIdx) {
+            return key.getFieldData(fIdx);
+        }
+
+        @Override
+        public int getFieldStart(int fIdx) {
+            return key.getFieldStart(fIdx);
+        }
+
+        @Override
+        public int getFieldLength(int fIdx) {
+            return key.getFieldLength(fIdx);
+        }
+    }
+
+    private class TupleComparator implements Comparator<ITupleReference> {
+        @Override
+        public int compare(ITupleReference tupleA, ITupleReference tupleB) {
+            try {
+                if (tupleA instanceof SearchKey) {
+                    return ((SearchKey) tupleA).compareTo(tupleB);
+                }
+                if (tupleB instanceof SearchKey) {
+                    return -((SearchKey) tupleB).compareTo(tupleA);
+                }
+                return cmp.get().compare(tupleA, tupleB);
+            } catch (HyracksDataException e) {
+                throw new ComparisonFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Carries a comparator failure through the skiplist, whose comparator cannot throw checked exceptions.
+     */
+    private static class ComparisonFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ComparisonFailure(HyracksDataException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized HyracksDataException getCause() {
+            return (HyracksDataException) super.getCause();
+        }
+    }
+}
@@ -22,17 +22,17 @@ import java.util.List;
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
-import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleReference;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.util.TupleUtils;
 import edu.uci.ics.hyracks.storage.am.bloomfilter.impls.BloomCalculations;
 import edu.uci.ics.hyracks.storage.am.bloomfilter.impls.BloomFilter;
 import edu.uci.ics.hyracks.storage.am.bloomfilter.impls.BloomFilterFactory;
 import edu.uci.ics.hyracks.storage.am.bloomfilter.impls.BloomFilterSpecification;
 import edu.uci.ics.hyracks.storage.am.btree.impls.BTree;
-import edu.uci.ics.hyracks.storage.am.btree.impls.BTree.BTreeAccessor;
 import edu.uci.ics.hyracks.storage.am.btree.impls.BTree.BTreeBulkLoader;
-import edu.uci.ics.hyracks.storage.am.btree.impls.BTreeRangeSearchCursor;
 import edu.uci.ics.hyracks.storage.am.btree.impls.RangePredicate;
 import edu.uci.ics.hyracks.storage.am.common.api.IFreePageManager;
 import edu.uci.ics.hyracks.storage.am.common.api.IIndexAccessor;
@@ -55,6 +55,9 @@ import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
 import edu.uci.ics.hyracks.storage.am.common.tuples.PermutingTupleReference;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.tuples.LSMBTreeTupleReference;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent.ComponentState;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFilter;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFilterFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFilterFrameFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMHarness;
@@ -73,6 +76,7 @@ import edu.uci.ics.hyracks.storage.am.lsm.common.impls.AbstractLSMIndex;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.BlockingIOOperationCallbackWrapper;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentFileReferences;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentFilterManager;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentKeyRangeManager;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMIndexSearchCursor;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMTreeIndexAccessor;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.TreeIndexFactory;
@@ -88,19 +92,26 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
     protected final LSMBTreeDiskComponentFactory bulkLoadComponentFactory;
 
     // Common for in-memory and on-disk components.
+    protected final ITreeIndexFrameFactory interiorFrameFactory;
     protected final ITreeIndexFrameFactory insertLeafFrameFactory;
     protected final ITreeIndexFrameFactory deleteLeafFrameFactory;
     protected final IBinaryComparatorFactory[] cmpFactories;
 
+    // Persists the minimum and maximum keys of the disk components, which lets searches skip the components that
+    // cannot hold any key in the search range. Null if the disk components do not keep key ranges.
+    protected final LSMComponentKeyRangeManager keyRangeManager;
+
     private final boolean needKeyDupCheck;
     private final int[] btreeFields;
+    private final int fieldCount;
 
     public LSMBTree(List<IVirtualBufferCache> virtualBufferCaches, ITreeIndexFrameFactory interiorFrameFactory,
             ITreeIndexFrameFactory insertLeafFrameFactory, ITreeIndexFrameFactory deleteLeafFrameFactory,
             ILSMIndexFileManager fileManager, TreeIndexFactory<BTree> diskBTreeFactory,
             TreeIndexFactory<BTree> bulkLoadBTreeFactory, BloomFilterFactory bloomFilterFactory,
             ILSMComponentFilterFactory filterFactory, ILSMComponentFilterFrameFactory filterFrameFactory,
-            LSMComponentFilterManager filterManager, double bloomFilterFalsePositiveRate,
+            LSMComponentFilterManager filterManager, ILSMComponentFilterFactory keyRangeFactory,
+            LSMComponentKeyRangeManager keyRangeManager, double bloomFilterFalsePositiveRate,
             IFileMapProvider diskFileMapProvider, int fieldCount, IBinaryComparatorFactory[] cmpFactories,
             ILSMMergePolicy mergePolicy, ILSMOperationTracker opTracker, ILSMIOOperationScheduler ioScheduler,
             ILSMIOOperationCallback ioOpCallback, boolean needKeyDupCheck, int[] btreeFields, int[] filterFields) {
@@ -119,14 +130,61 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             ++i;
         }
 
+        this.interiorFrameFactory = interiorFrameFactory;
+        this.insertLeafFrameFactory = insertLeafFrameFactory;
+        this.deleteLeafFrameFactory = deleteLeafFrameFactory;
+        this.cmpFactories = cmpFactories;
+        componentFactory = new LSMBTreeDiskComponentFactory(diskBTreeFactory, bloomFilterFactory, filterFactory,
+                keyRangeFactory);
+        bulkLoadComponentFactory = new LSMBTreeDiskComponentFactory(bulkLoadBTreeFactory, bloomFilterFactory,
+                filterFactory, keyRangeFactory);
+        this.keyRangeManager = keyRangeManager;
+        this.needKeyDupCheck = needKeyDupCheck;
+        this.btreeFields = btreeFields;
+        this.fieldCount = fieldCount;
+    }
+
+    // With memory components created by the given factories, one per virtual buffer cache
+    public LSMBTree(ILSMComponentFactory[] memoryComponentFactories, ITreeIndexFrameFactory interiorFrameFactory,
+            ITreeIndexFrameFactory insertLeafFrameFactory, ITreeIndexFrameFactory deleteLeafFrameFactory,
+            ILSMIndexFileManager fileManager, TreeIndexFactory<BTree> diskBTreeFactory,
+            TreeIndexFactory<BTree> bulkLoadBTreeFactory, BloomFilterFactory bloomFilterFactory,
+            ILSMComponentFilterFactory filterFactory, ILSMComponentFilterFrameFactory filterFrameFactory,
+            LSMComponentFilterManager filterManager, ILSMComponentFilterFactory keyRangeFactory,
+            LSMComponentKeyRangeManager keyRangeManager, double bloomFilterFalsePositiveRate,
+            IFileMapProvider diskFileMapProvider, int fieldCount, IBinaryComparatorFactory[] cmpFactories,
+            ILSMMergePolicy mergePolicy, ILSMOperationTracker opTracker, ILSMIOOperationScheduler ioScheduler,
+            ILSMIOOperationCallback ioOpCallback, boolean needKeyDupCheck, int[] btreeFields, int[] filterFields) {
+        super(getVirtualBufferCaches(memoryComponentFactories), diskBTreeFactory.getBufferCache(), fileManager,
+                diskFileMapProvider, bloomFilterFalsePositiveRate, mergePolicy, opTracker, ioScheduler, ioOpCallback,
+                filterFrameFactory, filterManager, filterFields);
+        for (ILSMComponentFactory memoryComponentFactory : memoryComponentFactories) {
+            AbstractLSMBTreeMemoryComponent mutableComponent;
+            try {
+                // Memory components have no files, so there are no file references to pass.
+                mutableComponent = (AbstractLSMBTreeMemoryComponent) memoryComponentFactory
+                        .createLSMComponentInstance(null);
+            } catch (HyracksDataException | IndexException e) {
+                throw new IllegalStateException(e);
+            }
+            if (memoryComponents.isEmpty()) {
+                mutableComponent.setState(ComponentState.READABLE_WRITABLE);
+            }
+            memoryComponents.add(mutableComponent);
+        }
+
+        this.interiorFrameFactory = interiorFrameFactory;
         this.insertLeafFrameFactory = insertLeafFrameFactory;
         this.deleteLeafFrameFactory = deleteLeafFrameFactory;
         this.cmpFactories = cmpFactories;
-        componentFactory = new LSMBTreeDiskComponentFactory(diskBTreeFactory, bloomFilterFactory, filterFactory);
+        componentFactory = new LSMBTreeDiskComponentFactory(diskBTreeFactory, bloomFilterFactory, filterFactory,
+                keyRangeFactory);
         bulkLoadComponentFactory = new LSMBTreeDiskComponentFactory(bulkLoadBTreeFactory, bloomFilterFactory,
-                filterFactory);
+                filterFactory, keyRangeFactory);
+        this.keyRangeManager = keyRangeManager;
         this.needKeyDupCheck = needKeyDupCheck;
         this.btreeFields = btreeFields;
+        this.fieldCount = fieldCount;
     }
 
     // Without memory components
@@ -139,13 +197,24 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             ILSMIOOperationCallback ioOpCallback, boolean needKeyDupCheck) {
         super(diskBTreeFactory.getBufferCache(), fileManager, diskFileMapProvider, bloomFilterFalsePositiveRate,
                 mergePolicy, opTracker, ioScheduler, ioOpCallback);
+        this.interiorFrameFactory = interiorFrameFactory;
         this.insertLeafFrameFactory = insertLeafFrameFactory;
         this.deleteLeafFrameFactory = deleteLeafFrameFactory;
         this.cmpFactories = cmpFactories;
         componentFactory = new LSMBTreeDiskComponentFactory(diskBTreeFactory, bloomFilterFactory, null);
         bulkLoadComponentFactory = new LSMBTreeDiskComponentFactory(bulkLoadBTreeFactory, bloomFilterFactory, null);
+        this.keyRangeManager = null;
         this.needKeyDupCheck = needKeyDupCheck;
         this.btreeFields = null;
+        this.fieldCount = fieldCount;
+    }
+
+    private static List<IVirtualBufferCache> getVirtualBufferCaches(ILSMComponentFactory[] componentFactories) {
+        List<IVirtualBufferCache> virtualBufferCaches = new ArrayList<IVirtualBufferCache>();
+        for (ILSMComponentFactory memoryComponentFactory : componentFactories) {
+            virtualBufferCaches.add((IVirtualBufferCache) memoryComponentFactory.getBufferCache());
+        }
+        return virtualBufferCaches;
     }
 
     @Override
@@ -165,10 +234,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             throw new HyracksDataException("Failed to activate the index since it is already activated.");
         }
         for (ILSMComponent c : memoryComponents) {
-            LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
-            ((IVirtualBufferCache) mutableComponent.getBTree().getBufferCache()).open();
-            mutableComponent.getBTree().create();
-            mutableComponent.getBTree().activate();
+            ((AbstractLSMBTreeMemoryComponent) c).activate();
         }
         List<ILSMComponent> immutableComponents = diskComponents;
         immutableComponents.clear();
@@ -218,10 +284,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             bloomFilter.deactivate();
         }
         for (ILSMComponent c : memoryComponents) {
-            LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
-            mutableComponent.getBTree().deactivate();
-            mutableComponent.getBTree().destroy();
-            ((IVirtualBufferCache) mutableComponent.getBTree().getBufferCache()).close();
+            ((AbstractLSMBTreeMemoryComponent) c).deactivate();
         }
         isActivated = false;
     }
@@ -244,8 +307,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             component.getBloomFilter().destroy();
         }
         for (ILSMComponent c : memoryComponents) {
-            LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
-            mutableComponent.getBTree().destroy();
+            ((AbstractLSMBTreeMemoryComponent) c).destroy();
         }
         fileManager.deleteDirs();
     }
@@ -258,9 +320,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
 
         List<ILSMComponent> immutableComponents = diskComponents;
         for (ILSMComponent c : memoryComponents) {
-            LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
-            mutableComponent.getBTree().clear();
-            mutableComponent.reset();
+            ((AbstractLSMBTreeMemoryComponent) c).clear();
         }
         for (ILSMComponent c : immutableComponents) {
             LSMBTreeDiskComponent component = (LSMBTreeDiskComponent) c;
@@ -291,7 +351,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             case INSERT:
                 for (int i = 0; i < numMutableComponents - 1; i++) {
                     ILSMComponent c = memoryComponents.get((cmc + i + 1) % numMutableComponents);
-                    LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
+                    AbstractLSMBTreeMemoryComponent mutableComponent = (AbstractLSMBTreeMemoryComponent) c;
                     if (mutableComponent.isReadable()) {
                         // Make sure newest components are added first
                         operationalComponents.add(0, mutableComponent);
@@ -304,7 +364,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             case SEARCH:
                 for (int i = 0; i < numMutableComponents - 1; i++) {
                     ILSMComponent c = memoryComponents.get((cmc + i + 1) % numMutableComponents);
-                    LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
+                    AbstractLSMBTreeMemoryComponent mutableComponent = (AbstractLSMBTreeMemoryComponent) c;
                     if (mutableComponent.isReadable()) {
                         // Make sure newest components are added first
                         operationalComponents.add(0, mutableComponent);
@@ -312,14 +372,21 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                 }
                 // The current mutable component is always added
                 operationalComponents.add(0, memoryComponents.get(cmc));
-                if (filterManager != null) {
+                if (filterManager != null || keyRangeManager != null) {
                     for (ILSMComponent c : immutableComponents) {
-                        if (c.getLSMComponentFilter().satisfy(
-                                ((AbstractSearchPredicate) ctx.getSearchPredicate()).getMinFilterTuple(),
-                                ((AbstractSearchPredicate) ctx.getSearchPredicate()).getMaxFilterTuple(),
-                                ((LSMBTreeOpContext) ctx).filterCmp)) {
-                            operationalComponents.add(c);
+                        if (filterManager != null
+                                && !c.getLSMComponentFilter().satisfy(
+                                        ((AbstractSearchPredicate) ctx.getSearchPredicate()).getMinFilterTuple(),
+                                        ((AbstractSearchPredicate) ctx.getSearchPredicate()).getMaxFilterTuple(),
+                                        ((LSMBTreeOpContext) ctx).filterCmp)) {
+                            continue;
+                        }
+                        if (keyRangeManager != null
+                                && !intersectsKeyRange((LSMBTreeDiskComponent) c, ctx.getSearchPredicate(),
+                                        ((LSMBTreeOpContext) ctx).cmp)) {
+                            continue;
                         }
+                        operationalComponents.add(c);
                     }
                 } else {
                     operationalComponents.addAll(immutableComponents);
@@ -351,13 +418,13 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
 
         switch (ctx.getOperation()) {
             case PHYSICALDELETE:
-                ctx.currentMutableBTreeAccessor.delete(indexTuple);
+                ctx.currentMutableAccessor.delete(indexTuple);
                 break;
             case INSERT:
                 insert(indexTuple, ctx);
                 break;
             default:
-                ctx.currentMutableBTreeAccessor.upsert(indexTuple);
+                ctx.currentMutableAccessor.upsert(indexTuple);
                 break;
         }
         if (ctx.filterTuple != null) {
@@ -369,15 +436,15 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
 
     private boolean insert(ITupleReference tuple, LSMBTreeOpContext ctx) throws HyracksDataException, IndexException {
         ILSMComponent c = ctx.getComponentHolder().get(0);
-        LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
-        MultiComparator comparator = MultiComparator.create(mutableComponent.getBTree().getComparatorFactories());
+        AbstractLSMBTreeMemoryComponent mutableComponent = (AbstractLSMBTreeMemoryComponent) c;
+        MultiComparator comparator = MultiComparator.create(mutableComponent.getComparatorFactories());
         LSMBTreePointSearchCursor searchCursor = new LSMBTreePointSearchCursor(ctx);
-        IIndexCursor memCursor = new BTreeRangeSearchCursor(ctx.currentMutableBTreeOpCtx.leafFrame, false);
+        IIndexCursor memCursor = ctx.currentMutableAccessor.createSearchCursor(false);
         RangePredicate predicate = new RangePredicate(tuple, tuple, true, true, comparator, comparator);
 
         if (needKeyDupCheck) {
             // first check the inmemory component
-            ctx.currentMutableBTreeAccessor.search(memCursor, predicate);
+            ctx.currentMutableAccessor.search(memCursor, predicate);
             try {
                 if (memCursor.hasNext()) {
                     memCursor.next();
@@ -386,8 +453,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                         throw new TreeIndexDuplicateKeyException("Failed to insert key since key already exists.");
                     } else {
                         memCursor.close();
-                        ctx.currentMutableBTreeAccessor.upsertIfConditionElseInsert(tuple,
-                                AntimatterAwareTupleAcceptor.INSTANCE);
+                        upsertIfConditionElseInsert(tuple, ctx);
                         return true;
                     }
                 }
@@ -416,10 +482,20 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             }
         }
 
-        ctx.currentMutableBTreeAccessor.upsertIfConditionElseInsert(tuple, AntimatterAwareTupleAcceptor.INSTANCE);
+        upsertIfConditionElseInsert(tuple, ctx);
         return true;
     }
 
+    private void upsertIfConditionElseInsert(ITupleReference tuple, LSMBTreeOpContext ctx)
+            throws HyracksDataException, IndexException {
+        if (ctx.currentMutableBTreeAccessor != null) {
+            ctx.currentMutableBTreeAccessor.upsertIfConditionElseInsert(tuple, AntimatterAwareTupleAcceptor.INSTANCE);
+        } else {
+            ctx.currentMutableSkipListAccessor.upsertIfConditionElseInsert(tuple,
+                    AntimatterAwareTupleAcceptor.INSTANCE);
+        }
+    }
+
     @Override
     public void search(ILSMIndexOperationContext ictx, IIndexCursor cursor, ISearchPredicate pred)
             throws HyracksDataException, IndexException {
@@ -449,23 +525,13 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
     @Override
     public ILSMComponent flush(ILSMIOOperation operation) throws HyracksDataException, IndexException {
         LSMBTreeFlushOperation flushOp = (LSMBTreeFlushOperation) operation;
-        LSMBTreeMemoryComponent flushingComponent = (LSMBTreeMemoryComponent) flushOp.getFlushingComponent();
-        IIndexAccessor accessor = flushingComponent.getBTree().createAccessor(NoOpOperationCallback.INSTANCE,
+        AbstractLSMBTreeMemoryComponent flushingComponent = (AbstractLSMBTreeMemoryComponent) flushOp
+                .getFlushingComponent();
+        IIndexAccessor accessor = flushingComponent.getIndex().createAccessor(NoOpOperationCallback.INSTANCE,
                 NoOpOperationCallback.INSTANCE);
 
         RangePredicate nullPred = new RangePredicate(null, null, true, true, null, null);
-        IIndexCursor countingCursor = ((BTreeAccessor) accessor).createCountingSearchCursor();
-        accessor.search(countingCursor, nullPred);
-        long numElements = 0L;
-        try {
-            while (countingCursor.hasNext()) {
-                countingCursor.next();
-                ITupleReference countTuple = countingCursor.getTuple();
-                numElements = IntegerPointable.getInteger(countTuple.getFieldData(0), countTuple.getFieldStart(0));
-            }
-        } finally {
-            countingCursor.close();
-        }
+        long numElements = flushingComponent.getNumElements();
 
         int maxBucketsPerElement = BloomCalculations.maxBucketsPerElement(numElements);
         BloomFilterSpecification bloomFilterSpec = BloomCalculations.computeBloomSpec(maxBucketsPerElement,
@@ -477,6 +543,9 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         IIndexBulkLoader builder = component.getBloomFilter().createBuilder(numElements,
                 bloomFilterSpec.getNumHashes(), bloomFilterSpec.getNumBucketsPerElements());
 
+        KeyRangeBuilder keyRangeBuilder = component.getKeyRange() != null ? new KeyRangeBuilder(
+                component.getKeyRange()) : null;
+
         IIndexCursor scanCursor = accessor.createSearchCursor(false);
         accessor.search(scanCursor, nullPred);
         try {
@@ -484,6 +553,9 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                 scanCursor.next();
                 builder.add(scanCursor.getTuple());
                 bulkLoader.add(scanCursor.getTuple());
+                if (keyRangeBuilder != null) {
+                    keyRangeBuilder.add(scanCursor.getTuple());
+                }
             }
         } finally {
             scanCursor.close();
@@ -491,6 +563,10 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         }
         bulkLoader.end();
 
+        if (keyRangeBuilder != null) {
+            keyRangeBuilder.end(component.getBTree());
+        }
+
         if (component.getLSMComponentFilter() != null) {
             List<ITupleReference> filterTuples = new ArrayList<ITupleReference>();
             filterTuples.add(flushingComponent.getLSMComponentFilter().getMinTuple());
@@ -506,7 +582,8 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             throws HyracksDataException, IndexException {
         LSMBTreeOpContext opCtx = createOpContext(NoOpOperationCallback.INSTANCE, NoOpOperationCallback.INSTANCE);
         opCtx.setOperation(IndexOperation.MERGE);
-        List<ILSMComponent> mergingComponents = ctx.getComponentHolder();
+        // The policy may schedule several merges through one accessor, which refills ctx's component holder.
+        List<ILSMComponent> mergingComponents = new ArrayList<ILSMComponent>(ctx.getComponentHolder());
         boolean returnDeletedTuples = false;
         if (ctx.getComponentHolder().get(ctx.getComponentHolder().size() - 1) != diskComponents.get(diskComponents
                 .size() - 1)) {
@@ -573,6 +650,25 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             filterManager.writeFilterInfo(mergedComponent.getLSMComponentFilter(), mergedComponent.getBTree());
         }
 
+        if (mergedComponent.getKeyRange() != null) {
+            // The key ranges of the merging components bound the merged keys, so there is no need to track them
+            // while merging. A merging component without a key range leaves the merged component without one.
+            List<ITupleReference> keyRangeTuples = new ArrayList<ITupleReference>();
+            for (int i = 0; i < mergedComponents.size(); ++i) {
+                ILSMComponentFilter keyRange = ((LSMBTreeDiskComponent) mergedComponents.get(i)).getKeyRange();
+                if (keyRange.getMinTuple() == null) {
+                    keyRangeTuples = null;
+                    break;
+                }
+                keyRangeTuples.add(keyRange.getMinTuple());
+                keyRangeTuples.add(keyRange.getMaxTuple());
+            }
+            if (keyRangeTuples != null) {
+                keyRangeManager.updateFilterInfo(mergedComponent.getKeyRange(), keyRangeTuples);
+                keyRangeManager.writeFilterInfo(mergedComponent.getKeyRange(), mergedComponent.getBTree());
+            }
+        }
+
         return mergedComponent;
     }
 
@@ -592,6 +688,9 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         if (component.getLSMComponentFilter() != null) {
             filterManager.readFilterInfo(component.getLSMComponentFilter(), component.getBTree());
         }
+        if (component.getKeyRange() != null) {
+            keyRangeManager.readFilterInfo(component.getKeyRange(), component.getBTree());
+        }
         return component;
     }
 
@@ -626,6 +725,71 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         markAsValidInternal(component.getBTree());
     }
 
+    // Whether the key range of the component may hold keys in the range of the search predicate. A component without
+    // a key range may hold any key.
+    private boolean intersectsKeyRange(LSMBTreeDiskComponent component, ISearchPredicate searchPred,
+            MultiComparator cmp) throws HyracksDataException {
+        ILSMComponentFilter keyRange = component.getKeyRange();
+        if (keyRange.getMinTuple() == null || !(searchPred instanceof RangePredicate)) {
+            return true;
+        }
+        RangePredicate pred = (RangePredicate) searchPred;
+        if (pred.getHighKey() != null) {
+            MultiComparator highKeyCmp = pred.getHighKeyComparator() != null ? pred.getHighKeyComparator() : cmp;
+            int c = highKeyCmp.compare(pred.getHighKey(), keyRange.getMinTuple());
+            if (c < 0 || (c == 0 && !pred.isHighKeyInclusive())) {
+                return false;
+            }
+        }
+        if (pred.getLowKey() != null) {
+            MultiComparator lowKeyCmp = pred.getLowKeyComparator() != null ? pred.getLowKeyComparator() : cmp;
+            int c = lowKeyCmp.compare(pred.getLowKey(), keyRange.getMaxTuple());
+            if (c > 0 || (c == 0 && !pred.isLowKeyInclusive())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Builds the key range of a disk component from the sorted tuples loaded into it: the first key is the minimum,
+    // the last key is the maximum.
+    private class KeyRangeBuilder {
+        private final ILSMComponentFilter keyRange;
+        private final MultiComparator cmp;
+        private final PermutingTupleReference key;
+        private final ArrayTupleBuilder lastKeyBuilder;
+        private final ArrayTupleReference lastKey = new ArrayTupleReference();
+        private boolean isEmpty = true;
+
+        public KeyRangeBuilder(ILSMComponentFilter keyRange) {
+            this.keyRange = keyRange;
+            this.cmp = MultiComparator.create(cmpFactories);
+            int[] keyFields = new int[cmpFactories.length];
+            for (int i = 0; i < keyFields.length; i++) {
+                keyFields[i] = i;
+            }
+            this.key = new PermutingTupleReference(keyFields);
+            this.lastKeyBuilder = new ArrayTupleBuilder(cmpFactories.length);
+        }
+
+        public void add(ITupleReference tuple) throws HyracksDataException {
+            if (isEmpty) {
+                key.reset(tuple);
+                keyRange.update(key, cmp);
+                isEmpty = false;
+            }
+            TupleUtils.copyTuple(lastKeyBuilder, tuple, cmpFactories.length);
+        }
+
+        public void end(ITreeIndex btree) throws HyracksDataException {
+            if (!isEmpty) {
+                lastKey.reset(lastKeyBuilder.getFieldEndOffsets(), lastKeyBuilder.getByteArray());
+                keyRange.update(lastKey, cmp);
+                keyRangeManager.writeFilterInfo(keyRange, btree);
+            }
+        }
+    }
+
     public class LSMBTreeBulkLoader implements IIndexBulkLoader {
         private final ILSMComponent component;
         private final BTreeBulkLoader bulkLoader;
@@ -636,6 +800,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         public final PermutingTupleReference indexTuple;
         public final PermutingTupleReference filterTuple;
         public final MultiComparator filterCmp;
+        private final KeyRangeBuilder keyRangeBuilder;
 
         public LSMBTreeBulkLoader(float fillFactor, boolean verifyInput, long numElementsHint, boolean checkIfEmptyIndex)
                 throws TreeIndexException, HyracksDataException {
@@ -665,6 +830,8 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                 filterCmp = null;
                 filterTuple = null;
             }
+            ILSMComponentFilter keyRange = ((LSMBTreeDiskComponent) component).getKeyRange();
+            keyRangeBuilder = keyRange != null ? new KeyRangeBuilder(keyRange) : null;
         }
 
         @Override
@@ -680,6 +847,9 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
 
                 bulkLoader.add(t);
                 builder.add(t);
+                if (keyRangeBuilder != null) {
+                    keyRangeBuilder.add(t);
+                }
 
                 if (filterTuple != null) {
                     filterTuple.reset(tuple);
@@ -722,6 +892,9 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                     filterManager.writeFilterInfo(component.getLSMComponentFilter(),
                             ((LSMBTreeDiskComponent) component).getBTree());
                 }
+                if (keyRangeBuilder != null) {
+                    keyRangeBuilder.end(((LSMBTreeDiskComponent) component).getBTree());
+                }
 
                 if (isEmptyComponent) {
                     cleanupArtifacts();
@@ -772,62 +945,67 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
 
     @Override
     public ITreeIndexFrameFactory getInteriorFrameFactory() {
-        LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) memoryComponents
-                .get(currentMutableComponentId.get());
-        return mutableComponent.getBTree().getInteriorFrameFactory();
+        return interiorFrameFactory;
     }
 
     @Override
     public int getFieldCount() {
-        LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) memoryComponents
-                .get(currentMutableComponentId.get());
-        return mutableComponent.getBTree().getFieldCount();
+        return fieldCount;
     }
 
+    /**
+     * @return the file of the current memory BTree, or -1 if the memory
+     *         components are skiplists, which have no pages
+     */
     @Override
     public int getFileId() {
-        LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) memoryComponents
-                .get(currentMutableComponentId.get());
-        return mutableComponent.getBTree().getFileId();
+        BTree btree = getCurrentMutableBTree();
+        return btree == null ? -1 : btree.getFileId();
     }
 
+    /**
+     * @return the free page manager of the current memory BTree, or null if
+     *         the memory components are skiplists
+     */
     @Override
     public IFreePageManager getFreePageManager() {
-        LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) memoryComponents
-                .get(currentMutableComponentId.get());
-        return mutableComponent.getBTree().getFreePageManager();
+        BTree btree = getCurrentMutableBTree();
+        return btree == null ? null : btree.getFreePageManager();
     }
 
     @Override
     public ITreeIndexFrameFactory getLeafFrameFactory() {
-        LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) memoryComponents
-                .get(currentMutableComponentId.get());
-        return mutableComponent.getBTree().getLeafFrameFactory();
+        return insertLeafFrameFactory;
     }
 
     @Override
     public long getMemoryAllocationSize() {
         long size = 0;
-        for (ILSMComponent c : memoryComponents) {
-            LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
-            IBufferCache virtualBufferCache = mutableComponent.getBTree().getBufferCache();
+        for (IVirtualBufferCache virtualBufferCache : virtualBufferCaches) {
             size += virtualBufferCache.getNumPages() * virtualBufferCache.getPageSize();
         }
         return size;
     }
 
+    /**
+     * @return the root page of the current memory BTree, or -1 if the memory
+     *         components are skiplists
+     */
     @Override
     public int getRootPageId() {
-        LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) memoryComponents
-                .get(currentMutableComponentId.get());
-        return mutableComponent.getBTree().getRootPageId();
+        BTree btree = getCurrentMutableBTree();
+        return btree == null ? -1 : btree.getRootPageId();
+    }
+
+    private BTree getCurrentMutableBTree() {
+        ILSMComponent c = memoryComponents.get(currentMutableComponentId.get());
+        return c instanceof LSMBTreeMemoryComponent ? ((LSMBTreeMemoryComponent) c).getBTree() : null;
     }
 
     @Override
     public void validate() throws HyracksDataException {
         for (ILSMComponent c : memoryComponents) {
-            LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) c;
-            mutableComponent.getBTree().validate();
+            ((AbstractLSMBTreeMemoryComponent) c).getIndex().validate();
         }
         List<ILSMComponent> immutableComponents = diskComponents;
         for (ILSMComponent c : immutableComponents) {
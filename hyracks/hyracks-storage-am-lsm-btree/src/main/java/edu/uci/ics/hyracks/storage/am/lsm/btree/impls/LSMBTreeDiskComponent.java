@@ -23,11 +23,19 @@ import edu.uci.ics.hyracks.storage.am.lsm.common.impls.AbstractDiskLSMComponent;
 public class LSMBTreeDiskComponent extends AbstractDiskLSMComponent {
     private final BTree btree;
     private final BloomFilter bloomFilter;
+    // The minimum and maximum keys of the component, or null if the index does not keep key ranges.
+    private final ILSMComponentFilter keyRange;
 
     public LSMBTreeDiskComponent(BTree btree, BloomFilter bloomFilter, ILSMComponentFilter filter) {
+        this(btree, bloomFilter, filter, null);
+    }
+
+    public LSMBTreeDiskComponent(BTree btree, BloomFilter bloomFilter, ILSMComponentFilter filter,
+            ILSMComponentFilter keyRange) {
         super(filter);
         this.btree = btree;
         this.bloomFilter = bloomFilter;
+        this.keyRange = keyRange;
     }
 
     @Override
@@ -46,6 +54,10 @@ public class LSMBTreeDiskComponent extends AbstractDiskLSMComponent {
         return bloomFilter;
     }
 
+    public ILSMComponentFilter getKeyRange() {
+        return keyRange;
+    }
+
     @Override
     public long getComponentSize() {
         return btree.getFileReference().getFile().length() + bloomFilter.getFileReference().getFile().length();
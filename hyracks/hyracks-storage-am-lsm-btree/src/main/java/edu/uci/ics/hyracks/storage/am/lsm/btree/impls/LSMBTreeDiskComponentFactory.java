@@ -30,12 +30,19 @@ public class LSMBTreeDiskComponentFactory implements ILSMComponentFactory {
     private final TreeIndexFactory<BTree> btreeFactory;
     private final BloomFilterFactory bloomFilterFactory;
     private final ILSMComponentFilterFactory filterFactory;
+    private final ILSMComponentFilterFactory keyRangeFactory;
 
     public LSMBTreeDiskComponentFactory(TreeIndexFactory<BTree> btreeFactory, BloomFilterFactory bloomFilterFactory,
             ILSMComponentFilterFactory filterFactory) {
+        this(btreeFactory, bloomFilterFactory, filterFactory, null);
+    }
+
+    public LSMBTreeDiskComponentFactory(TreeIndexFactory<BTree> btreeFactory, BloomFilterFactory bloomFilterFactory,
+            ILSMComponentFilterFactory filterFactory, ILSMComponentFilterFactory keyRangeFactory) {
         this.btreeFactory = btreeFactory;
         this.bloomFilterFactory = bloomFilterFactory;
         this.filterFactory = filterFactory;
+        this.keyRangeFactory = keyRangeFactory;
     }
 
     @Override
@@ -43,7 +50,8 @@ public class LSMBTreeDiskComponentFactory implements ILSMComponentFactory {
             HyracksDataException {
         return new LSMBTreeDiskComponent(btreeFactory.createIndexInstance(cfr.getInsertIndexFileReference()),
                 bloomFilterFactory.createBloomFiltertInstance(cfr.getBloomFilterFileReference()),
-                filterFactory == null ? null : filterFactory.createLSMComponentFilter());
+                filterFactory == null ? null : filterFactory.createLSMComponentFilter(),
+                keyRangeFactory == null ? null : keyRangeFactory.createLSMComponentFilter());
     }
 
     @Override
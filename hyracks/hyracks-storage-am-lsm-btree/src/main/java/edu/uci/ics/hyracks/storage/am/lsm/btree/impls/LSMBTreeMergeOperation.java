@@ -25,11 +25,11 @@ import edu.uci.ics.hyracks.api.io.IODeviceHandle;
 import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexCursor;
 import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
-import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperation;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperationCallback;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexAccessorInternal;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMMergeOperation;
 
-public class LSMBTreeMergeOperation implements ILSMIOOperation {
+public class LSMBTreeMergeOperation implements ILSMMergeOperation {
 
     private final ILSMIndexAccessorInternal accessor;
     private final List<ILSMComponent> mergingComponents;
@@ -93,6 +93,7 @@ public class LSMBTreeMergeOperation implements ILSMIOOperation {
         return cursor;
     }
 
+    @Override
     public List<ILSMComponent> getMergingComponents() {
         return mergingComponents;
     }
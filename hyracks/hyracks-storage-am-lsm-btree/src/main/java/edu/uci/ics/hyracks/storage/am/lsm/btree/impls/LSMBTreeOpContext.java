@@ -22,6 +22,7 @@ import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
 import edu.uci.ics.hyracks.storage.am.btree.api.IBTreeLeafFrame;
 import edu.uci.ics.hyracks.storage.am.btree.impls.BTree;
 import edu.uci.ics.hyracks.storage.am.btree.impls.BTreeOpContext;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexAccessor;
 import edu.uci.ics.hyracks.storage.am.common.api.IModificationOperationCallback;
 import edu.uci.ics.hyracks.storage.am.common.api.ISearchOperationCallback;
 import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
@@ -44,6 +45,11 @@ public final class LSMBTreeOpContext implements ILSMIndexOperationContext {
     public BTreeOpContext[] mutableBTreeOpCtxs;
     public BTree.BTreeAccessor currentMutableBTreeAccessor;
     public BTreeOpContext currentMutableBTreeOpCtx;
+    // Only set for memory components that are not BTrees, whose entries in the BTree arrays are null.
+    public InMemorySkipListIndex.SkipListAccessor[] mutableSkipListAccessors;
+    public InMemorySkipListIndex.SkipListAccessor currentMutableSkipListAccessor;
+    public IIndexAccessor[] mutableAccessors;
+    public IIndexAccessor currentMutableAccessor;
     public IndexOperation op;
     public final MultiComparator cmp;
     public final MultiComparator bloomFilterCmp;
@@ -59,25 +65,36 @@ public final class LSMBTreeOpContext implements ILSMIndexOperationContext {
     public LSMBTreeOpContext(List<ILSMComponent> mutableComponents, ITreeIndexFrameFactory insertLeafFrameFactory,
             ITreeIndexFrameFactory deleteLeafFrameFactory, IModificationOperationCallback modificationCallback,
             ISearchOperationCallback searchCallback, int numBloomFilterKeyFields, int[] btreeFields, int[] filterFields) {
-        LSMBTreeMemoryComponent c = (LSMBTreeMemoryComponent) mutableComponents.get(0);
-        IBinaryComparatorFactory cmpFactories[] = c.getBTree().getComparatorFactories();
+        AbstractLSMBTreeMemoryComponent c = (AbstractLSMBTreeMemoryComponent) mutableComponents.get(0);
+        IBinaryComparatorFactory cmpFactories[] = c.getComparatorFactories();
         if (cmpFactories[0] != null) {
-            this.cmp = MultiComparator.create(c.getBTree().getComparatorFactories());
+            this.cmp = MultiComparator.create(c.getComparatorFactories());
         } else {
             this.cmp = null;
         }
 
-        bloomFilterCmp = MultiComparator.create(c.getBTree().getComparatorFactories(), 0, numBloomFilterKeyFields);
+        bloomFilterCmp = MultiComparator.create(c.getComparatorFactories(), 0, numBloomFilterKeyFields);
 
         mutableBTrees = new BTree[mutableComponents.size()];
         mutableBTreeAccessors = new BTree.BTreeAccessor[mutableComponents.size()];
         mutableBTreeOpCtxs = new BTreeOpContext[mutableComponents.size()];
+        mutableSkipListAccessors = new InMemorySkipListIndex.SkipListAccessor[mutableComponents.size()];
+        mutableAccessors = new IIndexAccessor[mutableComponents.size()];
         for (int i = 0; i < mutableComponents.size(); i++) {
-            LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) mutableComponents.get(i);
-            mutableBTrees[i] = mutableComponent.getBTree();
-            mutableBTreeAccessors[i] = (BTree.BTreeAccessor) mutableBTrees[i].createAccessor(modificationCallback,
-                    NoOpOperationCallback.INSTANCE);
-            mutableBTreeOpCtxs[i] = mutableBTreeAccessors[i].getOpContext();
+            if (mutableComponents.get(i) instanceof LSMBTreeMemoryComponent) {
+                LSMBTreeMemoryComponent mutableComponent = (LSMBTreeMemoryComponent) mutableComponents.get(i);
+                mutableBTrees[i] = mutableComponent.getBTree();
+                mutableBTreeAccessors[i] = (BTree.BTreeAccessor) mutableBTrees[i].createAccessor(
+                        modificationCallback, NoOpOperationCallback.INSTANCE);
+                mutableBTreeOpCtxs[i] = mutableBTreeAccessors[i].getOpContext();
+                mutableAccessors[i] = mutableBTreeAccessors[i];
+            } else {
+                LSMBTreeSkipListMemoryComponent mutableComponent = (LSMBTreeSkipListMemoryComponent) mutableComponents
+                        .get(i);
+                mutableSkipListAccessors[i] = mutableComponent.getSkipList().createAccessor(modificationCallback,
+                        NoOpOperationCallback.INSTANCE);
+                mutableAccessors[i] = mutableSkipListAccessors[i];
+            }
         }
 
         this.insertLeafFrameFactory = insertLeafFrameFactory;
@@ -113,13 +130,21 @@ public final class LSMBTreeOpContext implements ILSMIndexOperationContext {
     }
 
     public void setInsertMode() {
-        currentMutableBTreeOpCtx.leafFrame = insertLeafFrame;
-        currentMutableBTreeOpCtx.leafFrameFactory = insertLeafFrameFactory;
+        if (currentMutableBTreeOpCtx != null) {
+            currentMutableBTreeOpCtx.leafFrame = insertLeafFrame;
+            currentMutableBTreeOpCtx.leafFrameFactory = insertLeafFrameFactory;
+        } else {
+            currentMutableSkipListAccessor.setAntimatter(false);
+        }
     }
 
     public void setDeleteMode() {
-        currentMutableBTreeOpCtx.leafFrame = deleteLeafFrame;
-        currentMutableBTreeOpCtx.leafFrameFactory = deleteLeafFrameFactory;
+        if (currentMutableBTreeOpCtx != null) {
+            currentMutableBTreeOpCtx.leafFrame = deleteLeafFrame;
+            currentMutableBTreeOpCtx.leafFrameFactory = deleteLeafFrameFactory;
+        } else {
+            currentMutableSkipListAccessor.setAntimatter(true);
+        }
     }
 
     @Override
@@ -151,6 +176,8 @@ public final class LSMBTreeOpContext implements ILSMIndexOperationContext {
     public void setCurrentMutableComponentId(int currentMutableComponentId) {
         currentMutableBTreeAccessor = mutableBTreeAccessors[currentMutableComponentId];
         currentMutableBTreeOpCtx = mutableBTreeOpCtxs[currentMutableComponentId];
+        currentMutableSkipListAccessor = mutableSkipListAccessors[currentMutableComponentId];
+        currentMutableAccessor = mutableAccessors[currentMutableComponentId];
         switch (op) {
             case SEARCH:
                 break;
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.btree.impls;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndex;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFilter;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
+
+/**
+ * A memory component that keeps its tuples in an {@link InMemorySkipListIndex} instead of a BTree. The virtual
+ * buffer cache only provides the memory budget: the component is full once the tuples written to it take up as
+ * many bytes as the buffer cache has pages.
+ */
+public class LSMBTreeSkipListMemoryComponent extends AbstractLSMBTreeMemoryComponent {
+
+    private final InMemorySkipListIndex skipList;
+    private final long budget;
+
+    public LSMBTreeSkipListMemoryComponent(InMemorySkipListIndex skipList, IVirtualBufferCache vbc, boolean isActive,
+            ILSMComponentFilter filter) {
+        super(vbc, isActive, filter);
+        this.skipList = skipList;
+        this.budget = (long) vbc.getNumPages() * vbc.getPageSize();
+    }
+
+    public InMemorySkipListIndex getSkipList() {
+        return skipList;
+    }
+
+    @Override
+    public IIndex getIndex() {
+        return skipList;
+    }
+
+    @Override
+    public IBinaryComparatorFactory[] getComparatorFactories() {
+        return skipList.getComparatorFactories();
+    }
+
+    @Override
+    public long getNumElements() {
+        return skipList.getNumElements();
+    }
+
+    @Override
+    public boolean isFull() {
+        return skipList.getAllocatedBytes() >= budget;
+    }
+
+    @Override
+    public void activate() throws HyracksDataException {
+        skipList.create();
+        skipList.activate();
+    }
+
+    @Override
+    public void deactivate() throws HyracksDataException {
+        skipList.deactivate();
+        skipList.destroy();
+    }
+
+    @Override
+    public void destroy() throws HyracksDataException {
+        skipList.destroy();
+    }
+
+    @Override
+    public void clear() throws HyracksDataException {
+        reset();
+    }
+
+    @Override
+    protected void reset() throws HyracksDataException {
+        super.reset();
+        skipList.clear();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.btree.impls;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFilterFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentFileReferences;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+
+/**
+ * Creates {@link InMemorySkipListIndex} memory components. A skiplist has no
+ * pages and cannot be bulk loaded: an LSMBTree bulk loads into a new disk
+ * component, and with skiplist memory components it reports no file, root page
+ * or free page manager through {@link edu.uci.ics.hyracks.storage.am.common.api.ITreeIndex},
+ * so the page-level tree statistics are not available.
+ */
+public class LSMBTreeSkipListMemoryComponentFactory implements ILSMComponentFactory {
+    private final IVirtualBufferCache virtualBufferCache;
+    private final ITypeTraits[] typeTraits;
+    private final IBinaryComparatorFactory[] cmpFactories;
+    private final ILSMComponentFilterFactory filterFactory;
+
+    public LSMBTreeSkipListMemoryComponentFactory(IVirtualBufferCache virtualBufferCache, ITypeTraits[] typeTraits,
+            IBinaryComparatorFactory[] cmpFactories, ILSMComponentFilterFactory filterFactory) {
+        this.virtualBufferCache = virtualBufferCache;
+        this.typeTraits = typeTraits;
+        this.cmpFactories = cmpFactories;
+        this.filterFactory = filterFactory;
+    }
+
+    @Override
+    public ILSMComponent createLSMComponentInstance(LSMComponentFileReferences cfr) throws IndexException,
+            HyracksDataException {
+        return new LSMBTreeSkipListMemoryComponent(new InMemorySkipListIndex(virtualBufferCache, typeTraits,
+                cmpFactories), virtualBufferCache, false, filterFactory == null ? null
+                : filterFactory.createLSMComponentFilter());
+    }
+
+    @Override
+    public IBufferCache getBufferCache() {
+        return virtualBufferCache;
+    }
+}
@@ -24,11 +24,11 @@ import edu.uci.ics.hyracks.api.io.IODeviceHandle;
 import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexCursor;
 import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
-import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperation;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperationCallback;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexAccessorInternal;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMMergeOperation;
 
-public class LSMBTreeWithBuddyMergeOperation implements ILSMIOOperation {
+public class LSMBTreeWithBuddyMergeOperation implements ILSMMergeOperation {
 
 	private final ILSMIndexAccessorInternal accessor;
 	private final List<ILSMComponent> mergingComponents;
@@ -121,6 +121,7 @@ public class LSMBTreeWithBuddyMergeOperation implements ILSMIOOperation {
 		return cursor;
 	}
 
+	@Override
 	public List<ILSMComponent> getMergingComponents() {
 		return mergingComponents;
 	}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.btree.impls;
+
+import java.util.Iterator;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.storage.am.btree.impls.RangePredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.ICursorInitialState;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexCursor;
+import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.tuples.LSMBTreeTupleReference;
+
+/**
+ * Range search over an {@link InMemorySkipListIndex}. The skiplist iterators are weakly consistent: the cursor never
+ * blocks concurrent writers and sees every tuple that was in the range when it was opened and not removed since.
+ */
+public class SkipListRangeSearchCursor implements IIndexCursor {
+    private final InMemorySkipListIndex index;
+
+    private Iterator<LSMBTreeTupleReference> iterator;
+    private ITupleReference highKey;
+    private MultiComparator highKeyCmp;
+    private boolean highKeyInclusive;
+    private LSMBTreeTupleReference nextTuple;
+    private LSMBTreeTupleReference tuple;
+
+    public SkipListRangeSearchCursor(InMemorySkipListIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public void open(ICursorInitialState initialState, ISearchPredicate searchPred) throws IndexException,
+            HyracksDataException {
+        RangePredicate pred = (RangePredicate) searchPred;
+        iterator = index.iterator(pred);
+        highKey = pred.getHighKey();
+        highKeyCmp = pred.getHighKeyComparator() != null ? pred.getHighKeyComparator() : index.getMultiComparator();
+        highKeyInclusive = pred.isHighKeyInclusive();
+        nextTuple = null;
+        tuple = null;
+    }
+
+    @Override
+    public boolean hasNext() throws HyracksDataException, IndexException {
+        if (nextTuple != null) {
+            return true;
+        }
+        if (iterator == null || !iterator.hasNext()) {
+            return false;
+        }
+        LSMBTreeTupleReference candidate = iterator.next();
+        if (highKey != null) {
+            int c = highKeyCmp.compare(highKey, candidate);
+            if (c < 0 || (c == 0 && !highKeyInclusive)) {
+                iterator = null;
+                return false;
+            }
+        }
+        nextTuple = candidate;
+        return true;
+    }
+
+    @Override
+    public void next() throws HyracksDataException {
+        tuple = nextTuple;
+        nextTuple = null;
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        iterator = null;
+        nextTuple = null;
+        tuple = null;
+    }
+
+    @Override
+    public void reset() throws HyracksDataException, IndexException {
+        close();
+    }
+
+    @Override
+    public ITupleReference getTuple() {
+        return tuple;
+    }
+}
@@ -15,6 +15,7 @@
 
 package edu.uci.ics.hyracks.storage.am.lsm.btree.util;
 
+import java.util.Arrays;
 import java.util.List;
 
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
@@ -34,10 +35,12 @@ import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.ExternalBTree;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.ExternalBTreeWithBuddy;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTree;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTreeFileManager;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTreeSkipListMemoryComponentFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTreeWithBuddyFileManager;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.tuples.LSMBTreeCopyTupleWriterFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.tuples.LSMBTreeRefrencingTupleWriterFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.btree.tuples.LSMBTreeTupleWriterFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperationCallback;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperationScheduler;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexFileManager;
@@ -48,6 +51,7 @@ import edu.uci.ics.hyracks.storage.am.lsm.common.frames.LSMComponentFilterFrameF
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.BTreeFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentFilterFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentFilterManager;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentKeyRangeManager;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.TreeIndexFactory;
 import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
 import edu.uci.ics.hyracks.storage.common.file.IFileMapProvider;
@@ -59,6 +63,22 @@ public class LSMBTreeUtils {
             ILSMMergePolicy mergePolicy, ILSMOperationTracker opTracker, ILSMIOOperationScheduler ioScheduler,
             ILSMIOOperationCallback ioOpCallback, boolean needKeyDupCheck, ITypeTraits[] filterTypeTraits,
             IBinaryComparatorFactory[] filterCmpFactories, int[] btreeFields, int[] filterFields) {
+        return createLSMTree(virtualBufferCaches, file, diskBufferCache, diskFileMapProvider, typeTraits,
+                cmpFactories, bloomFilterKeyFields, bloomFilterFalsePositiveRate, mergePolicy, opTracker, ioScheduler,
+                ioOpCallback, needKeyDupCheck, filterTypeTraits, filterCmpFactories, btreeFields, filterFields, false);
+    }
+
+    /**
+     * Creates an LSMBTree whose memory components are either BTrees over the virtual buffer caches or, if
+     * useSkipListMemoryComponents is set, lock-free skiplists that use the virtual buffer caches as memory budgets.
+     */
+    public static LSMBTree createLSMTree(List<IVirtualBufferCache> virtualBufferCaches, FileReference file,
+            IBufferCache diskBufferCache, IFileMapProvider diskFileMapProvider, ITypeTraits[] typeTraits,
+            IBinaryComparatorFactory[] cmpFactories, int[] bloomFilterKeyFields, double bloomFilterFalsePositiveRate,
+            ILSMMergePolicy mergePolicy, ILSMOperationTracker opTracker, ILSMIOOperationScheduler ioScheduler,
+            ILSMIOOperationCallback ioOpCallback, boolean needKeyDupCheck, ITypeTraits[] filterTypeTraits,
+            IBinaryComparatorFactory[] filterCmpFactories, int[] btreeFields, int[] filterFields,
+            boolean useSkipListMemoryComponents) {
         LSMBTreeTupleWriterFactory insertTupleWriterFactory = new LSMBTreeTupleWriterFactory(typeTraits,
                 cmpFactories.length, false);
         LSMBTreeTupleWriterFactory deleteTupleWriterFactory = new LSMBTreeTupleWriterFactory(typeTraits,
@@ -93,13 +113,32 @@ public class LSMBTreeUtils {
             filterManager = new LSMComponentFilterManager(diskBufferCache, filterFrameFactory);
         }
 
+        // The minimum and maximum keys of the disk components, which searches use to skip components.
+        TypeAwareTupleWriterFactory keyTupleWriterFactory = new TypeAwareTupleWriterFactory(Arrays.copyOf(typeTraits,
+                cmpFactories.length));
+        LSMComponentFilterFactory keyRangeFactory = new LSMComponentFilterFactory(keyTupleWriterFactory, cmpFactories);
+        LSMComponentKeyRangeManager keyRangeManager = new LSMComponentKeyRangeManager(diskBufferCache,
+                keyTupleWriterFactory);
+
         ILSMIndexFileManager fileNameManager = new LSMBTreeFileManager(diskFileMapProvider, file, diskBTreeFactory);
 
+        if (useSkipListMemoryComponents) {
+            ILSMComponentFactory[] memoryComponentFactories = new ILSMComponentFactory[virtualBufferCaches.size()];
+            for (int i = 0; i < memoryComponentFactories.length; i++) {
+                memoryComponentFactories[i] = new LSMBTreeSkipListMemoryComponentFactory(virtualBufferCaches.get(i),
+                        typeTraits, cmpFactories, filterFactory);
+            }
+            return new LSMBTree(memoryComponentFactories, interiorFrameFactory, insertLeafFrameFactory,
+                    deleteLeafFrameFactory, fileNameManager, diskBTreeFactory, bulkLoadBTreeFactory,
+                    bloomFilterFactory, filterFactory, filterFrameFactory, filterManager, keyRangeFactory,
+                    keyRangeManager, bloomFilterFalsePositiveRate, diskFileMapProvider, typeTraits.length, cmpFactories,
+                    mergePolicy, opTracker, ioScheduler, ioOpCallback, needKeyDupCheck, btreeFields, filterFields);
+        }
         LSMBTree lsmTree = new LSMBTree(virtualBufferCaches, interiorFrameFactory, insertLeafFrameFactory,
                 deleteLeafFrameFactory, fileNameManager, diskBTreeFactory, bulkLoadBTreeFactory, bloomFilterFactory,
-                filterFactory, filterFrameFactory, filterManager, bloomFilterFalsePositiveRate, diskFileMapProvider,
-                typeTraits.length, cmpFactories, mergePolicy, opTracker, ioScheduler, ioOpCallback, needKeyDupCheck,
-                btreeFields, filterFields);
+                filterFactory, filterFrameFactory, filterManager, keyRangeFactory, keyRangeManager,
+                bloomFilterFalsePositiveRate, diskFileMapProvider, typeTraits.length, cmpFactories, mergePolicy,
+                opTracker, ioScheduler, ioOpCallback, needKeyDupCheck, btreeFields, filterFields);
         return lsmTree;
     }
 
@@ -176,6 +176,9 @@ public abstract class AbstractLSMIndex implements ILSMIndexInternal {
 
         // Force modified metadata page to disk.
         bufferCache.force(fileId, true);
+
+        // The component is complete and will not change anymore.
+        bufferCache.setFileReadOnly(fileId);
     }
 
     @Override
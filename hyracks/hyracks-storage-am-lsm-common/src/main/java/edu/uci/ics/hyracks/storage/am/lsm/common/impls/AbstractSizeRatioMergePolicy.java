@@ -0,0 +1,89 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common.impls;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent.ComponentState;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndex;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMMergePolicy;
+
+/**
+ * Base class of the merge policies that decide by comparing the sizes of adjacent disk components. Components that
+ * are already being merged are skipped rather than blocking the policy, so a new merge can be scheduled while older
+ * components are still merging as long as the two merges do not share a component. A single call may schedule
+ * several such merges.
+ */
+public abstract class AbstractSizeRatioMergePolicy implements ILSMMergePolicy {
+
+    protected double sizeRatio;
+
+    @Override
+    public void diskComponentAdded(final ILSMIndex index, boolean fullMergeIsRequested) throws HyracksDataException,
+            IndexException {
+        ILSMIndexAccessor accessor = (ILSMIndexAccessor) index.createAccessor(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        if (fullMergeIsRequested) {
+            // A full merge waits until no component is being merged; the harness asks again after each merge.
+            for (ILSMComponent c : index.getImmutableComponents()) {
+                if (!isMergable(c)) {
+                    return;
+                }
+            }
+            accessor.scheduleFullMerge(index.getIOOperationCallback());
+            return;
+        }
+        // Each merge takes at least two components, which bounds the number of merges even if the scheduling of
+        // one of them fails and leaves its components mergable.
+        int maxMerges = index.getImmutableComponents().size() / 2;
+        for (int i = 0; i < maxMerges; i++) {
+            // Merges may complete synchronously and change the components, so look at them again every time.
+            List<ILSMComponent> immutableComponents = new ArrayList<ILSMComponent>(index.getImmutableComponents());
+            List<ILSMComponent> mergableComponents = findMergableComponents(immutableComponents);
+            if (mergableComponents == null) {
+                return;
+            }
+            accessor.scheduleMerge(index.getIOOperationCallback(), mergableComponents);
+        }
+    }
+
+    /**
+     * @param immutableComponents
+     *            the disk components, newest first.
+     * @return a run of at least two adjacent mergable components, newest first, or null if nothing should be merged.
+     */
+    protected abstract List<ILSMComponent> findMergableComponents(List<ILSMComponent> immutableComponents);
+
+    protected static boolean isMergable(ILSMComponent c) {
+        return c.getState() == ComponentState.READABLE_UNWRITABLE;
+    }
+
+    protected static long getComponentSize(ILSMComponent c) {
+        return ((AbstractDiskLSMComponent) c).getComponentSize();
+    }
+
+    @Override
+    public void configure(Map<String, String> properties) {
+        sizeRatio = Double.parseDouble(properties.get("size-ratio"));
+    }
+}
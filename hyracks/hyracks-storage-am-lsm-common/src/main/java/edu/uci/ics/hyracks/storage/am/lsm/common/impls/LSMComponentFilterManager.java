@@ -62,10 +62,10 @@ public class LSMComponentFilterManager implements ILSMComponentFilterManager {
         int componentFilterPageId;
         try {
             metadataFrame.setPage(metadataPage);
-            componentFilterPageId = metadataFrame.getLSMComponentFilterPageId();
+            componentFilterPageId = getFilterPageId(metadataFrame);
             if (componentFilterPageId == -1) {
                 componentFilterPageId = treeIndex.getFreePageManager().getFreePage(metadataFrame);
-                metadataFrame.setLSMComponentFilterPageId(componentFilterPageId);
+                setFilterPageId(metadataFrame, componentFilterPageId);
             }
         } finally {
             metadataPage.releaseWriteLatch(true);
@@ -102,7 +102,7 @@ public class LSMComponentFilterManager implements ILSMComponentFilterManager {
         int componentFilterPageId;
         try {
             metadataFrame.setPage(metadataPage);
-            componentFilterPageId = metadataFrame.getLSMComponentFilterPageId();
+            componentFilterPageId = getFilterPageId(metadataFrame);
             if (componentFilterPageId == -1) {
                 return false;
             }
@@ -131,4 +131,12 @@ public class LSMComponentFilterManager implements ILSMComponentFilterManager {
         }
         return true;
     }
+
+    protected int getFilterPageId(ITreeIndexMetaDataFrame metadataFrame) {
+        return metadataFrame.getLSMComponentFilterPageId();
+    }
+
+    protected void setFilterPageId(ITreeIndexMetaDataFrame metadataFrame, int filterPageId) {
+        metadataFrame.setLSMComponentFilterPageId(filterPageId);
+    }
 }
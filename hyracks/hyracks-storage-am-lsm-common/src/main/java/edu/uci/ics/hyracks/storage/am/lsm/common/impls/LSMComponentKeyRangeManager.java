@@ -0,0 +1,65 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common.impls;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndex;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexMetaDataFrame;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexTupleWriter;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexTupleWriterFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponentFilter;
+import edu.uci.ics.hyracks.storage.am.lsm.common.frames.LSMComponentFilterFrameFactory;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+
+/**
+ * Persists the minimum and maximum keys of a disk component, kept in an {@link ILSMComponentFilter} over the key
+ * fields, in a page of its own so that it can be used next to a filter on other fields.
+ */
+public class LSMComponentKeyRangeManager extends LSMComponentFilterManager {
+
+    private final ITreeIndexTupleWriter tupleWriter;
+    private final int maxKeySize;
+
+    public LSMComponentKeyRangeManager(IBufferCache bufferCache, ITreeIndexTupleWriterFactory keyTupleWriterFactory) {
+        super(bufferCache, new LSMComponentFilterFrameFactory(keyTupleWriterFactory, bufferCache.getPageSize()));
+        this.tupleWriter = keyTupleWriterFactory.createTupleWriter();
+        // The filter frame gives each of the two keys half of the page, after two flag bytes.
+        this.maxKeySize = bufferCache.getPageSize() / 2 - 2;
+    }
+
+    @Override
+    public void writeFilterInfo(ILSMComponentFilter keyRange, ITreeIndex treeIndex) throws HyracksDataException {
+        // A component whose keys do not fit is not skipped by searches after it has been reopened.
+        if (fits(keyRange.getMinTuple()) && fits(keyRange.getMaxTuple())) {
+            super.writeFilterInfo(keyRange, treeIndex);
+        }
+    }
+
+    private boolean fits(ITupleReference key) {
+        return key != null && tupleWriter.bytesRequired(key) <= maxKeySize;
+    }
+
+    @Override
+    protected int getFilterPageId(ITreeIndexMetaDataFrame metadataFrame) {
+        return metadataFrame.getLSMComponentKeyRangePageId();
+    }
+
+    @Override
+    protected void setFilterPageId(ITreeIndexMetaDataFrame metadataFrame, int keyRangePageId) {
+        metadataFrame.setLSMComponentKeyRangePageId(keyRangePageId);
+    }
+}
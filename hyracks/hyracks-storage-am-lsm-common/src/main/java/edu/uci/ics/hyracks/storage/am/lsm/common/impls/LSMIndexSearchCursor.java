@@ -17,7 +17,6 @@ package edu.uci.ics.hyracks.storage.am.lsm.common.impls;
 
 import java.util.Comparator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
@@ -35,7 +34,7 @@ import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
 public abstract class LSMIndexSearchCursor implements ITreeIndexCursor {
     protected PriorityQueueElement outputElement;
     protected IIndexCursor[] rangeCursors;
-    protected PriorityQueue<PriorityQueueElement> outputPriorityQueue;
+    protected TournamentTree<PriorityQueueElement> outputPriorityQueue;
     protected PriorityQueueComparator pqCmp;
     protected MultiComparator cmp;
     protected boolean needPush;
@@ -58,8 +57,7 @@ public abstract class LSMIndexSearchCursor implements ITreeIndexCursor {
     }
 
     public void initPriorityQueue() throws HyracksDataException, IndexException {
-        int pqInitSize = (rangeCursors.length > 0) ? rangeCursors.length : 1;
-        outputPriorityQueue = new PriorityQueue<PriorityQueueElement>(pqInitSize, pqCmp);
+        outputPriorityQueue = new TournamentTree<PriorityQueueElement>(rangeCursors.length, pqCmp);
         for (int i = 0; i < rangeCursors.length; i++) {
             pushIntoPriorityQueue(new PriorityQueueElement(i));
         }
@@ -145,7 +143,7 @@ public abstract class LSMIndexSearchCursor implements ITreeIndexCursor {
         if (rangeCursors[cursorIndex].hasNext()) {
             rangeCursors[cursorIndex].next();
             e.reset(rangeCursors[cursorIndex].getTuple());
-            outputPriorityQueue.offer(e);
+            outputPriorityQueue.offer(cursorIndex, e);
             return true;
         }
         rangeCursors[cursorIndex].close();
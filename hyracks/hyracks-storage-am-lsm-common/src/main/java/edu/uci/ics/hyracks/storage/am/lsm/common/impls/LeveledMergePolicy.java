@@ -0,0 +1,52 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common.impls;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+
+/**
+ * Leveled merging: every disk component must be at least size-ratio times larger than the next newer one. A newer
+ * component that has grown too large for that is merged into the older ones until the ratio holds again, so the
+ * number of components, and with it the work of a search, stays logarithmic in the size of the index.
+ */
+public class LeveledMergePolicy extends AbstractSizeRatioMergePolicy {
+
+    @Override
+    protected List<ILSMComponent> findMergableComponents(List<ILSMComponent> immutableComponents) {
+        for (int i = 0; i + 1 < immutableComponents.size(); i++) {
+            if (!isMergable(immutableComponents.get(i)) || !isMergable(immutableComponents.get(i + 1))) {
+                continue;
+            }
+            long mergedSize = getComponentSize(immutableComponents.get(i));
+            if (getComponentSize(immutableComponents.get(i + 1)) >= sizeRatio * mergedSize) {
+                continue;
+            }
+            // Merge the pair and pull in every older component that would violate the ratio with the result.
+            int end = i + 1;
+            mergedSize += getComponentSize(immutableComponents.get(end));
+            while (end + 1 < immutableComponents.size() && isMergable(immutableComponents.get(end + 1))
+                    && getComponentSize(immutableComponents.get(end + 1)) < sizeRatio * mergedSize) {
+                end++;
+                mergedSize += getComponentSize(immutableComponents.get(end));
+            }
+            return new ArrayList<ILSMComponent>(immutableComponents.subList(i, end + 1));
+        }
+        return null;
+    }
+}
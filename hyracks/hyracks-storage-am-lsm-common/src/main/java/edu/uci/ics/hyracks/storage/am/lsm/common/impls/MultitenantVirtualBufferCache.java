@@ -60,6 +60,16 @@ public class MultitenantVirtualBufferCache implements IVirtualBufferCache {
         return vbc.pin(dpid, newPage);
     }
 
+    @Override
+    public ICachedPage pinOneShot(long dpid) throws HyracksDataException {
+        return vbc.pinOneShot(dpid);
+    }
+
+    @Override
+    public void prefetch(long dpid, int numPages) throws HyracksDataException {
+        vbc.prefetch(dpid, numPages);
+    }
+
     @Override
     public void unpin(ICachedPage page) throws HyracksDataException {
         vbc.unpin(page);
@@ -70,6 +80,11 @@ public class MultitenantVirtualBufferCache implements IVirtualBufferCache {
         vbc.flushDirtyPage(page);
     }
 
+    @Override
+    public void setFileReadOnly(int fileId) throws HyracksDataException {
+        vbc.setFileReadOnly(fileId);
+    }
+
     @Override
     public void force(int fileId, boolean metadata) throws HyracksDataException {
         vbc.force(fileId, metadata);
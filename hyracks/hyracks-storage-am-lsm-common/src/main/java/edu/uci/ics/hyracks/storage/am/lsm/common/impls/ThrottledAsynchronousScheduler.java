@@ -0,0 +1,267 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common.impls;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.IODeviceHandle;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperation;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperation.LSMIOOpertionType;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperationScheduler;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMMergeOperation;
+
+/**
+ * An asynchronous scheduler that keeps merges from taking over the disks. Flushes are handled like in
+ * {@link AsynchronousScheduler}: they start right away unless a flush of the same index is still running, and they
+ * never wait for merges. Merges wait in a FIFO queue until every device they read or write runs fewer than
+ * maxConcurrentMergesPerDevice merges, and their start is paced so that the components they read add up to at most
+ * mergeBytesPerSecond over time.
+ */
+public class ThrottledAsynchronousScheduler implements ILSMIOOperationScheduler {
+
+    private final ExecutorService executor;
+    private final long mergeBytesPerSecond;
+    private final int maxConcurrentMergesPerDevice;
+
+    // The following are guarded by this scheduler.
+    private final Map<String, ILSMIOOperation> runningFlushOperations = new HashMap<String, ILSMIOOperation>();
+    private final Map<String, LinkedList<ILSMIOOperation>> waitingFlushOperations = new HashMap<String, LinkedList<ILSMIOOperation>>();
+    private final LinkedList<ILSMIOOperation> waitingMergeOperations = new LinkedList<ILSMIOOperation>();
+    private final Map<ILSMIOOperation, Set<IODeviceHandle>> runningMergeOperations = new HashMap<ILSMIOOperation, Set<IODeviceHandle>>();
+    private final Map<IODeviceHandle, Integer> runningMergesPerDevice = new HashMap<IODeviceHandle, Integer>();
+    private final Map<ILSMIOOperation, Long> mergeBytes = new HashMap<ILSMIOOperation, Long>();
+    private int numWaitingFlushes;
+
+    // The following are guarded by the rate lock.
+    private final Object rateLock = new Object();
+    private long nextMergeStartNanos;
+    private long totalMergeBytes;
+    private long totalMergeThrottleNanos;
+
+    /**
+     * @param mergeBytesPerSecond
+     *            the merge budget in bytes per second, or 0 for no limit.
+     * @param maxConcurrentMergesPerDevice
+     *            the number of merges that may read or write an IO device at the same time.
+     */
+    public ThrottledAsynchronousScheduler(ThreadFactory threadFactory, long mergeBytesPerSecond,
+            int maxConcurrentMergesPerDevice) {
+        if (maxConcurrentMergesPerDevice < 1) {
+            throw new IllegalArgumentException("At least one merge per device must be allowed");
+        }
+        this.mergeBytesPerSecond = mergeBytesPerSecond;
+        this.maxConcurrentMergesPerDevice = maxConcurrentMergesPerDevice;
+        // Creating an executor with the same configuration of Executors.newCachedThreadPool.
+        executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), threadFactory) {
+
+            @Override
+            protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+                return new LSMIOOperationTask<T>(callable);
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                super.beforeExecute(t, r);
+                ILSMIOOperation op = ((LSMIOOperationTask<Boolean>) r).getOperation();
+                if (op.getIOOpertionType() == LSMIOOpertionType.MERGE) {
+                    throttleMerge(op);
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            protected void afterExecute(Runnable r, Throwable t) {
+                super.afterExecute(r, t);
+                operationCompleted(((LSMIOOperationTask<Boolean>) r).getOperation());
+            }
+        };
+    }
+
+    @Override
+    public synchronized void scheduleOperation(ILSMIOOperation operation) throws HyracksDataException {
+        if (operation.getIOOpertionType() == LSMIOOpertionType.MERGE) {
+            // Sized here so that a failure reaches the caller, before the merge holds any device slots.
+            mergeBytes.put(operation, getMergeBytes(operation));
+            waitingMergeOperations.add(operation);
+            startMerges();
+        } else {
+            String id = operation.getIndexUniqueIdentifier();
+            if (runningFlushOperations.containsKey(id)) {
+                LinkedList<ILSMIOOperation> q = waitingFlushOperations.get(id);
+                if (q == null) {
+                    q = new LinkedList<ILSMIOOperation>();
+                    waitingFlushOperations.put(id, q);
+                }
+                q.add(operation);
+                numWaitingFlushes++;
+            } else {
+                runningFlushOperations.put(id, operation);
+                executor.submit(operation);
+            }
+        }
+    }
+
+    private synchronized void operationCompleted(ILSMIOOperation operation) {
+        if (operation.getIOOpertionType() == LSMIOOpertionType.MERGE) {
+            // The devices are the ones counted when the merge started, the merged components may be gone by now.
+            for (IODeviceHandle dev : runningMergeOperations.remove(operation)) {
+                int count = runningMergesPerDevice.get(dev) - 1;
+                if (count == 0) {
+                    runningMergesPerDevice.remove(dev);
+                } else {
+                    runningMergesPerDevice.put(dev, count);
+                }
+            }
+            startMerges();
+        } else {
+            String id = operation.getIndexUniqueIdentifier();
+            runningFlushOperations.remove(id);
+            LinkedList<ILSMIOOperation> q = waitingFlushOperations.get(id);
+            if (q != null) {
+                ILSMIOOperation op = q.poll();
+                numWaitingFlushes--;
+                if (q.isEmpty()) {
+                    waitingFlushOperations.remove(id);
+                }
+                runningFlushOperations.put(id, op);
+                executor.submit(op);
+            }
+        }
+    }
+
+    /**
+     * Starts the waiting merges, in the order in which they were scheduled, whose devices have a free merge slot.
+     */
+    private void startMerges() {
+        Iterator<ILSMIOOperation> iter = waitingMergeOperations.iterator();
+        while (iter.hasNext()) {
+            ILSMIOOperation op = iter.next();
+            Set<IODeviceHandle> devs = getDevices(op);
+            boolean canStart = true;
+            for (IODeviceHandle dev : devs) {
+                Integer count = runningMergesPerDevice.get(dev);
+                if (count != null && count >= maxConcurrentMergesPerDevice) {
+                    canStart = false;
+                    break;
+                }
+            }
+            if (!canStart) {
+                continue;
+            }
+            for (IODeviceHandle dev : devs) {
+                Integer count = runningMergesPerDevice.get(dev);
+                runningMergesPerDevice.put(dev, count == null ? 1 : count + 1);
+            }
+            iter.remove();
+            runningMergeOperations.put(op, devs);
+            executor.submit(op);
+        }
+    }
+
+    private static Set<IODeviceHandle> getDevices(ILSMIOOperation operation) {
+        Set<IODeviceHandle> devs = new HashSet<IODeviceHandle>(operation.getReadDevices());
+        devs.addAll(operation.getWriteDevices());
+        return devs;
+    }
+
+    /**
+     * Charges the size of the merged components, measured when the merge was scheduled, to the merge budget and sleeps
+     * until the budget allows the merge to start. Called by the thread that is about to run the merge, which keeps holding
+     * its device slots while it waits.
+     */
+    private void throttleMerge(ILSMIOOperation operation) {
+        long bytes;
+        synchronized (this) {
+            bytes = mergeBytes.remove(operation);
+        }
+        long waitNanos = 0;
+        synchronized (rateLock) {
+            totalMergeBytes += bytes;
+            if (mergeBytesPerSecond > 0) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextMergeStartNanos);
+                waitNanos = start - now;
+                nextMergeStartNanos = start + (long) (bytes * 1e9 / mergeBytesPerSecond);
+                totalMergeThrottleNanos += waitNanos;
+            }
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static long getMergeBytes(ILSMIOOperation operation) {
+        long mergeBytes = 0;
+        if (operation instanceof ILSMMergeOperation) {
+            for (ILSMComponent c : ((ILSMMergeOperation) operation).getMergingComponents()) {
+                mergeBytes += ((AbstractDiskLSMComponent) c).getComponentSize();
+            }
+        }
+        return mergeBytes;
+    }
+
+    public synchronized int getNumRunningFlushes() {
+        return runningFlushOperations.size();
+    }
+
+    public synchronized int getNumWaitingFlushes() {
+        return numWaitingFlushes;
+    }
+
+    public synchronized int getNumRunningMerges() {
+        return runningMergeOperations.size();
+    }
+
+    public synchronized int getNumWaitingMerges() {
+        return waitingMergeOperations.size();
+    }
+
+    public long getTotalMergeBytes() {
+        synchronized (rateLock) {
+            return totalMergeBytes;
+        }
+    }
+
+    public long getTotalMergeThrottleTimeMillis() {
+        synchronized (rateLock) {
+            return TimeUnit.NANOSECONDS.toMillis(totalMergeThrottleNanos);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
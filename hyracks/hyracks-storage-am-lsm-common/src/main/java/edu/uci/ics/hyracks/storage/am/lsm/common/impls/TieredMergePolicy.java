@@ -0,0 +1,68 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common.impls;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+
+/**
+ * Size-tiered merging: adjacent components whose sizes are within size-ratio of each other form a tier, and once a
+ * tier holds components-per-tier components they are merged into one component of the next tier. Every tuple is
+ * rewritten about once per tier, while a search has to look at up to components-per-tier components per tier.
+ */
+public class TieredMergePolicy extends AbstractSizeRatioMergePolicy {
+
+    private int componentsPerTier;
+
+    @Override
+    protected List<ILSMComponent> findMergableComponents(List<ILSMComponent> immutableComponents) {
+        int start = 0;
+        for (int i = 0; i < immutableComponents.size(); i++) {
+            if (!isMergable(immutableComponents.get(i))) {
+                start = i + 1;
+                continue;
+            }
+            // Shrink the window from the newer end until all of its sizes are within the ratio again.
+            while (start < i && !isWithinRatio(immutableComponents, start, i)) {
+                start++;
+            }
+            if (i - start + 1 >= componentsPerTier) {
+                return new ArrayList<ILSMComponent>(immutableComponents.subList(start, i + 1));
+            }
+        }
+        return null;
+    }
+
+    private boolean isWithinRatio(List<ILSMComponent> immutableComponents, int start, int end) {
+        long minSize = Long.MAX_VALUE;
+        long maxSize = 0;
+        for (int i = start; i <= end; i++) {
+            long size = getComponentSize(immutableComponents.get(i));
+            minSize = Math.min(minSize, size);
+            maxSize = Math.max(maxSize, size);
+        }
+        return maxSize <= sizeRatio * minSize;
+    }
+
+    @Override
+    public void configure(Map<String, String> properties) {
+        super.configure(properties);
+        componentsPerTier = Math.max(2, Integer.parseInt(properties.get("components-per-tier")));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common.impls;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A priority queue over a fixed number of slots, each of which holds at most one element. {@link LSMIndexSearchCursor}
+ * uses one slot per component cursor. Every inner node of the tree remembers the slot that wins its subtree, so
+ * adding or removing the element of any slot costs one comparison per level of the tree.
+ * While a single component produces a run of tuples that all come before the heads of the other components, the
+ * element of that component is kept out of the tree: polling it is free and putting back its next tuple costs a single
+ * comparison against the winner of the tree.
+ */
+public class TournamentTree<T> {
+    private final Comparator<T> cmp;
+    private final int numLeaves;
+    private final Object[] elements;
+    private final int[] winners;
+    private int size;
+    // The slot of an element that is not in the tree because it comes before all the elements in the tree, or -1.
+    private int detachedSlot;
+
+    public TournamentTree(int numSlots, Comparator<T> cmp) {
+        this.cmp = cmp;
+        int n = 1;
+        while (n < numSlots) {
+            n <<= 1;
+        }
+        numLeaves = n;
+        elements = new Object[numSlots];
+        winners = new int[2 * numLeaves];
+        Arrays.fill(winners, -1);
+        detachedSlot = -1;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public T peek() {
+        if (detachedSlot >= 0) {
+            return getElement(detachedSlot);
+        }
+        return winners[1] < 0 ? null : getElement(winners[1]);
+    }
+
+    public T poll() {
+        if (detachedSlot >= 0) {
+            int slot = detachedSlot;
+            detachedSlot = -1;
+            return removeElement(slot);
+        }
+        int slot = winners[1];
+        if (slot < 0) {
+            return null;
+        }
+        T e = removeElement(slot);
+        replay(slot);
+        return e;
+    }
+
+    /**
+     * Puts an element into an empty slot.
+     */
+    public void offer(int slot, T e) {
+        if (elements[slot] != null) {
+            throw new IllegalStateException("Slot " + slot + " is not empty");
+        }
+        if (detachedSlot >= 0) {
+            // Only one element can be kept out of the tree.
+            int oldDetachedSlot = detachedSlot;
+            detachedSlot = -1;
+            replay(oldDetachedSlot);
+        }
+        elements[slot] = e;
+        size++;
+        if (winners[1] < 0 || cmp.compare(e, getElement(winners[1])) < 0) {
+            detachedSlot = slot;
+        } else {
+            replay(slot);
+        }
+    }
+
+    /**
+     * Removes the element of a slot.
+     *
+     * @return the removed element, or null if the slot was empty.
+     */
+    public T remove(int slot) {
+        if (elements[slot] == null) {
+            return null;
+        }
+        T e = removeElement(slot);
+        if (slot == detachedSlot) {
+            detachedSlot = -1;
+        } else {
+            replay(slot);
+        }
+        return e;
+    }
+
+    public void clear() {
+        Arrays.fill(elements, null);
+        Arrays.fill(winners, -1);
+        size = 0;
+        detachedSlot = -1;
+    }
+
+    private T removeElement(int slot) {
+        T e = getElement(slot);
+        elements[slot] = null;
+        size--;
+        return e;
+    }
+
+    /**
+     * Recomputes the winners on the path from the leaf of the slot to the root.
+     */
+    private void replay(int slot) {
+        int node = numLeaves + slot;
+        winners[node] = elements[slot] == null ? -1 : slot;
+        for (node >>= 1; node > 0; node >>= 1) {
+            int left = winners[2 * node];
+            int right = winners[2 * node + 1];
+            if (left < 0) {
+                winners[node] = right;
+            } else if (right < 0) {
+                winners[node] = left;
+            } else {
+                winners[node] = cmp.compare(getElement(left), getElement(right)) <= 0 ? left : right;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T getElement(int slot) {
+        return (T) elements[slot];
+    }
+}
@@ -203,6 +203,17 @@ public class VirtualBufferCache implements IVirtualBufferCache {
         return page;
     }
 
+    @Override
+    public ICachedPage pinOneShot(long dpid) throws HyracksDataException {
+        // There is no replacement policy for in-memory components.
+        return pin(dpid, false);
+    }
+
+    @Override
+    public void prefetch(long dpid, int numPages) throws HyracksDataException {
+        // All pages are in memory.
+    }
+
     @Override
     public void unpin(ICachedPage page) throws HyracksDataException {
     }
@@ -211,6 +222,11 @@ public class VirtualBufferCache implements IVirtualBufferCache {
     public void flushDirtyPage(ICachedPage page) throws HyracksDataException {
     }
 
+    @Override
+    public void setFileReadOnly(int fileId) throws HyracksDataException {
+        // In-memory components are never read-only.
+    }
+
     @Override
     public void force(int fileId, boolean metadata) throws HyracksDataException {
     }
@@ -563,6 +563,15 @@ public class OnDiskInvertedIndex implements IInvertedIndex {
             return ByteBuffer.allocate(FRAME_SIZE);
         }
 
+        @Override
+        public ByteBuffer allocateFrame(int bytes) {
+            return ByteBuffer.allocate(bytes);
+        }
+
+        @Override
+        public void deallocateFrame(ByteBuffer frame) {
+        }
+
         @Override
         public void deallocateFrames(int frameCount) {
             // TODO Auto-generated method stub
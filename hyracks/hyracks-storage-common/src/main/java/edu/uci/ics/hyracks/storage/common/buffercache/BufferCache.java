@@ -16,7 +16,9 @@ package edu.uci.ics.hyracks.storage.common.buffercache;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +46,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
 
     private static final int MIN_CLEANED_COUNT_DIFF = 3;
     private static final int PIN_MAX_WAIT_TIME = 50;
+    private static final int MAX_WRITE_BEHIND_RUN_LENGTH = 64;
 
     private final int pageSize;
     private final int maxOpenFiles;
@@ -60,6 +63,8 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
 
     private boolean closed;
 
+    private volatile boolean mapReadOnlyFiles;
+
     public BufferCache(IIOManager ioManager, IPageReplacementStrategy pageReplacementStrategy,
             IPageCleanerPolicy pageCleanerPolicy, IFileMapManager fileMapManager, int maxOpenFiles,
             ThreadFactory threadFactory) {
@@ -83,6 +88,14 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         closed = false;
     }
 
+    /**
+     * Enables serving the pages of files declared read-only through
+     * {@link #setFileReadOnly(int)} from a memory mapping of the file.
+     */
+    public void setMapReadOnlyFiles(boolean mapReadOnlyFiles) {
+        this.mapReadOnlyFiles = mapReadOnlyFiles;
+    }
+
     @Override
     public int getPageSize() {
         return pageSize;
@@ -125,18 +138,32 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                 if (cPage.dpid == dpid) {
                     cPage.pinCount.incrementAndGet();
                     pageReplacementStrategy.notifyCachePageAccess(cPage);
-                    return cPage;
+                    break;
                 }
                 cPage = cPage.next;
             }
         } finally {
             bucket.bucketLock.unlock();
         }
+        if (cPage != null && cPage.pendingRead != null) {
+            synchronized (cPage) {
+                cPage.completePendingRead();
+            }
+        }
         return cPage;
     }
 
     @Override
     public ICachedPage pin(long dpid, boolean newPage) throws HyracksDataException {
+        return pin(dpid, newPage, false);
+    }
+
+    @Override
+    public ICachedPage pinOneShot(long dpid) throws HyracksDataException {
+        return pin(dpid, false, true);
+    }
+
+    private ICachedPage pin(long dpid, boolean newPage, boolean oneShot) throws HyracksDataException {
         // Calling the pinSanityCheck should be used only for debugging, since the synchronized block over the fileInfoMap is a hot spot.
         //pinSanityCheck(dpid);
         CachedPage cPage = findPage(dpid, false);
@@ -145,17 +172,61 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
             // disk.
             synchronized (cPage) {
                 if (!cPage.valid) {
-                    read(cPage);
+                    if (!cPage.completePendingRead()) {
+                        read(cPage);
+                    }
                     cPage.valid = true;
                 }
             }
         } else {
+            if (cPage.pendingRead != null) {
+                // Do not let a read-ahead overwrite the new page.
+                synchronized (cPage) {
+                    cPage.completePendingRead();
+                }
+            }
             cPage.valid = true;
         }
-        pageReplacementStrategy.notifyCachePageAccess(cPage);
+        if (oneShot) {
+            pageReplacementStrategy.notifyCachePageOneShotAccess(cPage);
+        } else {
+            pageReplacementStrategy.notifyCachePageAccess(cPage);
+        }
         return cPage;
     }
 
+    @Override
+    public void prefetch(long dpid, int numPages) throws HyracksDataException {
+        for (int i = 0; i < numPages; ++i) {
+            long pageDpid = dpid + i;
+            CachedPage cPage = findPage(pageDpid, false, false);
+            if (cPage == null) {
+                // No free page without waiting for the cleaner, stop reading ahead.
+                return;
+            }
+            boolean readIssued = false;
+            synchronized (cPage) {
+                if (!cPage.valid && cPage.pendingRead == null) {
+                    BufferedFileHandle fInfo = getFileInfo(cPage);
+                    if (fInfo.isReadOnly()) {
+                        // Copying from the mapping does not block on the disk.
+                        read(cPage);
+                        cPage.valid = true;
+                    } else {
+                        cPage.buffer.clear();
+                        // The pin we got from findPage() is handed over to the read.
+                        cPage.pendingRead = ioManager.asyncRead(fInfo.getFileHandle(),
+                                (long) BufferedFileHandle.getPageId(pageDpid) * pageSize, cPage.buffer);
+                        readIssued = true;
+                    }
+                }
+            }
+            if (!readIssued) {
+                cPage.pinCount.decrementAndGet();
+            }
+        }
+    }
+
     @Override
     /**
      * Allocate and pin a virtual page. This is just like a normal page, except that it will never be flushed.
@@ -190,6 +261,14 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     }
 
     private CachedPage findPage(long dpid, boolean virtual) throws HyracksDataException {
+        return findPage(dpid, virtual, true);
+    }
+
+    /**
+     * @param wait
+     *            if false, return null instead of waiting for the cleaner when no victim can be found
+     */
+    private CachedPage findPage(long dpid, boolean virtual, boolean wait) throws HyracksDataException {
         while (true) {
             int startCleanedCount = cleanerThread.cleanedCount;
 
@@ -344,6 +423,9 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
             synchronized (cleanerThread) {
                 pageCleanerPolicy.notifyVictimNotFound(cleanerThread);
             }
+            if (!wait) {
+                return null;
+            }
             // Heuristic optimization. Check whether the cleaner thread has
             // cleaned pages since we did our last pin attempt.
             if (cleanerThread.cleanedCount - startCleanedCount > MIN_CLEANED_COUNT_DIFF) {
@@ -397,9 +479,12 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
 
     private void read(CachedPage cPage) throws HyracksDataException {
         BufferedFileHandle fInfo = getFileInfo(cPage);
-        cPage.buffer.clear();
-        ioManager.syncRead(fInfo.getFileHandle(), (long) BufferedFileHandle.getPageId(cPage.dpid) * pageSize,
-                cPage.buffer);
+        int pageId = BufferedFileHandle.getPageId(cPage.dpid);
+        if (!fInfo.readMappedPage(pageId, cPage.buffer)) {
+            cPage.buffer.clear();
+            ioManager.syncRead(fInfo.getFileHandle(), (long) pageId * pageSize, cPage.buffer);
+        }
+        cPage.readOnly = fInfo.isReadOnly();
     }
 
     private BufferedFileHandle getFileInfo(CachedPage cPage) throws HyracksDataException {
@@ -412,6 +497,29 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         }
     }
 
+    /**
+     * Writes a run of pages with consecutive dpids with a single gathering write.
+     */
+    private void write(List<CachedPage> run) throws HyracksDataException {
+        CachedPage first = run.get(0);
+        if (run.size() == 1) {
+            write(first);
+            return;
+        }
+        BufferedFileHandle fInfo = getFileInfo(first);
+        if (fInfo.fileHasBeenDeleted()) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[run.size()];
+        for (int i = 0; i < buffers.length; ++i) {
+            ByteBuffer buffer = run.get(i).buffer;
+            buffer.position(0);
+            buffer.limit(pageSize);
+            buffers[i] = buffer;
+        }
+        ioManager.syncWrite(fInfo.getFileHandle(), (long) BufferedFileHandle.getPageId(first.dpid) * pageSize, buffers);
+    }
+
     private void write(CachedPage cPage) throws HyracksDataException {
         BufferedFileHandle fInfo = getFileInfo(cPage);
         if (fInfo.fileHasBeenDeleted()) {
@@ -459,6 +567,9 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         // No need to make this var volatile or synchronize it's access in any
         // way because it is used for heuristics.
         private int cleanedCount = 0;
+        private final List<DirtyPage> dirtyPages = new ArrayList<DirtyPage>();
+        private final List<CachedPage> run = new ArrayList<CachedPage>();
+        private int numDirtyPages = 0;
 
         public CleanerThread() {
             setPriority(MAX_PRIORITY);
@@ -508,15 +619,102 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
             }
         }
 
+        /**
+         * Write-behind: writes the dirty pages collected in this cycle in dpid
+         * order, coalescing pages with consecutive dpids into a single write.
+         */
+        private void cleanDirtyPages() {
+            Collections.sort(dirtyPages.subList(0, numDirtyPages));
+            int i = 0;
+            while (i < numDirtyPages) {
+                DirtyPage first = dirtyPages.get(i++);
+                if (!tryLatchDirtyPage(first)) {
+                    continue;
+                }
+                run.clear();
+                run.add(first.page);
+                long lastDpid = first.dpid;
+                while (i < numDirtyPages && run.size() < MAX_WRITE_BEHIND_RUN_LENGTH) {
+                    DirtyPage next = dirtyPages.get(i);
+                    if (next.dpid != lastDpid + 1
+                            || BufferedFileHandle.getFileId(next.dpid) != BufferedFileHandle.getFileId(lastDpid)
+                            || !tryLatchDirtyPage(next)) {
+                        break;
+                    }
+                    run.add(next.page);
+                    lastDpid = next.dpid;
+                    ++i;
+                }
+                boolean cleaned = true;
+                try {
+                    write(run);
+                } catch (HyracksDataException e) {
+                    cleaned = false;
+                }
+                for (CachedPage cPage : run) {
+                    if (cleaned) {
+                        cPage.dirty.set(false);
+                        cPage.pinCount.decrementAndGet();
+                        cleanedCount++;
+                    }
+                    cPage.latch.readLock().unlock();
+                }
+                if (cleaned) {
+                    synchronized (cleanNotification) {
+                        cleanNotification.notifyAll();
+                    }
+                }
+            }
+        }
+
+        private boolean tryLatchDirtyPage(DirtyPage dirtyPage) {
+            CachedPage cPage = dirtyPage.page;
+            if (!cPage.latch.readLock().tryLock()) {
+                if (shutdownStart) {
+                    throw new IllegalStateException("Cache closed, but unable to acquire read lock on dirty page: "
+                            + cPage.dpid);
+                }
+                return false;
+            }
+            // Make sure the page is still dirty and still holds the same page.
+            if (!cPage.dirty.get() || cPage.dpid != dirtyPage.dpid) {
+                cPage.latch.readLock().unlock();
+                return false;
+            }
+            return true;
+        }
+
+        private void addDirtyPage(CachedPage cPage) {
+            if (numDirtyPages == dirtyPages.size()) {
+                dirtyPages.add(new DirtyPage());
+            }
+            DirtyPage dirtyPage = dirtyPages.get(numDirtyPages++);
+            dirtyPage.page = cPage;
+            dirtyPage.dpid = cPage.dpid;
+        }
+
         @Override
         public synchronized void run() {
             try {
                 while (true) {
                     pageCleanerPolicy.notifyCleanCycleStart(this);
                     int numPages = pageReplacementStrategy.getNumPages();
+                    numDirtyPages = 0;
                     for (int i = 0; i < numPages; ++i) {
                         CachedPage cPage = (CachedPage) cachedPages.get(i);
-                        cleanPage(cPage, false);
+                        if (cPage.pendingRead != null && cPage.pendingRead.isComplete()) {
+                            // Release the pin of read-ahead pages nobody has asked for yet.
+                            synchronized (cPage) {
+                                cPage.completePendingRead();
+                            }
+                        }
+                        if (cPage.dirty.get() && !cPage.virtual) {
+                            addDirtyPage(cPage);
+                        }
+                    }
+                    cleanDirtyPages();
+                    for (int i = 0; i < numDirtyPages; ++i) {
+                        dirtyPages.get(i).page = null;
                     }
                     if (shutdownStart) {
                         break;
@@ -532,6 +730,17 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         }
     }
 
+    private static class DirtyPage implements Comparable<DirtyPage> {
+        private CachedPage page;
+        // Snapshot of page.dpid, which may change while the dirty pages are sorted.
+        private long dpid;
+
+        @Override
+        public int compareTo(DirtyPage o) {
+            return dpid < o.dpid ? -1 : (dpid == o.dpid ? 0 : 1);
+        }
+    }
+
     @Override
     public void close() {
         closed = true;
@@ -552,6 +761,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                 for (Map.Entry<Integer, BufferedFileHandle> entry : fileInfoMap.entrySet()) {
                     boolean fileHasBeenDeleted = entry.getValue().fileHasBeenDeleted();
                     sweepAndFlush(entry.getKey(), !fileHasBeenDeleted);
+                    entry.getValue().unmap(ioManager);
                     if (!fileHasBeenDeleted) {
                         ioManager.close(entry.getValue().getFileHandle());
                     }
@@ -608,6 +818,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                             int entryFileId = entry.getKey();
                             boolean fileHasBeenDeleted = entry.getValue().fileHasBeenDeleted();
                             sweepAndFlush(entryFileId, !fileHasBeenDeleted);
+                            entry.getValue().unmap(ioManager);
                             if (!fileHasBeenDeleted) {
                                 ioManager.close(entry.getValue().getFileHandle());
                             }
@@ -671,6 +882,11 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     private boolean invalidateIfFileIdMatch(int fileId, CachedPage cPage, boolean flushDirtyPages)
             throws HyracksDataException {
         if (BufferedFileHandle.getFileId(cPage.dpid) == fileId) {
+            if (cPage.pendingRead != null) {
+                synchronized (cPage) {
+                    cPage.completePendingRead();
+                }
+            }
             int pinCount = -1;
             if (cPage.dirty.get()) {
                 if (flushDirtyPages) {
@@ -719,6 +935,21 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         cleanerThread.cleanPage((CachedPage) page, true);
     }
 
+    @Override
+    public void setFileReadOnly(int fileId) throws HyracksDataException {
+        if (!mapReadOnlyFiles) {
+            return;
+        }
+        BufferedFileHandle fInfo = null;
+        synchronized (fileInfoMap) {
+            fInfo = fileInfoMap.get(fileId);
+        }
+        if (fInfo == null) {
+            throw new HyracksDataException("Setting unopened file " + fileId + " read-only");
+        }
+        fInfo.mapReadOnly(ioManager, pageSize);
+    }
+
     @Override
     public void force(int fileId, boolean metadata) throws HyracksDataException {
         BufferedFileHandle fInfo = null;
@@ -751,6 +982,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     // Mark the fInfo as deleted,
                     // such that when its pages are reclaimed in openFile(),
                     // the pages are not flushed to disk but only invalidated.
+                    fInfo.unmap(ioManager);
                     if (!fInfo.fileHasBeenDeleted()) {
                         ioManager.close(fInfo.getFileHandle());
                         fInfo.markAsDeleted();
@@ -20,6 +20,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.IIOFuture;
+
 /**
  * @author yingyib
  */
@@ -32,9 +35,15 @@ class CachedPage implements ICachedPageInternal {
     private final Object replacementStrategyObject;
     private final IPageReplacementStrategy pageReplacementStrategy;
     volatile long dpid;
-    CachedPage next;
+    volatile CachedPage next;
     volatile boolean valid;
     volatile boolean virtual;
+    // Outstanding read-ahead into this page. The read holds a pin that is
+    // released by whoever completes it.
+    volatile IIOFuture pendingRead;
+    // The page was read from a read-only file, so nobody can modify it while
+    // it is pinned and readers do not need the latch.
+    volatile boolean readOnly;
 
     public CachedPage(int cpid, ByteBuffer buffer, IPageReplacementStrategy pageReplacementStrategy) {
         this.cpid = cpid;
@@ -53,9 +62,37 @@ class CachedPage implements ICachedPageInternal {
         this.dpid = dpid;
         dirty.set(false);
         valid = false;
+        readOnly = false;
         pageReplacementStrategy.notifyCachePageReset(this);
     }
 
+    /**
+     * Waits for an outstanding read-ahead, if any, and releases its pin.
+     * Must be called while synchronized on the page.
+     * 
+     * @return true if the page now holds the contents read from disk
+     */
+    boolean completePendingRead() {
+        IIOFuture future = pendingRead;
+        if (future == null) {
+            return false;
+        }
+        boolean success;
+        try {
+            future.synchronize();
+            success = true;
+        } catch (HyracksDataException e) {
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            success = false;
+        }
+        pendingRead = null;
+        valid = success;
+        pinCount.decrementAndGet();
+        return success;
+    }
+
     public void invalidate() {
         reset(-1);
     }
@@ -85,17 +122,24 @@ class CachedPage implements ICachedPageInternal {
 
     @Override
     public void acquireReadLatch() {
-        latch.readLock().lock();
+        if (!readOnly) {
+            latch.readLock().lock();
+        }
     }
 
     @Override
     public void acquireWriteLatch() {
+        if (readOnly) {
+            throw new IllegalStateException("Page " + dpid + " belongs to a read-only file");
+        }
         latch.writeLock().lock();
     }
 
     @Override
     public void releaseReadLatch() {
-        latch.readLock().unlock();
+        if (!readOnly) {
+            latch.readLock().unlock();
+        }
     }
 
     @Override
@@ -57,6 +57,11 @@ public class ClockPageReplacementStrategy implements IPageReplacementStrategy {
         getPerPageObject(cPage).set(true);
     }
 
+    @Override
+    public void notifyCachePageOneShotAccess(ICachedPageInternal cPage) {
+        // Leave the reference bit alone so that the clock can reclaim the page on its next pass.
+    }
+
     @Override
     public ICachedPageInternal findVictim() {
         lock.lock();
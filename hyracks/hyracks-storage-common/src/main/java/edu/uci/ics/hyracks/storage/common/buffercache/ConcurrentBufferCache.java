@@ -0,0 +1,1050 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.common.buffercache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.io.IFileHandle;
+import edu.uci.ics.hyracks.api.io.IIOManager;
+import edu.uci.ics.hyracks.api.lifecycle.ILifeCycleComponent;
+import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
+import edu.uci.ics.hyracks.storage.common.file.IFileMapManager;
+
+/**
+ * A buffer cache for many-core nodes. It shares the file handling and the
+ * cleaner of {@link BufferCache}, but resolves page lookups optimistically:
+ * the hash chains are traversed without taking the bucket lock, a candidate
+ * page is pinned with a CAS on its pin count and the pin is kept only if the
+ * page still holds the requested dpid afterwards. Bucket locks are only taken
+ * on a miss, when a victim is re-assigned to a new dpid.
+ * While a victim is being re-assigned its pin count is parked at
+ * {@link #REASSIGNING}, which makes optimistic pins back off instead of racing
+ * with the update of the page header.
+ * It is intended to be used together with the
+ * {@link PartitionedClockPageReplacementStrategy} so that victim selection
+ * does not serialize either.
+ */
+public class ConcurrentBufferCache implements IBufferCacheInternal, ILifeCycleComponent {
+    private static final Logger LOGGER = Logger.getLogger(ConcurrentBufferCache.class.getName());
+    private static final int MAP_FACTOR = 2;
+
+    private static final int MIN_CLEANED_COUNT_DIFF = 3;
+    private static final int PIN_MAX_WAIT_TIME = 50;
+    private static final int MAX_WRITE_BEHIND_RUN_LENGTH = 64;
+
+    private static final int REASSIGNING = Integer.MIN_VALUE;
+
+    private final int pageSize;
+    private final int maxOpenFiles;
+    private final IIOManager ioManager;
+    private final CacheBucket[] pageMap;
+    private final IPageReplacementStrategy pageReplacementStrategy;
+    private final IPageCleanerPolicy pageCleanerPolicy;
+    private final IFileMapManager fileMapManager;
+    private final CleanerThread cleanerThread;
+    private final Map<Integer, BufferedFileHandle> fileInfoMap;
+    private final Set<Integer> virtualFiles;
+    private final AtomicReferenceArray<ICachedPageInternal> cachedPages;
+
+    private volatile boolean closed;
+
+    private volatile boolean mapReadOnlyFiles;
+
+    public ConcurrentBufferCache(IIOManager ioManager, IPageReplacementStrategy pageReplacementStrategy,
+            IPageCleanerPolicy pageCleanerPolicy, IFileMapManager fileMapManager, int maxOpenFiles,
+            ThreadFactory threadFactory) {
+        this.ioManager = ioManager;
+        this.pageSize = pageReplacementStrategy.getPageSize();
+        this.maxOpenFiles = maxOpenFiles;
+        cachedPages = new AtomicReferenceArray<ICachedPageInternal>(pageReplacementStrategy.getMaxAllowedNumPages());
+        pageReplacementStrategy.setBufferCache(this);
+        pageMap = new CacheBucket[pageReplacementStrategy.getMaxAllowedNumPages() * MAP_FACTOR];
+        for (int i = 0; i < pageMap.length; ++i) {
+            pageMap[i] = new CacheBucket();
+        }
+        this.pageReplacementStrategy = pageReplacementStrategy;
+        this.pageCleanerPolicy = pageCleanerPolicy;
+        this.fileMapManager = fileMapManager;
+
+        Executor executor = Executors.newCachedThreadPool(threadFactory);
+        fileInfoMap = new HashMap<Integer, BufferedFileHandle>();
+        virtualFiles = new HashSet<Integer>();
+        cleanerThread = new CleanerThread();
+        executor.execute(cleanerThread);
+        closed = false;
+    }
+
+    /**
+     * Enables serving the pages of files declared read-only through
+     * {@link #setFileReadOnly(int)} from a memory mapping of the file.
+     */
+    public void setMapReadOnlyFiles(boolean mapReadOnlyFiles) {
+        this.mapReadOnlyFiles = mapReadOnlyFiles;
+    }
+
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int getNumPages() {
+        return pageReplacementStrategy.getMaxAllowedNumPages();
+    }
+
+    @Override
+    public ICachedPage tryPin(long dpid) throws HyracksDataException {
+        CachedPage cPage = lookup(dpid);
+        if (cPage == null) {
+            // The optimistic lookup can miss a page that is moved between chains concurrently.
+            cPage = lookupLocked(pageMap[hash(dpid)], dpid);
+        }
+        if (cPage != null) {
+            pageReplacementStrategy.notifyCachePageAccess(cPage);
+            if (cPage.pendingRead != null) {
+                synchronized (cPage) {
+                    cPage.completePendingRead();
+                }
+            }
+        }
+        return cPage;
+    }
+
+    @Override
+    public ICachedPage pin(long dpid, boolean newPage) throws HyracksDataException {
+        return pin(dpid, newPage, false);
+    }
+
+    @Override
+    public ICachedPage pinOneShot(long dpid) throws HyracksDataException {
+        return pin(dpid, false, true);
+    }
+
+    private ICachedPage pin(long dpid, boolean newPage, boolean oneShot) throws HyracksDataException {
+        CachedPage cPage = lookup(dpid);
+        if (cPage == null) {
+            cPage = findPage(dpid, false);
+        }
+        if (!newPage) {
+            // Resolve race of multiple threads trying to read the page from
+            // disk.
+            if (!cPage.valid) {
+                synchronized (cPage) {
+                    if (!cPage.valid) {
+                        if (!cPage.completePendingRead()) {
+                            read(cPage);
+                        }
+                        cPage.valid = true;
+                    }
+                }
+            }
+        } else {
+            if (cPage.pendingRead != null) {
+                // Do not let a read-ahead overwrite the new page.
+                synchronized (cPage) {
+                    cPage.completePendingRead();
+                }
+            }
+            cPage.valid = true;
+        }
+        if (oneShot) {
+            pageReplacementStrategy.notifyCachePageOneShotAccess(cPage);
+        } else {
+            pageReplacementStrategy.notifyCachePageAccess(cPage);
+        }
+        return cPage;
+    }
+
+    @Override
+    public void prefetch(long dpid, int numPages) throws HyracksDataException {
+        for (int i = 0; i < numPages; ++i) {
+            long pageDpid = dpid + i;
+            CachedPage cPage = lookup(pageDpid);
+            if (cPage == null) {
+                cPage = findPage(pageDpid, false, false);
+            }
+            if (cPage == null) {
+                // No free page without waiting for the cleaner, stop reading ahead.
+                return;
+            }
+            boolean readIssued = false;
+            synchronized (cPage) {
+                if (!cPage.valid && cPage.pendingRead == null) {
+                    BufferedFileHandle fInfo = getFileInfo(cPage);
+                    if (fInfo.isReadOnly()) {
+                        // Copying from the mapping does not block on the disk.
+                        read(cPage);
+                        cPage.valid = true;
+                    } else {
+                        cPage.buffer.clear();
+                        // The pin we got from findPage() is handed over to the read.
+                        cPage.pendingRead = ioManager.asyncRead(fInfo.getFileHandle(),
+                                (long) BufferedFileHandle.getPageId(pageDpid) * pageSize, cPage.buffer);
+                        readIssued = true;
+                    }
+                }
+            }
+            if (!readIssued) {
+                cPage.pinCount.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    /**
+     * Allocate and pin a virtual page. This is just like a normal page, except that it will never be flushed.
+     */
+    public ICachedPage pinVirtual(long vpid) throws HyracksDataException {
+        CachedPage cPage = findPage(vpid, true);
+        cPage.virtual = true;
+        return cPage;
+    }
+
+    @Override
+    /**
+     * Takes a virtual page, and copies it to a new page at the physical identifier.
+     */
+    public ICachedPage unpinVirtual(long vpid, long dpid) throws HyracksDataException {
+        CachedPage virtPage = findPage(vpid, true);
+        ICachedPage realPage = pin(dpid, false);
+        virtPage.acquireReadLatch();
+        realPage.acquireWriteLatch();
+        try {
+            System.arraycopy(virtPage.buffer.array(), 0, realPage.getBuffer().array(), 0, virtPage.buffer.capacity());
+        } finally {
+            realPage.releaseWriteLatch(true);
+            virtPage.releaseReadLatch();
+        }
+        virtPage.reset(-1);
+        return realPage;
+    }
+
+    /**
+     * Lock-free lookup. Returns the page pinned, or null if it was not found
+     * (which may be a false negative if the chain changed underneath us).
+     */
+    private CachedPage lookup(long dpid) {
+        CachedPage cPage = pageMap[hash(dpid)].cachedPage;
+        while (cPage != null) {
+            if (cPage.dpid == dpid) {
+                return pinIfMatches(cPage, dpid) ? cPage : null;
+            }
+            cPage = cPage.next;
+        }
+        return null;
+    }
+
+    private CachedPage lookupLocked(CacheBucket bucket, long dpid) {
+        bucket.bucketLock.lock();
+        try {
+            CachedPage cPage = bucket.cachedPage;
+            while (cPage != null) {
+                if (cPage.dpid == dpid) {
+                    // Pages are only re-assigned under the bucket lock we hold.
+                    cPage.pinCount.incrementAndGet();
+                    return cPage;
+                }
+                cPage = cPage.next;
+            }
+        } finally {
+            bucket.bucketLock.unlock();
+        }
+        return null;
+    }
+
+    private boolean pinIfMatches(CachedPage cPage, long dpid) {
+        while (true) {
+            int pinCount = cPage.pinCount.get();
+            if (pinCount == REASSIGNING) {
+                return false;
+            }
+            if (cPage.pinCount.compareAndSet(pinCount, pinCount + 1)) {
+                break;
+            }
+        }
+        if (cPage.dpid == dpid) {
+            return true;
+        }
+        cPage.pinCount.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * Claims a victim that is pinned exactly once (by us) for re-assignment.
+     * Optimistic pins that arrive after this point back off.
+     */
+    private boolean claimVictim(CachedPage victim) {
+        if (victim.pinCount.compareAndSet(1, REASSIGNING)) {
+            return true;
+        }
+        victim.pinCount.decrementAndGet();
+        return false;
+    }
+
+    private CachedPage findPage(long dpid, boolean virtual) throws HyracksDataException {
+        return findPage(dpid, virtual, true);
+    }
+
+    /**
+     * @param wait
+     *            if false, return null instead of waiting for the cleaner when no victim can be found
+     */
+    private CachedPage findPage(long dpid, boolean virtual, boolean wait) throws HyracksDataException {
+        while (true) {
+            int startCleanedCount = cleanerThread.cleanedCount;
+
+            int hash = hash(dpid);
+            CacheBucket bucket = pageMap[hash];
+            CachedPage cPage = lookupLocked(bucket, dpid);
+            if (cPage != null) {
+                return cPage;
+            }
+            /*
+             * If we got here, the page was not in the hash table. Now we ask
+             * the page replacement strategy to find us a victim. The three
+             * cases are handled as in BufferCache.findPage(), except that a
+             * victim with a valid dpid is claimed with claimVictim() before
+             * its header is updated.
+             */
+            CachedPage victim = (CachedPage) pageReplacementStrategy.findVictim();
+            if (victim != null) {
+                if (victim.dpid < 0) {
+                    /*
+                     * Case 1.
+                     */
+                    bucket.bucketLock.lock();
+                    try {
+                        cPage = findInBucket(bucket, dpid);
+                        if (cPage != null) {
+                            victim.pinCount.decrementAndGet();
+                            return cPage;
+                        }
+                        victim.reset(dpid);
+                        victim.next = bucket.cachedPage;
+                        bucket.cachedPage = victim;
+                    } finally {
+                        bucket.bucketLock.unlock();
+                    }
+                    return victim;
+                }
+                int victimHash = hash(victim.dpid);
+                if (victimHash == hash) {
+                    /*
+                     * Case 2a.
+                     */
+                    bucket.bucketLock.lock();
+                    try {
+                        cPage = findInBucket(bucket, dpid);
+                        if (cPage != null) {
+                            victim.pinCount.decrementAndGet();
+                            return cPage;
+                        }
+                        if (!claimVictim(victim)) {
+                            continue;
+                        }
+                        victim.reset(dpid);
+                        victim.pinCount.set(1);
+                    } finally {
+                        bucket.bucketLock.unlock();
+                    }
+                    return victim;
+                } else {
+                    /*
+                     * Case 2b.
+                     */
+                    CacheBucket victimBucket = pageMap[victimHash];
+                    if (victimHash < hash) {
+                        victimBucket.bucketLock.lock();
+                        bucket.bucketLock.lock();
+                    } else {
+                        bucket.bucketLock.lock();
+                        victimBucket.bucketLock.lock();
+                    }
+                    try {
+                        cPage = findInBucket(bucket, dpid);
+                        if (cPage != null) {
+                            victim.pinCount.decrementAndGet();
+                            return cPage;
+                        }
+                        if (!claimVictim(victim)) {
+                            continue;
+                        }
+                        if (victimBucket.cachedPage == victim) {
+                            victimBucket.cachedPage = victim.next;
+                        } else {
+                            CachedPage victimPrev = victimBucket.cachedPage;
+                            while (victimPrev != null && victimPrev.next != victim) {
+                                victimPrev = victimPrev.next;
+                            }
+                            assert victimPrev != null;
+                            victimPrev.next = victim.next;
+                        }
+                        victim.reset(dpid);
+                        victim.next = bucket.cachedPage;
+                        bucket.cachedPage = victim;
+                        victim.pinCount.set(1);
+                    } finally {
+                        victimBucket.bucketLock.unlock();
+                        bucket.bucketLock.unlock();
+                    }
+                    return victim;
+                }
+            }
+            synchronized (cleanerThread) {
+                pageCleanerPolicy.notifyVictimNotFound(cleanerThread);
+            }
+            if (!wait) {
+                return null;
+            }
+            // Heuristic optimization. Check whether the cleaner thread has
+            // cleaned pages since we did our last pin attempt.
+            if (cleanerThread.cleanedCount - startCleanedCount > MIN_CLEANED_COUNT_DIFF) {
+                // Don't go to sleep and wait for notification from the cleaner,
+                // just try to pin again immediately.
+                continue;
+            }
+            synchronized (cleanerThread.cleanNotification) {
+                try {
+                    cleanerThread.cleanNotification.wait(PIN_MAX_WAIT_TIME);
+                } catch (InterruptedException e) {
+                    // Do nothing
+                }
+            }
+        }
+    }
+
+    /**
+     * Must be called with the bucket lock held.
+     */
+    private CachedPage findInBucket(CacheBucket bucket, long dpid) {
+        CachedPage cPage = bucket.cachedPage;
+        while (cPage != null) {
+            if (cPage.dpid == dpid) {
+                cPage.pinCount.incrementAndGet();
+                return cPage;
+            }
+            cPage = cPage.next;
+        }
+        return null;
+    }
+
+    private String dumpState() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("Buffer cache state\n");
+        buffer.append("Page Size: ").append(pageSize).append('\n');
+        buffer.append("Number of physical pages: ").append(pageReplacementStrategy.getMaxAllowedNumPages())
+                .append('\n');
+        buffer.append("Hash table size: ").append(pageMap.length).append('\n');
+        buffer.append("Page Map:\n");
+        int nCachedPages = 0;
+        for (int i = 0; i < pageMap.length; ++i) {
+            CacheBucket cb = pageMap[i];
+            cb.bucketLock.lock();
+            try {
+                CachedPage cp = cb.cachedPage;
+                if (cp != null) {
+                    buffer.append("   ").append(i).append('\n');
+                    while (cp != null) {
+                        buffer.append("      ").append(cp.cpid).append(" -> [")
+                                .append(BufferedFileHandle.getFileId(cp.dpid)).append(':')
+                                .append(BufferedFileHandle.getPageId(cp.dpid)).append(", ").append(cp.pinCount.get())
+                                .append(", ").append(cp.valid ? "valid" : "invalid").append(", ")
+                                .append(cp.dirty.get() ? "dirty" : "clean").append("]\n");
+                        cp = cp.next;
+                        ++nCachedPages;
+                    }
+                }
+            } finally {
+                cb.bucketLock.unlock();
+            }
+        }
+        buffer.append("Number of cached pages: ").append(nCachedPages).append('\n');
+        return buffer.toString();
+    }
+
+    private void read(CachedPage cPage) throws HyracksDataException {
+        BufferedFileHandle fInfo = getFileInfo(cPage);
+        int pageId = BufferedFileHandle.getPageId(cPage.dpid);
+        if (!fInfo.readMappedPage(pageId, cPage.buffer)) {
+            cPage.buffer.clear();
+            ioManager.syncRead(fInfo.getFileHandle(), (long) pageId * pageSize, cPage.buffer);
+        }
+        cPage.readOnly = fInfo.isReadOnly();
+    }
+
+    private BufferedFileHandle getFileInfo(CachedPage cPage) throws HyracksDataException {
+        synchronized (fileInfoMap) {
+            BufferedFileHandle fInfo = fileInfoMap.get(BufferedFileHandle.getFileId(cPage.dpid));
+            if (fInfo == null) {
+                throw new HyracksDataException("No such file mapped");
+            }
+            return fInfo;
+        }
+    }
+
+    /**
+     * Writes a run of pages with consecutive dpids with a single gathering write.
+     */
+    private void write(List<CachedPage> run) throws HyracksDataException {
+        CachedPage first = run.get(0);
+        if (run.size() == 1) {
+            write(first);
+            return;
+        }
+        BufferedFileHandle fInfo = getFileInfo(first);
+        if (fInfo.fileHasBeenDeleted()) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[run.size()];
+        for (int i = 0; i < buffers.length; ++i) {
+            ByteBuffer buffer = run.get(i).buffer;
+            buffer.position(0);
+            buffer.limit(pageSize);
+            buffers[i] = buffer;
+        }
+        ioManager.syncWrite(fInfo.getFileHandle(), (long) BufferedFileHandle.getPageId(first.dpid) * pageSize, buffers);
+    }
+
+    private void write(CachedPage cPage) throws HyracksDataException {
+        BufferedFileHandle fInfo = getFileInfo(cPage);
+        if (fInfo.fileHasBeenDeleted()) {
+            return;
+        }
+        cPage.buffer.position(0);
+        cPage.buffer.limit(pageSize);
+        ioManager.syncWrite(fInfo.getFileHandle(), (long) BufferedFileHandle.getPageId(cPage.dpid) * pageSize,
+                cPage.buffer);
+    }
+
+    @Override
+    public void unpin(ICachedPage page) throws HyracksDataException {
+        if (closed) {
+            throw new HyracksDataException("unpin called on a closed cache");
+        }
+        ((CachedPage) page).pinCount.decrementAndGet();
+    }
+
+    private int hash(long dpid) {
+        return (int) (dpid % pageMap.length);
+    }
+
+    private static class CacheBucket {
+        private final Lock bucketLock;
+        private volatile CachedPage cachedPage;
+
+        public CacheBucket() {
+            bucketLock = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public ICachedPageInternal getPage(int cpid) {
+        return cachedPages.get(cpid);
+    }
+
+    private class CleanerThread extends Thread {
+        private boolean shutdownStart = false;
+        private boolean shutdownComplete = false;
+        private final Object cleanNotification = new Object();
+        // Simply keeps incrementing this counter when a page is cleaned.
+        // Used to implement wait-for-cleanerthread heuristic optimizations.
+        // A waiter can detect whether pages have been cleaned.
+        // No need to make this var volatile or synchronize it's access in any
+        // way because it is used for heuristics.
+        private int cleanedCount = 0;
+        private final List<DirtyPage> dirtyPages = new ArrayList<DirtyPage>();
+        private final List<CachedPage> run = new ArrayList<CachedPage>();
+        private int numDirtyPages = 0;
+
+        public CleanerThread() {
+            setPriority(MAX_PRIORITY);
+            setDaemon(true);
+        }
+
+        public void cleanPage(CachedPage cPage, boolean force) {
+            if (cPage.dirty.get() && !cPage.virtual) {
+                boolean proceed = false;
+                if (force) {
+                    cPage.latch.writeLock().lock();
+                    proceed = true;
+                } else {
+                    proceed = cPage.latch.readLock().tryLock();
+                }
+                if (proceed) {
+                    try {
+                        // Make sure page is still dirty.
+                        if (!cPage.dirty.get()) {
+                            return;
+                        }
+                        boolean cleaned = true;
+                        try {
+                            write(cPage);
+                        } catch (HyracksDataException e) {
+                            cleaned = false;
+                        }
+                        if (cleaned) {
+                            cPage.dirty.set(false);
+                            cPage.pinCount.decrementAndGet();
+                            cleanedCount++;
+                            synchronized (cleanNotification) {
+                                cleanNotification.notifyAll();
+                            }
+                        }
+                    } finally {
+                        if (force) {
+                            cPage.latch.writeLock().unlock();
+                        } else {
+                            cPage.latch.readLock().unlock();
+                        }
+                    }
+                } else if (shutdownStart) {
+                    throw new IllegalStateException("Cache closed, but unable to acquire read lock on dirty page: "
+                            + cPage.dpid);
+                }
+            }
+        }
+
+        /**
+         * Write-behind: writes the dirty pages collected in this cycle in dpid
+         * order, coalescing pages with consecutive dpids into a single write.
+         */
+        private void cleanDirtyPages() {
+            Collections.sort(dirtyPages.subList(0, numDirtyPages));
+            int i = 0;
+            while (i < numDirtyPages) {
+                DirtyPage first = dirtyPages.get(i++);
+                if (!tryLatchDirtyPage(first)) {
+                    continue;
+                }
+                run.clear();
+                run.add(first.page);
+                long lastDpid = first.dpid;
+                while (i < numDirtyPages && run.size() < MAX_WRITE_BEHIND_RUN_LENGTH) {
+                    DirtyPage next = dirtyPages.get(i);
+                    if (next.dpid != lastDpid + 1
+                            || BufferedFileHandle.getFileId(next.dpid) != BufferedFileHandle.getFileId(lastDpid)
+                            || !tryLatchDirtyPage(next)) {
+                        break;
+                    }
+                    run.add(next.page);
+                    lastDpid = next.dpid;
+                    ++i;
+                }
+                boolean cleaned = true;
+                try {
+                    write(run);
+                } catch (HyracksDataException e) {
+                    cleaned = false;
+                }
+                for (CachedPage cPage : run) {
+                    if (cleaned) {
+                        cPage.dirty.set(false);
+                        cPage.pinCount.decrementAndGet();
+                        cleanedCount++;
+                    }
+                    cPage.latch.readLock().unlock();
+                }
+                if (cleaned) {
+                    synchronized (cleanNotification) {
+                        cleanNotification.notifyAll();
+                    }
+                }
+            }
+        }
+
+        private boolean tryLatchDirtyPage(DirtyPage dirtyPage) {
+            CachedPage cPage = dirtyPage.page;
+            if (!cPage.latch.readLock().tryLock()) {
+                if (shutdownStart) {
+                    throw new IllegalStateException("Cache closed, but unable to acquire read lock on dirty page: "
+                            + cPage.dpid);
+                }
+                return false;
+            }
+            // Make sure the page is still dirty and still holds the same page.
+            if (!cPage.dirty.get() || cPage.dpid != dirtyPage.dpid) {
+                cPage.latch.readLock().unlock();
+                return false;
+            }
+            return true;
+        }
+
+        private void addDirtyPage(CachedPage cPage) {
+            if (numDirtyPages == dirtyPages.size()) {
+                dirtyPages.add(new DirtyPage());
+            }
+            DirtyPage dirtyPage = dirtyPages.get(numDirtyPages++);
+            dirtyPage.page = cPage;
+            dirtyPage.dpid = cPage.dpid;
+        }
+
+        @Override
+        public synchronized void run() {
+            try {
+                while (true) {
+                    pageCleanerPolicy.notifyCleanCycleStart(this);
+                    int numPages = pageReplacementStrategy.getNumPages();
+                    numDirtyPages = 0;
+                    for (int i = 0; i < numPages; ++i) {
+                        CachedPage cPage = (CachedPage) cachedPages.get(i);
+                        if (cPage == null) {
+                            continue;
+                        }
+                        if (cPage.pendingRead != null && cPage.pendingRead.isComplete()) {
+                            // Release the pin of read-ahead pages nobody has asked for yet.
+                            synchronized (cPage) {
+                                cPage.completePendingRead();
+                            }
+                        }
+                        if (cPage.dirty.get() && !cPage.virtual) {
+                            addDirtyPage(cPage);
+                        }
+                    }
+                    cleanDirtyPages();
+                    for (int i = 0; i < numDirtyPages; ++i) {
+                        dirtyPages.get(i).page = null;
+                    }
+                    if (shutdownStart) {
+                        break;
+                    }
+                    pageCleanerPolicy.notifyCleanCycleFinish(this);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                shutdownComplete = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private static class DirtyPage implements Comparable<DirtyPage> {
+        private CachedPage page;
+        // Snapshot of page.dpid, which may change while the dirty pages are sorted.
+        private long dpid;
+
+        @Override
+        public int compareTo(DirtyPage o) {
+            return dpid < o.dpid ? -1 : (dpid == o.dpid ? 0 : 1);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (cleanerThread) {
+            cleanerThread.shutdownStart = true;
+            cleanerThread.notifyAll();
+            while (!cleanerThread.shutdownComplete) {
+                try {
+                    cleanerThread.wait();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        synchronized (fileInfoMap) {
+            try {
+                for (Map.Entry<Integer, BufferedFileHandle> entry : fileInfoMap.entrySet()) {
+                    boolean fileHasBeenDeleted = entry.getValue().fileHasBeenDeleted();
+                    sweepAndFlush(entry.getKey(), !fileHasBeenDeleted);
+                    entry.getValue().unmap(ioManager);
+                    if (!fileHasBeenDeleted) {
+                        ioManager.close(entry.getValue().getFileHandle());
+                    }
+                }
+            } catch (HyracksDataException e) {
+                e.printStackTrace();
+            }
+            fileInfoMap.clear();
+        }
+    }
+
+    @Override
+    public void createFile(FileReference fileRef) throws HyracksDataException {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Creating file: " + fileRef + " in cache: " + this);
+        }
+        synchronized (fileInfoMap) {
+            fileMapManager.registerFile(fileRef);
+        }
+    }
+
+    @Override
+    public int createMemFile() throws HyracksDataException {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Creating memory file in cache: " + this);
+        }
+        int fileId;
+        synchronized (fileInfoMap) {
+            fileId = fileMapManager.registerMemoryFile();
+        }
+        synchronized (virtualFiles) {
+            virtualFiles.add(fileId);
+        }
+        return fileId;
+
+    }
+
+    @Override
+    public void openFile(int fileId) throws HyracksDataException {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Opening file: " + fileId + " in cache: " + this);
+        }
+        synchronized (fileInfoMap) {
+            BufferedFileHandle fInfo;
+            fInfo = fileInfoMap.get(fileId);
+            if (fInfo == null) {
+
+                // map is full, make room by cleaning up unreferenced files
+                boolean unreferencedFileFound = true;
+                while (fileInfoMap.size() >= maxOpenFiles && unreferencedFileFound) {
+                    unreferencedFileFound = false;
+                    for (Map.Entry<Integer, BufferedFileHandle> entry : fileInfoMap.entrySet()) {
+                        if (entry.getValue().getReferenceCount() <= 0) {
+                            int entryFileId = entry.getKey();
+                            boolean fileHasBeenDeleted = entry.getValue().fileHasBeenDeleted();
+                            sweepAndFlush(entryFileId, !fileHasBeenDeleted);
+                            entry.getValue().unmap(ioManager);
+                            if (!fileHasBeenDeleted) {
+                                ioManager.close(entry.getValue().getFileHandle());
+                            }
+                            fileInfoMap.remove(entryFileId);
+                            unreferencedFileFound = true;
+                            // for-each iterator is invalid because we changed
+                            // fileInfoMap
+                            break;
+                        }
+                    }
+                }
+
+                if (fileInfoMap.size() >= maxOpenFiles) {
+                    throw new HyracksDataException("Could not open fileId " + fileId + ". Max number of files "
+                            + maxOpenFiles + " already opened and referenced.");
+                }
+
+                // create, open, and map new file reference
+                FileReference fileRef = fileMapManager.lookupFileName(fileId);
+                IFileHandle fh = ioManager.open(fileRef, IIOManager.FileReadWriteMode.READ_WRITE,
+                        IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+                fInfo = new BufferedFileHandle(fileId, fh);
+                fileInfoMap.put(fileId, fInfo);
+            }
+            fInfo.incReferenceCount();
+        }
+    }
+
+    private void sweepAndFlush(int fileId, boolean flushDirtyPages) throws HyracksDataException {
+        for (int i = 0; i < pageMap.length; ++i) {
+            CacheBucket bucket = pageMap[i];
+            bucket.bucketLock.lock();
+            try {
+                CachedPage prev = bucket.cachedPage;
+                while (prev != null) {
+                    CachedPage cPage = prev.next;
+                    if (cPage == null) {
+                        break;
+                    }
+                    if (invalidateIfFileIdMatch(fileId, cPage, flushDirtyPages)) {
+                        prev.next = cPage.next;
+                        cPage.next = null;
+                    } else {
+                        prev = cPage;
+                    }
+                }
+                // Take care of the head of the chain.
+                if (bucket.cachedPage != null) {
+                    if (invalidateIfFileIdMatch(fileId, bucket.cachedPage, flushDirtyPages)) {
+                        CachedPage cPage = bucket.cachedPage;
+                        bucket.cachedPage = bucket.cachedPage.next;
+                        cPage.next = null;
+                    }
+                }
+            } finally {
+                bucket.bucketLock.unlock();
+            }
+        }
+    }
+
+    private boolean invalidateIfFileIdMatch(int fileId, CachedPage cPage, boolean flushDirtyPages)
+            throws HyracksDataException {
+        if (BufferedFileHandle.getFileId(cPage.dpid) == fileId) {
+            if (cPage.pendingRead != null) {
+                synchronized (cPage) {
+                    cPage.completePendingRead();
+                }
+            }
+            int pinCount = -1;
+            if (cPage.dirty.get()) {
+                if (flushDirtyPages) {
+                    write(cPage);
+                }
+                cPage.dirty.set(false);
+                pinCount = cPage.pinCount.decrementAndGet();
+            } else {
+                pinCount = cPage.pinCount.get();
+            }
+            if (pinCount > 0) {
+                throw new IllegalStateException("Page is pinned and file is being closed. Pincount is: " + pinCount);
+            }
+            cPage.invalidate();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void closeFile(int fileId) throws HyracksDataException {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Closing file: " + fileId + " in cache: " + this);
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(dumpState());
+        }
+
+        synchronized (fileInfoMap) {
+            BufferedFileHandle fInfo = fileInfoMap.get(fileId);
+            if (fInfo == null) {
+                throw new HyracksDataException("Closing unopened file");
+            }
+            if (fInfo.decReferenceCount() < 0) {
+                throw new HyracksDataException("Closed fileId: " + fileId + " more times than it was opened.");
+            }
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Closed file: " + fileId + " in cache: " + this);
+        }
+    }
+
+    @Override
+    public void flushDirtyPage(ICachedPage page) throws HyracksDataException {
+        // Assumes the caller has pinned the page.
+        cleanerThread.cleanPage((CachedPage) page, true);
+    }
+
+    @Override
+    public void setFileReadOnly(int fileId) throws HyracksDataException {
+        if (!mapReadOnlyFiles) {
+            return;
+        }
+        BufferedFileHandle fInfo = null;
+        synchronized (fileInfoMap) {
+            fInfo = fileInfoMap.get(fileId);
+        }
+        if (fInfo == null) {
+            throw new HyracksDataException("Setting unopened file " + fileId + " read-only");
+        }
+        fInfo.mapReadOnly(ioManager, pageSize);
+    }
+
+    @Override
+    public void force(int fileId, boolean metadata) throws HyracksDataException {
+        BufferedFileHandle fInfo = null;
+        synchronized (fileInfoMap) {
+            fInfo = fileInfoMap.get(fileId);
+        }
+        ioManager.sync(fInfo.getFileHandle(), metadata);
+    }
+
+    @Override
+    public synchronized void deleteFile(int fileId, boolean flushDirtyPages) throws HyracksDataException {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Deleting file: " + fileId + " in cache: " + this);
+        }
+        if (flushDirtyPages) {
+            synchronized (fileInfoMap) {
+                sweepAndFlush(fileId, flushDirtyPages);
+            }
+        }
+        synchronized (fileInfoMap) {
+            BufferedFileHandle fInfo = null;
+            try {
+                fInfo = fileInfoMap.get(fileId);
+                if (fInfo != null && fInfo.getReferenceCount() > 0) {
+                    throw new HyracksDataException("Deleting open file");
+                }
+            } finally {
+                fileMapManager.unregisterFile(fileId);
+                if (fInfo != null) {
+                    // Mark the fInfo as deleted,
+                    // such that when its pages are reclaimed in openFile(),
+                    // the pages are not flushed to disk but only invalidated.
+                    fInfo.unmap(ioManager);
+                    if (!fInfo.fileHasBeenDeleted()) {
+                        ioManager.close(fInfo.getFileHandle());
+                        fInfo.markAsDeleted();
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void deleteMemFile(int fileId) throws HyracksDataException {
+        //TODO: possible sanity chcecking here like in above?
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Deleting memory file: " + fileId + " in cache: " + this);
+        }
+        synchronized (virtualFiles) {
+            virtualFiles.remove(fileId);
+        }
+        synchronized(fileInfoMap){
+            fileMapManager.unregisterMemFile(fileId);
+        }
+    }
+
+    @Override
+    public void start() {
+        // no op
+    }
+
+    @Override
+    public void stop(boolean dumpState, OutputStream os) throws IOException {
+        if (dumpState) {
+            dumpState(os);
+        }
+        close();
+    }
+
+    @Override
+    public void addPage(ICachedPageInternal page) {
+        cachedPages.set(page.getCachedPageId(), page);
+    }
+
+    public void dumpState(OutputStream os) throws IOException {
+        os.write(dumpState().getBytes());
+    }
+
+}
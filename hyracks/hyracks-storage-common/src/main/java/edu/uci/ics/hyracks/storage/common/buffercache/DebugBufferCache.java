@@ -82,6 +82,18 @@ public class DebugBufferCache implements IBufferCache {
         return page;
     }
 
+    @Override
+    public ICachedPage pinOneShot(long dpid) throws HyracksDataException {
+        ICachedPage page = bufferCache.pinOneShot(dpid);
+        pinCount.addAndGet(1);
+        return page;
+    }
+
+    @Override
+    public void prefetch(long dpid, int numPages) throws HyracksDataException {
+        bufferCache.prefetch(dpid, numPages);
+    }
+
     @Override
     public void unpin(ICachedPage page) throws HyracksDataException {
         bufferCache.unpin(page);
@@ -161,6 +173,11 @@ public class DebugBufferCache implements IBufferCache {
         bufferCache.flushDirtyPage(page);
     }
 
+    @Override
+    public void setFileReadOnly(int fileId) throws HyracksDataException {
+        bufferCache.setFileReadOnly(fileId);
+    }
+
     @Override
     public void force(int fileId, boolean metadata) throws HyracksDataException {
         bufferCache.force(fileId, metadata);
@@ -34,6 +34,22 @@ public interface IBufferCache {
     public ICachedPage tryPin(long dpid) throws HyracksDataException;
 
     public ICachedPage pin(long dpid, boolean newPage) throws HyracksDataException;
+
+    /**
+     * Pins an existing page for a single, sequential visit, e.g. from a full
+     * scan or a merge. The replacement strategy does not count such pins as a
+     * reference, so one pass over a large file does not push the frequently
+     * used pages out of the cache.
+     */
+    public ICachedPage pinOneShot(long dpid) throws HyracksDataException;
+
+    /**
+     * Read-ahead hint: starts asynchronous reads for the pages
+     * [dpid, dpid + numPages) that are not cached yet, so that later pins of
+     * those pages do not have to wait for the disk. Pages are only prefetched
+     * as long as free pages can be found without waiting for the cleaner.
+     */
+    public void prefetch(long dpid, int numPages) throws HyracksDataException;
     
     public ICachedPage pinVirtual(long vpid) throws HyracksDataException;
     
@@ -45,6 +61,14 @@ public interface IBufferCache {
 
     public void force(int fileId, boolean metadata) throws HyracksDataException;
 
+    /**
+     * Declares that the given open file is immutable from now on, e.g. because
+     * it belongs to a finished LSM disk component. All of its pages must have
+     * been flushed. Buffer caches may then read its pages from a memory
+     * mapping and let readers skip the page latches.
+     */
+    public void setFileReadOnly(int fileId) throws HyracksDataException;
+
     public int getPageSize();
 
     public int getNumPages();
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.common.buffercache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A CLOCK replacement strategy that splits the cached pages into a number of
+ * partitions, each with its own clock hand and lock. Page i belongs to
+ * partition (i % numPartitions). A thread looking for a victim starts at a
+ * partition derived from its id and only blocks if every partition is busy,
+ * so concurrent victim searches do not serialize on a single lock.
+ */
+public class PartitionedClockPageReplacementStrategy implements IPageReplacementStrategy {
+    private static final int MAX_UNSUCCESSFUL_CYCLE_COUNT = 3;
+
+    private final Lock allocationLock;
+    private final Partition[] partitions;
+    private final ICacheMemoryAllocator allocator;
+    private final int pageSize;
+    private final int maxAllowedNumPages;
+    private IBufferCacheInternal bufferCache;
+    private volatile int numPages = 0;
+
+    public PartitionedClockPageReplacementStrategy(ICacheMemoryAllocator allocator, int pageSize,
+            int maxAllowedNumPages) {
+        this(allocator, pageSize, maxAllowedNumPages, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PartitionedClockPageReplacementStrategy(ICacheMemoryAllocator allocator, int pageSize,
+            int maxAllowedNumPages, int numPartitions) {
+        if (numPartitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive: " + numPartitions);
+        }
+        this.allocationLock = new ReentrantLock();
+        this.allocator = allocator;
+        this.pageSize = pageSize;
+        this.maxAllowedNumPages = maxAllowedNumPages;
+        partitions = new Partition[Math.max(1, Math.min(numPartitions, maxAllowedNumPages))];
+        for (int i = 0; i < partitions.length; ++i) {
+            partitions[i] = new Partition(i);
+        }
+    }
+
+    @Override
+    public Object createPerPageStrategyObject(int cpid) {
+        return new AtomicBoolean();
+    }
+
+    @Override
+    public void setBufferCache(IBufferCacheInternal bufferCache) {
+        this.bufferCache = bufferCache;
+    }
+
+    @Override
+    public void notifyCachePageReset(ICachedPageInternal cPage) {
+        getPerPageObject(cPage).set(false);
+    }
+
+    @Override
+    public void notifyCachePageAccess(ICachedPageInternal cPage) {
+        // Avoid dirtying the cache line of hot pages on every access.
+        AtomicBoolean accessedFlag = getPerPageObject(cPage);
+        if (!accessedFlag.get()) {
+            accessedFlag.set(true);
+        }
+    }
+
+    @Override
+    public void notifyCachePageOneShotAccess(ICachedPageInternal cPage) {
+        // Leave the reference bit alone so that the clock can reclaim the page on its next pass.
+    }
+
+    @Override
+    public ICachedPageInternal findVictim() {
+        if (numPages < maxAllowedNumPages) {
+            allocationLock.lock();
+            try {
+                if (numPages < maxAllowedNumPages) {
+                    return allocatePage();
+                }
+            } finally {
+                allocationLock.unlock();
+            }
+        }
+        int start = (int) (Thread.currentThread().getId() % partitions.length);
+        for (int i = 0; i < partitions.length; ++i) {
+            Partition partition = partitions[(start + i) % partitions.length];
+            if (partition.lock.tryLock()) {
+                try {
+                    ICachedPageInternal cPage = partition.findVictimByEviction();
+                    if (cPage != null) {
+                        return cPage;
+                    }
+                } finally {
+                    partition.lock.unlock();
+                }
+            }
+        }
+        // Every partition was either busy or had no victim, so wait our turn.
+        for (int i = 0; i < partitions.length; ++i) {
+            Partition partition = partitions[(start + i) % partitions.length];
+            partition.lock.lock();
+            try {
+                ICachedPageInternal cPage = partition.findVictimByEviction();
+                if (cPage != null) {
+                    return cPage;
+                }
+            } finally {
+                partition.lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    private ICachedPageInternal allocatePage() {
+        CachedPage cPage = new CachedPage(numPages, allocator.allocate(pageSize, 1)[0], this);
+        bufferCache.addPage(cPage);
+        numPages++;
+        if (cPage.pinIfGoodVictim()) {
+            return cPage;
+        }
+        return null;
+    }
+
+    @Override
+    public int getNumPages() {
+        return numPages;
+    }
+
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int getMaxAllowedNumPages() {
+        return maxAllowedNumPages;
+    }
+
+    public int getNumPartitions() {
+        return partitions.length;
+    }
+
+    private AtomicBoolean getPerPageObject(ICachedPageInternal cPage) {
+        return (AtomicBoolean) cPage.getReplacementStrategyObject();
+    }
+
+    private class Partition {
+        private final Lock lock;
+        private final int partitionId;
+        // Index into the pages of this partition, not a cpid.
+        private int clockPtr;
+
+        Partition(int partitionId) {
+            this.lock = new ReentrantLock();
+            this.partitionId = partitionId;
+            clockPtr = 0;
+        }
+
+        ICachedPageInternal findVictimByEviction() {
+            int nPages = numPages;
+            if (nPages <= partitionId) {
+                return null;
+            }
+            int nPartitionPages = (nPages - partitionId + partitions.length - 1) / partitions.length;
+            clockPtr = clockPtr % nPartitionPages;
+            int startClockPtr = clockPtr;
+            int cycleCount = 0;
+            do {
+                ICachedPageInternal cPage = bufferCache.getPage(partitionId + clockPtr * partitions.length);
+                // Same policy as the ClockPageReplacementStrategy, restricted to this partition.
+                AtomicBoolean accessedFlag = getPerPageObject(cPage);
+                if (!accessedFlag.compareAndSet(true, false)) {
+                    if (cPage.pinIfGoodVictim()) {
+                        return cPage;
+                    }
+                }
+                clockPtr = (clockPtr + 1) % nPartitionPages;
+                if (clockPtr == startClockPtr) {
+                    ++cycleCount;
+                }
+            } while (cycleCount < MAX_UNSUCCESSFUL_CYCLE_COUNT);
+            return null;
+        }
+    }
+}
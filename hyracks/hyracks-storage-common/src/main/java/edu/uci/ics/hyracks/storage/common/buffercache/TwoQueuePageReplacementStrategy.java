@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.common.buffercache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A scan resistant replacement strategy in the spirit of 2Q. A page that is
+ * read into the cache starts out on probation and is only promoted to the
+ * protected set once it is referenced a second time. As long as the
+ * probationary pages take up more than their share of the cache, victims are
+ * taken from them, so a single pass over a large file (a full scan or a merge)
+ * recycles the same few frames instead of flushing out the hot pages. The
+ * protected pages are managed with a regular CLOCK.
+ * One-shot accesses (see {@link IBufferCache#pinOneShot(long)}) never count as
+ * a reference.
+ */
+public class TwoQueuePageReplacementStrategy implements IPageReplacementStrategy {
+    private static final int MAX_UNSUCCESSFUL_CYCLE_COUNT = 3;
+
+    private static final double DEFAULT_PROBATION_FRACTION = 0.25;
+
+    // Page has not been referenced since it was read in.
+    private static final int NEW = 0;
+    // Page has been referenced once, the next reference promotes it.
+    private static final int SEEN = 1;
+    private static final int PROTECTED = 2;
+
+    private final Lock lock;
+    private final ICacheMemoryAllocator allocator;
+    private final int pageSize;
+    private final int maxAllowedNumPages;
+    private final int maxProbationPages;
+    private final AtomicInteger numProtectedPages;
+    private IBufferCacheInternal bufferCache;
+    private int probationClockPtr;
+    private int protectedClockPtr;
+    private volatile int numPages = 0;
+
+    public TwoQueuePageReplacementStrategy(ICacheMemoryAllocator allocator, int pageSize, int maxAllowedNumPages) {
+        this(allocator, pageSize, maxAllowedNumPages, DEFAULT_PROBATION_FRACTION);
+    }
+
+    public TwoQueuePageReplacementStrategy(ICacheMemoryAllocator allocator, int pageSize, int maxAllowedNumPages,
+            double probationFraction) {
+        if (probationFraction <= 0 || probationFraction >= 1) {
+            throw new IllegalArgumentException("Probation fraction must be in (0, 1): " + probationFraction);
+        }
+        this.lock = new ReentrantLock();
+        this.allocator = allocator;
+        this.pageSize = pageSize;
+        this.maxAllowedNumPages = maxAllowedNumPages;
+        this.maxProbationPages = Math.max(1, (int) (maxAllowedNumPages * probationFraction));
+        this.numProtectedPages = new AtomicInteger();
+        probationClockPtr = 0;
+        protectedClockPtr = 0;
+    }
+
+    @Override
+    public Object createPerPageStrategyObject(int cpid) {
+        return new PageState();
+    }
+
+    @Override
+    public void setBufferCache(IBufferCacheInternal bufferCache) {
+        this.bufferCache = bufferCache;
+    }
+
+    @Override
+    public void notifyCachePageReset(ICachedPageInternal cPage) {
+        PageState pageState = getPerPageObject(cPage);
+        if (pageState.queue.getAndSet(NEW) == PROTECTED) {
+            numProtectedPages.decrementAndGet();
+        }
+        pageState.accessed.set(false);
+    }
+
+    @Override
+    public void notifyCachePageAccess(ICachedPageInternal cPage) {
+        PageState pageState = getPerPageObject(cPage);
+        switch (pageState.queue.get()) {
+            case NEW:
+                pageState.queue.compareAndSet(NEW, SEEN);
+                break;
+            case SEEN:
+                if (pageState.queue.compareAndSet(SEEN, PROTECTED)) {
+                    numProtectedPages.incrementAndGet();
+                }
+                break;
+            default:
+                if (!pageState.accessed.get()) {
+                    pageState.accessed.set(true);
+                }
+                break;
+        }
+    }
+
+    @Override
+    public void notifyCachePageOneShotAccess(ICachedPageInternal cPage) {
+        // Neither promotes a probationary page nor gives a protected page a second chance.
+    }
+
+    @Override
+    public ICachedPageInternal findVictim() {
+        lock.lock();
+        try {
+            if (numPages < maxAllowedNumPages) {
+                return allocatePage();
+            }
+            ICachedPageInternal cPage = null;
+            if (numPages - numProtectedPages.get() > maxProbationPages) {
+                cPage = findProbationVictim();
+            }
+            if (cPage == null) {
+                cPage = findProtectedVictim();
+            }
+            if (cPage == null) {
+                cPage = findProbationVictim();
+            }
+            return cPage;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ICachedPageInternal findProbationVictim() {
+        int startClockPtr = probationClockPtr;
+        int cycleCount = 0;
+        do {
+            ICachedPageInternal cPage = bufferCache.getPage(probationClockPtr);
+            probationClockPtr = (probationClockPtr + 1) % numPages;
+            if (getPerPageObject(cPage).queue.get() != PROTECTED && cPage.pinIfGoodVictim()) {
+                return cPage;
+            }
+            if (probationClockPtr == startClockPtr) {
+                ++cycleCount;
+            }
+        } while (cycleCount < MAX_UNSUCCESSFUL_CYCLE_COUNT);
+        return null;
+    }
+
+    private ICachedPageInternal findProtectedVictim() {
+        int startClockPtr = protectedClockPtr;
+        int cycleCount = 0;
+        do {
+            ICachedPageInternal cPage = bufferCache.getPage(protectedClockPtr);
+            protectedClockPtr = (protectedClockPtr + 1) % numPages;
+            PageState pageState = getPerPageObject(cPage);
+            if (pageState.queue.get() == PROTECTED && !pageState.accessed.compareAndSet(true, false)) {
+                if (cPage.pinIfGoodVictim()) {
+                    return cPage;
+                }
+            }
+            if (protectedClockPtr == startClockPtr) {
+                ++cycleCount;
+            }
+        } while (cycleCount < MAX_UNSUCCESSFUL_CYCLE_COUNT);
+        return null;
+    }
+
+    private ICachedPageInternal allocatePage() {
+        CachedPage cPage = new CachedPage(numPages, allocator.allocate(pageSize, 1)[0], this);
+        bufferCache.addPage(cPage);
+        numPages++;
+        if (cPage.pinIfGoodVictim()) {
+            return cPage;
+        }
+        return null;
+    }
+
+    @Override
+    public int getNumPages() {
+        return numPages;
+    }
+
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int getMaxAllowedNumPages() {
+        return maxAllowedNumPages;
+    }
+
+    public int getNumProtectedPages() {
+        return numProtectedPages.get();
+    }
+
+    private PageState getPerPageObject(ICachedPageInternal cPage) {
+        return (PageState) cPage.getReplacementStrategyObject();
+    }
+
+    private static class PageState {
+        private final AtomicInteger queue = new AtomicInteger(NEW);
+        private final AtomicBoolean accessed = new AtomicBoolean();
+    }
+}
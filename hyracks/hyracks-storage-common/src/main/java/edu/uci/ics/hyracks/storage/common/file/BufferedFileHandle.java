@@ -14,14 +14,25 @@
  */
 package edu.uci.ics.hyracks.storage.common.file;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.IFileHandle;
+import edu.uci.ics.hyracks.api.io.IIOManager;
 
 public class BufferedFileHandle {
     private final int fileId;
     private IFileHandle handle;
     private final AtomicInteger refCount;
+    // Read-only memory mapping of an immutable file, split into regions of
+    // pagesPerRegion pages since a single mapping is limited to 2GB.
+    private volatile ByteBuffer[] mappedRegions;
+    private int pagesPerRegion;
+    // Keeps the mapping from being released while a page is copied from it.
+    private final ReadWriteLock mappingLock = new ReentrantReadWriteLock();
 
     public BufferedFileHandle(int fileId, IFileHandle handle) {
         this.fileId = fileId;
@@ -45,6 +56,83 @@ public class BufferedFileHandle {
         return handle == null;
     }
 
+    public boolean isReadOnly() {
+        return mappedRegions != null;
+    }
+
+    /**
+     * Switches the file to read-only mode by mapping its current contents
+     * into memory. Must only be called once all of its pages are on disk.
+     */
+    public synchronized void mapReadOnly(IIOManager ioManager, int pageSize) throws HyracksDataException {
+        if (mappedRegions != null) {
+            return;
+        }
+        long numPages = ioManager.getSize(handle) / pageSize;
+        int regionPages = Integer.MAX_VALUE / pageSize;
+        ByteBuffer[] regions = new ByteBuffer[(int) ((numPages + regionPages - 1) / regionPages)];
+        for (int i = 0; i < regions.length; ++i) {
+            int regionLength = (int) Math.min(regionPages, numPages - (long) i * regionPages) * pageSize;
+            regions[i] = ioManager.mapReadOnly(handle, (long) i * regionPages * pageSize, regionLength);
+        }
+        pagesPerRegion = regionPages;
+        mappedRegions = regions;
+    }
+
+    /**
+     * Copies a page of a read-only file from its mapping.
+     * 
+     * @return false if the file is not mapped or the page lies beyond the
+     *         mapped contents, in which case the caller has to read it
+     */
+    public boolean readMappedPage(int pageId, ByteBuffer page) {
+        mappingLock.readLock().lock();
+        try {
+            ByteBuffer[] regions = mappedRegions;
+            if (regions == null) {
+                return false;
+            }
+            int region = pageId / pagesPerRegion;
+            if (region >= regions.length) {
+                return false;
+            }
+            int pageSize = page.capacity();
+            int offset = (pageId % pagesPerRegion) * pageSize;
+            if (offset + pageSize > regions[region].capacity()) {
+                return false;
+            }
+            ByteBuffer src = regions[region].duplicate();
+            src.limit(offset + pageSize);
+            src.position(offset);
+            page.clear();
+            page.put(src);
+            return true;
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the memory mapping of a read-only file, instead of leaving it
+     * to the garbage collector. Called when the file is closed or deleted;
+     * pages that are read afterwards go through the file handle again.
+     */
+    public synchronized void unmap(IIOManager ioManager) {
+        mappingLock.writeLock().lock();
+        try {
+            ByteBuffer[] regions = mappedRegions;
+            if (regions == null) {
+                return;
+            }
+            mappedRegions = null;
+            for (ByteBuffer region : regions) {
+                ioManager.unmap(region);
+            }
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+
     public int incReferenceCount() {
         return refCount.incrementAndGet();
     }
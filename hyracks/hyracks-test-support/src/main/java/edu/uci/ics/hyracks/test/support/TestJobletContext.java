@@ -21,6 +21,7 @@ import edu.uci.ics.hyracks.api.context.IHyracksJobletContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.exceptions.HyracksException;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.io.IFrameCodecFactory;
 import edu.uci.ics.hyracks.api.io.IIOManager;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
@@ -33,6 +34,7 @@ public class TestJobletContext implements IHyracksJobletContext {
     private final INCApplicationContext appContext;
     private JobId jobId;
     private WorkspaceFileFactory fileFactory;
+    private IFrameCodecFactory runFileCodecFactory;
 
     public TestJobletContext(int frameSize, INCApplicationContext appContext, JobId jobId) throws HyracksException {
         this.frameSize = frameSize;
@@ -45,6 +47,10 @@ public class TestJobletContext implements IHyracksJobletContext {
         return ByteBuffer.allocate(frameSize);
     }
 
+    public ByteBuffer allocateFrame(int bytes) {
+        return ByteBuffer.allocate(bytes);
+    }
+
     public int getFrameSize() {
         return frameSize;
     }
@@ -106,4 +112,13 @@ public class TestJobletContext implements IHyracksJobletContext {
     public ClassLoader getClassLoader() {
         return this.getClass().getClassLoader();
     }
+
+    @Override
+    public IFrameCodecFactory getRunFileCodecFactory() {
+        return runFileCodecFactory;
+    }
+
+    public void setRunFileCodecFactory(IFrameCodecFactory runFileCodecFactory) {
+        this.runFileCodecFactory = runFileCodecFactory;
+    }
 }
\ No newline at end of file
@@ -46,7 +46,16 @@ public class TestTaskContext implements IHyracksTaskContext {
     public ByteBuffer allocateFrame() {
         return jobletContext.allocateFrame();
     }
+
+    @Override
+    public ByteBuffer allocateFrame(int bytes) {
+        return jobletContext.allocateFrame(bytes);
+    }
     
+    @Override
+    public void deallocateFrame(ByteBuffer frame) {
+    }
+
     @Override
     public void deallocateFrames(int frameCount) {
     }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.btree;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.exceptions.HyracksException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.util.TupleUtils;
+import edu.uci.ics.hyracks.storage.am.btree.OrderedIndexTestUtils;
+import edu.uci.ics.hyracks.storage.am.btree.impls.BTree;
+import edu.uci.ics.hyracks.storage.am.btree.impls.RangePredicate;
+import edu.uci.ics.hyracks.storage.am.common.CheckTuple;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexBulkLoader;
+import edu.uci.ics.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.IndexOperation;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTree;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTreeDiskComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTreeOpContext;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.util.LSMBTreeTestContext;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.util.LSMBTreeTestHarness;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.NoOpIOOperationCallback;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
+import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class LSMBTreeKeyRangeTest {
+
+    private static final int KEYS_PER_COMPONENT = 100;
+    private static final int KEY_STRIDE = 1000;
+
+    private final LSMBTreeTestHarness harness = new LSMBTreeTestHarness();
+    private final OrderedIndexTestUtils orderedIndexTestUtils = new OrderedIndexTestUtils();
+
+    @Before
+    public void setUp() throws HyracksException {
+        harness.setUp();
+    }
+
+    @After
+    public void tearDown() throws HyracksDataException {
+        harness.tearDown();
+    }
+
+    @Test
+    public void keyRangeTest() throws Exception {
+        ISerializerDeserializer[] fieldSerdes = { IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE };
+        LSMBTreeTestContext ctx = LSMBTreeTestContext.create(harness.getVirtualBufferCaches(),
+                harness.getFileReference(), harness.getDiskBufferCache(), harness.getDiskFileMapProvider(),
+                fieldSerdes, 1, harness.getBoomFilterFalsePositiveRate(), harness.getMergePolicy(),
+                harness.getOperationTracker(), harness.getIOScheduler(), harness.getIOOperationCallback());
+        LSMBTree lsmBTree = (LSMBTree) ctx.getIndex();
+        lsmBTree.create();
+        lsmBTree.activate();
+
+        // The first component is bulk loaded, the others are flushed. Component i holds the keys
+        // [i * KEY_STRIDE, i * KEY_STRIDE + KEYS_PER_COMPONENT).
+        IIndexBulkLoader bulkLoader = lsmBTree.createBulkLoader(1.0f, false, KEYS_PER_COMPONENT, true);
+        for (int key = 0; key < KEYS_PER_COMPONENT; key++) {
+            bulkLoader.add(TupleUtils.createIntegerTuple(key, key));
+            ctx.insertCheckTuple(createCheckTuple(key), ctx.getCheckTuples());
+        }
+        bulkLoader.end();
+        for (int i = 1; i < 4; i++) {
+            for (int key = i * KEY_STRIDE; key < i * KEY_STRIDE + KEYS_PER_COMPONENT; key++) {
+                ctx.getIndexAccessor().insert(TupleUtils.createIntegerTuple(key, key));
+                ctx.insertCheckTuple(createCheckTuple(key), ctx.getCheckTuples());
+            }
+            // Deactivate and the re-activate the index to force it flush its in memory component
+            lsmBTree.deactivate();
+            lsmBTree.activate();
+        }
+        // A component that only holds an antimatter tuple.
+        ctx.getIndexAccessor().delete(TupleUtils.createIntegerTuple(1050, 1050));
+        ctx.deleteCheckTuple(createCheckTuple(1050), ctx.getCheckTuples());
+        lsmBTree.deactivate();
+        lsmBTree.activate();
+
+        Assert.assertEquals(5, lsmBTree.getImmutableComponents().size());
+        Assert.assertEquals(5, countSearchedComponents(lsmBTree, null, null, true, true));
+        Assert.assertEquals(1, countSearchedComponents(lsmBTree, 2000, 2099, true, true));
+        Assert.assertEquals(2, countSearchedComponents(lsmBTree, 1050, 1050, true, true));
+        Assert.assertEquals(0, countSearchedComponents(lsmBTree, 1099, 2000, false, false));
+        Assert.assertEquals(1, countSearchedComponents(lsmBTree, 1099, 2000, true, false));
+        Assert.assertEquals(0, countSearchedComponents(lsmBTree, 5000, null, true, true));
+        Assert.assertEquals(1, countSearchedComponents(lsmBTree, null, 0, true, true));
+
+        orderedIndexTestUtils.checkPointSearches(ctx);
+        orderedIndexTestUtils.checkScan(ctx);
+        orderedIndexTestUtils.checkRangeSearch(ctx, TupleUtils.createIntegerTuple(1000),
+                TupleUtils.createIntegerTuple(2050), true, true);
+
+        // The merged component covers the key ranges of the merged components.
+        ILSMIndexAccessor accessor = (ILSMIndexAccessor) ctx.getIndexAccessor();
+        accessor.scheduleFullMerge(NoOpIOOperationCallback.INSTANCE);
+        Assert.assertEquals(1, lsmBTree.getImmutableComponents().size());
+        Assert.assertEquals(1, countSearchedComponents(lsmBTree, 0, 3099, true, true));
+        Assert.assertEquals(0, countSearchedComponents(lsmBTree, 3099, null, false, true));
+
+        lsmBTree.deactivate();
+        lsmBTree.activate();
+        Assert.assertEquals(0, countSearchedComponents(lsmBTree, 3099, null, false, true));
+        orderedIndexTestUtils.checkPointSearches(ctx);
+        orderedIndexTestUtils.checkScan(ctx);
+
+        lsmBTree.deactivate();
+        lsmBTree.destroy();
+    }
+
+    @Test
+    public void unmarkedMetadataTest() throws Exception {
+        ISerializerDeserializer[] fieldSerdes = { IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE };
+        LSMBTreeTestContext ctx = LSMBTreeTestContext.create(harness.getVirtualBufferCaches(),
+                harness.getFileReference(), harness.getDiskBufferCache(), harness.getDiskFileMapProvider(),
+                fieldSerdes, 1, harness.getBoomFilterFalsePositiveRate(), harness.getMergePolicy(),
+                harness.getOperationTracker(), harness.getIOScheduler(), harness.getIOOperationCallback());
+        LSMBTree lsmBTree = (LSMBTree) ctx.getIndex();
+        lsmBTree.create();
+        lsmBTree.activate();
+        for (int key = 0; key < KEYS_PER_COMPONENT; key++) {
+            ctx.getIndexAccessor().insert(TupleUtils.createIntegerTuple(key, key));
+            ctx.insertCheckTuple(createCheckTuple(key), ctx.getCheckTuples());
+        }
+        lsmBTree.deactivate();
+        lsmBTree.activate();
+        Assert.assertEquals(0, countSearchedComponents(lsmBTree, 5000, null, true, true));
+
+        // Files written before the key range was added have junk where the key range page id is kept now.
+        BTree btree = ((LSMBTreeDiskComponent) lsmBTree.getImmutableComponents().get(0)).getBTree();
+        IBufferCache bufferCache = harness.getDiskBufferCache();
+        ICachedPage metadataPage = bufferCache.pin(
+                BufferedFileHandle.getDiskPageId(btree.getFileId(), btree.getFreePageManager().getFirstMetadataPage()),
+                false);
+        metadataPage.acquireWriteLatch();
+        try {
+            for (int i = 12; i < 20; i++) {
+                metadataPage.getBuffer().put(i, (byte) 0x7f);
+            }
+        } finally {
+            metadataPage.releaseWriteLatch(true);
+            bufferCache.unpin(metadataPage);
+        }
+
+        // Such a component has no key range and is always searched.
+        lsmBTree.deactivate();
+        lsmBTree.activate();
+        Assert.assertEquals(1, countSearchedComponents(lsmBTree, 5000, null, true, true));
+        orderedIndexTestUtils.checkPointSearches(ctx);
+        orderedIndexTestUtils.checkScan(ctx);
+
+        lsmBTree.deactivate();
+        lsmBTree.destroy();
+    }
+
+    private CheckTuple createCheckTuple(int key) {
+        CheckTuple checkTuple = new CheckTuple(2, 1);
+        checkTuple.appendField(key);
+        checkTuple.appendField(key);
+        return checkTuple;
+    }
+
+    private int countSearchedComponents(LSMBTree lsmBTree, Integer lowKey, Integer highKey, boolean lowKeyInclusive,
+            boolean highKeyInclusive) throws HyracksDataException {
+        MultiComparator cmp = MultiComparator.create(lsmBTree.getComparatorFactories());
+        ITupleReference lowKeyTuple = lowKey != null ? TupleUtils.createIntegerTuple(lowKey) : null;
+        ITupleReference highKeyTuple = highKey != null ? TupleUtils.createIntegerTuple(highKey) : null;
+        LSMBTreeOpContext opCtx = lsmBTree.createOpContext(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        opCtx.setOperation(IndexOperation.SEARCH);
+        opCtx.setSearchPredicate(new RangePredicate(lowKeyTuple, highKeyTuple, lowKeyInclusive, highKeyInclusive, cmp,
+                cmp));
+        lsmBTree.getOperationalComponents(opCtx);
+        int numDiskComponents = 0;
+        for (ILSMComponent c : opCtx.getComponentHolder()) {
+            if (c instanceof LSMBTreeDiskComponent) {
+                numDiskComponents++;
+            }
+        }
+        return numDiskComponents;
+    }
+}
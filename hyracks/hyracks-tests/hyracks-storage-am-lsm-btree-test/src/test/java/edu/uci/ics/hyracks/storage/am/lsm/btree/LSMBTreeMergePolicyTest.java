@@ -0,0 +1,183 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.btree;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.exceptions.HyracksException;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.storage.am.btree.OrderedIndexTestUtils;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import edu.uci.ics.hyracks.storage.am.config.AccessMethodTestsConfig;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.impls.LSMBTree;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.util.LSMBTreeTestContext;
+import edu.uci.ics.hyracks.storage.am.lsm.btree.util.LSMBTreeTestHarness;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent.ComponentState;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndex;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMMergePolicy;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.BlockingIOOperationCallbackWrapper;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LeveledMergePolicy;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.ThrottledAsynchronousScheduler;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.TieredMergePolicy;
+
+@SuppressWarnings("rawtypes")
+public class LSMBTreeMergePolicyTest {
+
+    private static final int NUM_FLUSHES = 16;
+    private static final int NUM_ASYNC_FLUSHES = 8;
+    private static final long MERGE_TIMEOUT_MILLIS = 60000;
+
+    private final LSMBTreeTestHarness harness = new LSMBTreeTestHarness();
+    private final OrderedIndexTestUtils orderedIndexTestUtils = new OrderedIndexTestUtils();
+
+    @Before
+    public void setUp() throws HyracksException {
+        harness.setUp();
+    }
+
+    @After
+    public void tearDown() throws HyracksDataException {
+        harness.tearDown();
+    }
+
+    @Test
+    public void tieredMergePolicyTest() throws Exception {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("size-ratio", "2");
+        properties.put("components-per-tier", "4");
+        ILSMMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.configure(properties);
+        int numComponents = runFlushes(mergePolicy);
+        // Each tier holds fewer than components-per-tier components once its merge has been done.
+        Assert.assertTrue(numComponents < NUM_FLUSHES / 2);
+    }
+
+    @Test
+    public void leveledMergePolicyTest() throws Exception {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("size-ratio", "4");
+        ILSMMergePolicy mergePolicy = new LeveledMergePolicy();
+        mergePolicy.configure(properties);
+        int numComponents = runFlushes(mergePolicy);
+        Assert.assertTrue(numComponents <= 3);
+    }
+
+    @Test
+    public void asynchronousMergeTest() throws Exception {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("size-ratio", "100");
+        properties.put("components-per-tier", "2");
+        final AtomicBoolean mergesEnabled = new AtomicBoolean(false);
+        ILSMMergePolicy mergePolicy = new TieredMergePolicy() {
+            @Override
+            public void diskComponentAdded(ILSMIndex index, boolean fullMergeIsRequested)
+                    throws HyracksDataException, IndexException {
+                if (mergesEnabled.get()) {
+                    super.diskComponentAdded(index, fullMergeIsRequested);
+                }
+            }
+        };
+        mergePolicy.configure(properties);
+        // The merges are paced, so all but the first of the merges that one call of the policy schedules wait until
+        // the policy is done, and each of them must still merge its own components.
+        ThrottledAsynchronousScheduler scheduler = new ThrottledAsynchronousScheduler(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            }
+        }, 32 * 1024, 2);
+        try {
+            ISerializerDeserializer[] fieldSerdes = { IntegerSerializerDeserializer.INSTANCE,
+                    IntegerSerializerDeserializer.INSTANCE };
+            LSMBTreeTestContext ctx = LSMBTreeTestContext.create(harness.getVirtualBufferCaches(),
+                    harness.getFileReference(), harness.getDiskBufferCache(), harness.getDiskFileMapProvider(),
+                    fieldSerdes, 1, harness.getBoomFilterFalsePositiveRate(), mergePolicy,
+                    harness.getOperationTracker(), scheduler, harness.getIOOperationCallback());
+            LSMBTree lsmBTree = (LSMBTree) ctx.getIndex();
+            lsmBTree.create();
+            lsmBTree.activate();
+            for (int i = 0; i < NUM_ASYNC_FLUSHES; i++) {
+                orderedIndexTestUtils.insertIntTuples(ctx, AccessMethodTestsConfig.BTREE_NUM_TUPLES_TO_INSERT,
+                        harness.getRandom());
+                ILSMIndexAccessor accessor = lsmBTree.createAccessor(NoOpOperationCallback.INSTANCE,
+                        NoOpOperationCallback.INSTANCE);
+                BlockingIOOperationCallbackWrapper cb = new BlockingIOOperationCallbackWrapper(
+                        harness.getIOOperationCallback());
+                accessor.scheduleFlush(cb);
+                cb.waitForIO();
+            }
+            mergesEnabled.set(true);
+            mergePolicy.diskComponentAdded(lsmBTree, false);
+            // A merge schedules the next one before it releases its device slots.
+            long deadline = System.currentTimeMillis() + MERGE_TIMEOUT_MILLIS;
+            while (scheduler.getNumRunningMerges() > 0 || scheduler.getNumWaitingMerges() > 0) {
+                Assert.assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(scheduler.getTotalMergeBytes() > 0);
+            // A merge that worked on the components of another one would leave its own components merging.
+            for (ILSMComponent c : lsmBTree.getImmutableComponents()) {
+                Assert.assertEquals(ComponentState.READABLE_UNWRITABLE, c.getState());
+            }
+            orderedIndexTestUtils.checkPointSearches(ctx);
+            orderedIndexTestUtils.checkScan(ctx);
+            Assert.assertEquals(1, lsmBTree.getImmutableComponents().size());
+            lsmBTree.deactivate();
+            lsmBTree.destroy();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private int runFlushes(ILSMMergePolicy mergePolicy) throws Exception {
+        ISerializerDeserializer[] fieldSerdes = { IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE };
+        LSMBTreeTestContext ctx = LSMBTreeTestContext.create(harness.getVirtualBufferCaches(),
+                harness.getFileReference(), harness.getDiskBufferCache(), harness.getDiskFileMapProvider(),
+                fieldSerdes, 1, harness.getBoomFilterFalsePositiveRate(), mergePolicy, harness.getOperationTracker(),
+                harness.getIOScheduler(), harness.getIOOperationCallback());
+        ctx.getIndex().create();
+        ctx.getIndex().activate();
+        for (int i = 0; i < NUM_FLUSHES; i++) {
+            orderedIndexTestUtils.insertIntTuples(ctx, AccessMethodTestsConfig.BTREE_NUM_TUPLES_TO_INSERT,
+                    harness.getRandom());
+            // Deactivate and the re-activate the index to force it flush its in memory component
+            ctx.getIndex().deactivate();
+            ctx.getIndex().activate();
+        }
+        orderedIndexTestUtils.checkPointSearches(ctx);
+        orderedIndexTestUtils.checkScan(ctx);
+        int numComponents = ((LSMBTree) ctx.getIndex()).getImmutableComponents().size();
+        ctx.getIndex().deactivate();
+        ctx.getIndex().destroy();
+        return numComponents;
+    }
+}
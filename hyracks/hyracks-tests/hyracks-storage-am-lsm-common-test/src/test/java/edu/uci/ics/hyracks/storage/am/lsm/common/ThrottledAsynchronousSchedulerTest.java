@@ -0,0 +1,251 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.IODeviceHandle;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperation.LSMIOOpertionType;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperationCallback;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMMergeOperation;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.AbstractDiskLSMComponent;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.NoOpIOOperationCallback;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.ThrottledAsynchronousScheduler;
+
+public class ThrottledAsynchronousSchedulerTest {
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private final IODeviceHandle dev1 = new IODeviceHandle(new File("dev1"), ".");
+    private final IODeviceHandle dev2 = new IODeviceHandle(new File("dev2"), ".");
+
+    private final ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private ThrottledAsynchronousScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void mergesPerDeviceTest() throws Exception {
+        scheduler = new ThrottledAsynchronousScheduler(threadFactory, 0, 1);
+        TestOperation merge1 = new TestOperation(LSMIOOpertionType.MERGE, "index1", dev1, 0);
+        TestOperation merge2 = new TestOperation(LSMIOOpertionType.MERGE, "index2", dev1, 0);
+        TestOperation merge3 = new TestOperation(LSMIOOpertionType.MERGE, "index3", dev2, 0);
+        TestOperation flush = new TestOperation(LSMIOOpertionType.FLUSH, "index2", dev1, 0);
+        scheduler.scheduleOperation(merge1);
+        scheduler.scheduleOperation(merge2);
+        scheduler.scheduleOperation(merge3);
+        merge1.awaitStarted();
+        merge3.awaitStarted();
+        assertEquals(2, scheduler.getNumRunningMerges());
+        assertEquals(1, scheduler.getNumWaitingMerges());
+
+        // A flush does not wait for the merges of its device.
+        scheduler.scheduleOperation(flush);
+        flush.awaitStarted();
+        assertEquals(1, scheduler.getNumRunningFlushes());
+        flush.finish();
+
+        assertEquals(1, merge2.started.getCount());
+        merge1.finish();
+        merge2.awaitStarted();
+        merge2.finish();
+        merge3.finish();
+        waitForIdle();
+    }
+
+    @Test
+    public void flushOrderTest() throws Exception {
+        scheduler = new ThrottledAsynchronousScheduler(threadFactory, 0, 1);
+        TestOperation flush1 = new TestOperation(LSMIOOpertionType.FLUSH, "index1", dev1, 0);
+        TestOperation flush2 = new TestOperation(LSMIOOpertionType.FLUSH, "index1", dev1, 0);
+        TestOperation flush3 = new TestOperation(LSMIOOpertionType.FLUSH, "index2", dev1, 0);
+        scheduler.scheduleOperation(flush1);
+        scheduler.scheduleOperation(flush2);
+        scheduler.scheduleOperation(flush3);
+        flush1.awaitStarted();
+        flush3.awaitStarted();
+        // Flushes of the same index run one after the other.
+        assertEquals(1, scheduler.getNumWaitingFlushes());
+        assertEquals(1, flush2.started.getCount());
+        flush1.finish();
+        flush2.awaitStarted();
+        flush2.finish();
+        flush3.finish();
+        waitForIdle();
+    }
+
+    @Test
+    public void unsizedMergeTest() throws Exception {
+        scheduler = new ThrottledAsynchronousScheduler(threadFactory, 0, 1);
+        TestOperation unsized = new TestOperation(LSMIOOpertionType.MERGE, "index1", dev1, 0) {
+            @Override
+            public List<ILSMComponent> getMergingComponents() {
+                throw new IllegalStateException();
+            }
+        };
+        try {
+            scheduler.scheduleOperation(unsized);
+            fail();
+        } catch (IllegalStateException e) {
+            // The merge is rejected before it takes a slot of its device.
+        }
+        assertEquals(0, scheduler.getNumRunningMerges());
+        assertEquals(0, scheduler.getNumWaitingMerges());
+
+        TestOperation merge = new TestOperation(LSMIOOpertionType.MERGE, "index2", dev1, 0);
+        scheduler.scheduleOperation(merge);
+        merge.awaitStarted();
+        merge.finish();
+        waitForIdle();
+    }
+
+    @Test
+    public void mergeRateTest() throws Exception {
+        int mergeBytes = 100000;
+        scheduler = new ThrottledAsynchronousScheduler(threadFactory, 1000000, 3);
+        List<TestOperation> merges = new ArrayList<TestOperation>();
+        for (int i = 0; i < 3; i++) {
+            TestOperation merge = new TestOperation(LSMIOOpertionType.MERGE, "index" + i, dev1, mergeBytes);
+            merge.finish();
+            merges.add(merge);
+            scheduler.scheduleOperation(merge);
+        }
+        waitForIdle();
+        // Every merge uses a tenth of a second of the budget, so the last two have to wait 0.1s and 0.2s.
+        assertEquals(3 * mergeBytes, scheduler.getTotalMergeBytes());
+        assertTrue(scheduler.getTotalMergeThrottleTimeMillis() >= 250);
+    }
+
+    private void waitForIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (scheduler.getNumRunningFlushes() + scheduler.getNumWaitingFlushes() + scheduler.getNumRunningMerges()
+                + scheduler.getNumWaitingMerges() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestComponent extends AbstractDiskLSMComponent {
+        private final long size;
+
+        public TestComponent(long size) {
+            this.size = size;
+        }
+
+        @Override
+        protected void destroy() throws HyracksDataException {
+        }
+
+        @Override
+        public long getComponentSize() {
+            return size;
+        }
+    }
+
+    /**
+     * An operation that runs until the test lets it finish.
+     */
+    private static class TestOperation implements ILSMMergeOperation {
+        private final LSMIOOpertionType type;
+        private final String indexIdentifier;
+        private final IODeviceHandle dev;
+        private final List<ILSMComponent> mergingComponents;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        public TestOperation(LSMIOOpertionType type, String indexIdentifier, IODeviceHandle dev, long size) {
+            this.type = type;
+            this.indexIdentifier = indexIdentifier;
+            this.dev = dev;
+            this.mergingComponents = Collections.<ILSMComponent> singletonList(new TestComponent(size));
+        }
+
+        public void awaitStarted() throws InterruptedException {
+            assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        public void finish() {
+            finished.countDown();
+        }
+
+        @Override
+        public Boolean call() throws HyracksDataException {
+            started.countDown();
+            try {
+                assertTrue(finished.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                throw new HyracksDataException(e);
+            }
+            return true;
+        }
+
+        @Override
+        public Set<IODeviceHandle> getReadDevices() {
+            return Collections.singleton(dev);
+        }
+
+        @Override
+        public Set<IODeviceHandle> getWriteDevices() {
+            return Collections.singleton(dev);
+        }
+
+        @Override
+        public ILSMIOOperationCallback getCallback() {
+            return NoOpIOOperationCallback.INSTANCE;
+        }
+
+        @Override
+        public String getIndexUniqueIdentifier() {
+            return indexIdentifier;
+        }
+
+        @Override
+        public LSMIOOpertionType getIOOpertionType() {
+            return type;
+        }
+
+        @Override
+        public List<ILSMComponent> getMergingComponents() {
+            return mergingComponents;
+        }
+    }
+}
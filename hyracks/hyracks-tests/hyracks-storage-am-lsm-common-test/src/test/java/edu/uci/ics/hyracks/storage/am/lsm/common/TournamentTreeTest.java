@@ -0,0 +1,94 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.TournamentTree;
+
+public class TournamentTreeTest {
+    private static final long SEED = 123456789L;
+    private static final int NUM_SLOTS = 13;
+    private static final int NUM_OPERATIONS = 100000;
+
+    private static class Element {
+        private final int slot;
+        private final int key;
+
+        public Element(int slot, int key) {
+            this.slot = slot;
+            this.key = key;
+        }
+    }
+
+    private static final Comparator<Element> CMP = new Comparator<Element>() {
+        @Override
+        public int compare(Element a, Element b) {
+            if (a.key != b.key) {
+                return a.key < b.key ? -1 : 1;
+            }
+            return a.slot < b.slot ? -1 : (a.slot == b.slot ? 0 : 1);
+        }
+    };
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(SEED);
+        TournamentTree<Element> tree = new TournamentTree<Element>(NUM_SLOTS, CMP);
+        PriorityQueue<Element> pq = new PriorityQueue<Element>(NUM_SLOTS, CMP);
+        Element[] slots = new Element[NUM_SLOTS];
+        int[] lastKeys = new int[NUM_SLOTS];
+        for (int i = 0; i < NUM_OPERATIONS; i++) {
+            int op = random.nextInt(10);
+            if (op < 5) {
+                // Like a cursor, every slot produces increasing keys.
+                int slot = random.nextInt(NUM_SLOTS);
+                if (slots[slot] == null) {
+                    lastKeys[slot] += random.nextInt(100);
+                    slots[slot] = new Element(slot, lastKeys[slot]);
+                    tree.offer(slot, slots[slot]);
+                    pq.offer(slots[slot]);
+                }
+            } else if (op < 9) {
+                Element e = tree.poll();
+                assertEquals(pq.poll(), e);
+                if (e != null) {
+                    slots[e.slot] = null;
+                }
+            } else {
+                int slot = random.nextInt(NUM_SLOTS);
+                Element e = tree.remove(slot);
+                assertEquals(slots[slot], e);
+                if (e != null) {
+                    pq.remove(e);
+                    slots[slot] = null;
+                }
+            }
+            assertEquals(pq.peek(), tree.peek());
+            assertEquals(pq.size(), tree.size());
+        }
+        tree.clear();
+        assertNull(tree.peek());
+        assertEquals(0, tree.size());
+    }
+}
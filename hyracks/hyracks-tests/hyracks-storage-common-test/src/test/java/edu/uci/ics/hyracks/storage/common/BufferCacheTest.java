@@ -15,6 +15,7 @@
 package edu.uci.ics.hyracks.storage.common;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -30,6 +31,9 @@ import org.junit.Test;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.io.IFileHandle;
+import edu.uci.ics.hyracks.api.io.IIOManager;
+import edu.uci.ics.hyracks.storage.common.buffercache.BufferCache;
 import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
 import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
 import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
@@ -411,6 +415,132 @@ public class BufferCacheTest {
         bufferCache.closeFile(fileId);
     }
 
+    @Test
+    public void prefetchTest() throws HyracksDataException {
+        TestStorageManagerComponentHolder.init(PAGE_SIZE, NUM_PAGES, MAX_OPEN_FILES);
+        IBufferCache bufferCache = TestStorageManagerComponentHolder.getBufferCache(ctx);
+        IFileMapProvider fmp = TestStorageManagerComponentHolder.getFileMapProvider(ctx);
+        String fileName = getFileName();
+        FileReference file = new FileReference(new File(fileName));
+        bufferCache.createFile(file);
+        int fileId = fmp.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        // write more pages than fit into the cache, so that the first ones get evicted
+        int numFilePages = NUM_PAGES * 3;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+
+        // read the file back in runs, reading ahead of the pins
+        int runLength = NUM_PAGES / 2;
+        for (int i = 0; i < numFilePages; i += runLength) {
+            bufferCache.prefetch(BufferedFileHandle.getDiskPageId(fileId, i), runLength);
+            for (int j = i; j < i + runLength; j++) {
+                ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, j), false);
+                page.acquireReadLatch();
+                try {
+                    Assert.assertEquals(j, page.getBuffer().getInt(0));
+                } finally {
+                    page.releaseReadLatch();
+                    bufferCache.unpin(page);
+                }
+            }
+        }
+
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
+    @Test
+    public void readOnlyFileTest() throws HyracksDataException {
+        TestStorageManagerComponentHolder.init(PAGE_SIZE, NUM_PAGES, MAX_OPEN_FILES);
+        IBufferCache bufferCache = TestStorageManagerComponentHolder.getBufferCache(ctx);
+        IFileMapProvider fmp = TestStorageManagerComponentHolder.getFileMapProvider(ctx);
+        ((BufferCache) bufferCache).setMapReadOnlyFiles(true);
+        String fileName = getFileName();
+        FileReference file = new FileReference(new File(fileName));
+        bufferCache.createFile(file);
+        int fileId = fmp.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        int numFilePages = NUM_PAGES * 3;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+            }
+            bufferCache.flushDirtyPage(page);
+            bufferCache.unpin(page);
+        }
+        bufferCache.force(fileId, true);
+        bufferCache.setFileReadOnly(fileId);
+
+        // the first pages have been evicted, so they are now read through the mapping
+        bufferCache.prefetch(BufferedFileHandle.getDiskPageId(fileId, 0), NUM_PAGES / 2);
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), false);
+            page.acquireReadLatch();
+            try {
+                Assert.assertEquals(i, page.getBuffer().getInt(0));
+            } finally {
+                page.releaseReadLatch();
+                bufferCache.unpin(page);
+            }
+        }
+
+        // pages read after the switch cannot be modified
+        ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, 0), false);
+        try {
+            page.acquireWriteLatch();
+            Assert.fail("Write latched a page of a read-only file");
+        } catch (IllegalStateException e) {
+            // expected
+        } finally {
+            bufferCache.unpin(page);
+        }
+
+        // deleting the file releases its mapping
+        bufferCache.closeFile(fileId);
+        bufferCache.deleteFile(fileId, false);
+        bufferCache.close();
+    }
+
+    @Test
+    public void unmapTest() throws HyracksDataException {
+        IIOManager ioManager = ctx.getIOManager();
+        FileReference file = new FileReference(new File(getFileName()));
+        IFileHandle fh = ioManager.open(file, IIOManager.FileReadWriteMode.READ_WRITE,
+                IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+        try {
+            ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+            page.putInt(0, 42);
+            ioManager.syncWrite(fh, 0, page);
+            BufferedFileHandle fInfo = new BufferedFileHandle(0, fh);
+            fInfo.mapReadOnly(ioManager, PAGE_SIZE);
+            page.putInt(0, 0);
+            Assert.assertTrue(fInfo.readMappedPage(0, page));
+            Assert.assertEquals(42, page.getInt(0));
+
+            // once the mapping is released, the page has to be read through the file handle
+            fInfo.unmap(ioManager);
+            Assert.assertFalse(fInfo.isReadOnly());
+            Assert.assertFalse(fInfo.readMappedPage(0, page));
+        } finally {
+            ioManager.close(fh);
+        }
+    }
+
     @AfterClass
     public static void cleanup() throws Exception {
         for (String s : openedFiles) {
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.storage.common.buffercache.ConcurrentBufferCache;
+import edu.uci.ics.hyracks.storage.common.buffercache.DelayPageCleanerPolicy;
+import edu.uci.ics.hyracks.storage.common.buffercache.HeapBufferAllocator;
+import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
+import edu.uci.ics.hyracks.storage.common.buffercache.IPageReplacementStrategy;
+import edu.uci.ics.hyracks.storage.common.buffercache.PartitionedClockPageReplacementStrategy;
+import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
+import edu.uci.ics.hyracks.storage.common.file.TransientFileMapManager;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class ConcurrentBufferCacheTest {
+    protected static final String tmpDir = System.getProperty("java.io.tmpdir");
+    protected static final String sep = System.getProperty("file.separator");
+
+    private static final int PAGE_SIZE = 256;
+    private static final int NUM_PAGES = 16;
+    private static final int MAX_OPEN_FILES = 4;
+    private static final int NUM_FILE_PAGES = 64;
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_PINS_PER_THREAD = 2000;
+    private static final int HYRACKS_FRAME_SIZE = PAGE_SIZE;
+    private IHyracksTaskContext ctx = TestUtils.create(HYRACKS_FRAME_SIZE);
+
+    private final ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            return new Thread(r);
+        }
+    };
+
+    private ConcurrentBufferCache createBufferCache(TransientFileMapManager fileMapManager) {
+        IPageReplacementStrategy prs = new PartitionedClockPageReplacementStrategy(new HeapBufferAllocator(),
+                PAGE_SIZE, NUM_PAGES, 4);
+        return new ConcurrentBufferCache(ctx.getIOManager(), prs, new DelayPageCleanerPolicy(1000), fileMapManager,
+                MAX_OPEN_FILES, threadFactory);
+    }
+
+    @Test
+    public void concurrentPinUnpinTest() throws Exception {
+        TransientFileMapManager fileMapManager = new TransientFileMapManager();
+        final ConcurrentBufferCache bufferCache = createBufferCache(fileMapManager);
+        FileReference file = new FileReference(new File(tmpDir + sep + "concurrentBufferCacheTestFile"
+                + System.currentTimeMillis()));
+        bufferCache.createFile(file);
+        final int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        // Write the page number into every page, forcing many evictions.
+        for (int i = 0; i < NUM_FILE_PAGES; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < NUM_THREADS; t++) {
+            final int seed = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int pageId = seed;
+                        for (int i = 0; i < NUM_PINS_PER_THREAD; i++) {
+                            pageId = (pageId * 31 + 7) % NUM_FILE_PAGES;
+                            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, pageId),
+                                    false);
+                            page.acquireReadLatch();
+                            try {
+                                Assert.assertEquals(pageId, page.getBuffer().getInt(0));
+                            } finally {
+                                page.releaseReadLatch();
+                                bufferCache.unpin(page);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new HyracksDataException(failure.get());
+        }
+
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
+    @Test
+    public void tryPinTest() throws HyracksDataException {
+        TransientFileMapManager fileMapManager = new TransientFileMapManager();
+        ConcurrentBufferCache bufferCache = createBufferCache(fileMapManager);
+        FileReference file = new FileReference(new File(tmpDir + sep + "concurrentBufferCacheTryPinFile"
+                + System.currentTimeMillis()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        long dpid = BufferedFileHandle.getDiskPageId(fileId, 0);
+        Assert.assertNull(bufferCache.tryPin(dpid));
+        ICachedPage page = bufferCache.pin(dpid, true);
+        ICachedPage page2 = bufferCache.tryPin(dpid);
+        Assert.assertSame(page, page2);
+        bufferCache.unpin(page2);
+        bufferCache.unpin(page);
+
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.control.nc.resources.memory.FramePool;
+import edu.uci.ics.hyracks.control.nc.resources.memory.MemoryManager;
+
+public class FramePoolTest {
+    private static final int FRAME_SIZE = FramePool.THREAD_CACHE_BYTES / 4;
+    private static final long MEMORY = 64L * FRAME_SIZE;
+
+    @Test
+    public void reuseTest() {
+        MemoryManager memoryManager = new MemoryManager(MEMORY);
+        FramePool pool = new FramePool(memoryManager, MEMORY / 2);
+        ByteBuffer frame = pool.allocate(FRAME_SIZE);
+        frame.putInt(0, 42);
+        frame.position(8);
+        pool.release(frame);
+        ByteBuffer recycled = pool.allocate(FRAME_SIZE);
+        Assert.assertSame(frame, recycled);
+        Assert.assertEquals(0, recycled.getInt(0));
+        Assert.assertEquals(0, recycled.position());
+        Assert.assertEquals(FRAME_SIZE, recycled.remaining());
+        // A frame of another size is not served by the released one.
+        pool.release(recycled);
+        Assert.assertNotSame(recycled, pool.allocate(FRAME_SIZE * 2));
+        Assert.assertEquals(2, pool.getAllocatedCount());
+        Assert.assertEquals(1, pool.getRecycledCount());
+        Assert.assertEquals(2, pool.getReleasedCount());
+    }
+
+    @Test
+    public void threadCacheLimitTest() {
+        MemoryManager memoryManager = new MemoryManager(MEMORY);
+        FramePool pool = new FramePool(memoryManager, MEMORY / 2);
+        List<ByteBuffer> frames = allocate(pool, 8, FRAME_SIZE);
+        release(pool, frames);
+        // The thread cache holds THREAD_CACHE_BYTES, the remaining frames are charged to the memory manager.
+        Assert.assertEquals(4L * FRAME_SIZE, pool.getRetainedBytes());
+        Assert.assertEquals(MEMORY - 4L * FRAME_SIZE, memoryManager.getAvailableMemory());
+
+        // A frame larger than the thread cache always goes to the shared free list.
+        ByteBuffer bigFrame = pool.allocate(FramePool.THREAD_CACHE_BYTES * 2);
+        pool.release(bigFrame);
+        Assert.assertEquals(4L * FRAME_SIZE + FramePool.THREAD_CACHE_BYTES * 2, pool.getRetainedBytes());
+
+        allocate(pool, 8, FRAME_SIZE);
+        Assert.assertSame(bigFrame, pool.allocate(FramePool.THREAD_CACHE_BYTES * 2));
+        Assert.assertEquals(9, pool.getRecycledCount());
+        Assert.assertEquals(0, pool.getRetainedBytes());
+        Assert.assertEquals(MEMORY, memoryManager.getAvailableMemory());
+    }
+
+    @Test
+    public void retentionBudgetTest() {
+        MemoryManager memoryManager = new MemoryManager(MEMORY);
+        FramePool pool = new FramePool(memoryManager, 2L * FRAME_SIZE);
+        release(pool, allocate(pool, 8, FRAME_SIZE));
+        // Four frames in the thread cache, two on the shared free list, the others are dropped.
+        Assert.assertEquals(2L * FRAME_SIZE, pool.getRetainedBytes());
+        Assert.assertEquals(2, pool.getDroppedCount());
+
+        // Frames that the memory manager cannot take are dropped as well.
+        List<ByteBuffer> frames = allocate(pool, 8, FRAME_SIZE);
+        Assert.assertEquals(MEMORY, memoryManager.getAvailableMemory());
+        memoryManager.allocate(MEMORY);
+        release(pool, frames);
+        Assert.assertEquals(0, pool.getRetainedBytes());
+        Assert.assertEquals(6, pool.getDroppedCount());
+    }
+
+    @Test
+    public void disabledPoolTest() {
+        MemoryManager memoryManager = new MemoryManager(MEMORY);
+        FramePool pool = new FramePool(memoryManager, 0);
+        ByteBuffer frame = pool.allocate(FRAME_SIZE);
+        pool.release(frame);
+        Assert.assertNotSame(frame, pool.allocate(FRAME_SIZE));
+        Assert.assertEquals(0, pool.getRecycledCount());
+        Assert.assertEquals(1, pool.getDroppedCount());
+        Assert.assertEquals(MEMORY, memoryManager.getAvailableMemory());
+    }
+
+    private List<ByteBuffer> allocate(FramePool pool, int numFrames, int frameSize) {
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < numFrames; i++) {
+            frames.add(pool.allocate(frameSize));
+        }
+        return frames;
+    }
+
+    private void release(FramePool pool, List<ByteBuffer> frames) {
+        for (ByteBuffer frame : frames) {
+            pool.release(frame);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.common;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.io.IFileHandle;
+import edu.uci.ics.hyracks.api.io.IIOFuture;
+import edu.uci.ics.hyracks.api.io.IIOManager;
+import edu.uci.ics.hyracks.api.io.IODeviceHandle;
+import edu.uci.ics.hyracks.control.nc.io.IODeviceQueue;
+import edu.uci.ics.hyracks.control.nc.io.IOManager;
+
+public class IODeviceQueueTest {
+    private static final int PAGE_SIZE = 256;
+    private static final int NUM_PAGES = 32;
+
+    /**
+     * Runs the submitted tasks only when asked to, so that all requests end
+     * up in the same batch.
+     */
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+        private boolean reject = false;
+
+        @Override
+        public void execute(Runnable command) {
+            if (reject) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(command);
+        }
+
+        public void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    @Test
+    public void coalescingTest() throws Exception {
+        List<IODeviceHandle> devices = new ArrayList<IODeviceHandle>();
+        devices.add(new IODeviceHandle(new File(System.getProperty("java.io.tmpdir")), "iodev_test_wa"));
+        ManualExecutor executor = new ManualExecutor();
+        IOManager ioManager = new IOManager(devices, executor);
+        FileReference file = ioManager.createWorkspaceFile("IODeviceQueueTest");
+        IFileHandle fHandle = ioManager.open(file, IIOManager.FileReadWriteMode.READ_WRITE,
+                IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+        try {
+            IODeviceQueue queue = ioManager.getDeviceQueues().get(0);
+
+            // Submit the pages in reverse order, the queue sorts them back.
+            List<IIOFuture> futures = new ArrayList<IIOFuture>();
+            for (int i = NUM_PAGES - 1; i >= 0; i--) {
+                ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+                page.putInt(0, i);
+                futures.add(ioManager.asyncWrite(fHandle, (long) i * PAGE_SIZE, page));
+            }
+            Assert.assertEquals(NUM_PAGES, queue.getQueueDepth());
+            executor.runAll();
+            for (IIOFuture future : futures) {
+                Assert.assertEquals(PAGE_SIZE, future.synchronize());
+            }
+            Assert.assertEquals(0, queue.getQueueDepth());
+            Assert.assertEquals(NUM_PAGES, queue.getMaxQueueDepth());
+            Assert.assertEquals(NUM_PAGES, queue.getWriteCount());
+            Assert.assertEquals(NUM_PAGES * PAGE_SIZE, queue.getWriteBytes());
+            Assert.assertEquals(NUM_PAGES - 1, queue.getCoalescedCount());
+
+            futures.clear();
+            List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+            for (int i = NUM_PAGES - 1; i >= 0; i--) {
+                ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+                pages.add(page);
+                futures.add(ioManager.asyncRead(fHandle, (long) i * PAGE_SIZE, page));
+            }
+            // One page past the end of the file.
+            futures.add(ioManager.asyncRead(fHandle, (long) NUM_PAGES * PAGE_SIZE, ByteBuffer.allocate(PAGE_SIZE)));
+            executor.runAll();
+            for (int i = 0; i < NUM_PAGES; i++) {
+                Assert.assertEquals(PAGE_SIZE, futures.get(i).synchronize());
+                Assert.assertEquals(NUM_PAGES - 1 - i, pages.get(i).getInt(0));
+            }
+            Assert.assertEquals(-1, futures.get(NUM_PAGES).synchronize());
+            Assert.assertEquals(NUM_PAGES + 1, queue.getReadCount());
+            Assert.assertEquals(NUM_PAGES * PAGE_SIZE, queue.getReadBytes());
+        } finally {
+            ioManager.close(fHandle);
+            file.delete();
+        }
+    }
+
+    @Test
+    public void overlappingRequestsTest() throws Exception {
+        List<IODeviceHandle> devices = new ArrayList<IODeviceHandle>();
+        devices.add(new IODeviceHandle(new File(System.getProperty("java.io.tmpdir")), "iodev_test_wa"));
+        ManualExecutor executor = new ManualExecutor();
+        IOManager ioManager = new IOManager(devices, executor);
+        FileReference file = ioManager.createWorkspaceFile("IODeviceQueueTest");
+        IFileHandle fHandle = ioManager.open(file, IIOManager.FileReadWriteMode.READ_WRITE,
+                IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+        try {
+            ioManager.syncWrite(fHandle, 0, ByteBuffer.allocate(2 * PAGE_SIZE));
+
+            // The read starts at a lower offset, but has to see the write that was submitted before it.
+            ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+            page.putInt(0, 7);
+            IIOFuture write = ioManager.asyncWrite(fHandle, PAGE_SIZE, page);
+            ByteBuffer pages = ByteBuffer.allocate(2 * PAGE_SIZE);
+            IIOFuture read = ioManager.asyncRead(fHandle, 0, pages);
+            // A write that overlaps the read must not be seen by it.
+            ByteBuffer overwrite = ByteBuffer.allocate(PAGE_SIZE);
+            overwrite.putInt(0, 9);
+            IIOFuture rewrite = ioManager.asyncWrite(fHandle, 0, overwrite);
+            executor.runAll();
+            Assert.assertEquals(PAGE_SIZE, write.synchronize());
+            Assert.assertEquals(2 * PAGE_SIZE, read.synchronize());
+            Assert.assertEquals(PAGE_SIZE, rewrite.synchronize());
+            Assert.assertEquals(0, pages.getInt(0));
+            Assert.assertEquals(7, pages.getInt(PAGE_SIZE));
+
+            ByteBuffer check = ByteBuffer.allocate(PAGE_SIZE);
+            ioManager.syncRead(fHandle, 0, check);
+            Assert.assertEquals(9, check.getInt(0));
+        } finally {
+            ioManager.close(fHandle);
+            file.delete();
+        }
+    }
+
+    @Test
+    public void rejectedSubmitTest() throws Exception {
+        List<IODeviceHandle> devices = new ArrayList<IODeviceHandle>();
+        devices.add(new IODeviceHandle(new File(System.getProperty("java.io.tmpdir")), "iodev_test_wa"));
+        ManualExecutor executor = new ManualExecutor();
+        IOManager ioManager = new IOManager(devices, executor);
+        FileReference file = ioManager.createWorkspaceFile("IODeviceQueueTest");
+        IFileHandle fHandle = ioManager.open(file, IIOManager.FileReadWriteMode.READ_WRITE,
+                IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+        try {
+            IODeviceQueue queue = ioManager.getDeviceQueues().get(0);
+
+            executor.reject = true;
+            try {
+                ioManager.asyncWrite(fHandle, 0, ByteBuffer.allocate(PAGE_SIZE));
+                Assert.fail("The write should have been rejected");
+            } catch (RejectedExecutionException e) {
+                // Expected.
+            }
+            Assert.assertEquals(0, queue.getQueueDepth());
+
+            // The rejected write is not performed by the next drainer.
+            executor.reject = false;
+            IIOFuture future = ioManager.asyncWrite(fHandle, PAGE_SIZE, ByteBuffer.allocate(PAGE_SIZE));
+            executor.runAll();
+            Assert.assertEquals(PAGE_SIZE, future.synchronize());
+            Assert.assertEquals(1, queue.getWriteCount());
+            Assert.assertEquals(0, queue.getQueueDepth());
+        } finally {
+            ioManager.close(fHandle);
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.common;
+
+import java.io.File;
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.storage.common.buffercache.BufferCache;
+import edu.uci.ics.hyracks.storage.common.buffercache.DelayPageCleanerPolicy;
+import edu.uci.ics.hyracks.storage.common.buffercache.HeapBufferAllocator;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
+import edu.uci.ics.hyracks.storage.common.buffercache.TwoQueuePageReplacementStrategy;
+import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
+import edu.uci.ics.hyracks.storage.common.file.TransientFileMapManager;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class TwoQueuePageReplacementStrategyTest {
+    protected static final String tmpDir = System.getProperty("java.io.tmpdir");
+    protected static final String sep = System.getProperty("file.separator");
+
+    private static final int PAGE_SIZE = 256;
+    private static final int NUM_PAGES = 16;
+    private static final int NUM_HOT_PAGES = 8;
+    private static final int MAX_OPEN_FILES = 4;
+    private static final int NUM_FILE_PAGES = 64;
+    private static final int HYRACKS_FRAME_SIZE = PAGE_SIZE;
+    private IHyracksTaskContext ctx = TestUtils.create(HYRACKS_FRAME_SIZE);
+
+    private final ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            return new Thread(r);
+        }
+    };
+
+    @Test
+    public void scanResistanceTest() throws HyracksDataException {
+        TransientFileMapManager fileMapManager = new TransientFileMapManager();
+        TwoQueuePageReplacementStrategy prs = new TwoQueuePageReplacementStrategy(new HeapBufferAllocator(),
+                PAGE_SIZE, NUM_PAGES);
+        IBufferCache bufferCache = new BufferCache(ctx.getIOManager(), prs, new DelayPageCleanerPolicy(1000),
+                fileMapManager, MAX_OPEN_FILES, threadFactory);
+        FileReference file = new FileReference(new File(tmpDir + sep + "twoQueueTestFile"
+                + System.currentTimeMillis()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        for (int i = 0; i < NUM_FILE_PAGES; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            page.getBuffer().putInt(0, i);
+            page.releaseWriteLatch(true);
+            bufferCache.flushDirtyPage(page);
+            bufferCache.unpin(page);
+        }
+
+        // Reference the hot pages often enough to get them promoted.
+        for (int j = 0; j < 3; j++) {
+            for (int i = 0; i < NUM_HOT_PAGES; i++) {
+                ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), false);
+                bufferCache.unpin(page);
+            }
+        }
+        Assert.assertEquals(NUM_HOT_PAGES, prs.getNumProtectedPages());
+
+        // Two full scans of the rest of the file.
+        for (int j = 0; j < 2; j++) {
+            for (int i = NUM_HOT_PAGES; i < NUM_FILE_PAGES; i++) {
+                ICachedPage page = bufferCache.pinOneShot(BufferedFileHandle.getDiskPageId(fileId, i));
+                page.acquireReadLatch();
+                try {
+                    Assert.assertEquals(i, page.getBuffer().getInt(0));
+                } finally {
+                    page.releaseReadLatch();
+                    bufferCache.unpin(page);
+                }
+            }
+        }
+
+        // The scans must not have evicted any of the hot pages.
+        for (int i = 0; i < NUM_HOT_PAGES; i++) {
+            ICachedPage page = bufferCache.tryPin(BufferedFileHandle.getDiskPageId(fileId, i));
+            Assert.assertNotNull(page);
+            bufferCache.unpin(page);
+        }
+
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+}